@@ -0,0 +1,84 @@
+package mancala;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Random games played in lockstep on a GameBatch against the same games played one MancalaGame at a time.
+ * Both score one operation per game, so the two are directly comparable.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBatchBenchmark {
+    private static final int GAMES = 1024;
+
+    @Param({"kalah", "ayo"})
+    public String rules;
+
+    @Param({"3", "4", "6"})
+    public int startStones;
+
+    private GameBatch batch;
+    private int[] moves;
+    private SplittableRandom random;
+
+    @Setup
+    public void setUp() {
+        this.batch = new GameBatch(GAMES, "kalah".equals(this.rules), this.startStones);
+        this.moves = new int[GAMES];
+        this.random = new SplittableRandom(42);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(GAMES)
+    public int batchGames() throws InvalidMoveException {
+        this.batch.resetAll();
+        int played = 0;
+        while (this.batch.randomMoves(this.random, this.moves) > 0) {
+            played += this.batch.applyMoves(this.moves);
+        }
+        return played;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(GAMES)
+    public int singleGames() throws InvalidMoveException {
+        final boolean kalah = "kalah".equals(this.rules);
+        int played = 0;
+        for (int g = 0; g < GAMES; g++) {
+            final MancalaGame game = new MancalaGame(kalah, true);
+            game.setBoard(kalah ? new KalahRules(this.startStones, true) : new AyoRules(this.startStones, true));
+            final Player one = new Player("One");
+            final Player two = new Player("Two");
+            game.setPlayers(one, two);
+            while (!game.isGameOver()) {
+                final int mask = game.legalMoves();
+                int m = mask;
+                for (int skip = this.random.nextInt(Integer.bitCount(mask)); skip > 0; skip--) {
+                    m &= m - 1;
+                }
+                game.move(MoveMask.pitOf(Integer.numberOfTrailingZeros(m), game.getCurrentPlayerNum()));
+                if (!game.getBoard().isBonus()) {
+                    game.setCurrentPlayer(game.getCurrentPlayer() == one ? two : one);
+                }
+                played++;
+            }
+        }
+        return played;
+    }
+}
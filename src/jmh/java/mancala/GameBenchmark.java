@@ -0,0 +1,66 @@
+package mancala;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Full random games per second through MancalaGame, the way the user interface plays them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark {
+    @Param({"kalah", "ayo"})
+    public String rules;
+
+    @Param({"3", "4", "6"})
+    public int startStones;
+
+    @Param({"false", "true"})
+    public boolean packed;
+
+    private SplittableRandom random;
+
+    @Setup
+    public void setUp() {
+        this.random = new SplittableRandom(42);
+    }
+
+    @Benchmark
+    public int randomGame() throws InvalidMoveException {
+        final boolean kalah = "kalah".equals(this.rules);
+        final MancalaGame game = new MancalaGame(kalah, this.packed);
+        game.setBoard(kalah ? new KalahRules(this.startStones, this.packed) : new AyoRules(this.startStones, this.packed));
+        final Player one = new Player("One");
+        final Player two = new Player("Two");
+        game.setPlayers(one, two);
+
+        int moves = 0;
+        while (!game.isGameOver() && moves < 1000) {
+            final int mask = game.legalMoves();
+            int m = mask;
+            for (int skip = this.random.nextInt(Integer.bitCount(mask)); skip > 0; skip--) {
+                m &= m - 1;
+            }
+            game.move(MoveMask.pitOf(Integer.numberOfTrailingZeros(m), game.getCurrentPlayerNum()));
+            if (!game.getBoard().isBonus()) {
+                game.setCurrentPlayer(game.getCurrentPlayer() == one ? two : one);
+            }
+            moves++;
+        }
+        return moves;
+    }
+}
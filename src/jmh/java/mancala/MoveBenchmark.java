@@ -0,0 +1,87 @@
+package mancala;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latency of a single move from the starting position.
+ * Moves change the board, so every benchmark that moves also puts the starting position back;
+ * resetPosition measures that reset alone so it can be subtracted.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveBenchmark {
+    @Param({"kalah", "ayo"})
+    public String rules;
+
+    @Param({"3", "4", "6"})
+    public int startStones;
+
+    @Param({"false", "true"})
+    public boolean packed;
+
+    /* The pit every move is played from, chosen so Kalah sows past its store */
+    @Param({"5"})
+    public int pit;
+
+    private GameRules board;
+    private MancalaGame game;
+    private final int[] start = new int[14];
+
+    @Setup
+    public void setUp() {
+        this.board = createRules();
+        this.board.getPosition(this.start);
+        this.game = new MancalaGame("kalah".equals(this.rules), this.packed);
+        this.game.setBoard(createRules());
+        this.game.setPlayers(new Player("One"), new Player("Two"));
+    }
+
+    private GameRules createRules() {
+        return "kalah".equals(this.rules) ? new KalahRules(this.startStones, this.packed)
+            : new AyoRules(this.startStones, this.packed);
+    }
+
+    @Benchmark
+    public GameRules resetPosition() {
+        this.board.setPosition(this.start, 1);
+        return this.board;
+    }
+
+    @Benchmark
+    public int distributeStones() {
+        this.board.setPosition(this.start, 1);
+        return this.board.distributeStones(this.pit);
+    }
+
+    @Benchmark
+    public int makeAndUnmakeMove() throws InvalidMoveException {
+        final int added = this.board.makeMove(this.pit, 1);
+        this.board.unmakeMove();
+        return added;
+    }
+
+    @Benchmark
+    public int gameMove() throws InvalidMoveException {
+        this.game.getBoard().setPosition(this.start, 1);
+        return this.game.move(this.pit);
+    }
+
+    @Benchmark
+    public boolean isGameOver() {
+        return this.game.isGameOver();
+    }
+}
@@ -0,0 +1,91 @@
+package mancala;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of saving and loading a game in the middle of play.
+ * The saver benchmarks go through Saver and the assets folder in the compact GameCodec format and in the old
+ * Java serialization format, the in-memory benchmarks do the same encoding so the file system cost can be told apart.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SaverBenchmark {
+    private static final String FILENAME = "jmh-saver-benchmark";
+
+    @Param({"kalah", "ayo"})
+    public String rules;
+
+    @Param({"3", "4", "6"})
+    public int startStones;
+
+    @Param({"false", "true"})
+    public boolean packed;
+
+    private MancalaGame game;
+
+    @Setup
+    public void setUp() throws InvalidMoveException {
+        new File("assets").mkdirs();
+        final boolean kalah = "kalah".equals(this.rules);
+        this.game = new MancalaGame(kalah, this.packed);
+        this.game.setBoard(kalah ? new KalahRules(this.startStones, this.packed)
+            : new AyoRules(this.startStones, this.packed));
+        this.game.setPlayers(new Player("One"), new Player("Two"));
+        this.game.move(2);
+        this.game.move(5);
+    }
+
+    @TearDown
+    public void tearDown() {
+        new File("assets/" + FILENAME).delete();
+    }
+
+    @Benchmark
+    public Object saverRoundTrip() throws IOException {
+        Saver.saveObject(this.game, FILENAME);
+        return Saver.loadObject(FILENAME);
+    }
+
+    @Benchmark
+    public Object serializedSaverRoundTrip() throws IOException {
+        Saver.saveSerialized(this.game, FILENAME);
+        return Saver.loadObject(FILENAME);
+    }
+
+    @Benchmark
+    public Object codecRoundTrip() throws IOException {
+        return GameCodec.decode(GameCodec.encodeGame(this.game));
+    }
+
+    @Benchmark
+    public Object serializationRoundTrip() throws IOException, ClassNotFoundException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(this.game);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return in.readObject();
+        }
+    }
+}
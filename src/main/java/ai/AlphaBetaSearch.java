@@ -0,0 +1,334 @@
+package ai;
+import mancala.GameRules;
+import mancala.InvalidMoveException;
+import mancala.MancalaGame;
+import mancala.MoveMask;
+
+/**
+ * A computer player which searches moves with negamax alpha-beta and iterative deepening.
+ * Moves are tried in place with GameRules.makeMove and unmakeMove, positions are cached in a
+ * transposition table, and bonus turns keep the same player to move without flipping the score.
+ * An instance is not thread safe, each thread should use its own, but several instances may share
+ * one transposition table (see ParallelSearch).
+ */
+public class AlphaBetaSearch {
+    /* Scores of finished games are offset by WIN so they outrank any evaluation */
+    public static final int WIN = 100_000;
+    public static final int MAX_DEPTH = 64;
+    private static final int INFINITY = 1_000_000;
+    private static final int CHECK_INTERVAL = 1023; // nodes between clock checks, minus one
+    private static final int ORDER_DEPTH = 3; // shallower nodes skip the trial moves used for ordering
+    private final TranspositionTable table;
+    private final int[][] moves = new int[MAX_DEPTH + 1][6];
+    private final int[][] order = new int[MAX_DEPTH + 1][6];
+    private EndgameTablebase tablebase;
+    private OpeningBook book;
+    private GameRules rules;
+    private long deadline;
+    private boolean aborted;
+    private long nodes;
+    private int rootMove; // The best move found at ply 0 by the current iteration
+    private volatile boolean stopRequested;
+
+    /**
+     * Constructor to initialize a search with its own transposition table.
+     * 
+     * @param table The transposition table to use.
+     */
+    public AlphaBetaSearch(final TranspositionTable table) {
+        this.table = table;
+    }
+
+    /**
+     * Constructor to initialize a search with a 2^20 entry transposition table.
+     */
+    public AlphaBetaSearch() {
+        this(new TranspositionTable(20));
+    }
+
+    /**
+     * Gets the transposition table used by this search.
+     * 
+     * @return The transposition table.
+     */
+    public TranspositionTable getTable() {
+        return this.table;
+    }
+
+    /**
+     * Sets an endgame tablebase to score Kalah positions it covers exactly instead of searching them.
+     * 
+     * @param newTablebase The tablebase, or null to search every position.
+     */
+    public void setTablebase(final EndgameTablebase newTablebase) {
+        this.tablebase = newTablebase;
+    }
+
+    /**
+     * Sets an opening book whose moves are played straight away for the positions it holds.
+     * 
+     * @param newBook The book, or null to search every position.
+     */
+    public void setOpeningBook(final OpeningBook newBook) {
+        this.book = newBook;
+    }
+
+    /**
+     * Finds the best move for the current player of a game, searching a copy of its board.
+     * 
+     * @param game The game to search.
+     * @param timeBudgetMs The time to spend in milliseconds.
+     * @return The search result.
+     */
+    public SearchResult bestMove(final MancalaGame game, final long timeBudgetMs) {
+        final GameRules position = game.getBoard().copyPosition();
+        position.setSideToMove(game.getCurrentPlayerNum());
+        return search(position, MAX_DEPTH, timeBudgetMs);
+    }
+
+    /**
+     * Searches the side to move of a position with iterative deepening.
+     * The position is searched in place and is back to its starting state when this returns.
+     * 
+     * @param position The rules and board to search.
+     * @param maxDepth The deepest iteration to run.
+     * @param timeBudgetMs The time to spend in milliseconds, 0 or less for no limit.
+     * @return The result of the deepest completed iteration.
+     */
+    public SearchResult search(final GameRules position, final int maxDepth, final long timeBudgetMs) {
+        return search(position, 1, maxDepth, timeBudgetMs);
+    }
+
+    /**
+     * Searches the side to move of a position with iterative deepening from a given depth.
+     * 
+     * @param position The rules and board to search.
+     * @param startDepth The first iteration to run, helper threads start deeper to spread out.
+     * @param maxDepth The deepest iteration to run.
+     * @param timeBudgetMs The time to spend in milliseconds, 0 or less for no limit.
+     * @return The result of the deepest completed iteration.
+     */
+    public SearchResult search(final GameRules position, final int startDepth, final int maxDepth, final long timeBudgetMs) {
+        try {
+            return runSearch(position, startDepth, maxDepth, timeBudgetMs);
+        } finally {
+            this.stopRequested = false;
+        }
+    }
+
+    /**
+     * Asks a running search on another thread to finish, it returns its last completed iteration.
+     * If no search is running, the next one stops straight away.
+     */
+    public void stop() {
+        this.stopRequested = true;
+    }
+
+    /**
+     * Forgets a stop asked for while no search was running, so the next search runs in full.
+     * ParallelSearch calls this before starting a helper, whose stop may have come after it finished.
+     */
+    void clearStop() {
+        this.stopRequested = false;
+    }
+
+    /**
+     * Gets the nodes visited by the last search.
+     * 
+     * @return The node count.
+     */
+    long getNodes() {
+        return this.nodes;
+    }
+
+    private SearchResult runSearch(final GameRules position, final int startDepth, final int maxDepth, final long timeBudgetMs) {
+        final long start = System.nanoTime();
+        final int bookMove = this.book != null ? this.book.bestMove(position) : 0;
+        // A move the position does not allow means the book is wrong for it, so it is searched instead
+        if (bookMove != 0 && position.moveStatus(bookMove, position.getSideToMove()) == GameRules.MOVE_OK) {
+            // Book moves count as no completed iteration and no nodes
+            return new SearchResult(bookMove, this.book.getScore(position), 0, 0, System.nanoTime() - start);
+        }
+        this.rules = position;
+        this.deadline = timeBudgetMs > 0 ? start + timeBudgetMs * 1_000_000L : Long.MAX_VALUE;
+        this.aborted = false;
+        this.nodes = 0;
+
+        int bestMove = 0;
+        int bestScore = 0;
+        int completed = 0;
+        final int player = position.getSideToMove();
+        if (position.legalMoves(player) != 0 && !isOver()) {
+            for (int depth = Math.max(1, startDepth); depth <= Math.min(maxDepth, MAX_DEPTH); depth++) {
+                this.rootMove = 0;
+                final int score = negamax(depth, -INFINITY, INFINITY, 0);
+                if (this.aborted) {
+                    break; // The last completed iteration's move is kept
+                }
+                bestScore = score;
+                // Kept here rather than read back from the table, where another position may have replaced it
+                bestMove = this.rootMove;
+                completed = depth;
+                if (Math.abs(score) >= WIN) {
+                    break; // The game is solved from here
+                }
+            }
+            if (bestMove == 0) {
+                // Not even depth one finished, play the first legal move
+                bestMove = MoveMask.pitOf(Integer.numberOfTrailingZeros(position.legalMoves(player)), player);
+            }
+        }
+        return new SearchResult(bestMove, bestScore, completed, this.nodes, System.nanoTime() - start);
+    }
+
+    /* Negamax from the point of view of the side to move, returns the score of the position */
+    private int negamax(final int depth, final int alphaStart, final int beta, final int ply) {
+        if ((++this.nodes & CHECK_INTERVAL) == 0 && (this.stopRequested || System.nanoTime() > this.deadline)) {
+            this.aborted = true;
+        }
+        if (this.aborted) {
+            return 0;
+        }
+
+        final int player = this.rules.getSideToMove();
+        if (isOver()) {
+            return finalScore(player);
+        }
+        if (this.tablebase != null && ply > 0) {
+            final int value = this.tablebase.probe(this.rules);
+            if (value != EndgameTablebase.UNKNOWN) {
+                return resultScore(player, value);
+            }
+        }
+        if (depth == 0 || ply == MAX_DEPTH) {
+            return evaluate(player);
+        }
+
+        int alpha = alphaStart;
+        final long key = this.rules.getPositionHash();
+        final long entry = this.table.probe(key);
+        int ttMove = 0;
+        if (entry != TranspositionTable.MISS) {
+            ttMove = TranspositionTable.moveOf(entry);
+            // The root is always searched, so its best move is known
+            if (ply > 0 && TranspositionTable.depthOf(entry) >= depth) {
+                final int ttScore = TranspositionTable.scoreOf(entry);
+                final int bound = TranspositionTable.boundOf(entry);
+                if (bound == TranspositionTable.EXACT 
+                    || bound == TranspositionTable.LOWER && ttScore >= beta
+                    || bound == TranspositionTable.UPPER && ttScore <= alpha) {
+                    return ttScore;
+                }
+            }
+        }
+
+        final int count = orderMoves(player, ply, ttMove, depth);
+        int best = -INFINITY;
+        int bestMove = 0;
+        for (int i = 0; i < count; i++) {
+            final int pit = this.moves[ply][i];
+            play(pit, player);
+            int score;
+            if (this.rules.getSideToMove() == player) {
+                score = negamax(depth - 1, alpha, beta, ply + 1); // Bonus turn, same player moves again
+            } else {
+                score = -negamax(depth - 1, -beta, -alpha, ply + 1);
+            }
+            this.rules.unmakeMove();
+            if (this.aborted) {
+                return 0;
+            }
+
+            if (score > best) {
+                best = score;
+                bestMove = pit;
+                if (ply == 0) {
+                    this.rootMove = pit;
+                }
+            }
+            if (best > alpha) {
+                alpha = best;
+            }
+            if (alpha >= beta) {
+                break;
+            }
+        }
+
+        int bound = TranspositionTable.EXACT;
+        if (best <= alphaStart) {
+            bound = TranspositionTable.UPPER;
+        } else if (best >= beta) {
+            bound = TranspositionTable.LOWER;
+        }
+        this.table.store(key, best, depth, bound, bestMove);
+        return best;
+    }
+
+    /* Fills moves[ply] with the legal moves, transposition move first, then bonus turns and big gains */
+    private int orderMoves(final int player, final int ply, final int ttMove, final int depth) {
+        final int[] plyMoves = this.moves[ply];
+        final int[] keys = this.order[ply];
+        int count = 0;
+        for (int m = this.rules.legalMoves(player); m != 0; m &= m - 1) {
+            final int pit = MoveMask.pitOf(Integer.numberOfTrailingZeros(m), player);
+            int key = 0;
+            if (pit == ttMove) {
+                key = INFINITY;
+            } else if (depth >= ORDER_DEPTH) {
+                // Captures show up as stones added to the store
+                key = play(pit, player);
+                if (this.rules.isBonus()) {
+                    key += 1000;
+                }
+                this.rules.unmakeMove();
+            }
+
+            // Insertion sort, highest key first
+            int j = count;
+            while (j > 0 && keys[j - 1] < key) {
+                keys[j] = keys[j - 1];
+                plyMoves[j] = plyMoves[j - 1];
+                j--;
+            }
+            keys[j] = key;
+            plyMoves[j] = pit;
+            count++;
+        }
+        return count;
+    }
+
+    /* Makes a move that is known to be legal */
+    private int play(final int pit, final int player) {
+        try {
+            return this.rules.makeMove(pit, player);
+        } catch (InvalidMoveException e) {
+            throw new IllegalStateException("Searched an illegal move", e);
+        }
+    }
+
+    /* The game ends as soon as either side has no stones */
+    private boolean isOver() {
+        return this.rules.getSideTotal(1) == 0 || this.rules.getSideTotal(2) == 0;
+    }
+
+    /* Remaining stones go to the owner of their side when the game ends */
+    private int finalScore(final int player) {
+        return resultScore(player, this.rules.getSideTotal(player) - this.rules.getSideTotal(3 - player));
+    }
+
+    /* Score of a game whose stones left on the pits end up split by the given difference */
+    private int resultScore(final int player, final int pitMargin) {
+        final int margin = this.rules.getStoreCount(player) - this.rules.getStoreCount(3 - player) + pitMargin;
+        if (margin > 0) {
+            return WIN + margin;
+        } else if (margin < 0) {
+            return -WIN + margin;
+        }
+        return 0;
+    }
+
+    /* Store difference for the player to move */
+    private int evaluate(final int player) {
+        return this.rules.getStoreCount(player) - this.rules.getStoreCount(3 - player);
+    }
+}
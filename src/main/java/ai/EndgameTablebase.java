@@ -0,0 +1,266 @@
+package ai;
+import mancala.GameRules;
+import mancala.InvalidMoveException;
+import mancala.KalahRules;
+import mancala.MoveMask;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Exact values of Kalah endgames with few stones left on the pits.
+ * Stores never change the rest of a game, so a position is just its 12 pit counts seen from the side
+ * to move, and its value is how many more of the remaining stones that side ends up with under perfect play.
+ * Each position with at most maxStones on the pits gets one byte in a file, at the combinatorial rank of its
+ * stone distribution, and the file is read with FileChannel.map so lookups never load it onto the heap.
+ */
+public class EndgameTablebase {
+    /* The most stones a table can cover, above this the file would not fit in one mapped buffer */
+    public static final int MAX_STONES = 25;
+    /* Returned by probe for positions the table does not cover */
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+    private static final int MAGIC = 0x4b454e44; // "KEND"
+    private static final int HEADER = 8;
+    private static final int PITS = 12;
+    private static final byte UNSOLVED = Byte.MIN_VALUE;
+    /* CHOOSE[n][k] is n choose k */
+    private static final long[][] CHOOSE = new long[MAX_STONES + PITS + 1][PITS + 1];
+    private final ByteBuffer values;
+    private final int maxStones;
+    private final int[] counts = new int[14];
+
+    static {
+        for (int n = 0; n < CHOOSE.length; n++) {
+            CHOOSE[n][0] = 1;
+            for (int k = 1; k <= Math.min(n, PITS); k++) {
+                CHOOSE[n][k] = CHOOSE[n - 1][k - 1] + (k <= n - 1 ? CHOOSE[n - 1][k] : 0);
+            }
+        }
+    }
+
+    private EndgameTablebase(final ByteBuffer values, final int maxStones) {
+        this.values = values;
+        this.maxStones = maxStones;
+    }
+
+    /**
+     * Maps an existing tablebase file.
+     *
+     * @param file The file written by generate.
+     * @return The tablebase.
+     * @throws IOException If the file cannot be read or is not a tablebase.
+     */
+    public static EndgameTablebase open(final Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < HEADER || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not an endgame tablebase: " + file);
+            }
+            final int stones = buffer.getInt(4);
+            if (stones < 0 || stones > MAX_STONES || buffer.limit() != HEADER + size(stones)) {
+                throw new IOException("Corrupt endgame tablebase: " + file);
+            }
+            return new EndgameTablebase(buffer, stones);
+        }
+    }
+
+    /**
+     * Solves every position with at most maxStones on the pits and writes them to a file.
+     * Values are written straight into the mapped file, so the heap stays small however big the table is.
+     *
+     * @param file The file to create or overwrite.
+     * @param maxStones The most stones on the pits to cover, from 0 to MAX_STONES.
+     * @return The tablebase over the new file.
+     * @throws IOException If the file cannot be written.
+     */
+    public static EndgameTablebase generate(final Path file, final int maxStones) throws IOException {
+        if (maxStones < 0 || maxStones > MAX_STONES) {
+            throw new IllegalArgumentException("maxStones must be between 0 and " + MAX_STONES);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + size(maxStones));
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, maxStones);
+            for (int i = HEADER; i < buffer.limit(); i++) {
+                buffer.put(i, UNSOLVED);
+            }
+
+            final EndgameTablebase table = new EndgameTablebase(buffer, maxStones);
+            final KalahRules board = new KalahRules(true);
+            final int[] start = new int[14];
+            // Sowing never adds stones to the pits, so each layer only needs itself and the layers below
+            for (int stones = 0; stones <= maxStones; stones++) {
+                table.solveLayer(board, start, 0, stones);
+            }
+            buffer.force();
+            return table;
+        }
+    }
+
+    /**
+     * Gets the number of positions in a table covering up to maxStones on the pits.
+     *
+     * @param maxStones The most stones on the pits.
+     * @return The number of positions, which is also the file size without its header.
+     */
+    public static int size(final int maxStones) {
+        return (int) CHOOSE[maxStones + PITS][PITS];
+    }
+
+    /**
+     * Gets another view of the same mapped file, for use on another thread.
+     *
+     * @return The view.
+     */
+    public EndgameTablebase copy() {
+        return new EndgameTablebase(this.values.duplicate(), this.maxStones);
+    }
+
+    /**
+     * Gets the most stones on the pits this table covers.
+     *
+     * @return The number of stones.
+     */
+    public int getMaxStones() {
+        return this.maxStones;
+    }
+
+    /**
+     * Looks up the exact value of a position for the side to move.
+     * The value is the side to move's share of the stones left on the pits minus the opponent's share,
+     * so the final store difference under perfect play is the current store difference plus this.
+     * An instance is not thread safe, each thread should use its own copy.
+     *
+     * @param position The position to look up.
+     * @return The value, or UNKNOWN if the position is not Kalah or has too many stones.
+     */
+    public int probe(final GameRules position) {
+        if (!(position instanceof KalahRules)
+            || position.getSideTotal(1) + position.getSideTotal(2) > this.maxStones) {
+            return UNKNOWN;
+        }
+        return this.values.get(HEADER + index(position, this.counts));
+    }
+
+    /**
+     * Finds the best move for the side to move of a position.
+     *
+     * @param position The position to search, back to its starting state when this returns.
+     * @return The pit to play, or 0 if the position is not covered or has no moves.
+     */
+    public int bestMove(final GameRules position) {
+        if (probe(position) == UNKNOWN) {
+            return 0;
+        }
+        final int player = position.getSideToMove();
+        int best = Integer.MIN_VALUE;
+        int bestPit = 0;
+        for (int m = position.legalMoves(player); m != 0; m &= m - 1) {
+            final int pit = MoveMask.pitOf(Integer.numberOfTrailingZeros(m), player);
+            final int value = moveValue(position, pit, player);
+            if (value > best) {
+                best = value;
+                bestPit = pit;
+            }
+        }
+        return bestPit;
+    }
+
+    /* Enumerates every distribution of stones over the remaining pits and solves those not reached yet */
+    private void solveLayer(final KalahRules board, final int[] start, final int pit, final int stones) {
+        final int pos = pit < 6 ? pit : pit + 1; // Skip store one
+        if (pit == PITS - 1) {
+            start[pos] = stones;
+            board.setPosition(start, 1);
+            if (this.values.get(HEADER + index(board, this.counts)) == UNSOLVED) {
+                solve(board);
+            }
+            return;
+        }
+        for (int n = 0; n <= stones; n++) {
+            start[pos] = n;
+            solveLayer(board, start, pit + 1, stones - n);
+        }
+    }
+
+    /* Solves the board and everything it reaches with as many stones, Kalah has no cycles without a store sow */
+    private int solve(final GameRules board) {
+        final int index = HEADER + index(board, this.counts);
+        final byte known = this.values.get(index);
+        if (known != UNSOLVED) {
+            return known;
+        }
+
+        final int player = board.getSideToMove();
+        int best;
+        if (board.getSideTotal(1) == 0 || board.getSideTotal(2) == 0) {
+            best = board.getSideTotal(player) - board.getSideTotal(3 - player);
+        } else {
+            best = Integer.MIN_VALUE;
+            for (int m = board.legalMoves(player); m != 0; m &= m - 1) {
+                best = Math.max(best, moveValue(board, MoveMask.pitOf(Integer.numberOfTrailingZeros(m), player), player));
+            }
+        }
+        this.values.put(index, (byte) best);
+        return best;
+    }
+
+    /* Stones the move puts in the mover's store plus the value of where it leads, seen by the mover */
+    private int moveValue(final GameRules board, final int pit, final int player) {
+        final int opponent = 3 - player;
+        final int value;
+        try {
+            final int gain = board.makeMove(pit, player);
+            if (board.getSideTotal(1) == 0 || board.getSideTotal(2) == 0) {
+                value = gain + board.getSideTotal(player) - board.getSideTotal(opponent);
+            } else if (board.getSideToMove() == player) {
+                value = gain + solve(board); // Bonus turn
+            } else {
+                value = gain - solve(board);
+            }
+        } catch (InvalidMoveException e) {
+            throw new IllegalStateException("Solved an illegal move", e);
+        }
+        board.unmakeMove();
+        return value;
+    }
+
+    /*
+     * Ranks the pits seen from the side to move, its pits first, among every distribution with as many stones
+     * or fewer. Distributions with fewer stones come first, then the bars of the stars and bars picture of the
+     * distribution are ranked with the combinatorial number system.
+     */
+    private static int index(final GameRules position, final int[] counts) {
+        position.getPosition(counts);
+        final int first = position.getSideToMove() == 1 ? 0 : 7;
+        final int second = 7 - first;
+        long rank = 0;
+        int total = 0;
+        for (int j = 0; j < PITS - 1; j++) {
+            total += j < 6 ? counts[first + j] : counts[second + j - 6];
+            rank += CHOOSE[total + j][j + 1];
+        }
+        total += counts[second + 5];
+        return (int) (CHOOSE[total + PITS - 1][PITS] + rank);
+    }
+
+    /**
+     * Generates a tablebase file.
+     *
+     * @param args The most stones on the pits (default 12) and the file (default assets/kalah-endgame.tb).
+     * @throws IOException If the file cannot be written.
+     */
+    public static void main(final String[] args) throws IOException {
+        final int stones = args.length > 0 ? Integer.parseInt(args[0]) : 12;
+        final Path file = Paths.get(args.length > 1 ? args[1] : "assets/kalah-endgame.tb");
+        final long start = System.nanoTime();
+        generate(file, stones);
+        System.out.printf("%d positions up to %d stones in %.1f s%n", size(stones), stones,
+            (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,93 @@
+package ai;
+
+/**
+ * The outcome of a Monte Carlo tree search: the move to play and the playout throughput.
+ */
+public class MctsResult {
+    private final int bestMove;
+    private final double winRate;
+    private final long playouts;
+    private final int treeNodes;
+    private final long elapsedNanos;
+
+    /**
+     * Constructor to initialize a Monte Carlo search result.
+     * 
+     * @param newBestMove The pit to play, 0 if there is no legal move.
+     * @param newWinRate The share of playouts through the best move won by the player to move, draws count half.
+     * @param newPlayouts The number of playouts run by this search.
+     * @param newTreeNodes The number of nodes in the tree after the search.
+     * @param newElapsedNanos The wall clock time the search took.
+     */
+    public MctsResult(final int newBestMove, final double newWinRate, final long newPlayouts, 
+    final int newTreeNodes, final long newElapsedNanos) {
+        this.bestMove = newBestMove;
+        this.winRate = newWinRate;
+        this.playouts = newPlayouts;
+        this.treeNodes = newTreeNodes;
+        this.elapsedNanos = newElapsedNanos;
+    }
+
+    /**
+     * Gets the pit to play.
+     * 
+     * @return The pit number, 0 if there is no legal move.
+     */
+    public int getBestMove() {
+        return this.bestMove;
+    }
+
+    /**
+     * Gets the share of playouts through the best move won by the player to move.
+     * 
+     * @return A value from 0 to 1, draws count half.
+     */
+    public double getWinRate() {
+        return this.winRate;
+    }
+
+    /**
+     * Gets the number of playouts run by this search.
+     * 
+     * @return The playout count.
+     */
+    public long getPlayouts() {
+        return this.playouts;
+    }
+
+    /**
+     * Gets the number of nodes in the tree, including any reused from earlier searches.
+     * 
+     * @return The node count.
+     */
+    public int getTreeNodes() {
+        return this.treeNodes;
+    }
+
+    /**
+     * Gets the wall clock time the search took.
+     * 
+     * @return The time in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return this.elapsedNanos;
+    }
+
+    /**
+     * Gets the search throughput.
+     * 
+     * @return Playouts run per second.
+     */
+    public long getPlayoutsPerSecond() {
+        if (this.elapsedNanos <= 0) {
+            return 0;
+        }
+        return this.playouts * 1_000_000_000L / this.elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("move %d win rate %.3f playouts %d tree %d playouts/s %d", 
+            this.bestMove, this.winRate, this.playouts, this.treeNodes, getPlayoutsPerSecond());
+    }
+}
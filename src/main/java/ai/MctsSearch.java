@@ -0,0 +1,350 @@
+package ai;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import mancala.GameRules;
+import mancala.InvalidMoveException;
+import mancala.MoveMask;
+
+/**
+ * A computer player which picks moves by Monte Carlo tree search with UCT selection.
+ * Random playouts need no evaluation function, which suits Ayo where relay sowing makes
+ * static scores unreliable.
+ * Tree nodes live in preallocated primitive arrays indexed by node number, and playouts run on
+ * each worker's own packed board with makeMove and unmakeMove, so a search allocates nothing per node.
+ * Workers share the tree and apply a virtual loss on the path they are exploring to spread out.
+ * The tree is kept between searches and reused when a later position is found below the old root.
+ */
+public class MctsSearch {
+    private static final int MAX_PATH = 512; // deepest tree path followed by one playout
+    private static final int MAX_PLAYOUT = 1000; // plies before a playout is scored as it stands
+    private static final int VIRTUAL_LOSS = 1;
+    private static final int REUSE_DEPTH = 4; // plies below the old root searched for the new position
+    private static final double EXPLORATION = 1.4;
+    private final int capacity;
+    private final int threadCount;
+    private final ExecutorService pool;
+    private final SplittableRandom seeds;
+
+    /* Node statistics, wins count 2 per win and 1 per draw for the player who moved into the node */
+    private final AtomicIntegerArray visits;
+    private final AtomicIntegerArray wins;
+    private final AtomicIntegerArray virtualLoss;
+    /* Index of the first child, -1 until expanded, written last so the fields below are visible */
+    private final AtomicIntegerArray firstChild;
+    private final byte[] childCount;
+    private final byte[] moveOf; // pit played to reach the node
+    private final byte[] moverOf; // player who played it
+    private final long[] hashOf; // position hash of the node
+    private final Object expandLock = new Object();
+    private int nodeCount;
+    private int root = -1;
+    private Class<?> treeRules; // rule set the tree was built for
+
+    /**
+     * Constructor to initialize a Monte Carlo search.
+     *
+     * @param newCapacity The most tree nodes to keep, about 40 bytes each.
+     * @param newThreadCount The number of playout threads, including the calling thread.
+     * @param seed The seed for the playout random numbers.
+     */
+    public MctsSearch(final int newCapacity, final int newThreadCount, final long seed) {
+        if (newCapacity < 64 || newThreadCount < 1) {
+            throw new IllegalArgumentException("Tree capacity or thread count out of range");
+        }
+        this.capacity = newCapacity;
+        this.threadCount = newThreadCount;
+        this.seeds = new SplittableRandom(seed);
+        this.visits = new AtomicIntegerArray(newCapacity);
+        this.wins = new AtomicIntegerArray(newCapacity);
+        this.virtualLoss = new AtomicIntegerArray(newCapacity);
+        this.firstChild = new AtomicIntegerArray(newCapacity);
+        this.childCount = new byte[newCapacity];
+        this.moveOf = new byte[newCapacity];
+        this.moverOf = new byte[newCapacity];
+        this.hashOf = new long[newCapacity];
+        this.pool = newThreadCount > 1 ? Executors.newFixedThreadPool(newThreadCount - 1, runnable -> {
+            final Thread thread = new Thread(runnable, "mcts-worker");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    /**
+     * Constructor to initialize a Monte Carlo search with 2^21 nodes on every available core.
+     */
+    public MctsSearch() {
+        this(1 << 21, Runtime.getRuntime().availableProcessors(), System.nanoTime());
+    }
+
+    /**
+     * Searches the side to move of a position, reusing the tree from an earlier search if it contains it.
+     * The position itself is not changed, each worker plays out on a copy.
+     *
+     * @param position The rules and board to search.
+     * @param timeBudgetMs The time to spend in milliseconds, 0 or less for no limit.
+     * @param maxPlayouts The most playouts to run, 0 or less for no limit.
+     * @return The move with the most visits and the playout throughput.
+     */
+    public MctsResult search(final GameRules position, final long timeBudgetMs, final long maxPlayouts) {
+        final long start = System.nanoTime();
+        final int player = position.getSideToMove();
+        if (position.getSideTotal(1) == 0 || position.getSideTotal(2) == 0 || position.legalMoves(player) == 0) {
+            return new MctsResult(0, 0, 0, this.nodeCount, 0);
+        }
+        setRoot(position);
+
+        final long deadline = timeBudgetMs > 0 ? start + timeBudgetMs * 1_000_000L : Long.MAX_VALUE;
+        final AtomicLong budget = new AtomicLong(maxPlayouts > 0 ? maxPlayouts : Long.MAX_VALUE);
+        final List<Future<Long>> workers = new ArrayList<>();
+        for (int i = 1; i < this.threadCount; i++) {
+            final GameRules copy = position.copyPosition();
+            final SplittableRandom random = this.seeds.split();
+            workers.add(this.pool.submit(() -> runWorker(copy, random, deadline, budget)));
+        }
+        long playouts = runWorker(position.copyPosition(), this.seeds.split(), deadline, budget);
+        for (final Future<Long> worker : workers) {
+            try {
+                playouts += worker.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Playout worker failed", e.getCause());
+            }
+        }
+
+        // Play the most visited move, it is the most reliable estimate
+        int best = -1;
+        final int first = this.firstChild.get(this.root);
+        for (int i = first; first >= 0 && i < first + this.childCount[this.root]; i++) {
+            if (best < 0 || this.visits.get(i) > this.visits.get(best)) {
+                best = i;
+            }
+        }
+        if (best < 0) {
+            final int pit = MoveMask.pitOf(Integer.numberOfTrailingZeros(position.legalMoves(player)), player);
+            return new MctsResult(pit, 0, playouts, this.nodeCount, System.nanoTime() - start);
+        }
+        final double winRate = this.visits.get(best) == 0 ? 0 : this.wins.get(best) / (2.0 * this.visits.get(best));
+        return new MctsResult(this.moveOf[best], winRate, playouts, this.nodeCount, System.nanoTime() - start);
+    }
+
+    /**
+     * Forgets the tree, the next search starts from scratch.
+     */
+    public void clearTree() {
+        this.root = -1;
+        this.nodeCount = 0;
+    }
+
+    /**
+     * Stops the worker threads, the search cannot be used afterwards.
+     */
+    public void shutdown() {
+        if (this.pool != null) {
+            this.pool.shutdownNow();
+        }
+    }
+
+    /* Visits of the root, 0 before any search */
+    int getRootVisits() {
+        return this.root < 0 ? 0 : this.visits.get(this.root);
+    }
+
+    /* Visits of the root's child reached by a pit, 0 if the root is not expanded */
+    int getChildVisits(final int pit) {
+        final int first = this.root < 0 ? -1 : this.firstChild.get(this.root);
+        for (int i = first; first >= 0 && i < first + this.childCount[this.root]; i++) {
+            if (this.moveOf[i] == pit) {
+                return this.visits.get(i);
+            }
+        }
+        return 0;
+    }
+
+    /* Moves the root to the new position if the old tree holds it, otherwise starts a new tree */
+    private void setRoot(final GameRules position) {
+        final long hash = position.getPositionHash();
+        int found = -1;
+        if (this.root >= 0 && this.treeRules == position.getClass() && this.nodeCount < this.capacity - this.capacity / 8) {
+            found = findNode(this.root, hash, REUSE_DEPTH);
+        }
+        if (found >= 0) {
+            this.root = found;
+            return;
+        }
+
+        this.treeRules = position.getClass();
+        this.nodeCount = 1;
+        this.root = 0;
+        resetNode(0, 0, 3 - position.getSideToMove(), hash);
+    }
+
+    /* Depth-first search for a node with the given hash */
+    private int findNode(final int node, final long hash, final int depth) {
+        if (this.hashOf[node] == hash) {
+            return node;
+        }
+        final int first = this.firstChild.get(node);
+        if (depth == 0 || first < 0) {
+            return -1;
+        }
+        for (int i = first; i < first + this.childCount[node]; i++) {
+            final int found = findNode(i, hash, depth - 1);
+            if (found >= 0) {
+                return found;
+            }
+        }
+        return -1;
+    }
+
+    private void resetNode(final int node, final int pit, final int mover, final long hash) {
+        this.visits.set(node, 0);
+        this.wins.set(node, 0);
+        this.virtualLoss.set(node, 0);
+        this.childCount[node] = 0;
+        this.moveOf[node] = (byte) pit;
+        this.moverOf[node] = (byte) mover;
+        this.hashOf[node] = hash;
+        this.firstChild.set(node, -1);
+    }
+
+    /* One worker's playout loop on its own board, returns the playouts it ran */
+    private long runWorker(final GameRules board, final SplittableRandom random, final long deadline, final AtomicLong budget) {
+        final int[] path = new int[MAX_PATH];
+        final int startRoot = this.root;
+        long playouts = 0;
+        while (budget.getAndDecrement() > 0 && ((playouts & 63) != 0 || System.nanoTime() < deadline)) {
+            // Selection, following UCT down to a leaf
+            int node = startRoot;
+            int length = 0;
+            path[length++] = node;
+            while (length < MAX_PATH) {
+                // A node is expanded the second time it is reached, its first visit is a playout
+                if (this.firstChild.get(node) < 0
+                    && (this.visits.get(node) == 0 || isOver(board) || !expand(node, board))) {
+                    break;
+                }
+                node = selectChild(node);
+                this.virtualLoss.addAndGet(node, VIRTUAL_LOSS);
+                play(board, this.moveOf[node], this.moverOf[node]);
+                path[length++] = node;
+            }
+
+            // Simulation, then put the board back to the root
+            final int winner = playout(board, random);
+            for (int i = 1; i < length; i++) {
+                board.unmakeMove();
+            }
+
+            // Backpropagation
+            for (int i = 0; i < length; i++) {
+                final int pathNode = path[i];
+                if (i > 0) {
+                    this.virtualLoss.addAndGet(pathNode, -VIRTUAL_LOSS);
+                }
+                if (winner == this.moverOf[pathNode]) {
+                    this.wins.addAndGet(pathNode, 2);
+                } else if (winner == 0) {
+                    this.wins.addAndGet(pathNode, 1);
+                }
+                this.visits.incrementAndGet(pathNode);
+            }
+            playouts++;
+        }
+        return playouts;
+    }
+
+    /* Picks the child with the best upper confidence bound, counting virtual losses as lost visits */
+    private int selectChild(final int node) {
+        final int first = this.firstChild.get(node);
+        final int count = this.childCount[node];
+        final double logParent = Math.log(this.visits.get(node) + this.virtualLoss.get(node) + 1);
+        int best = first;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int i = first; i < first + count; i++) {
+            final int tries = this.visits.get(i) + this.virtualLoss.get(i);
+            if (tries == 0) {
+                return i; // Every child is tried once first
+            }
+            final double value = this.wins.get(i) / (2.0 * tries) + EXPLORATION * Math.sqrt(logParent / tries);
+            if (value > bestValue) {
+                bestValue = value;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /* Adds a child per legal move, returns false if another worker did not and the pool is full */
+    private boolean expand(final int node, final GameRules board) {
+        synchronized (this.expandLock) {
+            if (this.firstChild.get(node) >= 0) {
+                return true; // Another worker got here first
+            }
+            final int player = board.getSideToMove();
+            final int mask = board.legalMoves(player);
+            final int count = Integer.bitCount(mask);
+            if (count == 0 || this.nodeCount + count > this.capacity) {
+                return false;
+            }
+            final int first = this.nodeCount;
+            int child = first;
+            for (int m = mask; m != 0; m &= m - 1) {
+                final int pit = MoveMask.pitOf(Integer.numberOfTrailingZeros(m), player);
+                play(board, pit, player);
+                resetNode(child++, pit, player, board.getPositionHash());
+                board.unmakeMove();
+            }
+            this.nodeCount += count;
+            this.childCount[node] = (byte) count;
+            this.firstChild.set(node, first); // Publishes the children to other workers
+            return true;
+        }
+    }
+
+    /* Plays random moves to the end of the game and undoes them, returns the winner or 0 for a draw */
+    private int playout(final GameRules board, final SplittableRandom random) {
+        int made = 0;
+        while (!isOver(board) && made < MAX_PLAYOUT) {
+            final int player = board.getSideToMove();
+            int mask = board.legalMoves(player);
+            for (int skip = random.nextInt(Integer.bitCount(mask)); skip > 0; skip--) {
+                mask &= mask - 1;
+            }
+            play(board, MoveMask.pitOf(Integer.numberOfTrailingZeros(mask), player), player);
+            made++;
+        }
+
+        final int one = board.getStoreCount(1) + board.getSideTotal(1);
+        final int two = board.getStoreCount(2) + board.getSideTotal(2);
+        for (int i = 0; i < made; i++) {
+            board.unmakeMove();
+        }
+        if (one > two) {
+            return 1;
+        } else if (two > one) {
+            return 2;
+        }
+        return 0;
+    }
+
+    private static boolean isOver(final GameRules board) {
+        return board.getSideTotal(1) == 0 || board.getSideTotal(2) == 0;
+    }
+
+    /* Makes a move that is known to be legal */
+    private static void play(final GameRules board, final int pit, final int player) {
+        try {
+            board.makeMove(pit, player);
+        } catch (InvalidMoveException e) {
+            throw new IllegalStateException("Played an illegal move", e);
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package ai;
+import mancala.AyoRules;
+import mancala.GameRules;
+import mancala.InvalidMoveException;
+import mancala.KalahRules;
+import mancala.MoveMask;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Precomputed best moves for the first few plies of a game, so no engine has to search them again.
+ * A book belongs to one rule set and one number of starting stones, and holds position hashes sorted
+ * so a lookup is a binary search. Books are built by searching every position near the start to a
+ * fixed depth, spread over a pool of threads that share one transposition table.
+ * A book never changes once built, so one instance can be shared by any number of threads.
+ */
+public class OpeningBook {
+    private static final int MAGIC = 0x4d424f4b; // "MBOK"
+    private static final int VERSION = 1;
+    private static final int KALAH = 0;
+    private static final int AYO = 1;
+    /* Returned by getScore for positions not in the book */
+    public static final int NO_SCORE = Integer.MIN_VALUE;
+    private final int rules;
+    private final int startStones;
+    private final long[] keys;
+    private final byte[] moves;
+    private final int[] scores;
+
+    private OpeningBook(final int newRules, final int newStartStones, final long[] newKeys,
+        final byte[] newMoves, final int[] newScores) {
+        this.rules = newRules;
+        this.startStones = newStartStones;
+        this.keys = newKeys;
+        this.moves = newMoves;
+        this.scores = newScores;
+    }
+
+    /**
+     * Builds a book by searching every position up to a number of plies from the start of a game.
+     *
+     * @param start The starting position, built by setUpPits, with player one to move.
+     * @param plies How many moves deep the book goes, a bonus turn counts as a move.
+     * @param depth The depth each position is searched to.
+     * @param threads The number of search threads.
+     * @return The book.
+     */
+    public static OpeningBook build(final GameRules start, final int plies, final int depth, final int threads) {
+        final List<GameRules> positions = collect(start, plies);
+        final TranspositionTable table = new TranspositionTable(22);
+        final ThreadLocal<AlphaBetaSearch> searches = ThreadLocal.withInitial(() -> new AlphaBetaSearch(table));
+        final ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            final Thread thread = new Thread(runnable, "book-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            // Hashed before any search starts, a position being searched is making and unmaking moves
+            final int count = positions.size();
+            final long[] keys = new long[count];
+            final Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = positions.get(count - 1 - i).getPositionHash();
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+
+            final List<Future<SearchResult>> results = new ArrayList<>();
+            // Deepest positions first, their table entries speed up the ones nearer the start
+            for (int i = count - 1; i >= 0; i--) {
+                final GameRules position = positions.get(i);
+                results.add(pool.submit(() -> searches.get().search(position, depth, 0)));
+            }
+
+            final long[] sortedKeys = new long[count];
+            final byte[] sortedMoves = new byte[count];
+            final int[] sortedScores = new int[count];
+            for (int i = 0; i < count; i++) {
+                final SearchResult result = results.get(order[i]).get();
+                sortedKeys[i] = keys[order[i]];
+                sortedMoves[i] = (byte) result.getBestMove();
+                sortedScores[i] = result.getScore();
+            }
+            return new OpeningBook(rulesOf(start), start.getStartStones(), sortedKeys, sortedMoves, sortedScores);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while building the book", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Book search failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /* Every distinct position with moves left within plies of the start, nearest first */
+    static List<GameRules> collect(final GameRules start, final int plies) {
+        final List<GameRules> positions = new ArrayList<>();
+        final Set<Long> seen = new HashSet<>();
+        List<GameRules> frontier = new ArrayList<>();
+        final GameRules root = start.copyPosition();
+        root.setSideToMove(1);
+        frontier.add(root);
+        seen.add(root.getPositionHash());
+
+        for (int ply = 0; ply < plies && !frontier.isEmpty(); ply++) {
+            final List<GameRules> next = new ArrayList<>();
+            for (final GameRules position : frontier) {
+                if (position.getSideTotal(1) == 0 || position.getSideTotal(2) == 0) {
+                    continue; // The game is over, there is nothing to look up
+                }
+                positions.add(position);
+                final int player = position.getSideToMove();
+                for (int m = position.legalMoves(player); m != 0; m &= m - 1) {
+                    final GameRules child = position.copyPosition();
+                    try {
+                        child.makeMove(MoveMask.pitOf(Integer.numberOfTrailingZeros(m), player), player);
+                    } catch (InvalidMoveException e) {
+                        throw new IllegalStateException("Collected an illegal move", e);
+                    }
+                    child.clearUndo();
+                    if (seen.add(child.getPositionHash())) {
+                        next.add(child);
+                    }
+                }
+            }
+            frontier = next;
+        }
+        return positions;
+    }
+
+    private static int rulesOf(final GameRules position) {
+        return position instanceof AyoRules ? AYO : KALAH;
+    }
+
+    /**
+     * Gets the number of positions in the book.
+     *
+     * @return The number of positions.
+     */
+    public int size() {
+        return this.keys.length;
+    }
+
+    /**
+     * Checks if this book was built for the rules and starting stones of a position.
+     *
+     * @param position The position to check.
+     * @return True if the book applies to the position, false otherwise.
+     */
+    public boolean appliesTo(final GameRules position) {
+        return rulesOf(position) == this.rules && position.getStartStones() == this.startStones;
+    }
+
+    /**
+     * Gets the book move for the side to move of a position.
+     *
+     * @param position The position to look up.
+     * @return The pit to play, or 0 if the position is not in the book.
+     */
+    public int bestMove(final GameRules position) {
+        final int i = find(position);
+        return i < 0 ? 0 : this.moves[i];
+    }
+
+    /**
+     * Gets the search score of the book move for the side to move of a position.
+     *
+     * @param position The position to look up.
+     * @return The score, or NO_SCORE if the position is not in the book.
+     */
+    public int getScore(final GameRules position) {
+        final int i = find(position);
+        return i < 0 ? NO_SCORE : this.scores[i];
+    }
+
+    private int find(final GameRules position) {
+        if (!appliesTo(position)) {
+            return -1;
+        }
+        return Arrays.binarySearch(this.keys, position.getPositionHash());
+    }
+
+    /**
+     * Writes the book to a file, entries are sorted by position hash.
+     *
+     * @param file The file to create or overwrite.
+     * @throws IOException If the file cannot be written.
+     */
+    public void save(final Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte(this.rules);
+            out.writeShort(this.startStones);
+            out.writeInt(this.keys.length);
+            for (int i = 0; i < this.keys.length; i++) {
+                out.writeLong(this.keys[i]);
+                out.writeByte(this.moves[i]);
+                out.writeInt(this.scores[i]);
+            }
+        }
+    }
+
+    /**
+     * Reads a book written by save.
+     *
+     * @param file The file to read.
+     * @return The book.
+     * @throws IOException If the file cannot be read or is not a book.
+     */
+    public static OpeningBook load(final Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                throw new IOException("Not an opening book: " + file);
+            }
+            final int rules = in.readByte();
+            final int startStones = in.readShort();
+            final int count = in.readInt();
+            if (count < 0) {
+                throw new IOException("Corrupt opening book: " + file);
+            }
+            final long[] keys = new long[count];
+            final byte[] moves = new byte[count];
+            final int[] scores = new int[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = in.readLong();
+                moves[i] = in.readByte();
+                scores[i] = in.readInt();
+                if (i > 0 && keys[i] <= keys[i - 1]) {
+                    throw new IOException("Opening book is not sorted: " + file);
+                }
+            }
+            return new OpeningBook(rules, startStones, keys, moves, scores);
+        }
+    }
+
+    /**
+     * Gets the file a book for a rule set and number of starting stones is kept in.
+     *
+     * @param kalah True for Kalah, false for Ayo.
+     * @param startStones The number of starting stones per pit.
+     * @return The path under assets.
+     */
+    public static Path defaultPath(final boolean kalah, final int startStones) {
+        return Paths.get("assets", "book-" + (kalah ? "kalah" : "ayo") + "-" + startStones + ".bin");
+    }
+
+    /**
+     * Builds a book and writes it to its default path.
+     * Arguments: [kalah|ayo] [start stones] [plies] [depth] [threads]
+     *
+     * @param args The command line arguments.
+     * @throws IOException If the book cannot be written.
+     */
+    public static void main(final String[] args) throws IOException {
+        final boolean kalah = args.length == 0 || !"ayo".equals(args[0]);
+        final int stones = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        final int plies = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        final int depth = args.length > 3 ? Integer.parseInt(args[3]) : 12;
+        final int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        final GameRules start = kalah ? new KalahRules(stones, true) : new AyoRules(stones, true);
+
+        final long begin = System.nanoTime();
+        final OpeningBook book = build(start, plies, depth, threads);
+        final Path file = defaultPath(kalah, stones);
+        Files.createDirectories(file.getParent());
+        book.save(file);
+        System.out.printf("%d positions in %.1f s written to %s%n", book.size(), (System.nanoTime() - begin) / 1e9, file);
+    }
+}
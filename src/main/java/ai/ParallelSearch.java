@@ -0,0 +1,154 @@
+package ai;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import mancala.GameRules;
+import mancala.KalahRules;
+import mancala.AyoRules;
+
+/**
+ * A multi-threaded search using Lazy SMP.
+ * Every thread runs its own AlphaBetaSearch on its own copy of the position, and all of them
+ * share one transposition table, so helpers fill the table with results the main thread reuses.
+ * Helper threads start one or two plies deeper to spread the work out.
+ * The result is always the main thread's, helpers are stopped once it finishes.
+ */
+public class ParallelSearch {
+    private final int threadCount;
+    private final TranspositionTable table;
+    private final AlphaBetaSearch[] searchers;
+    private final ExecutorService pool;
+
+    /**
+     * Constructor to initialize a parallel search.
+     * 
+     * @param newThreadCount The number of search threads, including the calling thread.
+     * @param newTable The transposition table shared by all threads.
+     */
+    public ParallelSearch(final int newThreadCount, final TranspositionTable newTable) {
+        if (newThreadCount < 1) {
+            throw new IllegalArgumentException("At least one search thread is needed");
+        }
+        this.threadCount = newThreadCount;
+        this.table = newTable;
+        this.searchers = new AlphaBetaSearch[newThreadCount];
+        for (int i = 0; i < newThreadCount; i++) {
+            this.searchers[i] = new AlphaBetaSearch(newTable);
+        }
+        // Helpers only, the calling thread runs the main search
+        this.pool = newThreadCount > 1 ? Executors.newFixedThreadPool(newThreadCount - 1, runnable -> {
+            final Thread thread = new Thread(runnable, "search-helper");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    /**
+     * Constructor to initialize a parallel search on every available core with a 2^22 entry table.
+     */
+    public ParallelSearch() {
+        this(Runtime.getRuntime().availableProcessors(), new TranspositionTable(22));
+    }
+
+    /**
+     * Gets the number of search threads.
+     * 
+     * @return The thread count, including the calling thread.
+     */
+    public int getThreadCount() {
+        return this.threadCount;
+    }
+
+    /**
+     * Searches the side to move of a position on all threads.
+     * The position itself is not changed, each thread searches a copy.
+     * 
+     * @param position The rules and board to search.
+     * @param maxDepth The deepest iteration to run.
+     * @param timeBudgetMs The time to spend in milliseconds, 0 or less for no limit.
+     * @return The main thread's result, with the nodes of every thread added up.
+     */
+    public SearchResult search(final GameRules position, final int maxDepth, final long timeBudgetMs) {
+        final long start = System.nanoTime();
+        final List<Future<SearchResult>> helpers = new ArrayList<>();
+        for (int i = 1; i < this.threadCount; i++) {
+            final AlphaBetaSearch helper = this.searchers[i];
+            final GameRules copy = position.copyPosition(); // Boards and their iterators are not thread safe
+            final int startDepth = 1 + i % 2 + (i % 4 == 3 ? 1 : 0);
+            helper.clearStop(); // The last search's stop is left over if the helper finished first
+            helpers.add(this.pool.submit(() -> helper.search(copy, startDepth, maxDepth, timeBudgetMs)));
+        }
+
+        final SearchResult main = this.searchers[0].search(position.copyPosition(), 1, maxDepth, timeBudgetMs);
+        long nodes = main.getNodes();
+        for (int i = 1; i < this.threadCount; i++) {
+            this.searchers[i].stop();
+        }
+        for (final Future<SearchResult> helper : helpers) {
+            try {
+                nodes += helper.get().getNodes();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Search helper failed", e.getCause());
+            }
+        }
+        return new SearchResult(main.getBestMove(), main.getScore(), main.getDepth(), nodes, System.nanoTime() - start);
+    }
+
+    /* The searcher run by a thread, 0 for the calling thread */
+    AlphaBetaSearch getSearcher(final int index) {
+        return this.searchers[index];
+    }
+
+    /**
+     * Measures how much faster this search reaches a fixed depth than a single thread does.
+     * Both runs start from an empty table.
+     * 
+     * @param position The rules and board to search.
+     * @param depth The depth both searches must complete.
+     * @return The single thread time divided by the parallel time.
+     */
+    public double measureSpeedup(final GameRules position, final int depth) {
+        this.table.clear();
+        final SearchResult single = this.searchers[0].search(position.copyPosition(), depth, 0);
+        this.table.clear();
+        final SearchResult parallel = search(position, depth, 0);
+        return (double) single.getElapsedNanos() / parallel.getElapsedNanos();
+    }
+
+    /**
+     * Stops the helper threads, the search cannot be used afterwards.
+     */
+    public void shutdown() {
+        if (this.pool != null) {
+            this.pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Reports the speedup over a single thread from the starting position.
+     * Arguments: [threads] [depth] [kalah|ayo]
+     * 
+     * @param args The command line arguments.
+     */
+    public static void main(final String[] args) {
+        final int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        final int depth = args.length > 1 ? Integer.parseInt(args[1]) : 14;
+        final boolean kalah = args.length <= 2 || !"ayo".equals(args[2]);
+        final GameRules position = kalah ? new KalahRules(true) : new AyoRules(true);
+
+        final ParallelSearch search = new ParallelSearch(threads, new TranspositionTable(22));
+        search.measureSpeedup(position, depth); // Warm up the JIT so both runs are compiled
+        final double speedup = search.measureSpeedup(position, depth);
+        search.table.clear();
+        final SearchResult result = search.search(position, depth, 0);
+        System.out.println((kalah ? "Kalah" : "Ayo") + " depth " + depth + " threads " + threads);
+        System.out.println(result);
+        System.out.printf("speedup %.2fx%n", speedup);
+        search.shutdown();
+    }
+}
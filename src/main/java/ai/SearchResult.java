@@ -0,0 +1,93 @@
+package ai;
+
+/**
+ * The outcome of a search: the move to play and how much work it took.
+ */
+public class SearchResult {
+    private final int bestMove;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long elapsedNanos;
+
+    /**
+     * Constructor to initialize a search result.
+     * 
+     * @param newBestMove The pit to play, 0 if there is no legal move.
+     * @param newScore The score of the move for the player to move.
+     * @param newDepth The deepest fully completed iteration.
+     * @param newNodes The number of positions visited.
+     * @param newElapsedNanos The wall clock time the search took.
+     */
+    public SearchResult(final int newBestMove, final int newScore, final int newDepth, 
+    final long newNodes, final long newElapsedNanos) {
+        this.bestMove = newBestMove;
+        this.score = newScore;
+        this.depth = newDepth;
+        this.nodes = newNodes;
+        this.elapsedNanos = newElapsedNanos;
+    }
+
+    /**
+     * Gets the pit to play.
+     * 
+     * @return The pit number, 0 if there is no legal move.
+     */
+    public int getBestMove() {
+        return this.bestMove;
+    }
+
+    /**
+     * Gets the score of the best move for the player to move.
+     * 
+     * @return The score, above AlphaBetaSearch.WIN for a won game.
+     */
+    public int getScore() {
+        return this.score;
+    }
+
+    /**
+     * Gets the deepest fully completed iteration.
+     * 
+     * @return The depth in plies.
+     */
+    public int getDepth() {
+        return this.depth;
+    }
+
+    /**
+     * Gets the number of positions visited.
+     * 
+     * @return The node count.
+     */
+    public long getNodes() {
+        return this.nodes;
+    }
+
+    /**
+     * Gets the wall clock time the search took.
+     * 
+     * @return The time in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return this.elapsedNanos;
+    }
+
+    /**
+     * Gets the search throughput.
+     * 
+     * @return Nodes visited per second.
+     */
+    public long getNodesPerSecond() {
+        if (this.elapsedNanos <= 0) {
+            return 0;
+        }
+        return this.nodes * 1_000_000_000L / this.elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "move " + this.bestMove + " score " + this.score + " depth " + this.depth 
+            + " nodes " + this.nodes + " nps " + getNodesPerSecond();
+    }
+}
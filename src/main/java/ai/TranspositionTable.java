@@ -0,0 +1,119 @@
+package ai;
+import java.util.Arrays;
+
+/**
+ * A fixed-size transposition table keyed by Zobrist position hashes.
+ * Each slot holds one packed entry (score, depth, bound and move) in a long, and the key is stored
+ * xored with the entry so a torn write from another thread is seen as a miss instead of a wrong hit.
+ * One table should only hold positions of one rule set.
+ */
+public class TranspositionTable {
+    /* Bound types of a stored score */
+    public static final int EXACT = 0;
+    public static final int LOWER = 1;
+    public static final int UPPER = 2;
+    /* Returned by probe when the position is not stored */
+    public static final long MISS = 0L;
+    private static final long VALID = 1L << 62;
+    private final long[] keys;
+    private final long[] entries;
+    private final int mask;
+
+    /**
+     * Constructor to initialize a table.
+     * 
+     * @param sizeBits The table holds 2^sizeBits entries, 16 bytes each.
+     */
+    public TranspositionTable(final int sizeBits) {
+        if (sizeBits < 1 || sizeBits > 30) {
+            throw new IllegalArgumentException("Table size out of range");
+        }
+        this.keys = new long[1 << sizeBits];
+        this.entries = new long[1 << sizeBits];
+        this.mask = (1 << sizeBits) - 1;
+    }
+
+    /**
+     * Looks up a position.
+     * 
+     * @param key The position hash.
+     * @return The packed entry, or MISS if the position is not stored.
+     */
+    public long probe(final long key) {
+        final int index = (int) key & this.mask;
+        final long entry = this.entries[index];
+        if ((this.keys[index] ^ entry) != key || (entry & VALID) == 0) {
+            return MISS;
+        }
+        return entry;
+    }
+
+    /**
+     * Stores a position, replacing a different position or a shallower result for the same one.
+     * 
+     * @param key The position hash.
+     * @param score The score of the position.
+     * @param depth The depth searched.
+     * @param bound EXACT, LOWER or UPPER.
+     * @param move The best pit found (1-12), 0 if none.
+     */
+    public void store(final long key, final int score, final int depth, final int bound, final int move) {
+        final int index = (int) key & this.mask;
+        final long old = this.entries[index];
+        if ((this.keys[index] ^ old) == key && (old & VALID) != 0 && depthOf(old) > depth) {
+            return; // Keep the deeper result of the same position
+        }
+        final long entry = VALID | (long) (move & 0xf) << 42 | (long) (bound & 0x3) << 40
+            | (long) (depth & 0xff) << 32 | score & 0xffffffffL;
+        this.entries[index] = entry;
+        this.keys[index] = key ^ entry;
+    }
+
+    /**
+     * Empties the table.
+     */
+    public void clear() {
+        Arrays.fill(this.keys, 0L);
+        Arrays.fill(this.entries, 0L);
+    }
+
+    /**
+     * Gets the score of an entry.
+     * 
+     * @param entry A packed entry from probe.
+     * @return The score.
+     */
+    public static int scoreOf(final long entry) {
+        return (int) entry;
+    }
+
+    /**
+     * Gets the depth of an entry.
+     * 
+     * @param entry A packed entry from probe.
+     * @return The depth searched.
+     */
+    public static int depthOf(final long entry) {
+        return (int) (entry >>> 32) & 0xff;
+    }
+
+    /**
+     * Gets the bound type of an entry.
+     * 
+     * @param entry A packed entry from probe.
+     * @return EXACT, LOWER or UPPER.
+     */
+    public static int boundOf(final long entry) {
+        return (int) (entry >>> 40) & 0x3;
+    }
+
+    /**
+     * Gets the best move of an entry.
+     * 
+     * @param entry A packed entry from probe.
+     * @return The pit number, 0 if none.
+     */
+    public static int moveOf(final long entry) {
+        return (int) (entry >>> 42) & 0xf;
+    }
+}
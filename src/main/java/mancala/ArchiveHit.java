@@ -0,0 +1,60 @@
+package mancala;
+
+/**
+ * One occurrence of a position in a GameArchive: the game it occurred in, after how many moves, and how that
+ * game ended.
+ */
+public final class ArchiveHit {
+    private final long gameId;
+    private final int ply;
+    private final boolean kalah;
+    private final String result;
+
+    ArchiveHit(final long newGameId, final int newPly, final boolean isKalah, final String newResult) {
+        this.gameId = newGameId;
+        this.ply = newPly;
+        this.kalah = isKalah;
+        this.result = newResult;
+    }
+
+    /**
+     * Gets the game the position occurred in, see GameArchive.readGame.
+     *
+     * @return The game id, its position in the archive from 0.
+     */
+    public long getGameId() {
+        return this.gameId;
+    }
+
+    /**
+     * Gets the number of moves played when the position occurred.
+     *
+     * @return The ply, 0 for the position before the first move.
+     */
+    public int getPly() {
+        return this.ply;
+    }
+
+    /**
+     * Checks if the game was Kalah.
+     *
+     * @return True for Kalah, false for Ayo.
+     */
+    public boolean isKalah() {
+        return this.kalah;
+    }
+
+    /**
+     * Gets how the game ended.
+     *
+     * @return GameRecord.ONE_WINS, TWO_WINS, DRAW or UNFINISHED, or null if the game has an illegal move after this.
+     */
+    public String getResult() {
+        return this.result;
+    }
+
+    @Override
+    public String toString() {
+        return "game " + this.gameId + " ply " + this.ply + " " + (this.result == null ? "illegal" : this.result);
+    }
+}
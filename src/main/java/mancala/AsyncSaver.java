@@ -0,0 +1,217 @@
+package mancala;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Saves and loads on a background I/O thread, so a window is never frozen by a slow disk.
+ * Every call returns at once with a future, which completes on the I/O thread, as do progress updates.
+ * Saves are encoded when they are asked for, so the object may change straight away, and a save to a file
+ * which has not started writing yet is replaced by a later save to the same file.
+ * Loads stop between chunks once their future is cancelled.
+ */
+public final class AsyncSaver {
+    private final ExecutorService executor;
+    /* Saves which have been queued but not started, by file name */
+    private final Map<String, PendingSave> pending = new HashMap<>();
+    private final AtomicInteger coalesced = new AtomicInteger();
+
+    /**
+     * Receives the progress of a save or load.
+     */
+    public interface Progress {
+        /**
+         * Called after each chunk is read or written.
+         *
+         * @param done The number of bytes read or written so far.
+         * @param total The size of the file.
+         */
+        void update(long done, long total);
+    }
+
+    /**
+     * A save which writes its own file.
+     */
+    public interface IoAction {
+        /**
+         * Performs the save.
+         *
+         * @throws IOException If the save failed.
+         */
+        void run() throws IOException;
+    }
+
+    private static final class PendingSave {
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private IoAction action;
+    }
+
+    /**
+     * Constructor to start a saver with its own I/O thread, which does not keep the program running.
+     */
+    public AsyncSaver() {
+        this.executor = Executors.newSingleThreadExecutor(task -> {
+            final Thread thread = new Thread(task, "mancala-io");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Saves an object to the assets folder, see Saver.saveObject.
+     *
+     * @param toSave The object to save, encoded before this returns.
+     * @param filename The file name for the object.
+     * @param progress Receives the bytes written, or null.
+     * @return A future which completes once the file is written, or fails with the IOException.
+     */
+    public CompletableFuture<Void> save(final Serializable toSave, final String filename, final Progress progress) {
+        final ByteBuffer encoded;
+        try {
+            encoded = Saver.encode(toSave);
+        } catch (IOException e) {
+            final CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        return save(filename, () -> Saver.writeBuffer(encoded.duplicate(), filename, progress));
+    }
+
+    /**
+     * Saves an object to the assets folder, see Saver.saveObject.
+     *
+     * @param toSave The object to save, encoded before this returns.
+     * @param filename The file name for the object.
+     * @return A future which completes once the file is written, or fails with the IOException.
+     */
+    public CompletableFuture<Void> save(final Serializable toSave, final String filename) {
+        return save(toSave, filename, null);
+    }
+
+    /**
+     * Runs a save on the I/O thread. If a save with the same key is still queued only the newer one runs,
+     * and both callers get the same future.
+     *
+     * @param key The file being saved.
+     * @param action Writes the file.
+     * @return A future which completes once the save has run, or fails with its IOException.
+     */
+    public CompletableFuture<Void> save(final String key, final IoAction action) {
+        synchronized (this.pending) {
+            final PendingSave queued = this.pending.get(key);
+            if (queued != null) {
+                queued.action = action;
+                this.coalesced.incrementAndGet();
+                return queued.future;
+            }
+            final PendingSave save = new PendingSave();
+            save.action = action;
+            this.pending.put(key, save);
+            this.executor.execute(() -> runSave(key, save));
+            return save.future;
+        }
+    }
+
+    /**
+     * Reads a file from the assets folder without decoding it, see Saver.decode.
+     *
+     * @param filename The file name.
+     * @param progress Receives the bytes read, or null.
+     * @return A future of the file contents, which can be cancelled and fails with any IOException.
+     */
+    public CompletableFuture<ByteBuffer> read(final String filename, final Progress progress) {
+        final CompletableFuture<ByteBuffer> future = new CompletableFuture<>();
+        this.executor.execute(() -> {
+            if (future.isDone()) {
+                return; // Cancelled before it started
+            }
+            try {
+                future.complete(Saver.readBuffer(filename, progress, future::isCancelled));
+            } catch (IOException | RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Loads an object from the assets folder, see Saver.loadObject.
+     *
+     * @param filename The file name for the object.
+     * @param progress Receives the bytes read, or null.
+     * @return A future of the loaded object, which can be cancelled and fails with any IOException.
+     */
+    public CompletableFuture<Serializable> load(final String filename, final Progress progress) {
+        final CompletableFuture<Serializable> future = new CompletableFuture<>();
+        this.executor.execute(() -> {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(Saver.decode(Saver.readBuffer(filename, progress, future::isCancelled)));
+            } catch (IOException | RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Runs any other file work on the I/O thread, after everything queued before it.
+     *
+     * @param task The work to run.
+     * @param <T> The type of the result.
+     * @return A future of the result, which fails with any exception the work throws.
+     */
+    public <T> CompletableFuture<T> submit(final Callable<T> task) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        this.executor.execute(() -> {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(task.call());
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Gets the number of saves which were replaced by a later save before they ran.
+     *
+     * @return The number of saves skipped.
+     */
+    public int getCoalescedSaves() {
+        return this.coalesced.get();
+    }
+
+    /**
+     * Runs everything already queued, then stops the I/O thread.
+     */
+    public void shutdown() {
+        this.executor.shutdown();
+    }
+
+    private void runSave(final String key, final PendingSave save) {
+        final IoAction action;
+        synchronized (this.pending) {
+            this.pending.remove(key); // Saves from now on are queued after this one
+            action = save.action;
+        }
+        try {
+            action.run();
+            save.future.complete(null);
+        } catch (IOException | RuntimeException e) {
+            save.future.completeExceptionally(e);
+        }
+    }
+}
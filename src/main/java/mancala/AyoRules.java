@@ -4,43 +4,73 @@ public class AyoRules extends GameRules {
     private static final long serialVersionUID = 1L;
     private final MancalaDataStructure gameBoard = getDataStructure();
 
+    /**
+     * Constructor to initialize Ayo rules with a different number of starting stones.
+     * 
+     * @param startStones The number of stones to place in each pit at the start of the game.
+     * @param packedBoard True to use the packed int array board backend.
+     */
+    public AyoRules(final int startStones, final boolean packedBoard) {
+        super(startStones, packedBoard);
+    }
+
+    /**
+     * Constructor to initialize Ayo rules.
+     * 
+     * @param packedBoard True to use the packed int array board backend.
+     */
+    public AyoRules(final boolean packedBoard) {
+        super(packedBoard);
+    }
+
+    /**
+     * Constructor to initialize Ayo rules with the default board backend.
+     */
+    public AyoRules() {
+        super();
+    }
+
     @Override
     public int moveStones(final int startPit, final int playerNum) throws InvalidMoveException {
         if (!isValidMove(startPit, playerNum)) {
             throw new InvalidMoveException();
         }
 
-        final int before = this.gameBoard.getStoreCount(playerNum);
-        setPlayer(playerNum); // Set current player
-        distributeStones(startPit);
-
-        return this.gameBoard.getStoreCount(playerNum) - before;
+        return applyMove(startPit, playerNum);
     }
 
     @Override
     int distributeStones(final int startPit) {
-        int curStones = this.gameBoard.removeStones(startPit);
+        int curStones = takeStones(startPit);
         int numStones = curStones;
-        Countable curCountable = null;
+        int curPos = -1;
         this.gameBoard.setIterator(startPit, getPlayer(), true /* for AyoRules */); 
+        final int skipPos = this.gameBoard.getIterator();
+        int lapPos = skipPos; // Where the current lap of sowing started
+        int lapStones = curStones;
 
         // Distributing stones
         while (curStones > 0) {
-            curCountable = this.gameBoard.next();
-            curCountable.addStone();
+            curPos = this.gameBoard.nextPosition();
+            final int curCount = this.gameBoard.addAt(curPos, 1);
             curStones -= 1;
 
-            // Keep looping if last stone lands in a pit with stones, this is the case for AyoRules
-            if (curStones == 0 && curCountable.getStoneCount() != 1 && this.gameBoard.getIterator() != 6 && this.gameBoard.getIterator() != 13) {
-                curStones += curCountable.removeStones();
+            if (curStones == 0) {
+                recordSow(lapPos, lapStones, skipPos);
+                // Keep looping if last stone lands in a pit with stones, this is the case for AyoRules
+                if (curCount != 1 && curPos != 6 && curPos != 13) {
+                    curStones += takeStonesAt(curPos);
+                    lapPos = curPos;
+                    lapStones = curStones;
+                }
             } 
         }
         // Handling bonus turn, which is always false for AyoRules
         setBonus(false);
 
         // Handling stone capturing
-        if (curCountable != null && curCountable.getStoneCount() == 1) {
-            final int finalPos = this.gameBoard.getIterator(); // Number from 0-13: 6 & 13 are stores
+        if (curPos != -1 && this.gameBoard.countAt(curPos) == 1) {
+            final int finalPos = curPos; // Number from 0-13: 6 & 13 are stores
             if (finalPos >= 0 && finalPos <= 5 && getPlayer() == 1 /* P1 */) {
                 numStones += captureStones(finalPos + 1);
             } else if (finalPos >= 7 && finalPos <= 12 && getPlayer() == 2 /* P2 */) {
@@ -51,14 +81,20 @@ public class AyoRules extends GameRules {
         return numStones;
     }
 
+    @Override
+    GameRules createEmpty(final boolean packedBoard) {
+        return new AyoRules(getStartStones(), packedBoard);
+    }
+
     @Override
     int captureStones(final int stoppingPoint) {
         final int opposingPoint = Math.abs(stoppingPoint - 13) % 13;
-        final int newStones = this.gameBoard.removeStones(opposingPoint);
+        final int newStones = takeStones(opposingPoint);
 
         if (newStones != 0) {
             // Don't remove the one stone on players side for AyoRules
-            this.gameBoard.addToStore(getPlayer(), newStones);
+            depositToStore(getPlayer(), newStones);
+            noteCapture(opposingPoint, newStones);
         }
         
         return newStones;
@@ -0,0 +1,366 @@
+package mancala;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Archived games with an index from each position they reach to where it occurred.
+ * GameArchiveBuilder writes two files. The archive holds the games in deflated blocks of GAMES_PER_BLOCK,
+ * with a directory of block offsets at its end. The index, which is memory-mapped, holds a byte per game with
+ * its rule set and how it ended, then one entry per position reached: the position hash and the game id and
+ * ply it occurred at. Entries are sorted by hash, so the entries of one hash are a posting list found by a
+ * binary search, and a query is answered without touching the archive.
+ *
+ * Positions are matched by their 64-bit Zobrist hash, which includes the side to move. Different positions
+ * with equal hashes are possible but vanishingly rare, readGame can be used to check a hit.
+ */
+public final class GameArchive implements Closeable {
+    public static final int ARCHIVE_MAGIC = 0x4d474152; // "MGAR"
+    public static final int INDEX_MAGIC = 0x4d474958; // "MGIX"
+    public static final int VERSION = 1;
+    public static final int GAMES_PER_BLOCK = 256;
+    static final int FOOTER = 32;
+    static final int INDEX_HEADER = 32;
+    static final int ENTRY = 16;
+    static final int MAX_PLY = 0xFFFF;
+    /* Bits 0-2 of a game's index byte, 0 is a game with an illegal move */
+    static final int RESULT_MASK = 7;
+    static final int KALAH_BIT = 8;
+    private static final String[] RESULTS = {null, GameRecord.ONE_WINS, GameRecord.TWO_WINS, GameRecord.DRAW,
+        GameRecord.UNFINISHED};
+    /* Entries are mapped in segments of 1 GiB, a whole number of entries each */
+    private static final int SEGMENT_SHIFT = 26;
+    private static final long SEGMENT_ENTRIES = 1L << SEGMENT_SHIFT;
+    private final FileChannel archive;
+    private final FileChannel index;
+    private final long gameCount;
+    private final long entryCount;
+    private final long[] blockOffsets;
+    private final MappedByteBuffer games;
+    private final MappedByteBuffer[] segments;
+
+    private GameArchive(final FileChannel newArchive, final FileChannel newIndex) throws IOException {
+        this.archive = newArchive;
+        this.index = newIndex;
+
+        final ByteBuffer footer = ByteBuffer.allocate(FOOTER);
+        readFully(newArchive, footer, newArchive.size() - FOOTER);
+        footer.flip();
+        final long directory = footer.getLong();
+        final long archivedGames = footer.getLong();
+        final int blockCount = footer.getInt();
+        final int perBlock = footer.getInt();
+        final int version = footer.getInt();
+        if (footer.getInt() != ARCHIVE_MAGIC || version != VERSION || perBlock != GAMES_PER_BLOCK) {
+            throw new IOException("Not a game archive");
+        }
+        final ByteBuffer offsets = ByteBuffer.allocate(blockCount * 8);
+        readFully(newArchive, offsets, directory);
+        offsets.flip();
+        this.blockOffsets = new long[blockCount + 1];
+        for (int b = 0; b < blockCount; b++) {
+            this.blockOffsets[b] = offsets.getLong();
+        }
+        this.blockOffsets[blockCount] = directory;
+
+        final ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER);
+        readFully(newIndex, header, 0);
+        header.flip();
+        if (header.getInt() != INDEX_MAGIC || header.getInt() != VERSION) {
+            throw new IOException("Not a game archive index");
+        }
+        this.gameCount = header.getLong();
+        this.entryCount = header.getLong();
+        final long entries = header.getLong();
+        if (this.gameCount != archivedGames || this.gameCount > Integer.MAX_VALUE
+            || newIndex.size() < entries + this.entryCount * ENTRY) {
+            throw new IOException("The index does not belong to the archive");
+        }
+        this.games = newIndex.map(FileChannel.MapMode.READ_ONLY, INDEX_HEADER, this.gameCount);
+        this.segments = new MappedByteBuffer[(int) ((this.entryCount + SEGMENT_ENTRIES - 1) >>> SEGMENT_SHIFT)];
+        for (int s = 0; s < this.segments.length; s++) {
+            final long first = (long) s << SEGMENT_SHIFT;
+            final long count = Math.min(SEGMENT_ENTRIES, this.entryCount - first);
+            this.segments[s] = newIndex.map(FileChannel.MapMode.READ_ONLY, entries + first * ENTRY, count * ENTRY);
+        }
+    }
+
+    /**
+     * Opens an archive and its index.
+     *
+     * @param archiveFile The archive file.
+     * @param indexFile The index file.
+     * @return The archive, safe to query from many threads.
+     * @throws IOException If the files could not be read or do not belong together.
+     */
+    public static GameArchive open(final Path archiveFile, final Path indexFile) throws IOException {
+        final FileChannel archiveChannel = FileChannel.open(archiveFile, StandardOpenOption.READ);
+        try {
+            final FileChannel indexChannel = FileChannel.open(indexFile, StandardOpenOption.READ);
+            try {
+                return new GameArchive(archiveChannel, indexChannel);
+            } catch (IOException | RuntimeException e) {
+                indexChannel.close();
+                throw e;
+            }
+        } catch (IOException | RuntimeException e) {
+            archiveChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the number of games in the archive.
+     *
+     * @return The number of games.
+     */
+    public long getGameCount() {
+        return this.gameCount;
+    }
+
+    /**
+     * Gets the number of positions in the index, one per position reached in each game.
+     *
+     * @return The number of index entries.
+     */
+    public long getEntryCount() {
+        return this.entryCount;
+    }
+
+    /**
+     * Counts the occurrences of a position.
+     *
+     * @param hash The position hash, see GameRules.getPositionHash.
+     * @return The length of its posting list.
+     */
+    public long count(final long hash) {
+        return bound(hash, true) - bound(hash, false);
+    }
+
+    /**
+     * Finds the games a position occurred in, for either rule set.
+     *
+     * @param hash The position hash, see GameRules.getPositionHash.
+     * @param limit The most occurrences to return.
+     * @return The occurrences, by game id then ply.
+     */
+    public List<ArchiveHit> find(final long hash, final int limit) {
+        final List<ArchiveHit> hits = new ArrayList<>();
+        for (long i = bound(hash, false); i < this.entryCount && hits.size() < limit && hashAt(i) == hash; i++) {
+            hits.add(hit(payloadAt(i)));
+        }
+        return hits;
+    }
+
+    /**
+     * Finds the games of the same rule set in which a game's current position occurred.
+     *
+     * @param game The game, with the current player to move.
+     * @param limit The most occurrences to return.
+     * @return The occurrences, by game id then ply.
+     */
+    public List<ArchiveHit> find(final MancalaGame game, final int limit) {
+        final long hash = game.getPositionHash();
+        final List<ArchiveHit> hits = new ArrayList<>();
+        for (long i = bound(hash, false); i < this.entryCount && hits.size() < limit && hashAt(i) == hash; i++) {
+            final ArchiveHit hit = hit(payloadAt(i));
+            if (hit.isKalah() == game.isKalah()) {
+                hits.add(hit);
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Reads a game back from its block.
+     *
+     * @param gameId The game id, from 0 to getGameCount() - 1.
+     * @return The game as it was archived.
+     * @throws IOException If the archive could not be read.
+     */
+    public GameRecord readGame(final long gameId) throws IOException {
+        if (gameId < 0 || gameId >= this.gameCount) {
+            throw new IndexOutOfBoundsException("No game " + gameId);
+        }
+        final int block = (int) (gameId / GAMES_PER_BLOCK);
+        final ByteBuffer compressed = ByteBuffer.allocate((int) (this.blockOffsets[block + 1] - this.blockOffsets[block]));
+        readFully(this.archive, compressed, this.blockOffsets[block]);
+        compressed.flip();
+        final int rawLength = compressed.getInt();
+        final byte[] raw = new byte[rawLength];
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed.array(), compressed.position(), compressed.remaining());
+            if (inflater.inflate(raw) != rawLength) {
+                throw new IOException("Archive block " + block + " is cut short");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Archive block " + block + " is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+
+        final ByteBuffer in = ByteBuffer.wrap(raw);
+        for (long skip = gameId % GAMES_PER_BLOCK; skip > 0; skip--) {
+            decodeGame(in);
+        }
+        return decodeGame(in);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            this.archive.close();
+        } finally {
+            this.index.close();
+        }
+    }
+
+    /* Index of the first entry whose hash is at least hash, or past hash when after is true */
+    private long bound(final long hash, final boolean after) {
+        long low = 0;
+        long high = this.entryCount;
+        while (low < high) {
+            final long mid = (low + high) >>> 1;
+            final long at = hashAt(mid);
+            if (at < hash || (after && at == hash)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private long hashAt(final long entry) {
+        return this.segments[(int) (entry >>> SEGMENT_SHIFT)].getLong((int) (entry & (SEGMENT_ENTRIES - 1)) * ENTRY);
+    }
+
+    private long payloadAt(final long entry) {
+        return this.segments[(int) (entry >>> SEGMENT_SHIFT)].getLong((int) (entry & (SEGMENT_ENTRIES - 1)) * ENTRY + 8);
+    }
+
+    private ArchiveHit hit(final long payload) {
+        final long gameId = payload >>> 16;
+        final int info = this.games.get((int) gameId);
+        return new ArchiveHit(gameId, (int) (payload & MAX_PLY), (info & KALAH_BIT) != 0, RESULTS[info & RESULT_MASK]);
+    }
+
+    /* The result code stored for a result, 0 if there is none */
+    static int resultCode(final String result) {
+        for (int code = 1; code < RESULTS.length; code++) {
+            if (RESULTS[code].equals(result)) {
+                return code;
+            }
+        }
+        return 0;
+    }
+
+    /* Layout of a game in a block: flags (Kalah, position), starting stones, names, position, result, moves */
+    static void encodeGame(final ByteBuffer out, final GameRecord record) {
+        final int[] position = record.getPosition();
+        out.put((byte) ((record.isKalah() ? 1 : 0) | (position != null ? 2 : 0)));
+        GameCodec.putVarint(out, record.getStartStones());
+        GameCodec.putString(out, record.getPlayerOne());
+        GameCodec.putString(out, record.getPlayerTwo());
+        if (position != null) {
+            for (final int count : position) {
+                GameCodec.putVarint(out, count);
+            }
+        }
+        out.put((byte) resultCode(record.getResult()));
+        final int[] moves = record.getMoves();
+        GameCodec.putVarint(out, moves.length);
+        for (final int pit : moves) {
+            out.put((byte) pit);
+        }
+    }
+
+    /* An upper bound on the bytes encodeGame writes */
+    static int encodedSize(final GameRecord record) {
+        return 32 + GameCodec.utf8(record.getPlayerOne()).length + GameCodec.utf8(record.getPlayerTwo()).length
+            + 15 * 5 + record.getMoveCount();
+    }
+
+    static GameRecord decodeGame(final ByteBuffer in) throws IOException {
+        final int flags = in.get();
+        final int stones = GameCodec.getVarint(in);
+        final String one = GameCodec.getString(in);
+        final String two = GameCodec.getString(in);
+        int[] position = null;
+        if ((flags & 2) != 0) {
+            position = new int[15];
+            for (int i = 0; i < position.length; i++) {
+                position[i] = GameCodec.getVarint(in);
+            }
+        }
+        final int result = in.get();
+        final int[] moves = new int[GameCodec.getVarint(in)];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = in.get();
+        }
+        return new GameRecord((flags & 1) != 0, stones, one, two, position, moves,
+            result > 0 && result < RESULTS.length ? RESULTS[result] : null);
+    }
+
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position)
+        throws IOException {
+        long at = position;
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, at);
+            if (read < 0) {
+                throw new IOException("File ended early");
+            }
+            at += read;
+        }
+    }
+
+    /**
+     * Builds or queries an archive from the command line.
+     * Arguments: build [record file] [archive] [index] [threads], or query [archive] [index] [kalah|ayo] [moves ...]
+     * where the moves are played from the starting position to reach the position to look up.
+     *
+     * @param args The command line arguments.
+     * @throws IOException If a file could not be read or written.
+     * @throws InvalidMoveException If the moves of a query are not legal.
+     */
+    public static void main(final String[] args) throws IOException, InvalidMoveException {
+        if (args.length >= 4 && "build".equals(args[0])) {
+            final int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(Paths.get(args[1])))) {
+                System.out.println(new GameArchiveBuilder(threads).build(in, Paths.get(args[2]), Paths.get(args[3])));
+            }
+        } else if (args.length >= 4 && "query".equals(args[0])) {
+            final boolean kalah = !"ayo".equals(args[3]);
+            final int[] moves = new int[args.length - 4];
+            for (int i = 0; i < moves.length; i++) {
+                moves[i] = Integer.parseInt(args[i + 4]);
+            }
+            final GameRules position = new GameRecord(kalah, 4, "", "", null, moves, null).replay();
+            try (GameArchive archive = open(Paths.get(args[1]), Paths.get(args[2]))) {
+                final long start = System.nanoTime();
+                final long total = archive.count(position.getPositionHash());
+                final List<ArchiveHit> hits = archive.find(position.getPositionHash(), 20);
+                System.out.printf("%d occurrences in %.3f ms%n", total, (System.nanoTime() - start) / 1e6);
+                for (final ArchiveHit hit : hits) {
+                    System.out.println(hit);
+                }
+            }
+        } else {
+            System.out.println("Usage: GameArchive build <record file> <archive> <index> [threads]");
+            System.out.println("       GameArchive query <archive> <index> <kalah|ayo> [moves ...]");
+        }
+    }
+}
@@ -0,0 +1,498 @@
+package mancala;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+
+/**
+ * Builds a GameArchive from a stream of text game records.
+ * One thread parses records while a pool compresses each block of games and replays its games through
+ * KalahRules or AyoRules, collecting the hash of every position reached. Blocks are written in order with a
+ * fixed number in flight. Index entries are gathered into runs which are sorted and spilled to temporary files,
+ * then merged into the index, so an archive of any size is built in constant memory.
+ */
+public final class GameArchiveBuilder {
+    /* Index entries held in memory before a run is spilled, 16 bytes each */
+    private static final int RUN_ENTRIES = 1 << 20;
+    private static final int IO_BUFFER = 64 * 1024;
+    private final int threadCount;
+    private final int runEntries;
+
+    /**
+     * The totals of a build.
+     */
+    public static final class Summary {
+        private final long games;
+        private final long malformed;
+        private final long illegal;
+        private final long entries;
+        private final int runs;
+        private final long elapsedNanos;
+
+        Summary(final long newGames, final long newMalformed, final long newIllegal, final long newEntries,
+            final int newRuns, final long newElapsedNanos) {
+            this.games = newGames;
+            this.malformed = newMalformed;
+            this.illegal = newIllegal;
+            this.entries = newEntries;
+            this.runs = newRuns;
+            this.elapsedNanos = newElapsedNanos;
+        }
+
+        /**
+         * Gets the number of games archived. Malformed records are skipped, games with an illegal move are kept.
+         *
+         * @return The number of games.
+         */
+        public long getGames() {
+            return this.games;
+        }
+
+        /**
+         * Gets the number of records which could not be parsed.
+         *
+         * @return The number of malformed records.
+         */
+        public long getMalformed() {
+            return this.malformed;
+        }
+
+        /**
+         * Gets the number of games with a move which is not legal, indexed up to that move.
+         *
+         * @return The number of illegal games.
+         */
+        public long getIllegal() {
+            return this.illegal;
+        }
+
+        /**
+         * Gets the number of positions indexed.
+         *
+         * @return The number of index entries.
+         */
+        public long getEntries() {
+            return this.entries;
+        }
+
+        /**
+         * Gets the number of sorted runs merged into the index.
+         *
+         * @return The number of runs.
+         */
+        public int getRuns() {
+            return this.runs;
+        }
+
+        /**
+         * Gets the time the build took.
+         *
+         * @return The elapsed time in nanoseconds.
+         */
+        public long getElapsedNanos() {
+            return this.elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            final double seconds = this.elapsedNanos / 1e9;
+            return String.format("%d games (%d malformed skipped, %d illegal), %d positions in %d runs in %.2fs"
+                + " (%.0f games/s)", this.games, this.malformed, this.illegal, this.entries, this.runs, seconds,
+                seconds == 0 ? 0 : this.games / seconds);
+        }
+    }
+
+    /* A block of games as the pool leaves it for the writer */
+    private static final class Block {
+        private final byte[] compressed;
+        private final byte[] info;
+        private final long[] entries; // Hash and payload pairs
+        private final int illegal;
+
+        Block(final byte[] newCompressed, final byte[] newInfo, final long[] newEntries, final int newIllegal) {
+            this.compressed = newCompressed;
+            this.info = newInfo;
+            this.entries = newEntries;
+            this.illegal = newIllegal;
+        }
+    }
+
+    /**
+     * Constructor to initialize a builder.
+     *
+     * @param newThreadCount The number of threads compressing and replaying games.
+     */
+    public GameArchiveBuilder(final int newThreadCount) {
+        this(newThreadCount, RUN_ENTRIES);
+    }
+
+    GameArchiveBuilder(final int newThreadCount, final int newRunEntries) {
+        if (newThreadCount < 1) {
+            throw new IllegalArgumentException("At least one worker thread is needed");
+        }
+        this.threadCount = newThreadCount;
+        this.runEntries = newRunEntries;
+    }
+
+    /**
+     * Reads every record in a stream and writes the archive and its index, replacing any existing files.
+     *
+     * @param in The stream of records, which is not closed.
+     * @param archiveFile The archive file to write.
+     * @param indexFile The index file to write.
+     * @return The totals.
+     * @throws IOException If the stream could not be read or the files could not be written.
+     */
+    public Summary build(final InputStream in, final Path archiveFile, final Path indexFile) throws IOException {
+        final long start = System.nanoTime();
+        final Path tempDirectory = indexFile.toAbsolutePath().getParent();
+        final List<Path> runs = new ArrayList<>();
+        final ExecutorService pool = Executors.newFixedThreadPool(this.threadCount, runnable -> {
+            final Thread thread = new Thread(runnable, "archive-builder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (FileChannel archive = FileChannel.open(archiveFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             FileChannel index = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            // The per-game bytes follow the header and are written as blocks complete, the entries follow them
+            index.position(GameArchive.INDEX_HEADER);
+            final GameRecordReader reader = new GameRecordReader(in);
+            final ArrayDeque<Future<Block>> inFlight = new ArrayDeque<>();
+            long archiveSize = 0;
+            long[] blockOffsets = new long[64];
+            int blockCount = 0;
+            long games = 0;
+            long malformed = 0;
+            long illegal = 0;
+            long entries = 0;
+            long[] run = new long[this.runEntries * 2];
+            int runLength = 0;
+            Future<Path> spilling = null;
+            List<GameRecord> batch = new ArrayList<>(GameArchive.GAMES_PER_BLOCK);
+            boolean more = true;
+            while (more || !inFlight.isEmpty()) {
+                if (more) {
+                    GameRecord record;
+                    try {
+                        record = reader.next();
+                    } catch (MalformedRecordException e) {
+                        malformed++;
+                        continue;
+                    }
+                    if (record != null) {
+                        batch.add(record);
+                    } else {
+                        more = false;
+                    }
+                    if (batch.size() == GameArchive.GAMES_PER_BLOCK || (!more && !batch.isEmpty())) {
+                        final List<GameRecord> full = batch;
+                        batch = new ArrayList<>(GameArchive.GAMES_PER_BLOCK);
+                        final long firstId = games;
+                        games += full.size();
+                        inFlight.add(pool.submit(() -> compress(full, firstId)));
+                    }
+                }
+                // Blocks are taken in order, waiting only when too many are in flight or the input is done
+                while (!inFlight.isEmpty() && (inFlight.peek().isDone() || inFlight.size() > this.threadCount * 2
+                    || !more)) {
+                    final Block block = get(inFlight.poll());
+                    if (blockCount == blockOffsets.length) {
+                        blockOffsets = Arrays.copyOf(blockOffsets, blockCount * 2);
+                    }
+                    blockOffsets[blockCount++] = archiveSize;
+                    archiveSize += writeFully(archive, ByteBuffer.wrap(block.compressed));
+                    writeFully(index, ByteBuffer.wrap(block.info));
+                    illegal += block.illegal;
+                    entries += block.entries.length / 2;
+                    int copied = 0;
+                    while (copied < block.entries.length) {
+                        final int count = Math.min(block.entries.length - copied, run.length - runLength);
+                        System.arraycopy(block.entries, copied, run, runLength, count);
+                        copied += count;
+                        runLength += count;
+                        if (runLength == run.length) {
+                            // One run is sorted and spilled while the next fills
+                            if (spilling != null) {
+                                runs.add(get(spilling));
+                            }
+                            final long[] full = run;
+                            final int fullLength = runLength;
+                            spilling = pool.submit(() -> spill(full, fullLength, tempDirectory));
+                            run = new long[run.length];
+                            runLength = 0;
+                        }
+                    }
+                }
+            }
+            if (spilling != null) {
+                runs.add(get(spilling));
+            }
+            if (runLength > 0) {
+                runs.add(spill(run, runLength, tempDirectory));
+            }
+            run = null;
+
+            // Directory and footer
+            final ByteBuffer directory = ByteBuffer.allocate(blockCount * 8 + GameArchive.FOOTER);
+            for (int b = 0; b < blockCount; b++) {
+                directory.putLong(blockOffsets[b]);
+            }
+            directory.putLong(archiveSize).putLong(games).putInt(blockCount).putInt(GameArchive.GAMES_PER_BLOCK)
+                .putInt(GameArchive.VERSION).putInt(GameArchive.ARCHIVE_MAGIC);
+            directory.flip();
+            writeFully(archive, directory);
+
+            final long entryStart = (GameArchive.INDEX_HEADER + games + 7) & ~7L;
+            index.position(entryStart);
+            merge(runs, index);
+            final ByteBuffer header = ByteBuffer.allocate(GameArchive.INDEX_HEADER);
+            header.putInt(GameArchive.INDEX_MAGIC).putInt(GameArchive.VERSION).putLong(games).putLong(entries)
+                .putLong(entryStart);
+            header.flip();
+            index.position(0);
+            writeFully(index, header);
+            return new Summary(games, malformed, illegal, entries, runs.size(), System.nanoTime() - start);
+        } finally {
+            pool.shutdownNow();
+            for (final Path path : runs) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /* Encodes and deflates a block of games, and replays them for their index entries */
+    private static Block compress(final List<GameRecord> records, final long firstId) {
+        int size = 0;
+        for (final GameRecord record : records) {
+            size += GameArchive.encodedSize(record);
+        }
+        final ByteBuffer raw = ByteBuffer.allocate(size);
+        final byte[] info = new byte[records.size()];
+        final long[][] entries = {new long[records.size() * 64]};
+        final int[] length = new int[1];
+        int illegal = 0;
+        for (int i = 0; i < records.size(); i++) {
+            final GameRecord record = records.get(i);
+            GameArchive.encodeGame(raw, record);
+            final long id = (firstId + i) << 16;
+            final int[] ply = new int[1];
+            int code;
+            try {
+                code = GameArchive.resultCode(GameRecord.resultOf(record.replay(hash -> {
+                    if (ply[0] <= GameArchive.MAX_PLY) {
+                        if (length[0] == entries[0].length) {
+                            entries[0] = Arrays.copyOf(entries[0], length[0] * 2);
+                        }
+                        entries[0][length[0]++] = hash;
+                        entries[0][length[0]++] = id | ply[0]++;
+                    }
+                })));
+            } catch (InvalidMoveException e) {
+                code = 0;
+                illegal++;
+            }
+            info[i] = (byte) (code | (record.isKalah() ? GameArchive.KALAH_BIT : 0));
+        }
+
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw.array(), 0, raw.position());
+            deflater.finish();
+            byte[] compressed = new byte[raw.position() / 2 + 64];
+            ByteBuffer.wrap(compressed).putInt(raw.position());
+            int written = 4;
+            while (!deflater.finished()) {
+                if (written == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                written += deflater.deflate(compressed, written, compressed.length - written);
+            }
+            return new Block(Arrays.copyOf(compressed, written), info, Arrays.copyOf(entries[0], length[0]), illegal);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /* Sorts a run by hash then payload and writes it to a temporary file */
+    private static Path spill(final long[] run, final int length, final Path directory) throws IOException {
+        sort(run, 0, length / 2 - 1);
+        final Path path = Files.createTempFile(directory, "mancala-run", ".tmp");
+        try (FileChannel out = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            final ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER);
+            for (int i = 0; i < length; i++) {
+                if (!buffer.hasRemaining()) {
+                    buffer.flip();
+                    writeFully(out, buffer);
+                    buffer.clear();
+                }
+                buffer.putLong(run[i]);
+            }
+            buffer.flip();
+            writeFully(out, buffer);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
+        return path;
+    }
+
+    /* One sorted run being merged */
+    private static final class RunReader implements Comparable<RunReader> {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER);
+        private long hash;
+        private long payload;
+
+        RunReader(final Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            this.buffer.flip();
+        }
+
+        /* Moves to the next entry, false at the end of the run */
+        boolean advance() throws IOException {
+            if (this.buffer.remaining() < 16) {
+                this.buffer.compact();
+                while (this.buffer.position() < 16 && this.channel.read(this.buffer) > 0) {
+                    continue;
+                }
+                this.buffer.flip();
+                if (this.buffer.remaining() < 16) {
+                    return false;
+                }
+            }
+            this.hash = this.buffer.getLong();
+            this.payload = this.buffer.getLong();
+            return true;
+        }
+
+        @Override
+        public int compareTo(final RunReader other) {
+            final int byHash = Long.compare(this.hash, other.hash);
+            return byHash != 0 ? byHash : Long.compare(this.payload, other.payload);
+        }
+    }
+
+    /* Merges the sorted runs into the entries of the index, at the channel's position */
+    private static void merge(final List<Path> runs, final FileChannel index) throws IOException {
+        final PriorityQueue<RunReader> queue = new PriorityQueue<>(Math.max(1, runs.size()));
+        final List<RunReader> readers = new ArrayList<>();
+        try {
+            for (final Path path : runs) {
+                final RunReader reader = new RunReader(path);
+                readers.add(reader);
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+            }
+            final ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER * 16);
+            while (!queue.isEmpty()) {
+                final RunReader reader = queue.poll();
+                if (!buffer.hasRemaining()) {
+                    buffer.flip();
+                    writeFully(index, buffer);
+                    buffer.clear();
+                }
+                buffer.putLong(reader.hash).putLong(reader.payload);
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+            }
+            buffer.flip();
+            writeFully(index, buffer);
+        } finally {
+            for (final RunReader reader : readers) {
+                reader.channel.close();
+            }
+        }
+    }
+
+    /* Quicksort of the hash and payload pairs from pair low to pair high inclusive, entries are all distinct */
+    static void sort(final long[] pairs, final int low, final int high) {
+        int from = low;
+        int to = high;
+        while (to - from > 16) {
+            final int mid = (from + to) >>> 1;
+            final long pivotHash = pairs[mid * 2];
+            final long pivotPayload = pairs[mid * 2 + 1];
+            int i = from - 1;
+            int j = to + 1;
+            while (true) {
+                do {
+                    i++;
+                } while (compare(pairs, i, pivotHash, pivotPayload) < 0);
+                do {
+                    j--;
+                } while (compare(pairs, j, pivotHash, pivotPayload) > 0);
+                if (i >= j) {
+                    break;
+                }
+                swap(pairs, i, j);
+            }
+            // Recurse into the smaller side so the stack stays logarithmic
+            if (j - from < to - j) {
+                sort(pairs, from, j);
+                from = j + 1;
+            } else {
+                sort(pairs, j + 1, to);
+                to = j;
+            }
+        }
+        for (int i = from + 1; i <= to; i++) {
+            for (int j = i; j > from && compare(pairs, j, pairs[(j - 1) * 2], pairs[(j - 1) * 2 + 1]) < 0; j--) {
+                swap(pairs, j, j - 1);
+            }
+        }
+    }
+
+    /* Compares pair i with a hash and payload */
+    private static int compare(final long[] pairs, final int i, final long hash, final long payload) {
+        final int byHash = Long.compare(pairs[i * 2], hash);
+        return byHash != 0 ? byHash : Long.compare(pairs[i * 2 + 1], payload);
+    }
+
+    private static void swap(final long[] pairs, final int i, final int j) {
+        final long hash = pairs[i * 2];
+        final long payload = pairs[i * 2 + 1];
+        pairs[i * 2] = pairs[j * 2];
+        pairs[i * 2 + 1] = pairs[j * 2 + 1];
+        pairs[j * 2] = hash;
+        pairs[j * 2 + 1] = payload;
+    }
+
+    private static <T> T get(final Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while building the archive", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Could not build the archive", e.getCause());
+        }
+    }
+
+    private static int writeFully(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+        final int length = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        return length;
+    }
+}
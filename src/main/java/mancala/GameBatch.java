@@ -0,0 +1,304 @@
+package mancala;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Many independent boards of one rule set, stepped together.
+ * Board i is stored at counts[i * 14] to counts[i * 14 + 13] in array position order (6 & 13 are stores),
+ * with its side to move and bonus flag in parallel arrays, so no objects are touched per move.
+ * Moves follow KalahRules and AyoRules exactly. A Kalah sow is looked up in KalahSowingTable and applied as
+ * one 14 wide add, a loop with a fixed trip count and no branches that the JIT can turn into vector code.
+ */
+public final class GameBatch {
+    private static final int POSITIONS = 14;
+    private static final int STORE_ONE = 6;
+    private static final int STORE_TWO = 13;
+    private final int size;
+    private final boolean kalah;
+    private final int startStones;
+    private final int[] counts;
+    private final int[] sideToMove;
+    private final boolean[] bonus;
+    /* Bits 0-5 are player one's non-empty pits and bits 6-11 player two's, refreshed after every move */
+    private final int[] pitMasks;
+    /* NTH_BIT[mask][k] is the index of the kth lowest set bit of a 6-bit mask */
+    private static final byte[][] NTH_BIT = new byte[64][6];
+
+    static {
+        for (int mask = 0; mask < 64; mask++) {
+            int k = 0;
+            for (int bit = 0; bit < 6; bit++) {
+                if ((mask & (1 << bit)) != 0) {
+                    NTH_BIT[mask][k++] = (byte) bit;
+                }
+            }
+        }
+    }
+
+    /**
+     * Constructor to initialize a batch of boards in their starting position.
+     *
+     * @param newSize The number of boards.
+     * @param isKalah True for Kalah rules, false for Ayo rules.
+     * @param newStartStones The number of stones in each pit at the start of a game.
+     */
+    public GameBatch(final int newSize, final boolean isKalah, final int newStartStones) {
+        this.size = newSize;
+        this.kalah = isKalah;
+        this.startStones = newStartStones;
+        this.counts = new int[newSize * POSITIONS];
+        this.sideToMove = new int[newSize];
+        this.bonus = new boolean[newSize];
+        this.pitMasks = new int[newSize];
+        resetAll();
+    }
+
+    /**
+     * Gets the number of boards.
+     *
+     * @return The number of boards.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Puts every board back in its starting position with player one to move.
+     */
+    public void resetAll() {
+        for (int i = 0; i < this.size; i++) {
+            reset(i);
+        }
+    }
+
+    /**
+     * Puts one board back in its starting position with player one to move.
+     *
+     * @param board The board index.
+     */
+    public void reset(final int board) {
+        final int base = board * POSITIONS;
+        Arrays.fill(this.counts, base, base + POSITIONS, this.startStones);
+        this.counts[base + STORE_ONE] = 0;
+        this.counts[base + STORE_TWO] = 0;
+        this.sideToMove[board] = 1;
+        this.bonus[board] = false;
+        updateMask(board);
+    }
+
+    /**
+     * Copies a position into one board.
+     *
+     * @param board The board index.
+     * @param position The position to copy, its rules should match the batch.
+     */
+    public void setBoard(final int board, final GameRules position) {
+        final int[] copy = new int[POSITIONS];
+        position.getPosition(copy);
+        System.arraycopy(copy, 0, this.counts, board * POSITIONS, POSITIONS);
+        this.sideToMove[board] = position.getSideToMove();
+        this.bonus[board] = position.isBonus();
+        updateMask(board);
+    }
+
+    /**
+     * Copies one board into a position.
+     *
+     * @param board The board index.
+     * @param position The position to overwrite, its rules should match the batch.
+     */
+    public void copyTo(final int board, final GameRules position) {
+        position.setPosition(Arrays.copyOfRange(this.counts, board * POSITIONS, (board + 1) * POSITIONS),
+            this.sideToMove[board]);
+        position.setBonus(this.bonus[board]);
+    }
+
+    /**
+     * Gets the stones at an array position of one board.
+     *
+     * @param board The board index.
+     * @param pos The array position (0-13) where 6 & 13 are stores.
+     * @return The number of stones.
+     */
+    public int getCount(final int board, final int pos) {
+        return this.counts[board * POSITIONS + pos];
+    }
+
+    /**
+     * Gets the stones in a player's store on one board.
+     *
+     * @param board The board index.
+     * @param playerNum The player number (1 or 2).
+     * @return The number of stones.
+     */
+    public int getStoreCount(final int board, final int playerNum) {
+        return this.counts[board * POSITIONS + (playerNum == 1 ? STORE_ONE : STORE_TWO)];
+    }
+
+    /**
+     * Gets the player to move on one board.
+     *
+     * @param board The board index.
+     * @return 1 or 2.
+     */
+    public int getSideToMove(final int board) {
+        return this.sideToMove[board];
+    }
+
+    /**
+     * Checks if the last move on one board earned a bonus turn, always false for Ayo.
+     *
+     * @param board The board index.
+     * @return True if the mover moves again.
+     */
+    public boolean isBonus(final int board) {
+        return this.bonus[board];
+    }
+
+    /**
+     * Gets the playable pits of the player to move on one board as a bit mask, see GameRules.legalMoves.
+     *
+     * @param board The board index.
+     * @return A 6-bit mask of legal moves.
+     */
+    public int legalMoves(final int board) {
+        return this.sideToMove[board] == 1 ? this.pitMasks[board] & 63 : this.pitMasks[board] >>> 6;
+    }
+
+    /**
+     * Checks if the game on one board is over, which is when either side has no stones.
+     *
+     * @param board The board index.
+     * @return True if the game is over, false otherwise.
+     */
+    public boolean isGameOver(final int board) {
+        final int masks = this.pitMasks[board];
+        return (masks & 63) == 0 || masks >>> 6 == 0;
+    }
+
+    /**
+     * Plays one move on every board for its player to move.
+     *
+     * @param moves The pit (1-12) to play on each board, or 0 to leave a board as it is.
+     * @return The number of moves played.
+     * @throws InvalidMoveException If a pit is not on the mover's side or is empty, boards before it have moved.
+     */
+    public int applyMoves(final int[] moves) throws InvalidMoveException {
+        int played = 0;
+        for (int i = 0; i < this.size; i++) {
+            final int pit = moves[i];
+            if (pit == 0) {
+                continue;
+            }
+            final int player = this.sideToMove[i];
+            if (pit < 1 || pit > 12 || (pit <= 6) != (player == 1)) {
+                throw new InvalidMoveException();
+            }
+            final int pos = pit <= 6 ? pit - 1 : pit;
+            if (this.counts[i * POSITIONS + pos] == 0) {
+                throw new InvalidMoveException();
+            }
+            if (this.kalah) {
+                sowKalah(i * POSITIONS, pos, player, i);
+            } else {
+                sowAyo(i * POSITIONS, pos, player);
+                this.bonus[i] = false;
+            }
+            this.sideToMove[i] = this.bonus[i] ? player : 3 - player;
+            updateMask(i);
+            played++;
+        }
+        return played;
+    }
+
+    /**
+     * Chooses a uniformly random legal move on every board whose game is not over.
+     *
+     * @param random The random number generator.
+     * @param moves Filled with a pit for each board, or 0 for boards whose game is over.
+     * @return The number of boards given a move.
+     */
+    public int randomMoves(final SplittableRandom random, final int[] moves) {
+        int live = 0;
+        for (int i = 0; i < this.size; i++) {
+            if (isGameOver(i)) {
+                moves[i] = 0;
+                continue;
+            }
+            final int mask = legalMoves(i);
+            // Multiply and shift maps 32 random bits onto the legal moves without a division
+            final int k = (int) (((random.nextInt() & 0xFFFFFFFFL) * Integer.bitCount(mask)) >>> 32);
+            final int bit = NTH_BIT[mask][k];
+            moves[i] = MoveMask.pitOf(bit, this.sideToMove[i]);
+            live++;
+        }
+        return live;
+    }
+
+    /* Refreshes the non-empty pit bits of both players, which give legal moves and game over without a scan */
+    private void updateMask(final int board) {
+        final int[] c = this.counts;
+        final int base = board * POSITIONS;
+        int masks = 0;
+        for (int i = 0; i < 6; i++) {
+            masks |= (c[base + i] != 0 ? 1 : 0) << i;
+            masks |= (c[base + STORE_ONE + 1 + i] != 0 ? 1 : 0) << (i + 6);
+        }
+        this.pitMasks[board] = masks;
+    }
+
+    private void sowKalah(final int base, final int pos, final int player, final int board) {
+        final int[] c = this.counts;
+        final int stones = c[base + pos];
+        c[base + pos] = 0;
+        final int laps = stones / KalahSowingTable.LAP;
+        final int[] lap = KalahSowingTable.lapCounts(player);
+        final int[] rest = KalahSowingTable.restCounts(player, pos, stones);
+        for (int k = 0; k < POSITIONS; k++) {
+            c[base + k] += laps * lap[k] + rest[k];
+        }
+
+        final int landing = KalahSowingTable.landing(player, pos, stones);
+        this.bonus[board] = landing == STORE_ONE || landing == STORE_TWO;
+        if (KalahSowingTable.landsOnOwnPit(player, pos, stones) && c[base + landing] == 1) {
+            // The stone that landed and the stones opposite go to the mover's store, if there are any opposite
+            final int opposite = STORE_TWO - 1 - landing;
+            if (c[base + opposite] != 0) {
+                c[base + (player == 1 ? STORE_ONE : STORE_TWO)] += c[base + opposite] + 1;
+                c[base + opposite] = 0;
+                c[base + landing] = 0;
+            }
+        }
+    }
+
+    private void sowAyo(final int base, final int start, final int player) {
+        final int[] c = this.counts;
+        final int skipStore = player == 1 ? STORE_TWO : STORE_ONE;
+        int stones = c[base + start];
+        c[base + start] = 0;
+        int pos = start;
+        while (stones > 0) {
+            // The start pit is skipped on every lap, relays included
+            pos = pos == STORE_TWO ? 0 : pos + 1;
+            while (pos == skipStore || pos == start) {
+                pos = pos == STORE_TWO ? 0 : pos + 1;
+            }
+            c[base + pos]++;
+            stones--;
+
+            if (stones == 0 && c[base + pos] != 1 && pos != STORE_ONE && pos != STORE_TWO) {
+                // Relay: the last stone landed on stones, pick them all up and keep sowing
+                stones = c[base + pos];
+                c[base + pos] = 0;
+            }
+        }
+
+        final boolean ownSide = player == 1 ? pos < STORE_ONE : pos > STORE_ONE && pos < STORE_TWO;
+        if (ownSide && c[base + pos] == 1) {
+            // Only the opposite stones are captured, the last stone stays in play
+            final int opposite = STORE_TWO - 1 - pos;
+            c[base + (player == 1 ? STORE_ONE : STORE_TWO)] += c[base + opposite];
+            c[base + opposite] = 0;
+        }
+    }
+}
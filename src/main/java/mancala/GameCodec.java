@@ -0,0 +1,232 @@
+package mancala;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * A compact, versioned binary format for games and players, used by Saver instead of Java serialization.
+ * Every field is written explicitly, counts as varints, so saves stay small and survive class changes.
+ *
+ * Layout: magic (4 bytes), version, type, then for a player its name, profile name and four profile counters,
+ * and for a game its flags (Kalah, packed board, bonus), starting stones, side to move, last mover,
+ * index of the current player, its players and the 14 board counts in array position order.
+ */
+public final class GameCodec {
+    /* "MNCL", chosen so it can never be mistaken for the 0xACED header of Java serialization */
+    public static final int MAGIC = 0x4d4e434c;
+    public static final int VERSION = 1;
+    private static final int TYPE_GAME = 1;
+    private static final int TYPE_PLAYER = 2;
+    private static final int FLAG_KALAH = 1;
+    private static final int FLAG_PACKED = 2;
+    private static final int FLAG_BONUS = 4;
+    private static final int NO_PLAYER = 0xFF;
+    private static final int MAX_VARINT = 5;
+
+    private GameCodec() {
+    }
+
+    /**
+     * Checks if a buffer starts with this format, without moving its position.
+     *
+     * @param buffer The buffer to check.
+     * @return True if the buffer holds a compact save, false otherwise.
+     */
+    public static boolean isCompact(final ByteBuffer buffer) {
+        return buffer.remaining() >= 4 && buffer.getInt(buffer.position()) == MAGIC;
+    }
+
+    /**
+     * Encodes a game, with its players.
+     *
+     * @param game The game to encode.
+     * @return A buffer ready to be read or written to a channel.
+     */
+    public static ByteBuffer encodeGame(final MancalaGame game) {
+        final GameRules rules = game.getBoard();
+        final MancalaDataStructure board = rules.getDataStructure();
+        final List<Player> players = game.getPlayers();
+        int capacity = 16 + MAX_VARINT * 15;
+        if (players != null) {
+            for (final Player player : players) {
+                capacity += playerSize(player);
+            }
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate(capacity);
+        buffer.putInt(MAGIC);
+        buffer.put((byte) VERSION);
+        buffer.put((byte) TYPE_GAME);
+        buffer.put((byte) ((game.isKalah() ? FLAG_KALAH : 0) | (board.isPacked() ? FLAG_PACKED : 0)
+            | (rules.isBonus() ? FLAG_BONUS : 0)));
+        putVarint(buffer, rules.getStartStones());
+        buffer.put((byte) rules.getSideToMove());
+        buffer.put((byte) rules.getPlayer());
+        if (players == null || players.size() != 2) {
+            buffer.put((byte) NO_PLAYER);
+            buffer.put((byte) 0);
+        } else {
+            final int current = players.indexOf(game.getCurrentPlayer());
+            buffer.put((byte) (current < 0 ? NO_PLAYER : current));
+            buffer.put((byte) 2);
+            putPlayer(buffer, players.get(0));
+            putPlayer(buffer, players.get(1));
+        }
+        for (int pos = 0; pos < 14; pos++) {
+            putVarint(buffer, board.countAt(pos));
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Encodes a player and their profile.
+     *
+     * @param player The player to encode.
+     * @return A buffer ready to be read or written to a channel.
+     */
+    public static ByteBuffer encodePlayer(final Player player) {
+        final ByteBuffer buffer = ByteBuffer.allocate(6 + playerSize(player));
+        buffer.putInt(MAGIC);
+        buffer.put((byte) VERSION);
+        buffer.put((byte) TYPE_PLAYER);
+        putPlayer(buffer, player);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Decodes a game or player written by encodeGame or encodePlayer.
+     *
+     * @param buffer The buffer to read from its position.
+     * @return A MancalaGame or a Player.
+     * @throws IOException If the buffer is not a compact save or is cut short.
+     */
+    public static Serializable decode(final ByteBuffer buffer) throws IOException {
+        if (!isCompact(buffer)) {
+            throw new IOException("Not a compact save");
+        }
+        try {
+            buffer.getInt();
+            final int version = buffer.get();
+            if (version != VERSION) {
+                throw new IOException("Unsupported save version " + version);
+            }
+            final int type = buffer.get();
+            if (type == TYPE_PLAYER) {
+                return getPlayer(buffer);
+            } else if (type == TYPE_GAME) {
+                return getGame(buffer);
+            }
+            throw new IOException("Unknown save type " + type);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Save is cut short", e);
+        }
+    }
+
+    private static MancalaGame getGame(final ByteBuffer buffer) throws IOException {
+        final int flags = buffer.get();
+        final boolean kalah = (flags & FLAG_KALAH) != 0;
+        final boolean packed = (flags & FLAG_PACKED) != 0;
+        final int startStones = getVarint(buffer);
+        final int sideToMove = buffer.get();
+        final int lastMover = buffer.get();
+        final int current = buffer.get() & 0xFF;
+        final int playerCount = buffer.get();
+        if (sideToMove < 1 || sideToMove > 2 || (playerCount != 0 && playerCount != 2)) {
+            throw new IOException("Corrupt game save");
+        }
+
+        final MancalaGame game = new MancalaGame(kalah, packed);
+        final GameRules rules = kalah ? new KalahRules(startStones, packed) : new AyoRules(startStones, packed);
+        game.setBoard(rules);
+        if (playerCount == 2) {
+            final Player one = getPlayer(buffer);
+            final Player two = getPlayer(buffer);
+            // Registering players gives them new empty stores, so the board is filled in afterwards
+            game.setPlayers(one, two);
+            if (current == 1) {
+                game.setCurrentPlayer(two);
+            } else if (current == NO_PLAYER) {
+                game.setCurrentPlayer(null);
+            }
+        }
+
+        final int[] counts = new int[14];
+        for (int pos = 0; pos < 14; pos++) {
+            counts[pos] = getVarint(buffer);
+        }
+        rules.setPosition(counts, sideToMove);
+        rules.setBonus((flags & FLAG_BONUS) != 0);
+        rules.setPlayer(lastMover);
+        return game;
+    }
+
+    static int playerSize(final Player player) {
+        final UserProfile profile = player.getProfile();
+        return 2 * MAX_VARINT + utf8(player.getName()).length
+            + utf8(profile == null ? null : profile.getUserName()).length + 4 * MAX_VARINT;
+    }
+
+    static void putPlayer(final ByteBuffer buffer, final Player player) {
+        final UserProfile profile = player.getProfile() == null ? new UserProfile() : player.getProfile();
+        putString(buffer, player.getName());
+        putString(buffer, profile.getUserName());
+        putVarint(buffer, profile.getKalahGames());
+        putVarint(buffer, profile.getKalahWins());
+        putVarint(buffer, profile.getAyoGames());
+        putVarint(buffer, profile.getAyoWins());
+    }
+
+    static Player getPlayer(final ByteBuffer buffer) throws IOException {
+        final Player player = new Player(getString(buffer));
+        player.getProfile().setUserName(getString(buffer));
+        player.getProfile().setStats(getVarint(buffer), getVarint(buffer), getVarint(buffer), getVarint(buffer));
+        return player;
+    }
+
+    static byte[] utf8(final String value) {
+        return value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    static void putString(final ByteBuffer buffer, final String value) {
+        final byte[] bytes = utf8(value);
+        putVarint(buffer, bytes.length);
+        buffer.put(bytes);
+    }
+
+    static String getString(final ByteBuffer buffer) throws IOException {
+        final int length = getVarint(buffer);
+        if (length > buffer.remaining()) {
+            throw new IOException("Save is cut short");
+        }
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /* Unsigned LEB128: 7 bits per byte, low bits first, the high bit set on every byte but the last */
+    static void putVarint(final ByteBuffer buffer, final int value) {
+        int rest = value;
+        while ((rest & ~0x7F) != 0) {
+            buffer.put((byte) ((rest & 0x7F) | 0x80));
+            rest >>>= 7;
+        }
+        buffer.put((byte) rest);
+    }
+
+    static int getVarint(final ByteBuffer buffer) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 7 * MAX_VARINT; shift += 7) {
+            final int b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Varint is too long");
+    }
+}
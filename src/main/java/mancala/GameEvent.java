@@ -0,0 +1,99 @@
+package mancala;
+
+/**
+ * Something that happened in a game, sent to the GameListener of its board.
+ * Every event carries the board after the move which caused it, so a listener that misses events can still show
+ * the position.
+ */
+public final class GameEvent {
+    /* Event types */
+    public static final int MOVE = 0;
+    public static final int CAPTURE = 1;
+    public static final int BONUS = 2;
+    public static final int GAME_OVER = 3;
+    private final int type;
+    private final int player;
+    private final int pit;
+    private final int stones;
+    private final int[] board;
+
+    /**
+     * Constructor to initialize an event.
+     *
+     * @param newType MOVE, CAPTURE, BONUS or GAME_OVER.
+     * @param newPlayer The player who moved, captured or moves again, or for GAME_OVER the winner (0 for a draw).
+     * @param newPit The pit (1-12) played for MOVE and BONUS, the pit captured from for CAPTURE, 0 for GAME_OVER.
+     * @param newStones The stones sown for MOVE, the stones added to the store for CAPTURE, otherwise 0.
+     * @param newBoard The board after the move, not copied: positions 0-13 (stores at 6 and 13), then the side
+     * to move.
+     */
+    public GameEvent(final int newType, final int newPlayer, final int newPit, final int newStones,
+        final int[] newBoard) {
+        this.type = newType;
+        this.player = newPlayer;
+        this.pit = newPit;
+        this.stones = newStones;
+        this.board = newBoard;
+    }
+
+    /**
+     * Gets the kind of event.
+     *
+     * @return MOVE, CAPTURE, BONUS or GAME_OVER.
+     */
+    public int getType() {
+        return this.type;
+    }
+
+    /**
+     * Gets the player the event is about.
+     *
+     * @return The player number (1 or 2), or 0 for a drawn GAME_OVER.
+     */
+    public int getPlayer() {
+        return this.player;
+    }
+
+    /**
+     * Gets the pit the event is about.
+     *
+     * @return The pit number (1-12), or 0 for GAME_OVER.
+     */
+    public int getPit() {
+        return this.pit;
+    }
+
+    /**
+     * Gets the number of stones the event moved.
+     *
+     * @return The stones sown or captured, otherwise 0.
+     */
+    public int getStones() {
+        return this.stones;
+    }
+
+    /**
+     * Gets the number of stones at a position after the event.
+     *
+     * @param pos The array position (0-13), stores at 6 and 13.
+     * @return The number of stones.
+     */
+    public int countAt(final int pos) {
+        return this.board[pos];
+    }
+
+    /**
+     * Gets the player to move after the event.
+     *
+     * @return The player number (1 or 2).
+     */
+    public int getSideToMove() {
+        return this.board[14];
+    }
+
+    @Override
+    public String toString() {
+        final String[] names = {"move", "capture", "bonus", "game over"};
+        return names[this.type] + " player " + this.player + " pit " + this.pit + " stones " + this.stones;
+    }
+}
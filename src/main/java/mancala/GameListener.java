@@ -0,0 +1,15 @@
+package mancala;
+
+/**
+ * Interface for objects following the events of a game, see GameRules.setGameListener.
+ */
+public interface GameListener {
+
+    /**
+     * Called on the thread making the move, once for each event in the order they happened.
+     * Moves wait for this to return, so it should hand the event off rather than do slow work.
+     *
+     * @param event The event.
+     */
+    void onEvent(GameEvent event);
+}
@@ -0,0 +1,242 @@
+package mancala;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * A finished or unfinished game as its rules, players and moves, the unit of the text game record format.
+ * GameRecordWriter writes records and GameRecordReader reads them back.
+ *
+ * A record is a few header lines, then its moves, then a blank line:
+ * <pre>
+ * [Rules "Kalah"]
+ * [Stones "4"]
+ * [One "Ada"]
+ * [Two "Grace"]
+ * [Result "1-0"]
+ * 3 6 9 1 12 ...
+ * </pre>
+ * Moves are pits (1-12) separated by spaces or line breaks. Result is 1-0, 0-1, 1/2-1/2 or * if the game
+ * is not over. A game which did not start from the starting position has a Position header holding the
+ * 14 counts in array position order and the side to move.
+ */
+public final class GameRecord {
+    public static final String ONE_WINS = "1-0";
+    public static final String TWO_WINS = "0-1";
+    public static final String DRAW = "1/2-1/2";
+    public static final String UNFINISHED = "*";
+    private final boolean kalah;
+    private final int startStones;
+    private final String playerOne;
+    private final String playerTwo;
+    private final int[] position; // 14 counts then the side to move, or null for the starting position
+    private final int[] moves;
+    private final String result;
+
+    /**
+     * Constructor to initialize a record.
+     *
+     * @param isKalah True for Kalah rules, false for Ayo rules.
+     * @param newStartStones The number of stones in each pit at the start of a game.
+     * @param newPlayerOne The name of player one.
+     * @param newPlayerTwo The name of player two.
+     * @param newPosition The 14 counts and side to move the moves start from, or null for the starting position.
+     * @param newMoves The pits (1-12) played.
+     * @param newResult The result, or null if it is not known.
+     */
+    public GameRecord(final boolean isKalah, final int newStartStones, final String newPlayerOne,
+        final String newPlayerTwo, final int[] newPosition, final int[] newMoves, final String newResult) {
+        if (newPosition != null && newPosition.length != 15) {
+            throw new IllegalArgumentException("A position has 14 counts and a side to move");
+        }
+        this.kalah = isKalah;
+        this.startStones = newStartStones;
+        this.playerOne = newPlayerOne == null ? "" : newPlayerOne;
+        this.playerTwo = newPlayerTwo == null ? "" : newPlayerTwo;
+        this.position = newPosition == null ? null : newPosition.clone();
+        this.moves = newMoves.clone();
+        this.result = newResult;
+    }
+
+    /**
+     * Creates a record of every move in a journal, with the result if the game is over.
+     *
+     * @param journal The journal of the game.
+     * @return The record.
+     * @throws IOException If the journal cannot be replayed.
+     */
+    public static GameRecord of(final MoveJournal journal) throws IOException {
+        return of(journal.replay(0), journal.getMoves());
+    }
+
+    /**
+     * Creates a record of moves played from a game's position, with the result if they end the game.
+     *
+     * @param start The game before the moves, which must have two players.
+     * @param moves The pits (1-12) played.
+     * @return The record.
+     * @throws IOException If the moves cannot be played.
+     */
+    public static GameRecord of(final MancalaGame start, final int[] moves) throws IOException {
+        final GameRules rules = start.getBoard();
+        final int stones = rules.getStartStones();
+        final int[] position = new int[15];
+        rules.getPosition(position);
+        position[14] = start.getCurrentPlayerNum();
+        boolean starting = position[14] == 1 && position[6] == 0 && position[13] == 0;
+        for (int pos = 0; pos < 14 && starting; pos++) {
+            starting = pos == 6 || pos == 13 || position[pos] == stones;
+        }
+        final GameRecord unscored = new GameRecord(start.isKalah(), stones, start.getPlayers().get(0).getName(),
+            start.getPlayers().get(1).getName(), starting ? null : position, moves, null);
+        final String result;
+        try {
+            result = resultOf(unscored.replay());
+        } catch (InvalidMoveException e) {
+            throw new IOException("The moves cannot be played", e);
+        }
+        return new GameRecord(unscored.kalah, stones, unscored.playerOne, unscored.playerTwo, unscored.position,
+            moves, result);
+    }
+
+    /**
+     * Plays the moves on new rules, capturing the remaining stones if the game ends.
+     *
+     * @return The rules after the last move.
+     * @throws InvalidMoveException If a move is not legal for the player to move, or the game is already over.
+     */
+    public GameRules replay() throws InvalidMoveException {
+        return replay(null);
+    }
+
+    /**
+     * Plays the moves as replay does, passing the hash of each position reached to a consumer.
+     * The positions are the one before each move and the one after the last move, before any capture,
+     * so a game whose move at ply n is not legal passes n + 1 hashes before throwing.
+     *
+     * @param positions Receives the hash of every position in order, or null.
+     * @return The rules after the last move.
+     * @throws InvalidMoveException If a move is not legal for the player to move, or the game is already over.
+     */
+    GameRules replay(final LongConsumer positions) throws InvalidMoveException {
+        final GameRules rules = this.kalah ? new KalahRules(this.startStones, true) : new AyoRules(this.startStones, true);
+        int side = 1;
+        if (this.position != null) {
+            side = this.position[14];
+            if (side != 1 && side != 2) {
+                throw new InvalidMoveException();
+            }
+            rules.setPosition(Arrays.copyOf(this.position, 14), side);
+        }
+        for (final int pit : this.moves) {
+            if (positions != null) {
+                rules.setSideToMove(side);
+                positions.accept(rules.getPositionHash());
+            }
+            if (rules.isSideEmpty(1) || rules.isSideEmpty(12)) {
+                throw new InvalidMoveException(); // Moves after the end of the game
+            }
+            rules.moveStones(pit, side);
+            if (!rules.isBonus()) {
+                side = 3 - side;
+            }
+        }
+        rules.setSideToMove(side);
+        if (positions != null) {
+            positions.accept(rules.getPositionHash());
+        }
+        if (rules.isSideEmpty(1)) {
+            rules.captureSide(12);
+        } else if (rules.isSideEmpty(12)) {
+            rules.captureSide(1);
+        }
+        return rules;
+    }
+
+    /**
+     * Gets the result a replayed game ends with.
+     *
+     * @param rules The rules after the last move, as returned by replay.
+     * @return ONE_WINS, TWO_WINS, DRAW or UNFINISHED.
+     */
+    public static String resultOf(final GameRules rules) {
+        if (!rules.isSideEmpty(1) && !rules.isSideEmpty(12)) {
+            return UNFINISHED;
+        }
+        final int one = rules.getStoreCount(1);
+        final int two = rules.getStoreCount(2);
+        return one > two ? ONE_WINS : two > one ? TWO_WINS : DRAW;
+    }
+
+    /**
+     * Checks if the game is Kalah.
+     *
+     * @return True for Kalah, false for Ayo.
+     */
+    public boolean isKalah() {
+        return this.kalah;
+    }
+
+    /**
+     * Gets the number of stones in each pit at the start of a game.
+     *
+     * @return The starting stones.
+     */
+    public int getStartStones() {
+        return this.startStones;
+    }
+
+    /**
+     * Gets the name of player one.
+     *
+     * @return The name, empty if it is not known.
+     */
+    public String getPlayerOne() {
+        return this.playerOne;
+    }
+
+    /**
+     * Gets the name of player two.
+     *
+     * @return The name, empty if it is not known.
+     */
+    public String getPlayerTwo() {
+        return this.playerTwo;
+    }
+
+    /**
+     * Gets the position the moves start from.
+     *
+     * @return A copy of the 14 counts and side to move, or null for the starting position.
+     */
+    public int[] getPosition() {
+        return this.position == null ? null : this.position.clone();
+    }
+
+    /**
+     * Gets the moves.
+     *
+     * @return A copy of the pits (1-12) played.
+     */
+    public int[] getMoves() {
+        return this.moves.clone();
+    }
+
+    /**
+     * Gets the number of moves.
+     *
+     * @return The number of moves.
+     */
+    public int getMoveCount() {
+        return this.moves.length;
+    }
+
+    /**
+     * Gets the recorded result.
+     *
+     * @return ONE_WINS, TWO_WINS, DRAW, UNFINISHED or null if the record has none.
+     */
+    public String getResult() {
+        return this.result;
+    }
+}
@@ -0,0 +1,321 @@
+package mancala;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads the text game record format, see GameRecord, one record at a time.
+ * Bytes are scanned by hand from a fixed buffer, so a file of any size is read in constant memory
+ * apart from the longest line, and no regular expressions or per-line strings are used.
+ * Lines starting with # are comments.
+ */
+public final class GameRecordReader implements Closeable {
+    private static final int BUFFER = 64 * 1024;
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER];
+    private int position;
+    private int limit;
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private long lineNumber;
+    private boolean lineReady; // The current line has been read but belongs to the next record
+    private boolean skipping; // The last record was malformed, its remaining lines are skipped
+    private boolean inHeaders; // Reading a record's headers, so lines starting with [ still belong to it
+    private byte[] value = new byte[64];
+    private int[] moves = new int[128];
+
+    /**
+     * Constructor to read records from a stream of UTF-8.
+     *
+     * @param stream The stream to read, closed with the reader.
+     */
+    public GameRecordReader(final InputStream stream) {
+        this.in = stream;
+    }
+
+    /**
+     * Reads the next record. After a MalformedRecordException the next call carries on with the record after it.
+     *
+     * @return The record, or null at the end of the stream.
+     * @throws MalformedRecordException If the record is malformed.
+     * @throws IOException If the stream could not be read.
+     */
+    public GameRecord next() throws IOException {
+        if (this.skipping) {
+            // The malformed record ends at a blank line, or at a header after its moves as records may follow
+            // one another with no blank line
+            this.skipping = false;
+            boolean headers = this.inHeaders;
+            while (this.lineReady || readLine()) {
+                this.lineReady = false;
+                if (isBlank()) {
+                    break;
+                } else if (this.line[0] == '[') {
+                    if (!headers) {
+                        this.lineReady = true;
+                        break;
+                    }
+                } else if (this.line[0] != '#') {
+                    headers = false;
+                }
+            }
+        }
+        // Blank lines and comments between records
+        do {
+            if (!this.lineReady && !readLine()) {
+                return null;
+            }
+            this.lineReady = false;
+        } while (isBlank() || this.line[0] == '#');
+
+        this.skipping = true; // Cleared once the record is read in full
+        boolean kalah = true;
+        int stones = 4;
+        String one = "";
+        String two = "";
+        String result = null;
+        int[] start = null;
+        boolean more = true;
+        this.inHeaders = true;
+        while (more && this.lineLength > 0 && this.line[0] == '[') {
+            final int keyEnd = indexOf((byte) ' ', 1);
+            final int valueLength = readValue(keyEnd);
+            if (is("Rules", keyEnd)) {
+                if (valueIs("Kalah", valueLength)) {
+                    kalah = true;
+                } else if (valueIs("Ayo", valueLength)) {
+                    kalah = false;
+                } else {
+                    throw error("unknown rules");
+                }
+            } else if (is("Stones", keyEnd)) {
+                stones = parseInt(this.value, 0, valueLength);
+            } else if (is("One", keyEnd)) {
+                one = new String(this.value, 0, valueLength, StandardCharsets.UTF_8);
+            } else if (is("Two", keyEnd)) {
+                two = new String(this.value, 0, valueLength, StandardCharsets.UTF_8);
+            } else if (is("Result", keyEnd)) {
+                result = parseResult(valueLength);
+            } else if (is("Position", keyEnd)) {
+                start = parsePosition(valueLength);
+            } // Other headers are kept by other tools, they are skipped here
+            more = readLine();
+        }
+        this.inHeaders = false;
+
+        int count = 0;
+        while (more) {
+            if (isBlank()) {
+                break;
+            } else if (this.line[0] == '[') {
+                this.lineReady = true; // A record with no blank line after it
+                break;
+            } else if (this.line[0] != '#') {
+                count = parseMoves(count);
+            }
+            more = readLine();
+        }
+        this.skipping = false;
+        return new GameRecord(kalah, stones, one, two, start, Arrays.copyOf(this.moves, count), result);
+    }
+
+    /**
+     * Gets the number of the last line read, from 1.
+     *
+     * @return The line number.
+     */
+    public long getLineNumber() {
+        return this.lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.in.close();
+    }
+
+    /* Reads the next line into line without its line break, false at the end of the stream */
+    private boolean readLine() throws IOException {
+        this.lineLength = 0;
+        boolean any = false;
+        while (true) {
+            if (this.position == this.limit) {
+                this.limit = this.in.read(this.buffer, 0, BUFFER);
+                this.position = 0;
+                if (this.limit <= 0) {
+                    this.limit = 0;
+                    if (any) {
+                        this.lineNumber++;
+                    }
+                    return any;
+                }
+            }
+            any = true;
+            final byte b = this.buffer[this.position++];
+            if (b == '\n') {
+                break;
+            }
+            if (this.lineLength == this.line.length) {
+                this.line = Arrays.copyOf(this.line, this.lineLength * 2);
+            }
+            this.line[this.lineLength++] = b;
+        }
+        this.lineNumber++;
+        if (this.lineLength > 0 && this.line[this.lineLength - 1] == '\r') {
+            this.lineLength--;
+        }
+        return true;
+    }
+
+    private boolean isBlank() {
+        for (int i = 0; i < this.lineLength; i++) {
+            if (this.line[i] != ' ' && this.line[i] != '\t') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int indexOf(final byte b, final int from) throws IOException {
+        for (int i = from; i < this.lineLength; i++) {
+            if (this.line[i] == b) {
+                return i;
+            }
+        }
+        throw error("malformed header");
+    }
+
+    private boolean is(final String key, final int keyEnd) {
+        if (keyEnd - 1 != key.length()) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            if (this.line[i + 1] != key.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean valueIs(final String expected, final int valueLength) {
+        if (valueLength != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < valueLength; i++) {
+            if (Character.toLowerCase(this.value[i]) != Character.toLowerCase(expected.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* Unescapes the quoted value after a header key into value, returning its length */
+    private int readValue(final int keyEnd) throws IOException {
+        int i = keyEnd;
+        while (i < this.lineLength && this.line[i] == ' ') {
+            i++;
+        }
+        if (i == this.lineLength || this.line[i] != '"') {
+            throw error("header value is not quoted");
+        }
+        i++;
+        int length = 0;
+        while (i < this.lineLength && this.line[i] != '"') {
+            if (this.line[i] == '\\' && i + 1 < this.lineLength) {
+                i++;
+            }
+            if (length == this.value.length) {
+                this.value = Arrays.copyOf(this.value, length * 2);
+            }
+            this.value[length++] = this.line[i++];
+        }
+        if (i + 1 >= this.lineLength || this.line[i + 1] != ']') {
+            throw error("malformed header");
+        }
+        return length;
+    }
+
+    private String parseResult(final int valueLength) throws IOException {
+        for (final String result : new String[] {GameRecord.ONE_WINS, GameRecord.TWO_WINS, GameRecord.DRAW,
+            GameRecord.UNFINISHED}) {
+            if (valueIs(result, valueLength)) {
+                return result;
+            }
+        }
+        throw error("unknown result");
+    }
+
+    private int[] parsePosition(final int valueLength) throws IOException {
+        final int[] start = new int[15];
+        int count = 0;
+        int i = 0;
+        while (i < valueLength) {
+            if (this.value[i] == ' ') {
+                i++;
+                continue;
+            }
+            int end = i;
+            while (end < valueLength && this.value[end] != ' ') {
+                end++;
+            }
+            if (count == start.length) {
+                throw error("a position has 15 numbers");
+            }
+            start[count++] = parseInt(this.value, i, end);
+            i = end;
+        }
+        if (count != start.length) {
+            throw error("a position has 15 numbers");
+        }
+        return start;
+    }
+
+    /* Appends the pits on the current line to moves, returning the new count */
+    private int parseMoves(final int count) throws IOException {
+        int total = count;
+        int i = 0;
+        while (i < this.lineLength) {
+            final byte b = this.line[i];
+            if (b == ' ' || b == '\t') {
+                i++;
+                continue;
+            }
+            int pit = 0;
+            int digits = 0;
+            while (i < this.lineLength && this.line[i] >= '0' && this.line[i] <= '9' && digits < 3) {
+                pit = pit * 10 + this.line[i++] - '0';
+                digits++;
+            }
+            if (digits == 0 || (i < this.lineLength && this.line[i] != ' ' && this.line[i] != '\t')) {
+                throw error("a move is a pit number");
+            }
+            if (pit < 1 || pit > 12) {
+                throw error("pit " + pit + " is not on the board");
+            }
+            if (total == this.moves.length) {
+                this.moves = Arrays.copyOf(this.moves, total * 2);
+            }
+            this.moves[total++] = pit;
+        }
+        return total;
+    }
+
+    private int parseInt(final byte[] bytes, final int from, final int to) throws IOException {
+        if (from == to || to - from > 9) {
+            throw error("expected a number");
+        }
+        int result = 0;
+        for (int i = from; i < to; i++) {
+            if (bytes[i] < '0' || bytes[i] > '9') {
+                throw error("expected a number");
+            }
+            result = result * 10 + bytes[i] - '0';
+        }
+        return result;
+    }
+
+    private MalformedRecordException error(final String message) {
+        return new MalformedRecordException("Line " + this.lineNumber + ": " + message);
+    }
+}
@@ -0,0 +1,89 @@
+package mancala;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes games in the text game record format, see GameRecord, one after another.
+ */
+public final class GameRecordWriter implements Closeable {
+    private static final int MOVES_PER_LINE = 20;
+    private final Writer out;
+
+    /**
+     * Constructor to write records to a stream as UTF-8.
+     *
+     * @param stream The stream to write to, closed with the writer.
+     */
+    public GameRecordWriter(final OutputStream stream) {
+        this.out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes one record, followed by the blank line which ends it.
+     *
+     * @param record The record to write.
+     * @throws IOException If the stream could not be written.
+     */
+    public void write(final GameRecord record) throws IOException {
+        header("Rules", record.isKalah() ? "Kalah" : "Ayo");
+        header("Stones", Integer.toString(record.getStartStones()));
+        header("One", record.getPlayerOne());
+        header("Two", record.getPlayerTwo());
+        if (record.getResult() != null) {
+            header("Result", record.getResult());
+        }
+        final int[] position = record.getPosition();
+        if (position != null) {
+            final StringBuilder counts = new StringBuilder();
+            for (int i = 0; i < position.length; i++) {
+                counts.append(i == 0 ? "" : " ").append(position[i]);
+            }
+            header("Position", counts.toString());
+        }
+
+        final int[] moves = record.getMoves();
+        for (int i = 0; i < moves.length; i++) {
+            if (i > 0) {
+                this.out.write(i % MOVES_PER_LINE == 0 ? '\n' : ' ');
+            }
+            this.out.write(Integer.toString(moves[i]));
+        }
+        this.out.write(moves.length > 0 ? "\n\n" : "\n");
+    }
+
+    /**
+     * Writes any buffered records to the stream.
+     *
+     * @throws IOException If the stream could not be written.
+     */
+    public void flush() throws IOException {
+        this.out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.out.close();
+    }
+
+    /* A value is quoted, with quotes and backslashes escaped by a backslash and line breaks dropped */
+    private void header(final String key, final String value) throws IOException {
+        this.out.write('[');
+        this.out.write(key);
+        this.out.write(" \"");
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                this.out.write('\\');
+            }
+            if (c != '\n' && c != '\r') {
+                this.out.write(c);
+            }
+        }
+        this.out.write("\"]\n");
+    }
+}
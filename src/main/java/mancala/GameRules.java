@@ -1,5 +1,6 @@
 package mancala;
 import java.io.Serializable;
+import java.util.Arrays;
 
 /**
  * Abstract class representing the rules of a Mancala game.
@@ -9,9 +10,29 @@ public abstract class GameRules implements Serializable {
     private static final long serialVersionUID = 1L;
     private static final int PLAYER_ONE = 1;
     private static final int PLAYER_TWO = 2;
+    /* Status codes returned by tryMove and moveStatus, failures are negative */
+    public static final int MOVE_OK = 0;
+    public static final int MOVE_INVALID_PLAYER = -1;
+    public static final int MOVE_WRONG_SIDE = -2;
+    public static final int MOVE_EMPTY_PIT = -3;
+    /* Undo record types, each record is four ints: type, then three values */
+    private static final int UNDO_SOW = 1; // start position, stones sown, skipped position
+    private static final int UNDO_REMOVE = 2; // position, stones removed
+    private static final int UNDO_STORE = 3; // player number, stones added to the store
     private MancalaDataStructure gameBoard;
     private int currentPlayer = 1; // Player number (1 or 2)
 
+    /* Undo stack used by makeMove and unmakeMove, not part of a saved game */
+    private transient int[] undoStack;
+    private transient int undoTop;
+    private transient int undoDepth;
+    private transient boolean recording;
+
+    /* Follows the moves played, not part of a saved game or a copied position */
+    private transient GameListener listener;
+    private transient int capturedPit; // Set by captureStones during a move, 0 if nothing was captured
+    private transient int capturedStones;
+
     /* Custom game logic to calculate a bonus turn, always false for Ayo */
     private boolean bonus;
     public boolean isBonus() {
@@ -25,12 +46,31 @@ public abstract class GameRules implements Serializable {
 
     /**
      * Constructor to initialize the game board.
+     * 
+     * @param startStones The number of stones to place in each pit at the start of the game.
+     * @param packedBoard True to store the board as a flat int array instead of Pit and Store objects.
      */
-    public GameRules() {
-        gameBoard = new MancalaDataStructure();
+    public GameRules(final int startStones, final boolean packedBoard) {
+        gameBoard = new MancalaDataStructure(startStones, packedBoard);
         this.gameBoard.setUpPits();
     }
 
+    /**
+     * Constructor to initialize the game board.
+     * 
+     * @param packedBoard True to store the board as a flat int array instead of Pit and Store objects.
+     */
+    public GameRules(final boolean packedBoard) {
+        this(4, packedBoard);
+    }
+
+    /**
+     * Constructor to initialize the game board.
+     */
+    public GameRules() {
+        this(false);
+    }
+
     /**
      * Get the number of stones in a pit.
      *
@@ -41,6 +81,62 @@ public abstract class GameRules implements Serializable {
         return gameBoard.getNumStones(pitNum);
     }
 
+    /**
+     * Get the number of stones each pit starts the game with.
+     *
+     * @return The number of starting stones per pit.
+     */
+    public int getStartStones() {
+        return gameBoard.getStartStones();
+    }
+
+    /**
+     * Get the number of stones in a player's store.
+     *
+     * @param playerNum The player number (1 or 2).
+     * @return The number of stones in the store.
+     */
+    public int getStoreCount(final int playerNum) {
+        return gameBoard.getStoreCount(playerNum);
+    }
+
+    /**
+     * Get the number of stones in a player's pits.
+     *
+     * @param playerNum The player number (1 or 2).
+     * @return The number of stones on the player's side of the board.
+     */
+    public int getSideTotal(final int playerNum) {
+        return gameBoard.getSideTotal(playerNum);
+    }
+
+    /**
+     * Get the Zobrist hash of the board and the side to move.
+     *
+     * @return The 64-bit position hash.
+     */
+    public long getPositionHash() {
+        return gameBoard.getPositionHash();
+    }
+
+    /**
+     * Get the player whose turn it is, as tracked by the board.
+     *
+     * @return The player number (1 or 2).
+     */
+    public int getSideToMove() {
+        return gameBoard.getSideToMove();
+    }
+
+    /**
+     * Set the player whose turn it is, as tracked by the board.
+     *
+     * @param playerNum The player number (1 or 2).
+     */
+    public void setSideToMove(final int playerNum) {
+        gameBoard.setSideToMove(playerNum);
+    }
+
     /**
      * Get the game data structure.
      *
@@ -57,26 +153,11 @@ public abstract class GameRules implements Serializable {
      * @return True if the side is empty, false otherwise.
      */
     public boolean isSideEmpty(final int pitNum)  {
-        int lowerBound; 
-        int upperBound;
-
         if (pitNum < 1 || pitNum > 12) {
             return false;
-        } else if (pitNum >= 1 && pitNum <= 6) {
-            lowerBound = 0;
-            upperBound = 5;
-        } else {
-            lowerBound = 6;
-            upperBound = 11;
         }
-
-        // Checks if the respective side is empty
-        for (int i = lowerBound; i <= upperBound; i++) {
-            if (getNumStones(i + 1) != 0) {
-                return false;
-            }
-        }
-        return true; // If the code reaches here, the side is empty
+        // Side totals are kept by the data structure, so no pits need to be scanned
+        return this.gameBoard.getSideTotal(pitNum <= 6 ? PLAYER_ONE : PLAYER_TWO) == 0;
     }
 
     /**
@@ -140,6 +221,278 @@ public abstract class GameRules implements Serializable {
      */ 
     public abstract int moveStones(int startPit, int playerNum) throws InvalidMoveException;
 
+    /**
+     * Perform a move without throwing, for callers that probe moves on a hot path.
+     *
+     * @param startPit  The starting pit for the move.
+     * @param playerNum The player making the move.
+     * @return The number of stones added to the player's store, or a negative MOVE_ status code if the move is invalid.
+     */
+    public int tryMove(final int startPit, final int playerNum) {
+        final int status = moveStatus(startPit, playerNum);
+        if (status != MOVE_OK) {
+            return status;
+        }
+        return applyMove(startPit, playerNum);
+    }
+
+    /**
+     * Perform a move which is known to be valid.
+     *
+     * @param startPit  The starting pit for the move.
+     * @param playerNum The player making the move.
+     * @return The number of stones added to the player's store.
+     */
+    int applyMove(final int startPit, final int playerNum) {
+        final int before = this.gameBoard.getStoreCount(playerNum);
+        // The moves of a search are undone again, so they are not sent to the listener
+        final boolean notify = this.listener != null && !this.recording;
+        final int sown = notify ? this.gameBoard.countAt(this.gameBoard.pitPos(startPit)) : 0;
+        this.capturedPit = 0;
+        setPlayer(playerNum); // Set current player
+        distributeStones(startPit);
+        // The mover keeps the turn on a bonus, which is part of the position hash
+        this.gameBoard.setSideToMove(this.bonus ? playerNum : PLAYER_ONE + PLAYER_TWO - playerNum);
+        if (notify) {
+            fireMoveEvents(startPit, playerNum, sown);
+        }
+
+        return this.gameBoard.getStoreCount(playerNum) - before;
+    }
+
+    /* Sends the events of the move just made, all with the board after it */
+    private void fireMoveEvents(final int startPit, final int playerNum, final int sown) {
+        final int[] board = new int[15];
+        getPosition(board);
+        board[14] = this.gameBoard.getSideToMove();
+        this.listener.onEvent(new GameEvent(GameEvent.MOVE, playerNum, startPit, sown, board));
+        if (this.capturedPit != 0) {
+            this.listener.onEvent(new GameEvent(GameEvent.CAPTURE, playerNum, this.capturedPit, this.capturedStones,
+                board));
+        }
+        if (this.bonus) {
+            this.listener.onEvent(new GameEvent(GameEvent.BONUS, playerNum, startPit, 0, board));
+        }
+        if (isSideEmpty(1) || isSideEmpty(12)) {
+            // Whoever still has stones on their side keeps them when the game ends
+            final int one = board[6] + this.gameBoard.getSideTotal(PLAYER_ONE);
+            final int two = board[13] + this.gameBoard.getSideTotal(PLAYER_TWO);
+            final int winner = one > two ? PLAYER_ONE : one < two ? PLAYER_TWO : 0;
+            this.listener.onEvent(new GameEvent(GameEvent.GAME_OVER, winner, 0, 0, board));
+        }
+    }
+
+    /**
+     * Called by captureStones when stones are captured, so the capture can be sent to the listener.
+     *
+     * @param pit The pit (1-12) captured from.
+     * @param stones The stones added to the store.
+     */
+    void noteCapture(final int pit, final int stones) {
+        this.capturedPit = pit;
+        this.capturedStones = stones;
+    }
+
+    /**
+     * Set the listener sent an event for every move, capture and bonus turn, and when a move ends the game.
+     * Moves made with makeMove are not sent, and copies of the position have no listener.
+     *
+     * @param newListener The listener, or null for none.
+     */
+    public void setGameListener(final GameListener newListener) {
+        this.listener = newListener;
+    }
+
+    /**
+     * Get the listener sent the events of this board.
+     *
+     * @return The listener, or null if there is none.
+     */
+    public GameListener getGameListener() {
+        return this.listener;
+    }
+
+    /**
+     * Get the playable pits of a player as a bit mask.
+     * Bit i is set if the player's (i + 1)th pit holds stones, pits 1-6 for P1 and 7-12 for P2.
+     *
+     * @param playerNum The player number (1 or 2).
+     * @return A 6-bit mask of legal moves, 0 if there are none or the player is invalid.
+     */
+    public int legalMoves(final int playerNum) {
+        int firstPos;
+        if (playerNum == PLAYER_ONE) {
+            firstPos = 0;
+        } else if (playerNum == PLAYER_TWO) {
+            firstPos = 7;
+        } else {
+            return 0;
+        }
+
+        int mask = 0;
+        for (int i = 0; i < 6; i++) {
+            if (this.gameBoard.countAt(firstPos + i) != 0) {
+                mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Perform a move that can later be reverted with unmakeMove.
+     * Only the changes made by the move are recorded, so no copy of the board is needed.
+     *
+     * @param startPit  The starting pit for the move.
+     * @param playerNum The player making the move.
+     * @return The number of stones added to the player's store.
+     * @throws InvalidMoveException If the move is invalid.
+     */
+    public int makeMove(final int startPit, final int playerNum) throws InvalidMoveException {
+        if (!isValidMove(startPit, playerNum)) {
+            throw new InvalidMoveException();
+        }
+
+        final int frameStart = this.undoTop;
+        // Frame header: previous player, bonus, mover and side to move
+        pushUndo(this.currentPlayer, this.bonus ? 1 : 0, playerNum, this.gameBoard.getSideToMove());
+        final int added;
+        this.recording = true;
+        try {
+            added = applyMove(startPit, playerNum);
+        } finally {
+            this.recording = false;
+        }
+        pushUndo(frameStart, 0, 0, 0); // Frame trailer: where the header starts
+        this.undoDepth++;
+
+        return added;
+    }
+
+    /**
+     * Revert the most recent move made with makeMove, restoring the board, player and bonus flag.
+     */
+    public void unmakeMove() {
+        if (this.undoDepth == 0) {
+            throw new IllegalStateException("No move to unmake");
+        }
+
+        final int frameStart = this.undoStack[this.undoTop - 4];
+        final int mover = this.undoStack[frameStart + 2];
+        // Records are reverted newest first
+        for (int i = this.undoTop - 8; i > frameStart; i -= 4) {
+            final int type = this.undoStack[i];
+            final int first = this.undoStack[i + 1];
+            final int second = this.undoStack[i + 2];
+            if (type == UNDO_SOW) {
+                unsow(first, second, this.undoStack[i + 3], mover);
+            } else if (type == UNDO_REMOVE) {
+                this.gameBoard.addAt(first, second);
+            } else {
+                this.gameBoard.addToStore(first, -second);
+            }
+        }
+        this.currentPlayer = this.undoStack[frameStart];
+        this.bonus = this.undoStack[frameStart + 1] == 1;
+        this.gameBoard.setSideToMove(this.undoStack[frameStart + 3]);
+        this.undoTop = frameStart;
+        this.undoDepth--;
+    }
+
+    /**
+     * Get the number of moves that can be reverted with unmakeMove.
+     *
+     * @return The number of recorded moves.
+     */
+    public int getUndoDepth() {
+        return this.undoDepth;
+    }
+
+    /**
+     * Forget all recorded moves, the board is left as it is.
+     */
+    public void clearUndo() {
+        this.undoTop = 0;
+        this.undoDepth = 0;
+    }
+
+    /* Pushes one four int record onto the undo stack, growing it when full */
+    private void pushUndo(final int type, final int first, final int second, final int third) {
+        if (this.undoStack == null) {
+            this.undoStack = new int[256];
+        } else if (this.undoTop + 4 > this.undoStack.length) {
+            this.undoStack = Arrays.copyOf(this.undoStack, this.undoStack.length * 2);
+        }
+        this.undoStack[this.undoTop++] = type;
+        this.undoStack[this.undoTop++] = first;
+        this.undoStack[this.undoTop++] = second;
+        this.undoStack[this.undoTop++] = third;
+    }
+
+    /**
+     * Remove all stones at an array position (0-13), recording it if a move is being made.
+     *
+     * @param pos The array position, 6 & 13 are stores.
+     * @return The number of stones removed.
+     */
+    int takeStonesAt(final int pos) {
+        final int removed = this.gameBoard.removeAt(pos);
+        if (this.recording) {
+            pushUndo(UNDO_REMOVE, pos, removed, 0);
+        }
+        return removed;
+    }
+
+    /**
+     * Remove all stones from a pit, recording it if a move is being made.
+     *
+     * @param pitNum The number of the pit.
+     * @return The number of stones removed.
+     */
+    int takeStones(final int pitNum) {
+        return takeStonesAt(this.gameBoard.pitPos(pitNum));
+    }
+
+    /**
+     * Add stones to a player's store, recording it if a move is being made.
+     *
+     * @param playerNum The player number (1 or 2).
+     * @param numToAdd  The number of stones to add.
+     */
+    void depositToStore(final int playerNum, final int numToAdd) {
+        this.gameBoard.addToStore(playerNum, numToAdd);
+        if (this.recording) {
+            pushUndo(UNDO_STORE, playerNum, numToAdd, 0);
+        }
+    }
+
+    /**
+     * Record that stones were sown one by one starting after a position, if a move is being made.
+     *
+     * @param startPos  The array position the sow started from.
+     * @param numStones The number of stones sown.
+     * @param skipPos   The array position skipped while sowing, -1 if none.
+     */
+    void recordSow(final int startPos, final int numStones, final int skipPos) {
+        if (this.recording) {
+            pushUndo(UNDO_SOW, startPos, numStones, skipPos);
+        }
+    }
+
+    /**
+     * Take back one stone from every position a sow visited.
+     *
+     * @param startPos  The array position the sow started from.
+     * @param numStones The number of stones sown.
+     * @param skipPos   The array position skipped while sowing, -1 if none.
+     * @param playerNum The player who sowed the stones.
+     */
+    void unsow(final int startPos, final int numStones, final int skipPos, final int playerNum) {
+        this.gameBoard.setIteratorPosition(startPos, playerNum, skipPos);
+        for (int i = 0; i < numStones; i++) {
+            this.gameBoard.addAt(this.gameBoard.nextPosition(), -1);
+        }
+    }
+
     /**
      * Distribute stones from a pit and return the number distributed.
      *
@@ -164,23 +517,34 @@ public abstract class GameRules implements Serializable {
      * @return True if the move is valid, false otherwise.
      */
     boolean isValidMove(final int startPit, final int playerNum) {
+        return moveStatus(startPit, playerNum) == MOVE_OK;
+    }
+
+    /**
+     * Check if a move is valid and why not if it is invalid.
+     * 
+     * @param startPit The starting pit for the move.
+     * @param playerNum The player making the move.
+     * @return MOVE_OK if the move is valid, otherwise a negative MOVE_ status code.
+     */
+    public int moveStatus(final int startPit, final int playerNum) {
         // Error handling for invalid move
         if (playerNum == PLAYER_ONE) {
             // Valid pits are 1-6 for P1
             if (!(startPit >= 1 && startPit <= 6)) {
-                return false;
+                return MOVE_WRONG_SIDE;
             }
         } else if (playerNum == PLAYER_TWO) {
             // Valid pits are 7-12 for player two
             if (!(startPit >= 7 && startPit <= 12)) {
-                return false;
+                return MOVE_WRONG_SIDE;
             }
         } else {
-            return false; // Player number is not valid
+            return MOVE_INVALID_PLAYER; // Player number is not valid
         }
 
         // If the pit is empty the move is invalid, other it's valid
-        return getNumStones(startPit) != 0;
+        return getNumStones(startPit) != 0 ? MOVE_OK : MOVE_EMPTY_PIT;
     }
 
     /**
@@ -203,6 +567,55 @@ public abstract class GameRules implements Serializable {
         this.gameBoard.setStore(storeTwo, 2);
     }
 
+    /**
+     * Set every position on the board at once and forget any moves recorded for unmakeMove.
+     *
+     * @param counts The stones at each array position 0-13, where 6 & 13 are the stores.
+     * @param sideToMove The player whose turn it is (1 or 2).
+     */
+    public void setPosition(final int[] counts, final int sideToMove) {
+        if (counts.length != 14) {
+            throw new IllegalArgumentException("A position has 14 counts");
+        }
+        gameBoard.setCounts(counts);
+        gameBoard.setSideToMove(sideToMove);
+        clearUndo();
+    }
+
+    /**
+     * Copy every position on the board into an array.
+     *
+     * @param counts An array of at least 14 to fill, array positions 0-13 where 6 & 13 are the stores.
+     */
+    public void getPosition(final int[] counts) {
+        for (int i = 0; i < 14; i++) {
+            counts[i] = gameBoard.countAt(i);
+        }
+    }
+
+    /**
+     * Copy the position into new rules of the same kind on a packed board.
+     * The copy has its own board and iterator and no players, so it can be searched
+     * or changed on another thread without touching this game.
+     *
+     * @return A copy of the board, side to move, current player and bonus flag.
+     */
+    public GameRules copyPosition() {
+        final GameRules copy = createEmpty(true);
+        copy.gameBoard.copyCountsFrom(this.gameBoard);
+        copy.currentPlayer = this.currentPlayer;
+        copy.bonus = this.bonus;
+        return copy;
+    }
+
+    /**
+     * Create new rules of the same kind as this one.
+     *
+     * @param packedBoard True to use the packed int array board backend.
+     * @return New rules with a starting board.
+     */
+    abstract GameRules createEmpty(boolean packedBoard);
+
     /**
      * Reset the game board by setting up pits and emptying stores.
      */
@@ -3,6 +3,32 @@ package mancala;
 public class KalahRules extends GameRules {
     private static final long serialVersionUID = 1L;
     private final MancalaDataStructure gameBoard = getDataStructure();
+
+    /**
+     * Constructor to initialize Kalah rules with a different number of starting stones.
+     * 
+     * @param startStones The number of stones to place in each pit at the start of the game.
+     * @param packedBoard True to use the packed int array board backend.
+     */
+    public KalahRules(final int startStones, final boolean packedBoard) {
+        super(startStones, packedBoard);
+    }
+
+    /**
+     * Constructor to initialize Kalah rules.
+     * 
+     * @param packedBoard True to use the packed int array board backend.
+     */
+    public KalahRules(final boolean packedBoard) {
+        super(packedBoard);
+    }
+
+    /**
+     * Constructor to initialize Kalah rules with the default board backend.
+     */
+    public KalahRules() {
+        super();
+    }
     
     @Override
     public int moveStones(final int startPit, final int playerNum) throws InvalidMoveException {
@@ -10,26 +36,25 @@ public class KalahRules extends GameRules {
             throw new InvalidMoveException();
         }
 
-        final int before = this.gameBoard.getStoreCount(playerNum);
-        setPlayer(playerNum); // Set current player
-        distributeStones(startPit);
-
-        return this.gameBoard.getStoreCount(playerNum) - before;
+        return applyMove(startPit, playerNum);
     }
 
     @Override
     int distributeStones(final int startPit) {
-        int numStones = this.gameBoard.removeStones(startPit);
-        int finalPos;
-        Countable curCountable = null;
-        this.gameBoard.setIterator(startPit, getPlayer(), false /* for KalahRules */); 
+        int numStones = takeStones(startPit);
+        final int startPos = this.gameBoard.pitPos(startPit);
+        int finalPos = startPos; // Number from 0-13: 6 & 13 are stores
+        recordSow(startPos, numStones, -1);
 
-        // Distributing stones
-        for (int i = 0; i < numStones; i++) {
-            curCountable = this.gameBoard.next();
-            curCountable.addStone(); 
+        // Distributing stones, looked up since a Kalah sow only depends on the player, start and count
+        boolean ownPit = false;
+        if (numStones > 0) {
+            this.gameBoard.addCounts(KalahSowingTable.restCounts(getPlayer(), startPos, numStones),
+                KalahSowingTable.lapCounts(getPlayer()), numStones / KalahSowingTable.LAP, 1);
+            finalPos = KalahSowingTable.landing(getPlayer(), startPos, numStones);
+            ownPit = KalahSowingTable.landsOnOwnPit(getPlayer(), startPos, numStones);
         }
-        finalPos = this.gameBoard.getIterator(); // Number from 0-13: 6 & 13 are stores
+        this.gameBoard.setIteratorPosition(finalPos, getPlayer(), -1);
 
         // Handling bonus turn
         setBonus(false);
@@ -38,10 +63,10 @@ public class KalahRules extends GameRules {
         }
 
         // Handling stone capturing
-        if (curCountable.getStoneCount() == 1) {
-            if (finalPos >= 0 && finalPos <= 5 && getPlayer() == 1 /* P1 */) {
+        if (ownPit && this.gameBoard.countAt(finalPos) == 1) {
+            if (getPlayer() == 1 /* P1 */) {
                 numStones += captureStones(finalPos + 1);
-            } else if (finalPos >= 7 && finalPos <= 12 && getPlayer() == 2 /* P2 */) {
+            } else {
                 numStones += captureStones(finalPos);
             }
         }
@@ -49,14 +74,28 @@ public class KalahRules extends GameRules {
         return numStones;
     }
 
+    @Override
+    void unsow(final int startPos, final int numStones, final int skipPos, final int playerNum) {
+        if (numStones > 0) {
+            this.gameBoard.addCounts(KalahSowingTable.restCounts(playerNum, startPos, numStones),
+                KalahSowingTable.lapCounts(playerNum), numStones / KalahSowingTable.LAP, -1);
+        }
+    }
+
+    @Override
+    GameRules createEmpty(final boolean packedBoard) {
+        return new KalahRules(getStartStones(), packedBoard);
+    }
+
     @Override
     int captureStones(final int stoppingPoint) {
         final int opposingPoint = Math.abs(stoppingPoint - 13) % 13;
-        int newStones = this.gameBoard.removeStones(opposingPoint);
+        int newStones = takeStones(opposingPoint);
 
         if (newStones != 0) {
-            newStones += this.gameBoard.removeStones(stoppingPoint);
-            this.gameBoard.addToStore(getPlayer(), newStones);
+            newStones += takeStones(stoppingPoint);
+            depositToStore(getPlayer(), newStones);
+            noteCapture(opposingPoint, newStones);
         }
         
         return newStones;
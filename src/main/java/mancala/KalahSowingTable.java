@@ -0,0 +1,109 @@
+package mancala;
+
+/**
+ * Precomputed sowing results for KalahRules.
+ * A Kalah sow only depends on the mover, the start position and the number of stones,
+ * so where it lands and how many stones each position receives are looked up instead of walked.
+ * All positions are array positions from 0-13 where 6 & 13 are stores.
+ */
+final class KalahSowingTable {
+    /* One lap visits every position except the opponent's store */
+    static final int LAP = 13;
+    private static final int POSITIONS = 14;
+    private static final int STORE_ONE = 6;
+    private static final int STORE_TWO = 13;
+
+    /* [player - 1][position] -> stones received per full lap */
+    private static final int[][] LAP_COUNTS = new int[2][POSITIONS];
+    /* [player - 1][start][stones % LAP] -> stones received from the partial lap */
+    private static final int[][][][] REST_COUNTS = new int[2][POSITIONS][LAP][POSITIONS];
+    /* [player - 1][start][stones % LAP] -> position of the last stone */
+    private static final int[][][] LANDING = new int[2][POSITIONS][LAP];
+    /* [player - 1][start][stones % LAP] -> true if the last stone lands in one of the mover's pits */
+    private static final boolean[][][] OWN_PIT = new boolean[2][POSITIONS][LAP];
+
+    static {
+        for (int player = 1; player <= 2; player++) {
+            final int opponentStore = player == 1 ? STORE_TWO : STORE_ONE;
+            for (int i = 0; i < POSITIONS; i++) {
+                LAP_COUNTS[player - 1][i] = i == opponentStore ? 0 : 1;
+            }
+
+            for (int start = 0; start < POSITIONS; start++) {
+                if (start == STORE_ONE || start == STORE_TWO) {
+                    continue; // Sowing never starts from a store
+                }
+                // Walk one lap once, every remainder is a prefix of it
+                final int[] path = new int[LAP];
+                int pos = start;
+                for (int k = 0; k < LAP; k++) {
+                    pos = (pos + 1) % POSITIONS;
+                    if (pos == opponentStore) {
+                        pos = (pos + 1) % POSITIONS;
+                    }
+                    path[k] = pos;
+                }
+
+                for (int rest = 0; rest < LAP; rest++) {
+                    for (int k = 0; k < rest; k++) {
+                        REST_COUNTS[player - 1][start][rest][path[k]] += 1;
+                    }
+                    // A multiple of LAP stones ends back on the start pit
+                    final int landing = path[(rest + LAP - 1) % LAP];
+                    LANDING[player - 1][start][rest] = landing;
+                    OWN_PIT[player - 1][start][rest] = player == 1 ? landing < STORE_ONE
+                        : landing > STORE_ONE && landing < STORE_TWO;
+                }
+            }
+        }
+    }
+
+    private KalahSowingTable() {
+    }
+
+    /**
+     * Get the stones a position receives from every full lap.
+     *
+     * @param playerNum The player sowing (1 or 2).
+     * @return Stones received per lap, indexed by position.
+     */
+    static int[] lapCounts(final int playerNum) {
+        return LAP_COUNTS[playerNum - 1];
+    }
+
+    /**
+     * Get the stones a position receives from the partial lap of a sow.
+     *
+     * @param playerNum The player sowing (1 or 2).
+     * @param startPos  The position the stones were taken from.
+     * @param numStones The number of stones sown.
+     * @return Stones received, indexed by position.
+     */
+    static int[] restCounts(final int playerNum, final int startPos, final int numStones) {
+        return REST_COUNTS[playerNum - 1][startPos][numStones % LAP];
+    }
+
+    /**
+     * Get the position the last stone of a sow lands on.
+     *
+     * @param playerNum The player sowing (1 or 2).
+     * @param startPos  The position the stones were taken from.
+     * @param numStones The number of stones sown, at least one.
+     * @return The landing position.
+     */
+    static int landing(final int playerNum, final int startPos, final int numStones) {
+        return LANDING[playerNum - 1][startPos][numStones % LAP];
+    }
+
+    /**
+     * Check if the last stone of a sow lands in one of the sowing player's pits.
+     *
+     * @param playerNum The player sowing (1 or 2).
+     * @param startPos  The position the stones were taken from.
+     * @param numStones The number of stones sown, at least one.
+     * @return True if the sow can end in a capture, false otherwise.
+     */
+    static boolean landsOnOwnPit(final int playerNum, final int startPos, final int numStones) {
+        return OWN_PIT[playerNum - 1][startPos][numStones % LAP];
+    }
+}
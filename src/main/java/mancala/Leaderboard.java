@@ -0,0 +1,509 @@
+package mancala;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Rankings of players for each rule set: by wins, by win rate among players with enough games, and by games played.
+ * Each ranking is an indexable skip list, so a change to one player and the standings at any rank are both
+ * found in O(log n). Profiles passed to track are re-ranked whenever UserProfile.addGame is called.
+ */
+public final class Leaderboard {
+    public static final int BY_WINS = 0;
+    public static final int BY_WIN_RATE = 1;
+    public static final int BY_GAMES = 2;
+    private static final int RANKINGS = 3;
+    private static final int MAX_LEVEL = 32;
+    private final int minGames;
+    /* Kalah rankings then Ayo rankings, indexed by rule set * RANKINGS + ranking */
+    private final SkipList[] lists = new SkipList[2 * RANKINGS];
+    /* The stats each player is ranked with: Kalah games, Kalah wins, Ayo games, Ayo wins */
+    private final Map<String, int[]> ranked = new HashMap<>();
+    private long seed = 0x9E3779B97F4A7C15L;
+
+    /**
+     * One player's place in a ranking.
+     */
+    public static final class Standing {
+        private final String name;
+        private final int games;
+        private final int wins;
+        private final int rank;
+
+        Standing(final String newName, final int newGames, final int newWins, final int newRank) {
+            this.name = newName;
+            this.games = newGames;
+            this.wins = newWins;
+            this.rank = newRank;
+        }
+
+        /**
+         * Gets the name of the player.
+         *
+         * @return The user name.
+         */
+        public String getName() {
+            return this.name;
+        }
+
+        /**
+         * Gets the number of games the player has played under the ranking's rule set.
+         *
+         * @return The number of games.
+         */
+        public int getGames() {
+            return this.games;
+        }
+
+        /**
+         * Gets the number of games the player has won under the ranking's rule set.
+         *
+         * @return The number of wins.
+         */
+        public int getWins() {
+            return this.wins;
+        }
+
+        /**
+         * Gets the share of games won.
+         *
+         * @return The win rate from 0 to 1.
+         */
+        public double getWinRate() {
+            return this.games == 0 ? 0 : (double) this.wins / this.games;
+        }
+
+        /**
+         * Gets the place of the player in the ranking.
+         *
+         * @return The rank, 0 for first.
+         */
+        public int getRank() {
+            return this.rank;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d. %s %d/%d (%.1f%%)", this.rank + 1, this.name, this.wins, this.games,
+                getWinRate() * 100);
+        }
+    }
+
+    /**
+     * Constructor to initialize an empty leaderboard.
+     *
+     * @param newMinGames The games a player needs under a rule set to be ranked by win rate.
+     */
+    public Leaderboard(final int newMinGames) {
+        this.minGames = Math.max(1, newMinGames);
+        for (int i = 0; i < this.lists.length; i++) {
+            this.lists[i] = new SkipList(comparator(i % RANKINGS));
+        }
+    }
+
+    /**
+     * Builds a leaderboard of every profile in a store, reading and sorting on several threads.
+     * Profiles are read as they are when it is called, profiles attached to the store later are not tracked.
+     *
+     * @param store The profile store.
+     * @param newMinGames The games a player needs under a rule set to be ranked by win rate.
+     * @param threads The number of threads to read and sort with.
+     * @return The leaderboard.
+     * @throws IOException If the scan was interrupted.
+     */
+    public static Leaderboard rebuild(final ProfileStore store, final int newMinGames, final int threads)
+        throws IOException {
+        final Leaderboard board = new Leaderboard(newMinGames);
+        final ByteBuffer view = store.view();
+        final int count = ProfileStore.recordCount(view);
+        final ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            final Thread thread = new Thread(runnable, "leaderboard");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            // Each thread reads a slice of the records into its own part of the array
+            final UserProfile[] profiles = new UserProfile[count];
+            final int slice = Math.max(1, (count + threads - 1) / Math.max(1, threads));
+            final List<Future<?>> reads = new ArrayList<>();
+            for (int from = 0; from < count; from += slice) {
+                final int first = from;
+                final int last = Math.min(count, from + slice);
+                reads.add(pool.submit(() -> {
+                    final ByteBuffer local = view.duplicate();
+                    for (int record = first; record < last; record++) {
+                        profiles[record] = ProfileStore.read(local, record);
+                    }
+                }));
+            }
+            waitFor(reads);
+            for (final UserProfile profile : profiles) {
+                board.ranked.put(profile.getUserName(), new int[] {profile.getKalahGames(), profile.getKalahWins(),
+                    profile.getAyoGames(), profile.getAyoWins()});
+            }
+
+            // Then each ranking is sorted and linked in one pass
+            final List<Future<?>> sorts = new ArrayList<>();
+            for (int list = 0; list < board.lists.length; list++) {
+                final int index = list;
+                sorts.add(pool.submit(() -> board.bulkLoad(index, profiles)));
+            }
+            waitFor(sorts);
+        } finally {
+            pool.shutdownNow();
+        }
+        return board;
+    }
+
+    /**
+     * Ranks a profile and keeps its rankings up to date as it plays, a profile is tracked by one leaderboard.
+     * Players are told apart by user name.
+     *
+     * @param profile The profile to track.
+     */
+    public void track(final UserProfile profile) {
+        profile.track(this);
+        update(profile);
+    }
+
+    /**
+     * Re-ranks a player with a profile's current stats, called by tracked profiles after every game.
+     *
+     * @param profile The profile.
+     */
+    public synchronized void update(final UserProfile profile) {
+        final String name = profile.getUserName();
+        final int[] stats = {profile.getKalahGames(), profile.getKalahWins(), profile.getAyoGames(),
+            profile.getAyoWins()};
+        final int[] old = this.ranked.put(name, stats);
+        for (int ruleSet = 0; ruleSet < 2; ruleSet++) {
+            final int games = ruleSet * 2;
+            if (old != null && old[games] == stats[games] && old[games + 1] == stats[games + 1]) {
+                continue;
+            }
+            for (int ranking = 0; ranking < RANKINGS; ranking++) {
+                final SkipList list = this.lists[ruleSet * RANKINGS + ranking];
+                if (old != null && isRanked(ranking, old[games])) {
+                    list.remove(new Entry(name, old[games], old[games + 1]));
+                }
+                if (isRanked(ranking, stats[games])) {
+                    list.insert(new Entry(name, stats[games], stats[games + 1]), randomLevel());
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the leading players of a ranking.
+     *
+     * @param isKalah True for the Kalah rankings, false for Ayo.
+     * @param ranking BY_WINS, BY_WIN_RATE or BY_GAMES.
+     * @param count The most players to return.
+     * @return The standings from first place.
+     */
+    public List<Standing> top(final boolean isKalah, final int ranking, final int count) {
+        return range(isKalah, ranking, 0, count);
+    }
+
+    /**
+     * Gets the players between two places of a ranking.
+     *
+     * @param isKalah True for the Kalah rankings, false for Ayo.
+     * @param ranking BY_WINS, BY_WIN_RATE or BY_GAMES.
+     * @param from The first rank, from 0.
+     * @param to The rank after the last.
+     * @return The standings in order, fewer if the ranking ends first.
+     */
+    public synchronized List<Standing> range(final boolean isKalah, final int ranking, final int from,
+        final int to) {
+        return list(isKalah, ranking).range(Math.max(0, from), to);
+    }
+
+    /**
+     * Gets a player's place in a ranking.
+     *
+     * @param name The user name.
+     * @param isKalah True for the Kalah rankings, false for Ayo.
+     * @param ranking BY_WINS, BY_WIN_RATE or BY_GAMES.
+     * @return The rank from 0, or -1 if the player is not in the ranking.
+     */
+    public synchronized int rankOf(final String name, final boolean isKalah, final int ranking) {
+        final int[] stats = this.ranked.get(name);
+        final int games = isKalah ? 0 : 2;
+        if (stats == null || !isRanked(ranking, stats[games])) {
+            return -1;
+        }
+        return list(isKalah, ranking).rank(new Entry(name, stats[games], stats[games + 1]));
+    }
+
+    /**
+     * Gets the number of players in a ranking.
+     *
+     * @param isKalah True for the Kalah rankings, false for Ayo.
+     * @param ranking BY_WINS, BY_WIN_RATE or BY_GAMES.
+     * @return The number of ranked players.
+     */
+    public synchronized int size(final boolean isKalah, final int ranking) {
+        return list(isKalah, ranking).size;
+    }
+
+    private SkipList list(final boolean isKalah, final int ranking) {
+        if (ranking < 0 || ranking >= RANKINGS) {
+            throw new IllegalArgumentException("Unknown ranking " + ranking);
+        }
+        return this.lists[(isKalah ? 0 : RANKINGS) + ranking];
+    }
+
+    /* Players without games are left out, and win rates need minGames */
+    private boolean isRanked(final int ranking, final int games) {
+        return ranking == BY_WIN_RATE ? games >= this.minGames : games > 0;
+    }
+
+    /* Sorts the ranked players of one ranking and links them, each level in order */
+    private void bulkLoad(final int index, final UserProfile[] profiles) {
+        final int ranking = index % RANKINGS;
+        final boolean kalah = index < RANKINGS;
+        final SkipList list = this.lists[index];
+        final List<Entry> entries = new ArrayList<>();
+        for (final UserProfile profile : profiles) {
+            final int games = kalah ? profile.getKalahGames() : profile.getAyoGames();
+            if (isRanked(ranking, games)) {
+                entries.add(new Entry(profile.getUserName(), games, kalah ? profile.getKalahWins()
+                    : profile.getAyoWins()));
+            }
+        }
+        final Entry[] sorted = entries.toArray(new Entry[0]);
+        Arrays.sort(sorted, list.order);
+        // Levels are drawn from a per-list sequence so the threads never share one
+        long state = this.seed ^ (index + 1) * 0xBF58476D1CE4E5B9L;
+        for (final Entry entry : sorted) {
+            state += 0x9E3779B97F4A7C15L;
+            list.append(entry, levelOf(state));
+        }
+    }
+
+    private synchronized int randomLevel() {
+        this.seed += 0x9E3779B97F4A7C15L;
+        return levelOf(this.seed);
+    }
+
+    /* A level with probability 1/2 per extra level, from a SplitMix64 step */
+    private static int levelOf(final long state) {
+        long z = (state ^ (state >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return Math.min(MAX_LEVEL, Long.numberOfTrailingZeros(z | (1L << (MAX_LEVEL - 1))) + 1);
+    }
+
+    /* Best first, ties broken by name so every player has one place */
+    private static Comparator<Entry> comparator(final int ranking) {
+        final Comparator<Entry> byName = Comparator.comparing(entry -> entry.name);
+        if (ranking == BY_WINS) {
+            return (a, b) -> a.wins != b.wins ? Integer.compare(b.wins, a.wins)
+                : a.games != b.games ? Integer.compare(a.games, b.games) : byName.compare(a, b);
+        } else if (ranking == BY_WIN_RATE) {
+            return (a, b) -> {
+                final int byRate = Long.compare((long) b.wins * a.games, (long) a.wins * b.games);
+                return byRate != 0 ? byRate : a.games != b.games ? Integer.compare(b.games, a.games)
+                    : byName.compare(a, b);
+            };
+        }
+        return (a, b) -> a.games != b.games ? Integer.compare(b.games, a.games)
+            : a.wins != b.wins ? Integer.compare(b.wins, a.wins) : byName.compare(a, b);
+    }
+
+    private static void waitFor(final List<Future<?>> futures) throws IOException {
+        try {
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while building the leaderboard", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Could not build the leaderboard", e.getCause());
+        }
+    }
+
+    private static final class Entry {
+        private final String name;
+        private final int games;
+        private final int wins;
+
+        Entry(final String newName, final int newGames, final int newWins) {
+            this.name = newName;
+            this.games = newGames;
+            this.wins = newWins;
+        }
+    }
+
+    private static final class Node {
+        private final Entry entry;
+        private final Node[] next;
+        private final int[] span;
+
+        Node(final Entry newEntry, final int level) {
+            this.entry = newEntry;
+            this.next = new Node[level];
+            this.span = new int[level];
+        }
+    }
+
+    /*
+     * An indexable skip list. A link's span is the difference in rank between its ends, and a link to nothing
+     * spans the nodes after its start, so ranks are summed on the way down.
+     */
+    private static final class SkipList {
+        private final Comparator<Entry> order;
+        private final Node head = new Node(null, MAX_LEVEL);
+        private final Node[] tails = new Node[MAX_LEVEL]; // Only used while bulk loading
+        private int level = 1;
+        private int size;
+
+        SkipList(final Comparator<Entry> newOrder) {
+            this.order = newOrder;
+            Arrays.fill(this.tails, this.head);
+        }
+
+        void insert(final Entry entry, final int newLevel) {
+            final Node[] update = new Node[MAX_LEVEL];
+            final int[] rank = new int[MAX_LEVEL];
+            Node node = this.head;
+            for (int i = this.level - 1; i >= 0; i--) {
+                rank[i] = i == this.level - 1 ? 0 : rank[i + 1];
+                while (node.next[i] != null && this.order.compare(node.next[i].entry, entry) < 0) {
+                    rank[i] += node.span[i];
+                    node = node.next[i];
+                }
+                update[i] = node;
+            }
+            if (newLevel > this.level) {
+                for (int i = this.level; i < newLevel; i++) {
+                    rank[i] = 0;
+                    update[i] = this.head;
+                    this.head.span[i] = this.size;
+                }
+                this.level = newLevel;
+            }
+            final Node added = new Node(entry, newLevel);
+            for (int i = 0; i < newLevel; i++) {
+                added.next[i] = update[i].next[i];
+                update[i].next[i] = added;
+                added.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+                update[i].span[i] = rank[0] - rank[i] + 1;
+            }
+            for (int i = newLevel; i < this.level; i++) {
+                update[i].span[i]++;
+            }
+            this.size++;
+        }
+
+        void remove(final Entry entry) {
+            final Node[] update = new Node[MAX_LEVEL];
+            Node node = this.head;
+            for (int i = this.level - 1; i >= 0; i--) {
+                while (node.next[i] != null && this.order.compare(node.next[i].entry, entry) < 0) {
+                    node = node.next[i];
+                }
+                update[i] = node;
+            }
+            final Node removed = node.next[0];
+            if (removed == null || this.order.compare(removed.entry, entry) != 0) {
+                return;
+            }
+            for (int i = 0; i < this.level; i++) {
+                if (update[i].next[i] == removed) {
+                    update[i].span[i] += removed.span[i] - 1;
+                    update[i].next[i] = removed.next[i];
+                } else {
+                    update[i].span[i]--;
+                }
+            }
+            while (this.level > 1 && this.head.next[this.level - 1] == null) {
+                this.level--;
+            }
+            this.size--;
+        }
+
+        /* Adds an entry after every other, entries must come in order */
+        void append(final Entry entry, final int newLevel) {
+            final Node added = new Node(entry, newLevel);
+            this.size++;
+            for (int i = 0; i < MAX_LEVEL; i++) {
+                this.tails[i].span[i]++;
+                if (i < newLevel) {
+                    this.tails[i].next[i] = added;
+                    this.tails[i] = added;
+                }
+            }
+            this.level = Math.max(this.level, newLevel);
+        }
+
+        int rank(final Entry entry) {
+            Node node = this.head;
+            int rank = 0;
+            for (int i = this.level - 1; i >= 0; i--) {
+                while (node.next[i] != null && this.order.compare(node.next[i].entry, entry) <= 0) {
+                    rank += node.span[i];
+                    node = node.next[i];
+                }
+            }
+            return node == this.head || this.order.compare(node.entry, entry) != 0 ? -1 : rank - 1;
+        }
+
+        List<Standing> range(final int from, final int to) {
+            final List<Standing> standings = new ArrayList<>();
+            if (from >= to || from >= this.size) {
+                return standings;
+            }
+            // Walk down to the node before rank from, then along the bottom level
+            Node node = this.head;
+            int rank = 0;
+            for (int i = this.level - 1; i >= 0; i--) {
+                while (node.next[i] != null && rank + node.span[i] <= from) {
+                    rank += node.span[i];
+                    node = node.next[i];
+                }
+            }
+            for (node = node.next[0]; node != null && rank < to; node = node.next[0]) {
+                standings.add(new Standing(node.entry.name, node.entry.games, node.entry.wins, rank++));
+            }
+            return standings;
+        }
+    }
+
+    /**
+     * Prints a ranking of the profiles in a store from the command line.
+     * Arguments: [store file] [kalah|ayo] [wins|rate|games] [count] [minimum games]
+     *
+     * @param args The command line arguments.
+     * @throws IOException If the store could not be read.
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: Leaderboard <store file> [kalah|ayo] [wins|rate|games] [count] [minimum games]");
+            return;
+        }
+        final boolean kalah = args.length < 2 || !"ayo".equals(args[1]);
+        final String by = args.length > 2 ? args[2] : "wins";
+        final int ranking = "rate".equals(by) ? BY_WIN_RATE : "games".equals(by) ? BY_GAMES : BY_WINS;
+        final int count = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        final int min = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+        try (ProfileStore store = ProfileStore.open(Paths.get(args[0]))) {
+            final Leaderboard board = rebuild(store, min, Runtime.getRuntime().availableProcessors());
+            for (final Standing standing : board.top(kalah, ranking, count)) {
+                System.out.println(standing);
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package mancala;
+import java.io.IOException;
+
+/**
+ * An exception which is thrown when a game record cannot be parsed, reading can carry on after it.
+ */
+public class MalformedRecordException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructor to initialize the exception.
+     *
+     * @param message Where and why the record is malformed.
+     */
+    public MalformedRecordException(final String message) {
+        super(message);
+    }
+}
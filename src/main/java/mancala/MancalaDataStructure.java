@@ -1,4 +1,6 @@
 package mancala;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -8,14 +10,24 @@ import java.util.List;
  * Do not change the signature of any of the methods provided.
  * You may add methods if you need them.
  * Do not add game logic to this class
+ * An instance, including its iterator, is not thread safe; searches on other threads
+ * should work on their own copy from GameRules.copyPosition.
  */
 public class MancalaDataStructure implements Serializable {
     private static final long serialVersionUID = 1L;
     private final int PLAYER_ONE = 6;
     private final int PLAYER_TWO = 13;
     private int START_STONES = 4;  //not final because we might want a different size board in the future
+    /* Which side total a position counts towards, 2 is a spare slot for the stores */
+    private static final int[] SIDE_INDEX = {0, 0, 0, 0, 0, 0, 2, 1, 1, 1, 1, 1, 1, 2};
 
     private List<Countable> data = new ArrayList<>();
+    private int[] packedData; // flat board of positions 0-13, only used by the packed backend
+    private Countable[] packedStores; // stores connected to players, kept in sync with packedData
+    private transient PositionCountable cursor;
+    private transient int[] sideTotals = new int[3]; // stones in the pits of each side, kept up to date on every change
+    private transient long positionHash; // Zobrist hash of all 14 positions and the side to move
+    private int sideToMove = 1;
     private int iteratorPos = 0;
     private int playerSkip = PLAYER_TWO;
     private int pitSkip = -1; // will never match the iteratorPos unless set specifically
@@ -25,20 +37,36 @@ public class MancalaDataStructure implements Serializable {
      * Constructor to initialize the MancalaDataStructure.
      * 
      * @param startStones The number of stones to place in pits at the start of the game. Default values is 4.
+     * @param packed True to store the board as a flat int array instead of Pit and Store objects.
      */
-    public MancalaDataStructure(final int startStones) {
+    public MancalaDataStructure(final int startStones, final boolean packed) {
         START_STONES = startStones;
-        for (int i = 0; i < PLAYER_ONE; i++) {
-            data.add(new Pit());
-        }
-        data.add(new Store());
-        for (int i = 7; i < PLAYER_TWO; i++) {
-            data.add(new Pit());
+        if (packed) {
+            packedData = new int[PLAYER_TWO + 1];
+            packedStores = new Countable[2];
+        } else {
+            for (int i = 0; i < PLAYER_ONE; i++) {
+                data.add(new Pit());
+            }
+            data.add(new Store());
+            for (int i = 7; i < PLAYER_TWO; i++) {
+                data.add(new Pit());
+            }
+            data.add(new Store());
         }
-        data.add(new Store());
+        recount();
     }
 
 
+    /**
+     * Constructor to initialize the MancalaDataStructure.
+     * 
+     * @param startStones The number of stones to place in pits at the start of the game. Default values is 4.
+     */
+    public MancalaDataStructure(final int startStones) {
+        this(startStones, false);
+    }
+
     /**
      * Constructor to initialize the MancalaDataStructure.
      */
@@ -46,6 +74,24 @@ public class MancalaDataStructure implements Serializable {
         this(4);
     }
 
+    /**
+     * Gets the number of stones placed in each pit by setUpPits.
+     * 
+     * @return The number of starting stones per pit.
+     */
+    public int getStartStones() {
+        return START_STONES;
+    }
+
+    /**
+     * Checks if the board is stored as a flat int array.
+     * 
+     * @return True if the packed backend is used, false otherwise.
+     */
+    public boolean isPacked() {
+        return packedData != null;
+    }
+
     /**
      * Adds stones to a pit.
      *
@@ -54,9 +100,7 @@ public class MancalaDataStructure implements Serializable {
      * @return The current number of stones in the pit.
      */
     public int addStones(final int pitNum, final int numToAdd) {
-        final Countable pit = data.get(pitPos(pitNum));
-        pit.addStones(numToAdd);
-        return pit.getStoneCount();
+        return addAt(pitPos(pitNum), numToAdd);
     }
 
     /**
@@ -66,8 +110,7 @@ public class MancalaDataStructure implements Serializable {
      * @return The number of stones removed.
      */
     public int removeStones(final int pitNum) {
-        Countable pit = data.get(pitPos(pitNum));
-        return pit.removeStones();
+        return removeAt(pitPos(pitNum));
     }
 
     /**
@@ -78,9 +121,7 @@ public class MancalaDataStructure implements Serializable {
      * @return The current number of stones in the store.
      */
     public int addToStore(final int playerNum, final int numToAdd) {
-        final Countable store = data.get(storePos(playerNum));
-        store.addStones(numToAdd);
-        return store.getStoneCount();
+        return addAt(storePos(playerNum), numToAdd);
     }
 
     /**
@@ -90,8 +131,7 @@ public class MancalaDataStructure implements Serializable {
      * @return The stone count in the player's store.
      */
     public int getStoreCount(final int playerNum) {
-        final Countable store = data.get(storePos(playerNum));
-        return store.getStoneCount();
+        return countAt(storePos(playerNum));
     }
 
     /**
@@ -101,12 +141,176 @@ public class MancalaDataStructure implements Serializable {
      * @return The stone count in the pit.
      */
     public int getNumStones(final int pitNum) {
-        final Countable pit = data.get(pitPos(pitNum));
-        return pit.getStoneCount();
+        return countAt(pitPos(pitNum));
     }    
 
+    /*helper method to read the stone count at an array position (0-13) on either backend*/
+    int countAt(final int pos) {
+        if (packedData != null) {
+            return packedData[pos];
+        }
+        return data.get(pos).getStoneCount();
+    }
+
+    /*helper method to add stones at an array position (0-13), returns the new count*/
+    int addAt(final int pos, final int numToAdd) {
+        if (packedData != null) {
+            if (pos == PLAYER_ONE || pos == PLAYER_TWO) {
+                syncPackedStore(pos == PLAYER_ONE ? 0 : 1, numToAdd);
+            }
+            final int before = packedData[pos];
+            packedData[pos] = before + numToAdd;
+            sideTotals[SIDE_INDEX[pos]] += numToAdd;
+            positionHash ^= ZobristKeys.key(pos, before) ^ ZobristKeys.key(pos, before + numToAdd);
+            return before + numToAdd;
+        }
+        sideTotals[SIDE_INDEX[pos]] += numToAdd;
+        final Countable countable = data.get(pos);
+        final int before = countable.getStoneCount();
+        countable.addStones(numToAdd);
+        positionHash ^= ZobristKeys.key(pos, before) ^ ZobristKeys.key(pos, before + numToAdd);
+        return before + numToAdd;
+    }
+
+    /*helper method to apply a whole sow at once, adding sign * (counts[i] + laps * lapCounts[i]) at every position*/
+    void addCounts(final int[] counts, final int[] lapCounts, final int laps, final int sign) {
+        if (packedData != null) {
+            for (int i = 0; i <= PLAYER_TWO; i++) {
+                final int delta = sign * (counts[i] + laps * lapCounts[i]);
+                if (delta != 0) {
+                    final int before = packedData[i];
+                    packedData[i] = before + delta;
+                    sideTotals[SIDE_INDEX[i]] += delta;
+                    positionHash ^= ZobristKeys.key(i, before) ^ ZobristKeys.key(i, before + delta);
+                }
+            }
+            syncPackedStore(0, sign * (counts[PLAYER_ONE] + laps * lapCounts[PLAYER_ONE]));
+            syncPackedStore(1, sign * (counts[PLAYER_TWO] + laps * lapCounts[PLAYER_TWO]));
+            return;
+        }
+        for (int i = 0; i <= PLAYER_TWO; i++) {
+            final int delta = counts[i] + laps * lapCounts[i];
+            if (delta != 0) {
+                addAt(i, sign * delta);
+            }
+        }
+    }
+
+    /**
+     * Gets the total number of stones in a player's pits, kept up to date as stones move.
+     *
+     * @param playerNum The player number (1 or 2).
+     * @return The number of stones on the player's side, not counting the store.
+     */
+    public int getSideTotal(final int playerNum) {
+        if(playerNum <1 || playerNum > 2){
+            throw new RuntimeException("Invalid Player Position");
+        }
+        return sideTotals[playerNum - 1];
+    }
+
+    /**
+     * Gets the Zobrist hash of the position, kept up to date as stones move.
+     * Equal boards with the same side to move always have the same hash.
+     *
+     * @return The 64-bit position hash.
+     */
+    public long getPositionHash() {
+        return positionHash;
+    }
+
+    /**
+     * Sets the player whose turn it is, which is part of the position hash.
+     *
+     * @param playerNum The player number (1 or 2).
+     */
+    public void setSideToMove(final int playerNum) {
+        if(playerNum <1 || playerNum > 2){
+            throw new RuntimeException("Invalid Player Position");
+        }
+        if (playerNum != sideToMove) {
+            positionHash ^= ZobristKeys.SIDE_TWO;
+            sideToMove = playerNum;
+        }
+    }
+
+    /**
+     * Gets the player whose turn it is.
+     *
+     * @return The player number (1 or 2).
+     */
+    public int getSideToMove() {
+        return sideToMove;
+    }
+
+    /*helper method to make this board hold the same stones and side to move as another one*/
+    void copyCountsFrom(final MancalaDataStructure other) {
+        START_STONES = other.START_STONES;
+        for (int i = 0; i <= PLAYER_TWO; i++) {
+            removeAt(i);
+            addAt(i, other.countAt(i));
+        }
+        setSideToMove(other.sideToMove);
+    }
+
+    /*helper method to set every array position (0-13) at once*/
+    void setCounts(final int[] counts) {
+        for (int i = 0; i <= PLAYER_TWO; i++) {
+            removeAt(i);
+            addAt(i, counts[i]);
+        }
+    }
+
+    /*helper method to recompute the side totals and hash from scratch*/
+    private void recount() {
+        sideTotals = new int[3];
+        positionHash = sideToMove == 2 ? ZobristKeys.SIDE_TWO : 0L;
+        for (int i = 0; i <= PLAYER_TWO; i++) {
+            final int count = countAt(i);
+            sideTotals[SIDE_INDEX[i]] += count;
+            positionHash ^= ZobristKeys.key(i, count);
+        }
+    }
+
+    /*side totals and the hash are not saved, so they are recounted when a board is loaded*/
+    private void readObject(final ObjectInputStream stream) throws IOException, ClassNotFoundException {
+        stream.defaultReadObject();
+        if (sideToMove == 0) {
+            sideToMove = 1; // saved before the side to move was tracked
+        }
+        recount();
+    }
+
+    /*helper method to keep a connected Store in step with the packed board*/
+    private void syncPackedStore(final int index, final int numToAdd) {
+        if (numToAdd != 0 && packedStores[index] != null) {
+            packedStores[index].addStones(numToAdd);
+        }
+    }
+
+    /*helper method to empty an array position (0-13), returns the number of stones removed*/
+    int removeAt(final int pos) {
+        if (packedData != null) {
+            if (pos == PLAYER_ONE || pos == PLAYER_TWO) {
+                final Countable store = packedStores[pos == PLAYER_ONE ? 0 : 1];
+                if (store != null) {
+                    store.removeStones();
+                }
+            }
+            final int stoneCount = packedData[pos];
+            packedData[pos] = 0;
+            sideTotals[SIDE_INDEX[pos]] -= stoneCount;
+            positionHash ^= ZobristKeys.key(pos, stoneCount) ^ ZobristKeys.key(pos, 0);
+            return stoneCount;
+        }
+        final int stoneCount = data.get(pos).removeStones();
+        sideTotals[SIDE_INDEX[pos]] -= stoneCount;
+        positionHash ^= ZobristKeys.key(pos, stoneCount) ^ ZobristKeys.key(pos, 0);
+        return stoneCount;
+    }
+
     /*helper method to convert 1 based pit numbers into array positions*/
-    private int pitPos(final int pitNum) {
+    int pitPos(final int pitNum) {
         /*Runtime execeptions don't need to be declared and are
         automatically passed up the chain until caught. This can
         replace the PitNotFoundException*/
@@ -137,8 +341,17 @@ public class MancalaDataStructure implements Serializable {
      * Empties both players' stores.
      */
     public void emptyStores() {
-        data.set(storePos(1), new Store());
-        data.set(storePos(2), new Store());
+        if (packedData != null) {
+            // Mirrors the object backend, where the players keep their old Store objects
+            packedStores[0] = null;
+            packedStores[1] = null;
+            packedData[storePos(1)] = 0;
+            packedData[storePos(2)] = 0;
+        } else {
+            data.set(storePos(1), new Store());
+            data.set(storePos(2), new Store());
+        }
+        recount();
     }
 
     /**
@@ -148,11 +361,11 @@ public class MancalaDataStructure implements Serializable {
      */
     public void setUpPits() {
         for (int i = 0; i < PLAYER_ONE; i++) {
-            data.get(i).addStones(START_STONES);
+            addAt(i, START_STONES);
         }
 
         for (int i = 7; i < PLAYER_TWO; i++) {
-            data.get(i).addStones(START_STONES);
+            addAt(i, START_STONES);
         }
     }
 
@@ -163,7 +376,13 @@ public class MancalaDataStructure implements Serializable {
      * @param playerNum The player number (1 or 2).
      */
     public void setStore(final Countable store, final int playerNum) {
-        data.set(storePos(playerNum), store);
+        if (packedData != null) {
+            packedStores[playerNum == 1 ? 0 : 1] = store;
+            packedData[storePos(playerNum)] = store.getStoneCount();
+        } else {
+            data.set(storePos(playerNum), store);
+        }
+        recount();
     }
     /*helper method for wrapping the iterator around to the beginning again*/
     private void loopIterator() {
@@ -201,24 +420,66 @@ public class MancalaDataStructure implements Serializable {
     public void setIterator(final int startPos, final int playerNum, final boolean skipStartPit) {
         iteratorPos = pitPos(startPos);
         setSkipPlayer(playerNum);
+        pitSkip = -1;
         if (skipStartPit) {
             setSkipPit(startPos);
         }
     }
 
+    /*sets the iterator directly from array positions (0-13), a skipPos of -1 skips no pit*/
+    void setIteratorPosition(final int startPos, final int playerNum, final int skipPos) {
+        iteratorPos = startPos;
+        setSkipPlayer(playerNum);
+        pitSkip = skipPos;
+    }
+
     /**
      * Moves the iterator to the next position.
+     * The returned object is a shared view of the board so that side totals stay up to date,
+     * it always refers to the most recent position returned by this method.
      *
      * @return The countable object at the next position.
      */
     public Countable next() {
+        nextPosition();
+        if (cursor == null) {
+            cursor = new PositionCountable();
+        }
+        return cursor;
+    }
+
+    /*moves the iterator to the next position without touching any Countable, returns the array position*/
+    int nextPosition() {
         iteratorPos++;
         loopIterator(); // in case we've run off the end
         skipPosition(); // skip store and start position if necessary
-        return data.get(iteratorPos);
+        return iteratorPos;
     }
 
     public int getIterator() {
         return this.iteratorPos;
     }
+
+    /* A view of the iterator position, so next() does not allocate and every change goes through addAt/removeAt */
+    private class PositionCountable implements Countable {
+        @Override
+        public int getStoneCount() {
+            return countAt(iteratorPos);
+        }
+
+        @Override
+        public void addStone() {
+            addAt(iteratorPos, 1);
+        }
+
+        @Override
+        public void addStones(final int numToAdd) {
+            addAt(iteratorPos, numToAdd);
+        }
+
+        @Override
+        public int removeStones() {
+            return removeAt(iteratorPos);
+        }
+    }
 }
@@ -11,21 +11,32 @@ public class MancalaGame implements Serializable {
     private ArrayList<Player> players;
     private Player currentPlayer;
     private boolean kalah;
+    private transient GameListener listener;
 
     /**
      * Constructor to initialize a Mancala game.
      * 
      * @param isKalah True if using the Kalah ruleset, false otherwise.
+     * @param packedBoard True to use the packed int array board backend.
      */
-    public MancalaGame(final boolean isKalah) {
+    public MancalaGame(final boolean isKalah, final boolean packedBoard) {
         this.kalah = isKalah;
         if (isKalah) {
-            this.gameBoard = new KalahRules();
+            this.gameBoard = new KalahRules(packedBoard);
         } else {
-            this.gameBoard = new AyoRules();
+            this.gameBoard = new AyoRules(packedBoard);
         }
     }
 
+    /**
+     * Constructor to initialize a Mancala game.
+     * 
+     * @param isKalah True if using the Kalah ruleset, false otherwise.
+     */
+    public MancalaGame(final boolean isKalah) {
+        this(isKalah, false);
+    }
+
     /**
      * Constructor to initialize a Mancala game with a Kalah ruleset.
      */
@@ -138,33 +149,47 @@ public class MancalaGame implements Serializable {
      * @throws InvalidMoveException If the move is invalid. 
      */
     public int move(final int startPit) throws InvalidMoveException {
-        final int curPlayer = getPlayers().indexOf(getCurrentPlayer()) % 2 + 1;
-        if (!this.gameBoard.isValidMove(startPit, curPlayer)) {
+        final int result = tryMove(startPit);
+        if (result < 0) {
             throw new InvalidMoveException();
         }
+        return result;
+    }
 
-        // Attempts the move (throws InvalidMoveException)
-        this.gameBoard.moveStones(startPit, curPlayer);
+    /**
+     * Makes a move for the current player without throwing on invalid moves.
+     * 
+     * @param startPit The starting pit number of the move.
+     * @return The remaining number of stones on the player's side of the board after the move, 
+     * or a negative GameRules.MOVE_ status code if the move is invalid.
+     */
+    public int tryMove(final int startPit) {
+        final int curPlayer = getCurrentPlayerNum();
+        final int status = this.gameBoard.tryMove(startPit, curPlayer);
+        if (status < 0) {
+            return status;
+        }
 
         // Code reaching here ensures that our start pit is a valid integer
-        int sum = 0;
-        int lowerBound; 
-        int upperBound;
-
-        if (startPit >= 1 && startPit <= 6) {
-            lowerBound = 0;
-            upperBound = 5;
-        } else {
-            lowerBound = 6;
-            upperBound = 11;
-        }
+        return this.gameBoard.getDataStructure().getSideTotal(startPit <= 6 ? 1 : 2);
+    }
 
-        // Get the total on one side of the board after moving
-        for (int i = lowerBound; i <= upperBound; i++) {
-            sum += getNumStones(i + 1);
-        }
+    /**
+     * Gets the playable pits of the current player as a bit mask, see GameRules.legalMoves.
+     * 
+     * @return A 6-bit mask of legal moves.
+     */
+    public int legalMoves() {
+        return this.gameBoard.legalMoves(getCurrentPlayerNum());
+    }
 
-        return sum;
+    /**
+     * Gets the player number of the current player.
+     * 
+     * @return 1 for player one, 2 for player two.
+     */
+    public int getCurrentPlayerNum() {
+        return getPlayers().indexOf(getCurrentPlayer()) % 2 + 1;
     }
 
     /**
@@ -174,6 +199,20 @@ public class MancalaGame implements Serializable {
      */
     public void setBoard(final GameRules theBoard) {
         this.gameBoard = theBoard;
+        if (this.listener != null) {
+            theBoard.setGameListener(this.listener);
+        }
+    }
+
+    /**
+     * Sets the listener sent the events of the game's moves, see GameRules.setGameListener.
+     * The listener follows the game when its board is replaced.
+     * 
+     * @param newListener The listener, or null for none.
+     */
+    public void setGameListener(final GameListener newListener) {
+        this.listener = newListener;
+        this.gameBoard.setGameListener(newListener);
     }
 
     /**
@@ -183,6 +222,18 @@ public class MancalaGame implements Serializable {
      */
     public void setCurrentPlayer(final Player player) {
         this.currentPlayer = player;
+        if (this.players != null && this.players.contains(player)) {
+            this.gameBoard.setSideToMove(getCurrentPlayerNum());
+        }
+    }
+
+    /**
+     * Gets the Zobrist hash of the board and the player to move, equal positions have equal hashes.
+     * 
+     * @return The 64-bit position hash.
+     */
+    public long getPositionHash() {
+        return this.gameBoard.getPositionHash();
     }
 
     /**
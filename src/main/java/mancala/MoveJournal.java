@@ -0,0 +1,631 @@
+package mancala;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An append-only record of a game: a header, then one byte per move with a board snapshot every few moves.
+ * Once attached to a file every move is appended as it is recorded, so saving never rewrites the game,
+ * and loading replays the moves after the nearest snapshot with GameRules.moveStones.
+ *
+ * Layout: magic (4 bytes), version, flags (Kalah, packed board), starting stones, snapshot interval and the
+ * two players as in GameCodec. Records follow: a move is its pit (1-12), a snapshot is SNAPSHOT then the
+ * move number, side to move, bonus flag, last mover, index of the current player and the 14 board counts.
+ * The first record is always a snapshot, which is where the journal started.
+ * A journal may be recorded to on one thread and saved on another. Moves are added in memory under a short lock,
+ * and file work takes a lock of its own, so adding a move never waits on a save writing the whole file.
+ * The players are encoded when the journal is attached, so a save holds their profiles as they were then.
+ */
+public final class MoveJournal implements Closeable {
+    /* "MJNL", distinct from the GameCodec and Java serialization headers */
+    public static final int MAGIC = 0x4d4a4e4c;
+    public static final int VERSION = 1;
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 32;
+    private static final int FLAG_KALAH = 1;
+    private static final int FLAG_PACKED = 2;
+    private static final int SNAPSHOT = 0x80;
+    private static final int MAX_SNAPSHOT = 5 + 4 + 5 * 14;
+    private final boolean kalah;
+    private final int snapshotInterval;
+    private final Object ioLock = new Object(); // Held by file work, taken before this
+    private byte[] data;
+    private int length;
+    private int playersOffset; // Where the players start in the header
+    private Player playerOne;
+    private Player playerTwo;
+    private byte[] moves = new byte[64];
+    private int moveCount;
+    /* The move number and offset of each snapshot, in the order they were written */
+    private int[] snapshotMoves = new int[4];
+    private int[] snapshotOffsets = new int[4];
+    private int snapshotCount;
+    private FileChannel channel;
+    private int written; // Bytes of data already in the attached file
+
+    /**
+     * Constructor to start a journal from the current position of a game, kept in memory until attached.
+     *
+     * @param game The game, which must have two players.
+     * @param newSnapshotInterval The number of moves between snapshots.
+     */
+    public MoveJournal(final MancalaGame game, final int newSnapshotInterval) {
+        final List<Player> players = game.getPlayers();
+        if (players == null || players.size() != 2) {
+            throw new IllegalArgumentException("A journal needs a game with two players");
+        }
+        if (newSnapshotInterval < 1) {
+            throw new IllegalArgumentException("The snapshot interval must be positive");
+        }
+        this.kalah = game.isKalah();
+        this.snapshotInterval = newSnapshotInterval;
+        this.playerOne = players.get(0);
+        this.playerTwo = players.get(1);
+
+        final GameRules rules = game.getBoard();
+        final ByteBuffer header = ByteBuffer.allocate(32 + GameCodec.playerSize(this.playerOne)
+            + GameCodec.playerSize(this.playerTwo));
+        header.putInt(MAGIC);
+        header.put((byte) VERSION);
+        header.put((byte) ((this.kalah ? FLAG_KALAH : 0) | (rules.getDataStructure().isPacked() ? FLAG_PACKED : 0)));
+        GameCodec.putVarint(header, rules.getStartStones());
+        GameCodec.putVarint(header, this.snapshotInterval);
+        this.playersOffset = header.position();
+        GameCodec.putPlayer(header, this.playerOne);
+        GameCodec.putPlayer(header, this.playerTwo);
+        this.data = Arrays.copyOf(header.array(), header.position() + MAX_SNAPSHOT * 2);
+        this.length = header.position();
+        writeSnapshot(game);
+    }
+
+    /**
+     * Constructor to start a journal from the current position of a game, kept in memory until attached.
+     *
+     * @param game The game, which must have two players.
+     */
+    public MoveJournal(final MancalaGame game) {
+        this(game, DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    /* Used by read, the fields are filled in while scanning */
+    private MoveJournal(final boolean isKalah, final int newSnapshotInterval, final byte[] bytes) {
+        this.kalah = isKalah;
+        this.snapshotInterval = newSnapshotInterval;
+        this.data = bytes;
+    }
+
+    /**
+     * Checks if a buffer starts with a journal, without moving its position.
+     *
+     * @param buffer The buffer to check.
+     * @return True if the buffer holds a journal, false otherwise.
+     */
+    public static boolean isJournal(final ByteBuffer buffer) {
+        return buffer.remaining() >= 4 && buffer.getInt(buffer.position()) == MAGIC;
+    }
+
+    /**
+     * Checks if a file starts with a journal.
+     *
+     * @param file The file to check.
+     * @return True if the file holds a journal, false otherwise.
+     * @throws IOException If the file could not be read.
+     */
+    public static boolean isJournal(final Path file) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final ByteBuffer magic = ByteBuffer.allocate(4);
+            while (magic.hasRemaining() && fileChannel.read(magic) >= 0) {
+                continue;
+            }
+            magic.flip();
+            return isJournal(magic);
+        }
+    }
+
+    /**
+     * Reads a journal, a record cut short by a crash mid-write is dropped.
+     *
+     * @param buffer The buffer to read from its position to its limit.
+     * @return The journal, not attached to any file.
+     * @throws IOException If the buffer is not a journal or its header is cut short.
+     */
+    public static MoveJournal read(final ByteBuffer buffer) throws IOException {
+        if (!isJournal(buffer)) {
+            throw new IOException("Not a move journal");
+        }
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        final ByteBuffer in = ByteBuffer.wrap(bytes);
+        final MoveJournal journal;
+        try {
+            in.getInt();
+            final int version = in.get();
+            if (version != VERSION) {
+                throw new IOException("Unsupported journal version " + version);
+            }
+            final int flags = in.get();
+            GameCodec.getVarint(in);
+            final int interval = GameCodec.getVarint(in);
+            final int playersOffset = in.position();
+            final Player one = GameCodec.getPlayer(in);
+            final Player two = GameCodec.getPlayer(in);
+            journal = new MoveJournal((flags & FLAG_KALAH) != 0, Math.max(1, interval), bytes);
+            journal.playersOffset = playersOffset;
+            journal.playerOne = one;
+            journal.playerTwo = two;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Journal header is cut short", e);
+        }
+        journal.scan(in);
+        if (journal.snapshotCount == 0) {
+            throw new IOException("Journal has no starting position");
+        }
+        return journal;
+    }
+
+    /**
+     * Opens a journal file and attaches to it, so recorded moves are appended.
+     *
+     * @param file The journal file.
+     * @return The journal.
+     * @throws IOException If the file could not be read or is not a journal.
+     */
+    public static MoveJournal open(final Path file) throws IOException {
+        final MoveJournal journal;
+        try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = fileChannel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Journal is too large");
+            }
+            final ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (fileChannel.read(buffer) < 0) {
+                    throw new IOException("Journal ended early");
+                }
+            }
+            buffer.flip();
+            journal = read(buffer);
+        }
+        journal.resume(file);
+        return journal;
+    }
+
+    /**
+     * Attaches to the file the journal was read from, so recorded moves are appended after its last whole record.
+     *
+     * @param file The file the journal was read from.
+     * @throws IOException If the file could not be opened.
+     */
+    public void resume(final Path file) throws IOException {
+        synchronized (this.ioLock) {
+            try {
+                close();
+            } catch (IOException e) {
+                // The old file keeps what was written to it, moving to the new one goes ahead
+            }
+            final int end;
+            synchronized (this) {
+                end = this.length;
+            }
+            final FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.WRITE);
+            try {
+                // A partly written record is cut off so the next append starts on a record boundary
+                fileChannel.truncate(end);
+                fileChannel.position(end);
+            } catch (IOException e) {
+                fileChannel.close();
+                throw e;
+            }
+            synchronized (this) {
+                this.channel = fileChannel;
+                this.written = end;
+            }
+            flush(); // Moves added while the file was opened
+        }
+    }
+
+    /**
+     * Writes the whole journal to a file, after which every recorded move is appended to it.
+     * The header is encoded again first, so it holds the players' profiles as they are now.
+     *
+     * @param file The file to write, replaced if it exists.
+     * @throws IOException If the file could not be written.
+     */
+    public void attach(final Path file) throws IOException {
+        synchronized (this.ioLock) {
+            try {
+                close();
+            } catch (IOException e) {
+                // The old file keeps what was written to it, moving to the new one goes ahead
+            }
+            final byte[] bytes;
+            final int end;
+            synchronized (this) {
+                encodePlayers();
+                bytes = this.data;
+                end = this.length;
+            }
+            // Written without holding the journal, moves added meanwhile go past end and are flushed after
+            final FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            try {
+                write(fileChannel, bytes, 0, end);
+            } catch (IOException e) {
+                fileChannel.close();
+                throw e;
+            }
+            synchronized (this) {
+                this.channel = fileChannel;
+                this.written = end;
+            }
+            flush();
+        }
+    }
+
+    /**
+     * Sets the players whose profiles are saved in the header, used when the game was rebuilt by replay.
+     *
+     * @param game The game, which must have two players.
+     */
+    public synchronized void setPlayers(final MancalaGame game) {
+        final List<Player> players = game.getPlayers();
+        if (players == null || players.size() != 2) {
+            throw new IllegalArgumentException("A journal needs a game with two players");
+        }
+        this.playerOne = players.get(0);
+        this.playerTwo = players.get(1);
+    }
+
+    /**
+     * Checks if the journal is attached to a file.
+     *
+     * @return True if moves are being appended to a file, false otherwise.
+     */
+    public synchronized boolean isAttached() {
+        return this.channel != null;
+    }
+
+    /**
+     * Records a move which has just been played, appending it to the attached file.
+     *
+     * @param pit The pit (1-12) that was played.
+     * @param game The game after the move and any change of current player.
+     * @throws IOException If the move could not be appended to the attached file.
+     */
+    public void record(final int pit, final MancalaGame game) throws IOException {
+        add(pit, game);
+        flush();
+    }
+
+    /**
+     * Records a move which has just been played in memory only, writing a snapshot too if one is due.
+     * It reaches the attached file on the next flush, so a window can hand the file work to another thread.
+     *
+     * @param pit The pit (1-12) that was played.
+     * @param game The game after the move and any change of current player.
+     */
+    public synchronized void add(final int pit, final MancalaGame game) {
+        if (pit < 1 || pit > 12) {
+            throw new IllegalArgumentException("A move is a pit from 1 to 12");
+        }
+        ensureCapacity(1 + MAX_SNAPSHOT);
+        this.data[this.length++] = (byte) pit;
+        if (this.moveCount == this.moves.length) {
+            this.moves = Arrays.copyOf(this.moves, this.moveCount * 2);
+        }
+        this.moves[this.moveCount++] = (byte) pit;
+        if (this.moveCount % this.snapshotInterval == 0) {
+            writeSnapshot(game);
+        }
+    }
+
+    /**
+     * Appends the moves added since the last write to the attached file, if there is one.
+     *
+     * @throws IOException If the moves could not be appended.
+     */
+    public void flush() throws IOException {
+        synchronized (this.ioLock) {
+            final FileChannel fileChannel;
+            final byte[] bytes;
+            final int from;
+            final int end;
+            synchronized (this) {
+                fileChannel = this.channel;
+                bytes = this.data;
+                from = this.written;
+                end = this.length;
+            }
+            if (fileChannel == null || from == end) {
+                return;
+            }
+            write(fileChannel, bytes, from, end);
+            synchronized (this) {
+                this.written = end;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of moves recorded.
+     *
+     * @return The number of moves.
+     */
+    public synchronized int getMoveCount() {
+        return this.moveCount;
+    }
+
+    /**
+     * Gets every move recorded, in the order played.
+     *
+     * @return The pits (1-12) played.
+     */
+    public synchronized int[] getMoves() {
+        final int[] pits = new int[this.moveCount];
+        for (int i = 0; i < this.moveCount; i++) {
+            pits[i] = this.moves[i];
+        }
+        return pits;
+    }
+
+    /**
+     * Checks if the journal is for a game of Kalah.
+     *
+     * @return True for Kalah, false for Ayo.
+     */
+    public boolean isKalah() {
+        return this.kalah;
+    }
+
+    /**
+     * Gets the size of the journal in bytes.
+     *
+     * @return The number of bytes, as they would be written to a file.
+     */
+    public synchronized int size() {
+        return this.length;
+    }
+
+    /**
+     * Rebuilds the game after every recorded move.
+     *
+     * @return A new game with new players.
+     * @throws IOException If a recorded move cannot be played.
+     */
+    public MancalaGame replay() throws IOException {
+        return replay(this.moveCount);
+    }
+
+    /**
+     * Rebuilds the game as it was after a number of moves, starting from the nearest snapshot before it.
+     * If that ends the game the remaining stones are captured, as they are when a game is played.
+     *
+     * @param moveNumber The number of moves to replay, from 0 to getMoveCount().
+     * @return A new game with new players.
+     * @throws IOException If a recorded move cannot be played.
+     */
+    public synchronized MancalaGame replay(final int moveNumber) throws IOException {
+        if (moveNumber < 0 || moveNumber > this.moveCount) {
+            throw new IllegalArgumentException("Move " + moveNumber + " is not in the journal");
+        }
+        int snapshot = Arrays.binarySearch(this.snapshotMoves, 0, this.snapshotCount, moveNumber);
+        if (snapshot < 0) {
+            snapshot = -snapshot - 2; // The last snapshot before the move
+        }
+
+        final ByteBuffer in = ByteBuffer.wrap(this.data, 0, this.length);
+        final MancalaGame game = readHeader(in);
+        in.position(this.snapshotOffsets[snapshot] + 1);
+        int played = readSnapshot(in, game);
+        while (played < moveNumber) {
+            final int record = in.get() & 0xFF;
+            if (record == SNAPSHOT) {
+                skipSnapshot(in);
+                continue;
+            }
+            final GameRules rules = game.getBoard();
+            try {
+                rules.moveStones(record, game.getCurrentPlayerNum());
+            } catch (InvalidMoveException e) {
+                throw new IOException("Move " + (played + 1) + " of the journal is invalid", e);
+            }
+            if (!rules.isBonus()) {
+                game.setCurrentPlayer(game.getPlayers().get(game.getCurrentPlayerNum() % 2));
+            }
+            played++;
+        }
+
+        final GameRules rules = game.getBoard();
+        rules.clearUndo();
+        if (game.isGameOver()) {
+            if (rules.isSideEmpty(1)) {
+                rules.captureSide(12);
+            } else if (rules.isSideEmpty(12)) {
+                rules.captureSide(1);
+            }
+        }
+        return game;
+    }
+
+    /**
+     * Gets a copy of the journal as it would be written to a file.
+     *
+     * @return A buffer ready to be read or written to a channel.
+     */
+    public synchronized ByteBuffer toBuffer() {
+        return ByteBuffer.wrap(Arrays.copyOf(this.data, this.length));
+    }
+
+    /**
+     * Writes any moves not yet in the file and detaches from it, if any, the journal can still be recorded to
+     * and attached again. The file is detached even if the write fails.
+     *
+     * @throws IOException If the file could not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this.ioLock) {
+            try {
+                flush(); // Moves added but not yet written belong in the file
+            } finally {
+                closeChannel();
+            }
+        }
+    }
+
+    /* Detaches from the file without writing, called holding ioLock */
+    private void closeChannel() throws IOException {
+        final FileChannel old;
+        synchronized (this) {
+            old = this.channel;
+            this.channel = null;
+        }
+        if (old != null) {
+            old.close();
+        }
+    }
+
+    /* Finds every record after the header, stopping at the first one that is cut short */
+    private void scan(final ByteBuffer in) throws IOException {
+        this.length = in.position();
+        try {
+            while (in.hasRemaining()) {
+                final int offset = in.position();
+                final int record = in.get() & 0xFF;
+                if (record == SNAPSHOT) {
+                    final int moveNumber = GameCodec.getVarint(in);
+                    skipSnapshot(in);
+                    if (moveNumber != this.moveCount) {
+                        throw new IOException("Journal snapshot is out of place");
+                    }
+                    addSnapshot(moveNumber, offset);
+                } else if (record >= 1 && record <= 12) {
+                    if (this.moveCount == this.moves.length) {
+                        this.moves = Arrays.copyOf(this.moves, this.moveCount * 2);
+                    }
+                    this.moves[this.moveCount++] = (byte) record;
+                } else {
+                    throw new IOException("Unknown journal record " + record);
+                }
+                this.length = in.position();
+            }
+        } catch (BufferUnderflowException e) {
+            // Everything before the cut record is kept
+        }
+    }
+
+    private MancalaGame readHeader(final ByteBuffer in) throws IOException {
+        in.position(5);
+        final int flags = in.get();
+        final boolean packed = (flags & FLAG_PACKED) != 0;
+        final int startStones = GameCodec.getVarint(in);
+        GameCodec.getVarint(in);
+        final MancalaGame game = new MancalaGame(this.kalah, packed);
+        game.setBoard(this.kalah ? new KalahRules(startStones, packed) : new AyoRules(startStones, packed));
+        final Player one = GameCodec.getPlayer(in);
+        final Player two = GameCodec.getPlayer(in);
+        game.setPlayers(one, two);
+        return game;
+    }
+
+    /* Reads a snapshot after its marker into a game, returning its move number */
+    private static int readSnapshot(final ByteBuffer in, final MancalaGame game) throws IOException {
+        final int moveNumber = GameCodec.getVarint(in);
+        final int sideToMove = in.get();
+        final boolean bonus = in.get() != 0;
+        final int lastMover = in.get();
+        final int current = in.get();
+        final int[] counts = new int[14];
+        for (int pos = 0; pos < 14; pos++) {
+            counts[pos] = GameCodec.getVarint(in);
+        }
+        game.setCurrentPlayer(game.getPlayers().get(current == 1 ? 1 : 0));
+        final GameRules rules = game.getBoard();
+        rules.setPosition(counts, sideToMove);
+        rules.setBonus(bonus);
+        rules.setPlayer(lastMover);
+        return moveNumber;
+    }
+
+    /* Skips a snapshot after its marker and move number */
+    private static void skipSnapshot(final ByteBuffer in) throws IOException {
+        for (int i = 0; i < 4; i++) {
+            in.get(); // Side to move, bonus, last mover and current player
+        }
+        for (int pos = 0; pos < 14; pos++) {
+            GameCodec.getVarint(in);
+        }
+    }
+
+    private void writeSnapshot(final MancalaGame game) {
+        ensureCapacity(MAX_SNAPSHOT);
+        final GameRules rules = game.getBoard();
+        final ByteBuffer out = ByteBuffer.wrap(this.data, this.length, MAX_SNAPSHOT);
+        addSnapshot(this.moveCount, this.length);
+        out.put((byte) SNAPSHOT);
+        GameCodec.putVarint(out, this.moveCount);
+        out.put((byte) rules.getSideToMove());
+        out.put((byte) (rules.isBonus() ? 1 : 0));
+        out.put((byte) rules.getPlayer());
+        out.put((byte) (game.getCurrentPlayerNum() - 1));
+        final MancalaDataStructure board = rules.getDataStructure();
+        for (int pos = 0; pos < 14; pos++) {
+            GameCodec.putVarint(out, board.countAt(pos));
+        }
+        this.length = out.position();
+    }
+
+    private void addSnapshot(final int moveNumber, final int offset) {
+        if (this.snapshotCount == this.snapshotMoves.length) {
+            this.snapshotMoves = Arrays.copyOf(this.snapshotMoves, this.snapshotCount * 2);
+            this.snapshotOffsets = Arrays.copyOf(this.snapshotOffsets, this.snapshotCount * 2);
+        }
+        this.snapshotMoves[this.snapshotCount] = moveNumber;
+        this.snapshotOffsets[this.snapshotCount] = offset;
+        this.snapshotCount++;
+    }
+
+    private void ensureCapacity(final int extra) {
+        if (this.length + extra > this.data.length) {
+            this.data = Arrays.copyOf(this.data, Math.max(this.data.length * 2, this.length + extra));
+        }
+    }
+
+    /* Encodes the players' profiles into the header again, moving the records after it if its size changed */
+    private void encodePlayers() {
+        final int oldEnd = headerLength();
+        final ByteBuffer players = ByteBuffer.allocate(GameCodec.playerSize(this.playerOne)
+            + GameCodec.playerSize(this.playerTwo));
+        GameCodec.putPlayer(players, this.playerOne);
+        GameCodec.putPlayer(players, this.playerTwo);
+        final int shift = this.playersOffset + players.position() - oldEnd;
+        // Always a new array, one being written by flush is never changed under it
+        final byte[] bytes = new byte[Math.max(this.data.length, this.length + shift + MAX_SNAPSHOT)];
+        System.arraycopy(this.data, 0, bytes, 0, this.playersOffset);
+        System.arraycopy(players.array(), 0, bytes, this.playersOffset, players.position());
+        System.arraycopy(this.data, oldEnd, bytes, oldEnd + shift, this.length - oldEnd);
+        this.data = bytes;
+        this.length += shift;
+        for (int i = 0; i < this.snapshotCount; i++) {
+            this.snapshotOffsets[i] += shift;
+        }
+    }
+
+    /* The end of the header, where the first snapshot starts */
+    private int headerLength() {
+        return this.snapshotOffsets[0];
+    }
+
+    private static void write(final FileChannel fileChannel, final byte[] bytes, final int from, final int end)
+        throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes, from, end - from);
+        while (buffer.hasRemaining()) {
+            fileChannel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package mancala;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Helpers for the legal move bit masks returned by GameRules.legalMoves.
+ * Hot loops can walk a mask directly:
+ * for (int m = mask; m != 0; m &= m - 1) { pit = MoveMask.pitOf(Integer.numberOfTrailingZeros(m), playerNum); }
+ */
+public final class MoveMask {
+    private MoveMask() {
+    }
+
+    /**
+     * Converts a bit index of a mask to a pit number.
+     * 
+     * @param bit The bit index (0-5).
+     * @param playerNum The player the mask belongs to (1 or 2).
+     * @return The pit number, 1-6 for P1 and 7-12 for P2.
+     */
+    public static int pitOf(final int bit, final int playerNum) {
+        return playerNum == 1 ? bit + 1 : bit + 7;
+    }
+
+    /**
+     * Converts a pit number to its bit in a mask.
+     * 
+     * @param pitNum The pit number (1-12).
+     * @return The mask with only that pit set.
+     */
+    public static int bitOf(final int pitNum) {
+        return 1 << (pitNum <= 6 ? pitNum - 1 : pitNum - 7);
+    }
+
+    /**
+     * Counts the legal moves in a mask.
+     * 
+     * @param mask The legal move mask.
+     * @return The number of legal moves.
+     */
+    public static int count(final int mask) {
+        return Integer.bitCount(mask);
+    }
+
+    /**
+     * Iterates over the pit numbers in a mask from lowest to highest.
+     * 
+     * @param mask The legal move mask.
+     * @param playerNum The player the mask belongs to (1 or 2).
+     * @return An iterator of pit numbers.
+     */
+    public static PrimitiveIterator.OfInt pits(final int mask, final int playerNum) {
+        return new PrimitiveIterator.OfInt() {
+            private int remaining = mask;
+
+            @Override
+            public boolean hasNext() {
+                return this.remaining != 0;
+            }
+
+            @Override
+            public int nextInt() {
+                if (this.remaining == 0) {
+                    throw new NoSuchElementException();
+                }
+                final int bit = Integer.numberOfTrailingZeros(this.remaining);
+                this.remaining &= this.remaining - 1;
+                return pitOf(bit, playerNum);
+            }
+        };
+    }
+}
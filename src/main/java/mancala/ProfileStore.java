@@ -0,0 +1,394 @@
+package mancala;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Every user profile in one memory-mapped file, instead of a saved Player file each.
+ * Profiles are fixed-width records found through an in-memory open-addressing index from name to record,
+ * so a lookup touches no file and a profile attached to the store writes its counters in place on addGame.
+ *
+ * Layout: a header (magic, version, record capacity, record count, name capacity, name bytes used),
+ * then the records, then the UTF-8 names. A record is the name hash, the name offset and length within
+ * the names, and the Kalah games, Kalah wins, Ayo games and Ayo wins. Both areas double when full.
+ */
+public final class ProfileStore implements Closeable {
+    /* "MPRF" */
+    public static final int MAGIC = 0x4d505246;
+    public static final int VERSION = 1;
+    private static final int HEADER = 32;
+    private static final int RECORD = 32;
+    private static final int HASH = 0;
+    private static final int NAME_OFFSET = 8;
+    private static final int NAME_LENGTH = 12;
+    private static final int KALAH_GAMES = 16;
+    private static final int KALAH_WINS = 20;
+    private static final int AYO_GAMES = 24;
+    private static final int AYO_WINS = 28;
+    private static final int INITIAL_RECORDS = 1024;
+    private static final int INITIAL_NAMES = 16 * 1024;
+    private final FileChannel channel;
+    private MappedByteBuffer map;
+    private int recordCapacity;
+    private int recordCount;
+    private int nameCapacity;
+    private int nameLength;
+    /* Open addressing with linear probing: hashes[slot] is a name hash and slots[slot] its record + 1, 0 if free */
+    private long[] hashes;
+    private int[] slots;
+
+    private ProfileStore(final FileChannel newChannel) {
+        this.channel = newChannel;
+    }
+
+    /**
+     * Opens a profile store, creating an empty one if the file does not exist.
+     *
+     * @param file The store file.
+     * @return The store.
+     * @throws IOException If the file could not be mapped or is not a profile store.
+     */
+    public static ProfileStore open(final Path file) throws IOException {
+        final FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        final ProfileStore store = new ProfileStore(fileChannel);
+        try {
+            if (fileChannel.size() == 0) {
+                store.create();
+            } else {
+                store.load();
+            }
+        } catch (IOException e) {
+            fileChannel.close();
+            throw e;
+        }
+        return store;
+    }
+
+    private void create() throws IOException {
+        this.recordCapacity = INITIAL_RECORDS;
+        this.nameCapacity = INITIAL_NAMES;
+        remap();
+        this.map.putInt(0, MAGIC);
+        this.map.putInt(4, VERSION);
+        writeHeader();
+        this.hashes = new long[tableSizeFor(INITIAL_RECORDS)];
+        this.slots = new int[tableSizeFor(INITIAL_RECORDS)];
+    }
+
+    private void load() throws IOException {
+        final long size = this.channel.size();
+        if (size < HEADER || size > Integer.MAX_VALUE) {
+            throw new IOException("Not a profile store");
+        }
+        this.map = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        if (this.map.getInt(0) != MAGIC) {
+            throw new IOException("Not a profile store");
+        }
+        if (this.map.getInt(4) != VERSION) {
+            throw new IOException("Unsupported profile store version " + this.map.getInt(4));
+        }
+        this.recordCapacity = this.map.getInt(8);
+        this.recordCount = this.map.getInt(12);
+        this.nameCapacity = this.map.getInt(16);
+        this.nameLength = this.map.getInt(20);
+        if (this.recordCount < 0 || this.recordCount > this.recordCapacity || this.nameLength > this.nameCapacity
+            || size < namesStart() + (long) this.nameCapacity) {
+            throw new IOException("Corrupt profile store");
+        }
+
+        // The index only holds hashes and record numbers, so it is rebuilt without reading any names
+        final int tableSize = tableSizeFor(this.recordCapacity);
+        this.hashes = new long[tableSize];
+        this.slots = new int[tableSize];
+        for (int record = 0; record < this.recordCount; record++) {
+            insert(this.map.getLong(recordStart(record) + HASH), record);
+        }
+    }
+
+    /**
+     * Gets the number of profiles in the store.
+     *
+     * @return The number of profiles.
+     */
+    public synchronized int size() {
+        return this.recordCount;
+    }
+
+    /**
+     * Checks if the store has a profile.
+     *
+     * @param name The user name.
+     * @return True if there is a profile with the name, false otherwise.
+     */
+    public synchronized boolean contains(final String name) {
+        return find(name, utf8(name)) >= 0;
+    }
+
+    /**
+     * Gets a profile attached to the store, so addGame updates its record in place.
+     * The record stays under the name it was loaded with even if the profile is renamed.
+     *
+     * @param name The user name.
+     * @return The profile, or null if there is none with the name.
+     */
+    public synchronized UserProfile get(final String name) {
+        final int record = find(name, utf8(name));
+        if (record < 0) {
+            return null;
+        }
+        final UserProfile profile = read(record);
+        profile.attach(this, record);
+        return profile;
+    }
+
+    /**
+     * Gets a profile attached to the store, adding an empty one if there is none with the name.
+     *
+     * @param name The user name.
+     * @return The profile.
+     * @throws IOException If the store could not grow.
+     */
+    public synchronized UserProfile getOrCreate(final String name) throws IOException {
+        final UserProfile profile = get(name);
+        if (profile != null) {
+            return profile;
+        }
+        final UserProfile created = new UserProfile(name);
+        created.attach(this, add(name));
+        return created;
+    }
+
+    /**
+     * Writes a profile's counters to its record, adding a record if there is none with its name,
+     * and attaches the profile to the store.
+     *
+     * @param profile The profile to store.
+     * @throws IOException If the store could not grow.
+     */
+    public synchronized void put(final UserProfile profile) throws IOException {
+        final String name = profile.getUserName() == null ? "" : profile.getUserName();
+        int record = find(name, utf8(name));
+        if (record < 0) {
+            record = add(name);
+        }
+        writeStats(record, profile);
+        profile.attach(this, record);
+    }
+
+    /**
+     * Reads a profile by its record number, for scanning every profile in the store.
+     * The profile is a copy which is not attached to the store.
+     *
+     * @param record The record number, from 0 to size() - 1.
+     * @return A copy of the profile.
+     */
+    public synchronized UserProfile read(final int record) {
+        if (record < 0 || record >= this.recordCount) {
+            throw new IndexOutOfBoundsException("No profile record " + record);
+        }
+        return read(this.map, record);
+    }
+
+    /* A read-only view of the records, for reading many of them on other threads without the lock */
+    synchronized ByteBuffer view() {
+        return this.map.asReadOnlyBuffer();
+    }
+
+    /* The number of records in a view, as it was when the view was taken */
+    static int recordCount(final ByteBuffer view) {
+        return view.getInt(12);
+    }
+
+    /* Reads a record from a view of the whole store, only absolute reads are used so views can be shared */
+    static UserProfile read(final ByteBuffer view, final int record) {
+        final int start = recordStart(record);
+        final byte[] bytes = new byte[view.getInt(start + NAME_LENGTH)];
+        final int offset = HEADER + view.getInt(8) * RECORD + view.getInt(start + NAME_OFFSET);
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = view.get(offset + i);
+        }
+        final UserProfile profile = new UserProfile(new String(bytes, StandardCharsets.UTF_8));
+        profile.setStats(view.getInt(start + KALAH_GAMES), view.getInt(start + KALAH_WINS),
+            view.getInt(start + AYO_GAMES), view.getInt(start + AYO_WINS));
+        return profile;
+    }
+
+    /**
+     * Writes every change to disk, changes are otherwise written whenever the operating system chooses.
+     */
+    public synchronized void force() {
+        this.map.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        this.map.force();
+        this.channel.close();
+    }
+
+    /**
+     * Imports saved Player files into a store, replacing the counters of any profile already in it.
+     *
+     * @param args The store file, then the names of saved Player files in the assets folder.
+     * @throws IOException If the store or a player could not be read.
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: ProfileStore <store file> [player file ...]");
+            return;
+        }
+        try (ProfileStore store = open(Paths.get(args[0]))) {
+            for (int i = 1; i < args.length; i++) {
+                final Player player = (Player) Saver.loadObject(args[i]);
+                store.put(player.getProfile());
+            }
+            System.out.println(store.size() + " profiles in " + args[0]);
+        }
+    }
+
+    /* Called by an attached UserProfile after its counters change */
+    synchronized void writeStats(final int record, final UserProfile profile) {
+        final int start = recordStart(record);
+        this.map.putInt(start + KALAH_GAMES, profile.getKalahGames());
+        this.map.putInt(start + KALAH_WINS, profile.getKalahWins());
+        this.map.putInt(start + AYO_GAMES, profile.getAyoGames());
+        this.map.putInt(start + AYO_WINS, profile.getAyoWins());
+    }
+
+    private int add(final String name) throws IOException {
+        final byte[] bytes = utf8(name);
+        if (this.recordCount == this.recordCapacity || this.nameLength + bytes.length > this.nameCapacity) {
+            grow(bytes.length);
+        }
+        final long hash = hash(bytes);
+        final int record = this.recordCount;
+        final int start = recordStart(record);
+        this.map.putLong(start + HASH, hash);
+        this.map.putInt(start + NAME_OFFSET, this.nameLength);
+        this.map.putInt(start + NAME_LENGTH, bytes.length);
+        for (int i = 0; i < 16; i += 4) {
+            this.map.putInt(start + KALAH_GAMES + i, 0);
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            this.map.put(namesStart() + this.nameLength + i, bytes[i]);
+        }
+        this.nameLength += bytes.length;
+        this.recordCount++;
+        writeHeader();
+        insert(hash, record);
+        return record;
+    }
+
+    /* Doubles whichever area is full, moving the names after the larger record area */
+    private void grow(final int extraName) throws IOException {
+        final byte[] names = new byte[this.nameLength];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = this.map.get(namesStart() + i);
+        }
+        final boolean moreRecords = this.recordCount == this.recordCapacity;
+        if (moreRecords) {
+            this.recordCapacity *= 2;
+        }
+        while (this.nameLength + extraName > this.nameCapacity) {
+            this.nameCapacity *= 2;
+        }
+        if ((long) namesStart() + this.nameCapacity > Integer.MAX_VALUE) {
+            throw new IOException("Profile store is full");
+        }
+        remap();
+        for (int i = 0; i < names.length; i++) {
+            this.map.put(namesStart() + i, names[i]);
+        }
+        writeHeader();
+
+        if (moreRecords) {
+            final int tableSize = tableSizeFor(this.recordCapacity);
+            this.hashes = new long[tableSize];
+            this.slots = new int[tableSize];
+            for (int record = 0; record < this.recordCount; record++) {
+                insert(this.map.getLong(recordStart(record) + HASH), record);
+            }
+        }
+    }
+
+    /* Maps the file at its current capacities, growing it if needed */
+    private void remap() throws IOException {
+        this.map = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, namesStart() + (long) this.nameCapacity);
+    }
+
+    private void writeHeader() {
+        this.map.putInt(8, this.recordCapacity);
+        this.map.putInt(12, this.recordCount);
+        this.map.putInt(16, this.nameCapacity);
+        this.map.putInt(20, this.nameLength);
+    }
+
+    private int find(final String name, final byte[] bytes) {
+        final long hash = hash(bytes);
+        final int mask = this.slots.length - 1;
+        for (int slot = mix(hash) & mask; this.slots[slot] != 0; slot = (slot + 1) & mask) {
+            if (this.hashes[slot] == hash && name.equals(readName(this.slots[slot] - 1))) {
+                return this.slots[slot] - 1;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(final long hash, final int record) {
+        final int mask = this.slots.length - 1;
+        int slot = mix(hash) & mask;
+        while (this.slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        this.hashes[slot] = hash;
+        this.slots[slot] = record + 1;
+    }
+
+    private String readName(final int record) {
+        final int start = recordStart(record);
+        final byte[] bytes = new byte[this.map.getInt(start + NAME_LENGTH)];
+        final int offset = namesStart() + this.map.getInt(start + NAME_OFFSET);
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = this.map.get(offset + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int recordStart(final int record) {
+        return HEADER + record * RECORD;
+    }
+
+    private int namesStart() {
+        return HEADER + this.recordCapacity * RECORD;
+    }
+
+    /* At most half full, a power of two so a mask picks the slot */
+    private static int tableSizeFor(final int records) {
+        return Integer.highestOneBit(Math.max(records, 2) * 4 - 1);
+    }
+
+    private static byte[] utf8(final String name) {
+        return (name == null ? "" : name).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /* 64-bit FNV-1a, stored in each record so the index is rebuilt without reading names */
+    private static long hash(final byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (final byte b : bytes) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static int mix(final long hash) {
+        return (int) ((hash * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+}
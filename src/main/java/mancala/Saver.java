@@ -1,23 +1,46 @@
 package mancala;
 import java.io.Serializable;
-import java.io.FileInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
 
 /**
- * A class which saves and loads objects
+ * A class which saves and loads objects.
+ * Games and players are saved in the compact GameCodec format, anything else with Java serialization.
+ * Loading reads both, so files saved before the compact format still open, as well as MoveJournal files.
  */
 public class Saver {
+    private static final int CHUNK = 64 * 1024;
+
     /**
      * Saves an object to the assets folder.
-     * 
+     *
      * @param toSave The object to save.
      * @param filename The file name for the object.
      * @throws IOException If the object was unable to saved.
      */
     public static void saveObject(final Serializable toSave, final String filename) throws IOException {
+        writeBuffer(encode(toSave), filename, null);
+    }
+
+    /**
+     * Saves an object to the assets folder with Java serialization, the format used before GameCodec.
+     *
+     * @param toSave The object to save.
+     * @param filename The file name for the object.
+     * @throws IOException If the object was unable to saved.
+     */
+    public static void saveSerialized(final Serializable toSave, final String filename) throws IOException {
         try (FileOutputStream file = new FileOutputStream("assets/" + filename);
         ObjectOutputStream stream = new ObjectOutputStream(file)) {
             stream.writeObject(toSave);
@@ -27,20 +50,109 @@ public class Saver {
     }
 
     /**
-     * Loads an object from the assets folder.
-     * 
+     * Loads an object from the assets folder, in either the compact or the Java serialization format.
+     * A move journal is loaded as the game after its last move.
+     *
      * @param filename The file name for the object.
      * @return The loaded object.
      * @throws IOException If the object was unable to be loaded.
      */
     public static Serializable loadObject(final String filename) throws IOException {
+        return decode(readBuffer(filename, null, null));
+    }
+
+    /**
+     * Encodes an object as saveObject would write it.
+     *
+     * @param toSave The object to encode.
+     * @return A buffer ready to be written to a channel.
+     * @throws IOException If the object could not be serialized.
+     */
+    public static ByteBuffer encode(final Serializable toSave) throws IOException {
+        if (toSave instanceof MancalaGame) {
+            return GameCodec.encodeGame((MancalaGame) toSave);
+        } else if (toSave instanceof Player) {
+            return GameCodec.encodePlayer((Player) toSave);
+        }
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream stream = new ObjectOutputStream(bytes)) {
+            stream.writeObject(toSave);
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    /**
+     * Decodes the contents of a saved file, in any format loadObject reads.
+     *
+     * @param buffer The buffer to read from its position.
+     * @return The loaded object.
+     * @throws IOException If the object was unable to be decoded.
+     */
+    public static Serializable decode(final ByteBuffer buffer) throws IOException {
+        if (GameCodec.isCompact(buffer)) {
+            return GameCodec.decode(buffer);
+        } else if (MoveJournal.isJournal(buffer)) {
+            return MoveJournal.read(buffer).replay();
+        }
+
         Serializable toLoad;
-        try (FileInputStream file = new FileInputStream("assets/" + filename);
-        ObjectInputStream stream = new ObjectInputStream(file)) {
+        try (ObjectInputStream stream = new ObjectInputStream(
+            new ByteArrayInputStream(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining()))) {
             toLoad = (Serializable) stream.readObject();
         } catch (ClassNotFoundException e) {
             throw new IOException(e);
         }
         return toLoad;
     }
-}
\ No newline at end of file
+
+    /* Writes in chunks so progress can be reported, progress may be null */
+    static void writeBuffer(final ByteBuffer buffer, final String filename, final AsyncSaver.Progress progress)
+        throws IOException {
+        final long total = buffer.remaining();
+        try (FileChannel channel = FileChannel.open(path(filename), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final int limit = buffer.limit();
+            while (buffer.hasRemaining()) {
+                buffer.limit(Math.min(limit, buffer.position() + CHUNK));
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                buffer.limit(limit);
+                if (progress != null) {
+                    progress.update(total - buffer.remaining(), total);
+                }
+            }
+        }
+    }
+
+    /* Reads in chunks so progress can be reported and the read stopped, progress and cancelled may be null */
+    static ByteBuffer readBuffer(final String filename, final AsyncSaver.Progress progress,
+        final BooleanSupplier cancelled) throws IOException {
+        try (FileChannel channel = FileChannel.open(path(filename), StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Save file is too large");
+            }
+            final ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (cancelled != null && cancelled.getAsBoolean()) {
+                    throw new CancellationException("Load of " + filename + " was cancelled");
+                }
+                buffer.limit(Math.min(buffer.capacity(), buffer.position() + CHUNK));
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("Save file ended early");
+                }
+                buffer.limit(buffer.capacity());
+                if (progress != null) {
+                    progress.update(buffer.position(), size);
+                }
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    private static Path path(final String filename) {
+        return Paths.get("assets", filename);
+    }
+}
@@ -11,6 +11,9 @@ public class UserProfile implements Serializable {
     private int kalahWins;
     private int ayoGames;
     private int ayoWins;
+    private transient ProfileStore store; // Set when the profile came from a ProfileStore
+    private transient int record;
+    private transient Leaderboard leaderboard; // Set when the profile is tracked by a Leaderboard
 
     /**
      * Constructor to initialize a user profile.
@@ -86,8 +89,29 @@ public class UserProfile implements Serializable {
         return this.ayoWins;
     }
 
+    /* Restores every counter at once, used when loading a saved profile */
+    void setStats(final int newKalahGames, final int newKalahWins, final int newAyoGames, final int newAyoWins) {
+        this.kalahGames = newKalahGames;
+        this.kalahWins = newKalahWins;
+        this.ayoGames = newAyoGames;
+        this.ayoWins = newAyoWins;
+    }
+
+    /* Links the profile to its record, so addGame writes through to the store */
+    void attach(final ProfileStore newStore, final int newRecord) {
+        this.store = newStore;
+        this.record = newRecord;
+    }
+
+    /* Links the profile to a leaderboard, so addGame re-ranks it */
+    void track(final Leaderboard newLeaderboard) {
+        this.leaderboard = newLeaderboard;
+    }
+
     /**
      * Adds stats based on the game results.
+     * If the profile came from a ProfileStore its record is updated in place, and if it is tracked by
+     * a Leaderboard it is re-ranked.
      * 
      * @param isWin True if the game was won, false otherwise.
      * @param isKalah True if the game was Kalah, false otherwise.
@@ -104,5 +128,11 @@ public class UserProfile implements Serializable {
                 this.ayoWins += 1;
             }
         }
+        if (this.store != null) {
+            this.store.writeStats(this.record, this);
+        }
+        if (this.leaderboard != null) {
+            this.leaderboard.update(this);
+        }
     }
 }
\ No newline at end of file
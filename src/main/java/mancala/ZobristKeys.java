@@ -0,0 +1,48 @@
+package mancala;
+
+/**
+ * Fixed random keys for Zobrist hashing of board positions.
+ * Every (array position, stone count) pair has its own key, a position hash is the xor of the keys
+ * of all 14 positions, and the side to move is folded in with one more key.
+ * Keys are derived from a fixed seed so hashes are the same on every run and every machine.
+ */
+final class ZobristKeys {
+    /* Side to move key, xored in when it is player two's turn */
+    static final long SIDE_TWO = mix(-1);
+    private static final int POSITIONS = 14;
+    private static final int TABLE_COUNTS = 128; // counts past this are rare and computed on demand
+    private static final long[] KEYS = new long[POSITIONS * TABLE_COUNTS];
+
+    static {
+        for (int pos = 0; pos < POSITIONS; pos++) {
+            for (int count = 0; count < TABLE_COUNTS; count++) {
+                KEYS[pos * TABLE_COUNTS + count] = mix((long) pos << 32 | count);
+            }
+        }
+    }
+
+    private ZobristKeys() {
+    }
+
+    /**
+     * Gets the key of a stone count at an array position.
+     *
+     * @param pos   The array position (0-13).
+     * @param count The number of stones at the position.
+     * @return The 64-bit key.
+     */
+    static long key(final int pos, final int count) {
+        if (count >= 0 && count < TABLE_COUNTS) {
+            return KEYS[pos * TABLE_COUNTS + count];
+        }
+        return mix((long) pos << 32 | (count & 0xffffffffL));
+    }
+
+    /* SplitMix64 finaliser, spreads each input over all 64 bits */
+    private static long mix(final long input) {
+        long z = input * 0x9E3779B97F4A7C15L + 0x632BE59BD9B4E019L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,256 @@
+package server;
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import mancala.GameEvent;
+import mancala.GameListener;
+
+/**
+ * Sends the events of one game to its spectators. Each event is encoded once as a server-sent event frame and the
+ * same bytes are queued for every spectator, so an event costs one encoding however many are watching.
+ *
+ * Queues are bounded and sending never waits, since it runs on the thread making the move. A spectator whose
+ * queue is full has it emptied and gets one snapshot frame of the latest board instead, so a slow reader skips
+ * ahead to the current position rather than holding up the game or growing without limit. Frame ids count the
+ * events of the game, so a reader can tell how many it skipped.
+ */
+final class GameBroadcaster implements GameListener {
+    private static final String[] NAMES = {"move", "capture", "bonus", "gameover"};
+    private final int capacity;
+    private final CopyOnWriteArrayList<Subscription> subscribers = new CopyOnWriteArrayList<>();
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private long sequence; // The id of the last event, guarded by this
+    private boolean ended;
+
+    /**
+     * A spectator's queue of frames.
+     */
+    final class Subscription implements Closeable {
+        private final byte[][] queue;
+        private int head;
+        private int count;
+        private boolean finished; // No more frames will be queued, those left are still read
+        private boolean closed;
+
+        private Subscription(final int newCapacity) {
+            this.queue = new byte[newCapacity][];
+        }
+
+        /**
+         * Takes the next frame, waiting for one if the queue is empty.
+         * Frames are shared by every spectator and must not be changed.
+         *
+         * @param timeout The most time to wait.
+         * @param unit The unit of the timeout.
+         * @return The frame, or null if the time ran out or no more frames will come, see isFinished.
+         * @throws InterruptedException If the thread is interrupted while waiting.
+         */
+        synchronized byte[] poll(final long timeout, final TimeUnit unit) throws InterruptedException {
+            final long deadline = System.nanoTime() + unit.toNanos(timeout);
+            while (this.count == 0 && !this.finished) {
+                final long left = deadline - System.nanoTime();
+                if (left <= 0) {
+                    return null;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, left);
+            }
+            if (this.count == 0) {
+                return null;
+            }
+            final byte[] frame = this.queue[this.head];
+            this.queue[this.head] = null;
+            this.head = (this.head + 1) % this.queue.length;
+            this.count--;
+            return frame;
+        }
+
+        /**
+         * Checks if every frame has been read and no more will come, after the game ends or the spectator leaves.
+         *
+         * @return True once the subscription is done.
+         */
+        synchronized boolean isFinished() {
+            return this.finished && this.count == 0;
+        }
+
+        /**
+         * Stops watching, dropping any frames not read.
+         */
+        @Override
+        public void close() {
+            synchronized (this) {
+                this.closed = true;
+                this.count = 0;
+                Arrays.fill(this.queue, null);
+                finish();
+            }
+            GameBroadcaster.this.subscribers.remove(this);
+        }
+
+        /* Queues a frame unless the queue is full */
+        private synchronized boolean offer(final byte[] frame) {
+            if (this.finished) {
+                return true;
+            }
+            if (this.count == this.queue.length) {
+                return false;
+            }
+            this.queue[(this.head + this.count) % this.queue.length] = frame;
+            if (this.count++ == 0) {
+                notifyAll();
+            }
+            return true;
+        }
+
+        /* Replaces every frame waiting with one */
+        private synchronized void replaceAll(final byte[] frame) {
+            if (this.closed) {
+                return;
+            }
+            Arrays.fill(this.queue, null);
+            this.head = 0;
+            this.queue[0] = frame;
+            this.count = 1;
+            notifyAll();
+        }
+
+        private synchronized void finish() {
+            this.finished = true;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Constructor to initialize a broadcaster with no spectators.
+     *
+     * @param queueCapacity The most frames queued for one spectator before it is sent a snapshot instead.
+     */
+    GameBroadcaster(final int queueCapacity) {
+        this.capacity = Math.max(2, queueCapacity);
+    }
+
+    /**
+     * Starts watching, with a snapshot of the current board as the first frame.
+     * If the game has already ended, that is the only frame.
+     *
+     * @param currentBoard The current board, positions 0-13 then the side to move, as in GameEvent.
+     * @return The spectator's subscription, which they close when they leave.
+     */
+    synchronized Subscription subscribe(final int[] currentBoard) {
+        final Subscription subscription = new Subscription(this.capacity);
+        subscription.offer(encodeSnapshot(currentBoard));
+        if (this.ended) {
+            subscription.finish();
+        } else {
+            this.subscribers.add(subscription);
+        }
+        return subscription;
+    }
+
+    /**
+     * Encodes an event once and queues it for every spectator, sending a GAME_OVER ends every subscription.
+     *
+     * @param event The event.
+     */
+    @Override
+    public synchronized void onEvent(final GameEvent event) {
+        if (this.ended) {
+            return;
+        }
+        this.sequence++;
+        this.frames.incrementAndGet();
+        final int[] board = new int[15];
+        for (int i = 0; i < 14; i++) {
+            board[i] = event.countAt(i);
+        }
+        board[14] = event.getSideToMove();
+        final byte[] frame = encode(event, board);
+        // The game over frame has the board too and must not be lost, the snapshot is only encoded when needed
+        byte[] latest = event.getType() == GameEvent.GAME_OVER ? frame : null;
+        for (final Subscription subscription : this.subscribers) {
+            if (!subscription.offer(frame)) {
+                if (latest == null) {
+                    latest = encodeSnapshot(board);
+                }
+                subscription.replaceAll(latest);
+                this.coalesced.incrementAndGet();
+            }
+        }
+        if (event.getType() == GameEvent.GAME_OVER) {
+            end();
+        }
+    }
+
+    /**
+     * Ends every subscription once its frames are read, and any made later after their first frame.
+     */
+    synchronized void end() {
+        this.ended = true;
+        for (final Subscription subscription : this.subscribers) {
+            subscription.finish();
+        }
+        this.subscribers.clear();
+    }
+
+    /**
+     * Gets the number of spectators watching.
+     *
+     * @return The number of open subscriptions.
+     */
+    int getSubscriberCount() {
+        return this.subscribers.size();
+    }
+
+    /**
+     * Gets the number of events encoded, once each however many spectators there are.
+     *
+     * @return The number of event frames.
+     */
+    long getFrameCount() {
+        return this.frames.get();
+    }
+
+    /**
+     * Gets the number of times a spectator's full queue was replaced by a snapshot.
+     *
+     * @return The number of coalesced queues.
+     */
+    long getCoalescedCount() {
+        return this.coalesced.get();
+    }
+
+    /*
+     * id: 3
+     * event: capture
+     * data: {"player":1,"pit":9,"stones":5,"pits":[4,...],"stores":[6,0],"turn":2}
+     * with a blank line after, pit 0 and player the winner (0 for a draw) for gameover
+     */
+    private byte[] encode(final GameEvent event, final int[] board) {
+        final StringBuilder frame = new StringBuilder(160);
+        frame.append("id: ").append(this.sequence).append("\nevent: ").append(NAMES[event.getType()])
+            .append("\ndata: {\"player\":").append(event.getPlayer())
+            .append(",\"pit\":").append(event.getPit())
+            .append(",\"stones\":").append(event.getStones()).append(',');
+        return appendBoard(frame, board).toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /* A frame of the board alone, with the id of the last event it includes */
+    private byte[] encodeSnapshot(final int[] snapshotBoard) {
+        final StringBuilder frame = new StringBuilder(128);
+        frame.append("id: ").append(this.sequence).append("\nevent: snapshot\ndata: {");
+        return appendBoard(frame, snapshotBoard).toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static StringBuilder appendBoard(final StringBuilder frame, final int[] frameBoard) {
+        frame.append("\"pits\":[");
+        for (int pit = 1; pit <= 12; pit++) {
+            frame.append(pit == 1 ? "" : ",").append(frameBoard[pit <= 6 ? pit - 1 : pit]);
+        }
+        return frame.append("],\"stores\":[").append(frameBoard[6]).append(',').append(frameBoard[13])
+            .append("],\"turn\":").append(frameBoard[14]).append("}\n\n");
+    }
+}
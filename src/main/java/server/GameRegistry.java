@@ -0,0 +1,320 @@
+package server;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import mancala.InvalidMoveException;
+
+/**
+ * The live games of a GameServer by id, for many threads at once.
+ * Games are held in a ConcurrentHashMap and each one is locked on its own, so requests for different games never
+ * wait on each other. Games left idle are evicted by a TimerWheel: they are written to a spill directory in
+ * the compact save format and dropped from memory, and the next request for one reads it back first. Games with
+ * spectators are kept in memory, since their broadcaster is not saved.
+ *
+ * A session is only changed under its lock. Files are read and written under the lock of the session they
+ * belong to, never the map's, and the map entry is only swapped once they are done. Eviction marks the session
+ * evicted, so a request holding a session from before then looks it up again. A registry opened on a spill
+ * directory picks up the games left there by an earlier one.
+ */
+public final class GameRegistry implements Closeable {
+    private static final int WHEEL_SLOTS = 512;
+    private final ConcurrentHashMap<Long, GameSession> resident;
+    private final Set<Long> spilled = ConcurrentHashMap.newKeySet();
+    private final Path spillDirectory;
+    private final long idleNanos;
+    private final TimerWheel wheel;
+    private final ScheduledExecutorService sweeper;
+    private final AtomicLong nextId = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong reloads = new AtomicLong();
+
+    /**
+     * An action on a session, run with its lock held.
+     *
+     * @param <T> The result of the action.
+     */
+    interface SessionAction<T> {
+        T apply(GameSession session) throws InvalidMoveException;
+    }
+
+    /**
+     * Constructor to initialize an empty registry which evicts idle games in the background.
+     *
+     * @param newSpillDirectory The directory evicted games are written to, created if missing. Games already in it
+     * are read back when asked for.
+     * @param idleMillis How long a game may go unused before it is evicted.
+     * @param expectedGames The number of games the table is sized for.
+     * @throws IOException If the spill directory could not be created or listed.
+     */
+    public GameRegistry(final Path newSpillDirectory, final long idleMillis, final int expectedGames)
+        throws IOException {
+        this(newSpillDirectory, idleMillis, expectedGames, true);
+    }
+
+    GameRegistry(final Path newSpillDirectory, final long idleMillis, final int expectedGames,
+        final boolean background) throws IOException {
+        this.spillDirectory = Files.createDirectories(newSpillDirectory);
+        // Games evicted by an earlier registry on the directory are read back when asked for, new ids come after them
+        long lastId = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(this.spillDirectory, "*.game")) {
+            for (final Path file : files) {
+                final String name = file.getFileName().toString();
+                try {
+                    final long id = Long.parseLong(name.substring(0, name.length() - ".game".length()));
+                    this.spilled.add(id);
+                    lastId = Math.max(lastId, id);
+                } catch (NumberFormatException e) {
+                    // Not written by a registry
+                }
+            }
+        }
+        this.nextId.set(lastId);
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+        this.resident = new ConcurrentHashMap<>(expectedGames * 4 / 3 + 1);
+        // A tick of 1/64 of the idle time, so games are evicted at most that late
+        final long tick = Math.max(TimeUnit.MILLISECONDS.toNanos(1), this.idleNanos / 64);
+        this.wheel = new TimerWheel(tick, WHEEL_SLOTS, System.nanoTime());
+        if (background) {
+            this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "game-registry");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.sweeper.scheduleWithFixedDelay(() -> evictIdle(System.nanoTime()), tick, tick, TimeUnit.NANOSECONDS);
+        } else {
+            this.sweeper = null;
+        }
+    }
+
+    /**
+     * Starts a game from the starting position.
+     *
+     * @param isKalah True for Kalah, false for Ayo.
+     * @param one The name of player one.
+     * @param two The name of player two.
+     * @return The new session.
+     */
+    GameSession create(final boolean isKalah, final String one, final String two) {
+        final GameSession session = new GameSession(this.nextId.incrementAndGet(), isKalah, one, two);
+        this.resident.put(session.getId(), session);
+        this.wheel.schedule(session.getId(), session.getLastAccess() + this.idleNanos);
+        return session;
+    }
+
+    /**
+     * Runs an action on a game with its lock held, reading the game back first if it was evicted.
+     *
+     * @param <T> The result of the action.
+     * @param id The session id.
+     * @param action The action.
+     * @return The result of the action, or null if there is no such game.
+     * @throws InvalidMoveException If the action throws it.
+     * @throws IOException If an evicted game could not be read back.
+     */
+    <T> T call(final long id, final SessionAction<T> action) throws InvalidMoveException, IOException {
+        while (true) {
+            final GameSession session = this.resident.get(id);
+            if (session == null) {
+                if (!this.spilled.contains(id)) {
+                    return null;
+                }
+                reload(id);
+                continue;
+            }
+            synchronized (session) {
+                if (!session.isEvicted()) {
+                    return action.apply(session);
+                }
+            }
+        }
+    }
+
+    /**
+     * Ends a game, whether it is in memory or evicted.
+     *
+     * @param id The session id.
+     * @return True if there was such a game.
+     */
+    boolean remove(final long id) {
+        boolean found = false;
+        while (true) {
+            final GameSession session = this.resident.get(id);
+            if (session != null) {
+                synchronized (session) {
+                    if (session.isEvicted()) {
+                        continue; // Being evicted or read back, look again once it is done
+                    }
+                    session.setEvicted();
+                }
+                this.resident.remove(id, session);
+                found = true;
+            } else if (this.spilled.remove(id)) {
+                found = true;
+                try {
+                    Files.deleteIfExists(spillFile(id));
+                } catch (IOException e) {
+                    // Left behind, it is not read again until a registry is opened on the directory
+                }
+            } else if (this.resident.containsKey(id)) {
+                continue; // Read back in the meantime
+            }
+            return found;
+        }
+    }
+
+    /**
+     * Evicts the games idle since before a time, normally called by the background sweeper.
+     *
+     * @param now The current time from System.nanoTime.
+     * @return The number of games evicted.
+     */
+    int evictIdle(final long now) {
+        int evicted = 0;
+        for (final long id : this.wheel.advance(now)) {
+            final GameSession session = this.resident.get(id);
+            if (session == null) {
+                continue;
+            }
+            // The file is written under the session's lock alone, so only requests for this game wait on it
+            synchronized (session) {
+                if (session.isEvicted()) {
+                    continue;
+                }
+                final long idleSince = session.getLastAccess();
+                if (now - idleSince < this.idleNanos) {
+                    this.wheel.schedule(id, idleSince + this.idleNanos); // Used since it was scheduled
+                    continue;
+                }
+                if (session.hasSpectators()) {
+                    this.wheel.schedule(id, now + this.idleNanos); // Kept while anyone is watching
+                    continue;
+                }
+                try {
+                    write(spillFile(id), session.encode());
+                } catch (IOException e) {
+                    this.wheel.schedule(id, now + this.idleNanos); // Kept in memory and tried again later
+                    continue;
+                }
+                this.spilled.add(id); // Before it leaves the map, so it is never missing from both
+                session.setEvicted();
+            }
+            this.resident.remove(id, session);
+            this.evictions.incrementAndGet();
+            evicted++;
+        }
+        return evicted;
+    }
+
+    /**
+     * Gets the number of games in memory.
+     *
+     * @return The number of resident games.
+     */
+    public int getResidentCount() {
+        return this.resident.size();
+    }
+
+    /**
+     * Gets the number of evicted games waiting on disk.
+     *
+     * @return The number of spilled games.
+     */
+    public int getSpilledCount() {
+        return this.spilled.size();
+    }
+
+    /**
+     * Gets the number of times an idle game was evicted.
+     *
+     * @return The number of evictions.
+     */
+    public long getEvictedCount() {
+        return this.evictions.get();
+    }
+
+    /**
+     * Gets the number of times an evicted game was read back.
+     *
+     * @return The number of reloads.
+     */
+    public long getReloadedCount() {
+        return this.reloads.get();
+    }
+
+    /**
+     * Stops evicting games. Evicted games stay in the spill directory, for a registry opened on it later.
+     */
+    @Override
+    public void close() {
+        if (this.sweeper != null) {
+            this.sweeper.shutdownNow();
+        }
+    }
+
+    /*
+     * Reads an evicted game back into the map. A placeholder holds its place while the file is read, so other
+     * requests for the game wait on the placeholder's lock rather than the map's, and look the game up again after.
+     */
+    private void reload(final long id) throws IOException {
+        final GameSession placeholder = GameSession.placeholder(id);
+        synchronized (placeholder) {
+            if (this.resident.putIfAbsent(id, placeholder) != null) {
+                return; // Another request is reading it, or it is back already
+            }
+            GameSession session = null;
+            try {
+                final Path file = spillFile(id);
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    final ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+                    while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                        continue;
+                    }
+                    buffer.flip();
+                    session = GameSession.decode(buffer);
+                } catch (NoSuchFileException e) {
+                    this.spilled.remove(id);
+                    return;
+                }
+                // Removed while it was being read if it is no longer in the spilled set
+                if (!this.spilled.remove(id)) {
+                    session = null;
+                    return;
+                }
+                Files.deleteIfExists(file);
+                this.reloads.incrementAndGet();
+                this.wheel.schedule(id, session.getLastAccess() + this.idleNanos);
+            } finally {
+                if (session != null) {
+                    this.resident.replace(id, placeholder, session);
+                } else {
+                    this.resident.remove(id, placeholder);
+                }
+            }
+        }
+    }
+
+    private Path spillFile(final long id) {
+        return this.spillDirectory.resolve(id + ".game");
+    }
+
+    private static void write(final Path file, final ByteBuffer buffer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,378 @@
+package server;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import mancala.InvalidMoveException;
+
+/**
+ * A headless server hosting many games at once over HTTP, with no dependencies beyond the JDK.
+ * <pre>
+ * POST   /games?rules=kalah|ayo&amp;one=name&amp;two=name  starts a game
+ * GET    /games                                      counts the games held, see GameRegistry
+ * GET    /games/{id}                                 gets its state
+ * POST   /games/{id}/move?pit=1-12                   plays a pit for the player to move
+ * POST   /games/{id}/resign?player=1|2               gives up
+ * GET    /games/{id}/events                          watches it as a stream of server-sent events
+ * DELETE /games/{id}                                 ends the session
+ * </pre>
+ * Every other response but DELETE is the game's state as JSON, see GameSession. Errors are 400 for bad
+ * parameters, 404 for unknown games, 409 for illegal moves and 503 once the games in memory reach the limit.
+ * Games left idle are evicted to disk and read back when next used, see GameRegistry.
+ * Spectators are sent the current board, then every move, capture, bonus turn and the end of the game, see
+ * GameBroadcaster. The stream ends with the game, and one who reads too slowly skips ahead to the latest board.
+ *
+ * Requests run on virtual threads when the JDK has them, otherwise on a fixed pool whose queue is bounded
+ * so an overloaded server slows its callers down instead of queueing without limit. A spectator holds a thread
+ * for as long as they watch, so on the fixed pool event streams run on a pool of their own, sized like the
+ * request pool, and spectators beyond it get 503. They never run on the thread accepting connections.
+ */
+public final class GameServer {
+    public static final int DEFAULT_MAX_SESSIONS = 100_000;
+    public static final long DEFAULT_IDLE_MILLIS = 5 * 60 * 1000;
+    private static final int QUEUE_PER_THREAD = 64;
+    private static final int SPECTATOR_QUEUE = 64;
+    private static final long KEEPALIVE_SECONDS = 15;
+    private static final byte[] KEEPALIVE = ":\n\n".getBytes(StandardCharsets.UTF_8);
+    private final HttpServer http;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final int maxSessions;
+    private final GameRegistry sessions;
+    private final boolean ownsRegistry;
+    private final ExecutorService streams;
+
+    static {
+        // Responses are small, so without this each one waits on a delayed ACK. Read when the first server starts
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    /**
+     * Constructor to bind a server, which does not serve until started.
+     * Idle games are evicted after DEFAULT_IDLE_MILLIS to a new temporary directory.
+     *
+     * @param address The address to listen on, port 0 picks a free port.
+     * @param newMaxSessions The most games held in memory at once.
+     * @param threads The size of the request pool when virtual threads are not available.
+     * @throws IOException If the address could not be bound.
+     */
+    public GameServer(final InetSocketAddress address, final int newMaxSessions, final int threads)
+        throws IOException {
+        this(address, newMaxSessions, threads, new GameRegistry(Files.createTempDirectory("mancala-sessions"),
+            DEFAULT_IDLE_MILLIS, newMaxSessions), true);
+    }
+
+    /**
+     * Constructor to bind a server to a registry of games, which does not serve until started.
+     *
+     * @param address The address to listen on, port 0 picks a free port.
+     * @param newMaxSessions The most games held in memory at once.
+     * @param threads The size of the request pool when virtual threads are not available.
+     * @param registry The registry of games, which the caller closes.
+     * @throws IOException If the address could not be bound.
+     */
+    public GameServer(final InetSocketAddress address, final int newMaxSessions, final int threads,
+        final GameRegistry registry) throws IOException {
+        this(address, newMaxSessions, threads, registry, false);
+    }
+
+    private GameServer(final InetSocketAddress address, final int newMaxSessions, final int threads,
+        final GameRegistry registry, final boolean owned) throws IOException {
+        this.maxSessions = newMaxSessions;
+        this.sessions = registry;
+        this.ownsRegistry = owned;
+        ExecutorService virtual = null;
+        try {
+            virtual = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            // Before Java 21, the fixed pool below is used
+        }
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(threads * QUEUE_PER_THREAD), runnable -> {
+                final Thread thread = new Thread(runnable, "game-server");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.CallerRunsPolicy());
+        // No queue and no caller-runs, a stream lasts as long as its game
+        this.streams = virtual != null ? virtual : new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+            new SynchronousQueue<>(), runnable -> {
+                final Thread thread = new Thread(runnable, "game-spectator");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+        this.http = HttpServer.create(address, 1024);
+        this.http.createContext("/games", this::handle);
+        this.http.setExecutor(this.executor);
+    }
+
+    /**
+     * Starts serving requests.
+     */
+    public void start() {
+        this.http.start();
+    }
+
+    /**
+     * Stops serving, letting requests in progress finish.
+     *
+     * @param delaySeconds The most seconds to wait for requests in progress.
+     */
+    public void stop(final int delaySeconds) {
+        this.http.stop(delaySeconds);
+        this.executor.shutdown();
+        if (this.streams != this.executor) {
+            this.streams.shutdownNow(); // Spectators are waiting on their queues
+        }
+        if (this.ownsRegistry) {
+            this.sessions.close();
+        }
+    }
+
+    /**
+     * Gets the port the server listens on.
+     *
+     * @return The port.
+     */
+    public int getPort() {
+        return this.http.getAddress().getPort();
+    }
+
+    /**
+     * Gets the registry of games, for its counts.
+     *
+     * @return The registry.
+     */
+    public GameRegistry getRegistry() {
+        return this.sessions;
+    }
+
+    /**
+     * Checks if requests run on virtual threads.
+     *
+     * @return True for virtual threads, false for the fixed pool.
+     */
+    public boolean usesVirtualThreads() {
+        return this.virtualThreads;
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        boolean handedOff = false;
+        try (InputStream body = exchange.getRequestBody()) {
+            while (body.read() >= 0) {
+                continue; // Requests carry no body, but one must be drained for the connection to be reused
+            }
+            final String[] path = exchange.getRequestURI().getPath().split("/");
+            final Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            final String method = exchange.getRequestMethod();
+            if (path.length == 2) {
+                if ("POST".equals(method)) {
+                    create(exchange, query);
+                } else if ("GET".equals(method)) {
+                    send(exchange, 200, "{\"resident\":" + this.sessions.getResidentCount() + ",\"spilled\":"
+                        + this.sessions.getSpilledCount() + ",\"evicted\":" + this.sessions.getEvictedCount()
+                        + ",\"reloaded\":" + this.sessions.getReloadedCount() + "}");
+                } else {
+                    send(exchange, 405, error("Use POST to start a game"));
+                }
+                return;
+            }
+            if (path.length < 3 || path.length > 4) {
+                send(exchange, 404, error("Not found"));
+                return;
+            }
+            final long id = parseLong(path[2]);
+            String state = null;
+            if (path.length == 3 && "GET".equals(method)) {
+                state = this.sessions.call(id, GameSession::state);
+            } else if (path.length == 4 && "events".equals(path[3]) && "GET".equals(method)) {
+                try {
+                    this.streams.execute(() -> watch(exchange, id));
+                    handedOff = true;
+                } catch (RejectedExecutionException e) {
+                    send(exchange, 503, error("Too many spectators"));
+                }
+                return;
+            } else if (path.length == 3 && "DELETE".equals(method)) {
+                if (this.sessions.remove(id)) {
+                    send(exchange, 204, null);
+                    return;
+                }
+            } else if (path.length == 4 && "move".equals(path[3]) && "POST".equals(method)) {
+                final int pit = parseInt(query.get("pit"));
+                if (pit < 1 || pit > 12) {
+                    send(exchange, 400, error("pit is a number from 1 to 12"));
+                    return;
+                }
+                state = this.sessions.call(id, session -> session.move(pit));
+            } else if (path.length == 4 && "resign".equals(path[3]) && "POST".equals(method)) {
+                final int player = parseInt(query.get("player"));
+                if (player != 1 && player != 2) {
+                    send(exchange, 400, error("player is 1 or 2"));
+                    return;
+                }
+                state = this.sessions.call(id, session -> session.resign(player));
+            } else {
+                send(exchange, 405, error("Unknown request"));
+                return;
+            }
+            if (state == null) {
+                send(exchange, 404, error("No game " + path[2]));
+            } else {
+                send(exchange, 200, state);
+            }
+        } catch (InvalidMoveException e) {
+            send(exchange, 409, error("That move is not legal"));
+        } catch (IOException | RuntimeException e) {
+            send(exchange, 500, error("Internal error"));
+        } finally {
+            if (!handedOff) {
+                exchange.close();
+            }
+        }
+    }
+
+    private void create(final HttpExchange exchange, final Map<String, String> query) throws IOException {
+        final String rules = query.getOrDefault("rules", "kalah");
+        if (!"kalah".equals(rules) && !"ayo".equals(rules)) {
+            send(exchange, 400, error("rules is kalah or ayo"));
+            return;
+        }
+        if (this.sessions.getResidentCount() >= this.maxSessions) {
+            send(exchange, 503, error("Too many games"));
+            return;
+        }
+        final GameSession session = this.sessions.create("kalah".equals(rules), query.getOrDefault("one", "One"),
+            query.getOrDefault("two", "Two"));
+        send(exchange, 201, session.state());
+    }
+
+    /* Streams a game's events on a thread of the stream pool, which closes the exchange */
+    private void watch(final HttpExchange exchange, final long id) {
+        try {
+            final GameBroadcaster.Subscription subscription = this.sessions.call(id,
+                session -> session.watch(SPECTATOR_QUEUE));
+            if (subscription == null) {
+                send(exchange, 404, error("No game " + id));
+                return;
+            }
+            try (subscription) {
+                exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+                exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+                exchange.sendResponseHeaders(200, 0);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    while (true) {
+                        byte[] frame = subscription.poll(KEEPALIVE_SECONDS, TimeUnit.SECONDS);
+                        if (frame == null && subscription.isFinished()) {
+                            break;
+                        }
+                        out.write(frame == null ? KEEPALIVE : frame);
+                        // Frames queued while writing go out together with one flush
+                        while ((frame = subscription.poll(0, TimeUnit.SECONDS)) != null) {
+                            out.write(frame);
+                        }
+                        out.flush();
+                    }
+                }
+            }
+        } catch (IOException | InvalidMoveException e) {
+            // The spectator left or the game could not be read back, there is no one left to tell
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void send(final HttpExchange exchange, final int status, final String json) throws IOException {
+        if (json == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        final byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String error(final String message) {
+        final StringBuilder json = new StringBuilder("{\"error\":");
+        GameSession.quote(json, message);
+        return json.append('}').toString();
+    }
+
+    private static Map<String, String> parseQuery(final String raw) {
+        final Map<String, String> query = new HashMap<>();
+        if (raw == null) {
+            return query;
+        }
+        for (final String pair : raw.split("&")) {
+            final int equals = pair.indexOf('=');
+            if (equals > 0) {
+                query.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    private static long parseLong(final String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static int parseInt(final String value) {
+        try {
+            return value == null ? -1 : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Runs a server from the command line until it is killed.
+     * Arguments: [port] [max sessions] [threads] [spill directory] [idle seconds]
+     *
+     * @param args The command line arguments.
+     * @throws IOException If the port could not be bound.
+     */
+    public static void main(final String[] args) throws IOException {
+        final int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        final int max = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_MAX_SESSIONS;
+        final int threads = args.length > 2 ? Integer.parseInt(args[2])
+            : Runtime.getRuntime().availableProcessors() * 4;
+        final GameServer server;
+        if (args.length > 3) {
+            final long idle = args.length > 4 ? Long.parseLong(args[4]) * 1000 : DEFAULT_IDLE_MILLIS;
+            server = new GameServer(new InetSocketAddress(port), max, threads,
+                new GameRegistry(Paths.get(args[3]), idle, max));
+        } else {
+            server = new GameServer(new InetSocketAddress(port), max, threads);
+        }
+        server.start();
+        System.out.println("Serving games on port " + server.getPort() + (server.usesVirtualThreads()
+            ? " with virtual threads" : " with " + threads + " threads"));
+    }
+}
@@ -0,0 +1,259 @@
+package server;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import mancala.GameCodec;
+import mancala.GameEvent;
+import mancala.GameRecord;
+import mancala.GameRules;
+import mancala.InvalidMoveException;
+import mancala.MancalaGame;
+import mancala.Player;
+
+/**
+ * One live game on a GameServer. Every method locks the session, so the requests of one game are
+ * applied one at a time while different games run in parallel.
+ * Spectators are sent the game's events by a GameBroadcaster, made when the first one starts watching.
+ */
+final class GameSession {
+    private static final int MAGIC = 0x4d534553; // "MSES"
+    private static final String[] RESULTS = {GameRecord.UNFINISHED, GameRecord.ONE_WINS, GameRecord.TWO_WINS,
+        GameRecord.DRAW};
+    private final long id;
+    private final MancalaGame game;
+    private int moveCount;
+    private String result = GameRecord.UNFINISHED;
+    private volatile long lastAccess;
+    private boolean evicted; // Set under the lock once the session has left the GameRegistry
+    private GameBroadcaster spectators; // Not saved, a session is only evicted with no one watching
+
+    /**
+     * Constructor to start a game from the starting position.
+     *
+     * @param newId The session id.
+     * @param isKalah True for Kalah, false for Ayo.
+     * @param one The name of player one.
+     * @param two The name of player two.
+     */
+    GameSession(final long newId, final boolean isKalah, final String one, final String two) {
+        this.id = newId;
+        this.game = new MancalaGame(isKalah, true);
+        this.game.setPlayers(new Player(one), new Player(two));
+        this.lastAccess = System.nanoTime();
+    }
+
+    private GameSession(final long newId, final MancalaGame newGame, final int newMoveCount,
+        final String newResult) {
+        this.id = newId;
+        this.game = newGame;
+        this.moveCount = newMoveCount;
+        this.result = newResult;
+        this.lastAccess = System.nanoTime();
+    }
+
+    /**
+     * Encodes the session with the game in the compact save format, see GameCodec.
+     *
+     * @return A buffer ready to be written.
+     */
+    synchronized ByteBuffer encode() {
+        final ByteBuffer game = GameCodec.encodeGame(this.game);
+        final ByteBuffer buffer = ByteBuffer.allocate(17 + game.remaining());
+        buffer.putInt(MAGIC).putLong(this.id).putInt(this.moveCount);
+        int code = 0;
+        while (!RESULTS[code].equals(this.result)) {
+            code++;
+        }
+        buffer.put((byte) code).put(game);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Decodes a session written by encode.
+     *
+     * @param buffer The buffer to read from its position.
+     * @return The session, last used now.
+     * @throws IOException If the buffer is not a session or is cut short.
+     */
+    static GameSession decode(final ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < 17 || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a saved session");
+        }
+        final long id = buffer.getLong();
+        final int moves = buffer.getInt();
+        final int code = buffer.get();
+        final Object game = GameCodec.decode(buffer);
+        if (code < 0 || code >= RESULTS.length || !(game instanceof MancalaGame)) {
+            throw new IOException("Corrupt saved session");
+        }
+        return new GameSession(id, (MancalaGame) game, moves, RESULTS[code]);
+    }
+
+    /**
+     * Makes a session which holds a game's place in the GameRegistry while it is read back.
+     * It has no game and is evicted from the start, so requests that find it look the game up again.
+     *
+     * @param newId The session id.
+     * @return The placeholder.
+     */
+    static GameSession placeholder(final long newId) {
+        final GameSession session = new GameSession(newId, null, 0, GameRecord.UNFINISHED);
+        session.evicted = true;
+        return session;
+    }
+
+    /* Only called with the lock held */
+    boolean isEvicted() {
+        return this.evicted;
+    }
+
+    /* Only called with the lock held, requests which find the session afterwards look it up again */
+    void setEvicted() {
+        this.evicted = true;
+        if (this.spectators != null) {
+            this.spectators.end();
+        }
+    }
+
+    /**
+     * Starts watching the game, see GameBroadcaster.subscribe.
+     *
+     * @param queueCapacity The most frames queued for the spectator, used by the first one to watch.
+     * @return The spectator's subscription.
+     */
+    synchronized GameBroadcaster.Subscription watch(final int queueCapacity) {
+        this.lastAccess = System.nanoTime();
+        if (this.spectators == null) {
+            this.spectators = new GameBroadcaster(queueCapacity);
+            this.game.setGameListener(this.spectators);
+            if (!GameRecord.UNFINISHED.equals(this.result)) {
+                this.spectators.end();
+            }
+        }
+        return this.spectators.subscribe(board());
+    }
+
+    /* Only called with the lock held */
+    boolean hasSpectators() {
+        return this.spectators != null && this.spectators.getSubscriberCount() > 0;
+    }
+
+    long getId() {
+        return this.id;
+    }
+
+    /* When the session was last used, from System.nanoTime */
+    long getLastAccess() {
+        return this.lastAccess;
+    }
+
+    /**
+     * Plays a pit for the player to move, passing the turn unless it earned a bonus turn.
+     * Once a side is empty the remaining stones are captured and the result is set.
+     *
+     * @param pit The pit (1-12) to play.
+     * @return The state after the move.
+     * @throws InvalidMoveException If the pit is not legal or the game is over.
+     */
+    synchronized String move(final int pit) throws InvalidMoveException {
+        this.lastAccess = System.nanoTime();
+        if (!GameRecord.UNFINISHED.equals(this.result)) {
+            throw new InvalidMoveException();
+        }
+        this.game.move(pit);
+        this.moveCount++;
+        final GameRules board = this.game.getBoard();
+        if (!board.isBonus()) {
+            this.game.setCurrentPlayer(this.game.getPlayers().get(this.game.getCurrentPlayerNum() % 2));
+        }
+        if (this.game.isGameOver()) {
+            if (board.isSideEmpty(1)) {
+                board.captureSide(12);
+            } else {
+                board.captureSide(1);
+            }
+            this.result = GameRecord.resultOf(board);
+        }
+        return toJson();
+    }
+
+    /**
+     * Ends the game with a player giving up.
+     *
+     * @param playerNum The player resigning (1 or 2).
+     * @return The state after resigning.
+     * @throws InvalidMoveException If the game is already over.
+     */
+    synchronized String resign(final int playerNum) throws InvalidMoveException {
+        this.lastAccess = System.nanoTime();
+        if (!GameRecord.UNFINISHED.equals(this.result)) {
+            throw new InvalidMoveException();
+        }
+        this.result = playerNum == 1 ? GameRecord.TWO_WINS : GameRecord.ONE_WINS;
+        if (this.spectators != null) {
+            this.spectators.onEvent(new GameEvent(GameEvent.GAME_OVER, 3 - playerNum, 0, 0, board()));
+        }
+        return toJson();
+    }
+
+    /**
+     * Gets the state of the game.
+     *
+     * @return The state as a JSON object.
+     */
+    synchronized String state() {
+        this.lastAccess = System.nanoTime();
+        return toJson();
+    }
+
+    /* The board as a GameEvent holds it, positions 0-13 then the side to move */
+    private int[] board() {
+        final int[] board = new int[15];
+        this.game.getBoard().getPosition(board);
+        board[14] = this.game.getCurrentPlayerNum();
+        return board;
+    }
+
+    /*
+     * {"id":1,"rules":"kalah","one":"A","two":"B","pits":[4,...],"stores":[0,0],"turn":1,"legal":63,"moves":0,
+     * "result":"*"} with pits 1-12 in order, legal the GameRules.legalMoves mask of the player to move and
+     * result one of the GameRecord results
+     */
+    private String toJson() {
+        final StringBuilder json = new StringBuilder(192);
+        json.append("{\"id\":").append(this.id)
+            .append(",\"rules\":\"").append(this.game.isKalah() ? "kalah" : "ayo")
+            .append("\",\"one\":");
+        quote(json, this.game.getPlayers().get(0).getName());
+        json.append(",\"two\":");
+        quote(json, this.game.getPlayers().get(1).getName());
+        json.append(",\"pits\":[");
+        for (int pit = 1; pit <= 12; pit++) {
+            json.append(pit == 1 ? "" : ",").append(this.game.getNumStones(pit));
+        }
+        final boolean over = !GameRecord.UNFINISHED.equals(this.result);
+        json.append("],\"stores\":[").append(this.game.getStoreCount(1)).append(',')
+            .append(this.game.getStoreCount(2))
+            .append("],\"turn\":").append(this.game.getCurrentPlayerNum())
+            .append(",\"legal\":").append(over ? 0 : this.game.legalMoves())
+            .append(",\"moves\":").append(this.moveCount)
+            .append(",\"result\":\"").append(this.result).append("\"}");
+        return json.toString();
+    }
+
+    /* Appends a JSON string, escaping quotes, backslashes and control characters */
+    static void quote(final StringBuilder json, final String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+}
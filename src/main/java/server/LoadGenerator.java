@@ -0,0 +1,260 @@
+package server;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import mancala.MoveMask;
+
+/**
+ * Plays random games against a GameServer from many client threads and reports the request rate and latency.
+ * Each client starts a game, plays random legal pits for both sides until it ends, deletes it and starts again.
+ */
+public final class LoadGenerator {
+    private final HttpClient client;
+    private final String base;
+    private final AtomicLong errors = new AtomicLong();
+
+    /**
+     * The totals of a load run.
+     */
+    public static final class Report {
+        private final long requests;
+        private final long games;
+        private final long errors;
+        private final long[] latencies; // Sorted, in nanoseconds
+        private final long elapsedNanos;
+
+        Report(final long newRequests, final long newGames, final long newErrors, final long[] newLatencies,
+            final long newElapsedNanos) {
+            this.requests = newRequests;
+            this.games = newGames;
+            this.errors = newErrors;
+            this.latencies = newLatencies;
+            this.elapsedNanos = newElapsedNanos;
+        }
+
+        /**
+         * Gets the number of requests answered.
+         *
+         * @return The number of requests.
+         */
+        public long getRequests() {
+            return this.requests;
+        }
+
+        /**
+         * Gets the number of games played to the end.
+         *
+         * @return The number of games.
+         */
+        public long getGames() {
+            return this.games;
+        }
+
+        /**
+         * Gets the number of requests which failed or were not answered as expected.
+         *
+         * @return The number of errors.
+         */
+        public long getErrors() {
+            return this.errors;
+        }
+
+        /**
+         * Gets the requests answered per second.
+         *
+         * @return The request rate.
+         */
+        public double getRequestsPerSecond() {
+            return this.elapsedNanos == 0 ? 0 : this.requests * 1e9 / this.elapsedNanos;
+        }
+
+        /**
+         * Gets a latency percentile.
+         *
+         * @param percent The percentile, from 0 to 100.
+         * @return The latency in nanoseconds, 0 if there were no requests.
+         */
+        public long getPercentile(final double percent) {
+            if (this.latencies.length == 0) {
+                return 0;
+            }
+            final int index = (int) Math.ceil(percent / 100 * this.latencies.length) - 1;
+            return this.latencies[Math.max(0, Math.min(this.latencies.length - 1, index))];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d requests, %d games, %d errors in %.2fs: %.0f req/s, p50 %.2f ms, p99 %.2f ms,"
+                + " max %.2f ms", this.requests, this.games, this.errors, this.elapsedNanos / 1e9,
+                getRequestsPerSecond(), getPercentile(50) / 1e6, getPercentile(99) / 1e6, getPercentile(100) / 1e6);
+        }
+    }
+
+    /**
+     * Constructor to initialize a load generator.
+     *
+     * @param baseUrl The server, such as http://localhost:8080.
+     */
+    public LoadGenerator(final String baseUrl) {
+        this.base = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10)).build();
+    }
+
+    /**
+     * Plays games from a number of client threads for a while.
+     *
+     * @param clients The number of client threads, each with one game at a time.
+     * @param durationMillis How long to send requests for.
+     * @param seed The seed of the random moves.
+     * @return The totals.
+     * @throws InterruptedException If interrupted while waiting for the clients.
+     */
+    public Report run(final int clients, final long durationMillis, final long seed) throws InterruptedException {
+        final long start = System.nanoTime();
+        final long end = start + durationMillis * 1_000_000;
+        final Latencies[] latencies = new Latencies[clients];
+        final long[] games = new long[clients];
+        final Thread[] threads = new Thread[clients];
+        for (int c = 0; c < clients; c++) {
+            final int index = c;
+            latencies[c] = new Latencies();
+            threads[c] = new Thread(() -> {
+                final SplittableRandom random = new SplittableRandom(seed + index);
+                while (System.nanoTime() < end) {
+                    if (playGame(random, latencies[index], end)) {
+                        games[index]++;
+                    }
+                }
+            }, "load-client");
+            threads[c].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        final long elapsed = System.nanoTime() - start;
+
+        int total = 0;
+        long played = 0;
+        for (int c = 0; c < clients; c++) {
+            total += latencies[c].count;
+            played += games[c];
+        }
+        final long[] all = new long[total];
+        int at = 0;
+        for (final Latencies client : latencies) {
+            System.arraycopy(client.times, 0, all, at, client.count);
+            at += client.count;
+        }
+        Arrays.sort(all);
+        return new Report(total, played, this.errors.get(), all, elapsed);
+    }
+
+    /* The latencies of one client thread */
+    private static final class Latencies {
+        private long[] times = new long[4096];
+        private int count;
+
+        void add(final long nanos) {
+            if (this.count == this.times.length) {
+                this.times = Arrays.copyOf(this.times, this.count * 2);
+            }
+            this.times[this.count++] = nanos;
+        }
+    }
+
+    /* Plays one game, returning true if it was played to the end */
+    private boolean playGame(final SplittableRandom random, final Latencies latencies, final long end) {
+        String state = send(HttpRequest.newBuilder(URI.create(this.base + "/games?rules="
+            + (random.nextBoolean() ? "kalah" : "ayo"))).POST(HttpRequest.BodyPublishers.noBody()), latencies);
+        if (state == null) {
+            return false;
+        }
+        final long id = field(state, "id");
+        while (state != null && field(state, "legal") != 0 && System.nanoTime() < end) {
+            int m = (int) field(state, "legal");
+            for (int bit = random.nextInt(Integer.bitCount(m)); bit > 0; bit--) {
+                m &= m - 1;
+            }
+            final int pit = MoveMask.pitOf(Integer.numberOfTrailingZeros(m), (int) field(state, "turn"));
+            state = send(HttpRequest.newBuilder(URI.create(this.base + "/games/" + id + "/move?pit=" + pit))
+                .POST(HttpRequest.BodyPublishers.noBody()), latencies);
+        }
+        final boolean finished = state != null && field(state, "legal") == 0;
+        send(HttpRequest.newBuilder(URI.create(this.base + "/games/" + id)).DELETE(), latencies);
+        return finished;
+    }
+
+    private String send(final HttpRequest.Builder request, final Latencies latencies) {
+        final long start = System.nanoTime();
+        try {
+            final HttpResponse<String> response = this.client.send(request.build(),
+                HttpResponse.BodyHandlers.ofString());
+            latencies.add(System.nanoTime() - start);
+            if (response.statusCode() >= 300) {
+                this.errors.incrementAndGet();
+                return null;
+            }
+            return response.body();
+        } catch (IOException e) {
+            this.errors.incrementAndGet();
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /* Reads a number field from a flat JSON object */
+    static long field(final String json, final String name) {
+        final String key = "\"" + name + "\":";
+        int i = json.indexOf(key);
+        if (i < 0) {
+            return -1;
+        }
+        i += key.length();
+        long value = 0;
+        while (i < json.length() && Character.isDigit(json.charAt(i))) {
+            value = value * 10 + json.charAt(i++) - '0';
+        }
+        return value;
+    }
+
+    /**
+     * Runs a load test from the command line.
+     * Arguments: [server url, or local to start a server in this process] [clients] [seconds]
+     *
+     * @param args The command line arguments.
+     * @throws IOException If a local server could not be started.
+     * @throws InterruptedException If interrupted while waiting for the clients.
+     */
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        final String target = args.length > 0 ? args[0] : "local";
+        final int clients = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        final long seconds = args.length > 2 ? Long.parseLong(args[2]) : 10;
+        GameServer server = null;
+        String url = target;
+        if ("local".equals(target)) {
+            server = new GameServer(new InetSocketAddress("127.0.0.1", 0), GameServer.DEFAULT_MAX_SESSIONS,
+                Runtime.getRuntime().availableProcessors() * 4);
+            server.start();
+            url = "http://127.0.0.1:" + server.getPort();
+        }
+        try {
+            final LoadGenerator generator = new LoadGenerator(url);
+            generator.run(clients, Math.min(seconds * 1000, 2000), 1); // Warm up
+            System.out.println(new LoadGenerator(url).run(clients, seconds * 1000, 2));
+        } finally {
+            if (server != null) {
+                server.stop(0);
+            }
+        }
+    }
+}
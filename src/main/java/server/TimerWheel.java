@@ -0,0 +1,104 @@
+package server;
+import java.util.Arrays;
+
+/**
+ * A hashed timer wheel of ids and deadlines. Scheduling and firing are O(1) per timer: a timer goes in the slot
+ * of its deadline's tick, and advancing visits only the slots of the ticks that passed. Timers further away than
+ * one turn of the wheel stay in their slot until the turn they are due.
+ * Timers are never cancelled, whoever receives a fired id checks whether it still applies.
+ */
+final class TimerWheel {
+    private final long tickNanos;
+    private final long[][] ids;
+    private final long[][] deadlines;
+    private final int[] sizes;
+    private final int mask;
+    private long tick; // The last tick advanced past
+
+    /**
+     * Constructor to initialize an empty wheel.
+     *
+     * @param newTickNanos The length of a tick, the resolution of the timers.
+     * @param slots The number of slots, rounded up to a power of two.
+     * @param now The current time from System.nanoTime.
+     */
+    TimerWheel(final long newTickNanos, final int slots, final long now) {
+        final int size = Integer.highestOneBit(Math.max(2, slots) * 2 - 1);
+        this.tickNanos = newTickNanos;
+        this.ids = new long[size][];
+        this.deadlines = new long[size][];
+        this.sizes = new int[size];
+        this.mask = size - 1;
+        this.tick = now / newTickNanos;
+    }
+
+    /**
+     * Adds a timer, one already due fires on the next advance.
+     *
+     * @param id The id to fire.
+     * @param deadline When to fire it, from System.nanoTime.
+     */
+    synchronized void schedule(final long id, final long deadline) {
+        final int slot = (int) (Math.max(deadline / this.tickNanos, this.tick + 1) & this.mask);
+        if (this.ids[slot] == null) {
+            this.ids[slot] = new long[8];
+            this.deadlines[slot] = new long[8];
+        } else if (this.sizes[slot] == this.ids[slot].length) {
+            this.ids[slot] = Arrays.copyOf(this.ids[slot], this.sizes[slot] * 2);
+            this.deadlines[slot] = Arrays.copyOf(this.deadlines[slot], this.sizes[slot] * 2);
+        }
+        this.ids[slot][this.sizes[slot]] = id;
+        this.deadlines[slot][this.sizes[slot]++] = deadline;
+    }
+
+    /**
+     * Moves the wheel to a time, removing the timers which are due.
+     *
+     * @param now The current time from System.nanoTime.
+     * @return The ids of the timers due, in no particular order.
+     */
+    synchronized long[] advance(final long now) {
+        final long target = now / this.tickNanos;
+        long[] due = new long[16];
+        int count = 0;
+        // A wheel left alone for a whole turn needs each slot visited once
+        final long last = Math.min(target, this.tick + this.mask + 1);
+        for (long t = this.tick + 1; t <= last; t++) {
+            final int slot = (int) (t & this.mask);
+            final long[] slotIds = this.ids[slot];
+            final long[] slotDeadlines = this.deadlines[slot];
+            int kept = 0;
+            for (int i = 0; i < this.sizes[slot]; i++) {
+                if (slotDeadlines[i] / this.tickNanos <= target) {
+                    if (count == due.length) {
+                        due = Arrays.copyOf(due, count * 2);
+                    }
+                    due[count++] = slotIds[i];
+                } else {
+                    slotIds[kept] = slotIds[i];
+                    slotDeadlines[kept++] = slotDeadlines[i];
+                }
+            }
+            this.sizes[slot] = kept;
+            if (kept == 0 && slotIds != null && slotIds.length > 64) {
+                this.ids[slot] = null; // Slots which held a burst of timers give their memory back
+                this.deadlines[slot] = null;
+            }
+        }
+        this.tick = Math.max(this.tick, target);
+        return Arrays.copyOf(due, count);
+    }
+
+    /**
+     * Counts the timers waiting, fired or not yet.
+     *
+     * @return The number of timers.
+     */
+    synchronized int size() {
+        int total = 0;
+        for (final int size : this.sizes) {
+            total += size;
+        }
+        return total;
+    }
+}
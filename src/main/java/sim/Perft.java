@@ -0,0 +1,178 @@
+package sim;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import mancala.AyoRules;
+import mancala.GameRules;
+import mancala.InvalidMoveException;
+import mancala.KalahRules;
+import mancala.MoveMask;
+
+/**
+ * Counts the leaves of the game tree to a fixed depth ("perft").
+ * Every move is one ply, a bonus turn is a ply where the same player moves again, and a game that ends
+ * before the depth is reached counts as one leaf. Equal counts from two board backends are a quick check
+ * that they play the same game, and leaves per second is a throughput benchmark for the move generator.
+ * Moves are played in place with GameRules.makeMove, which sows through the same code as moveStones.
+ */
+public final class Perft {
+
+    private Perft() {
+    }
+
+    /**
+     * Counts the leaves below a position.
+     * 
+     * @param position The position, back to its starting state when this returns.
+     * @param depth The number of plies to look ahead.
+     * @return The number of leaves.
+     */
+    public static long perft(final GameRules position, final int depth) {
+        final int player = position.getSideToMove();
+        final int mask = position.legalMoves(player);
+        if (depth == 0 || mask == 0 || position.getSideTotal(1) == 0 || position.getSideTotal(2) == 0) {
+            return 1;
+        }
+        if (depth == 1) {
+            return MoveMask.count(mask); // Bulk count, every move is a leaf
+        }
+        long leaves = 0;
+        for (int m = mask; m != 0; m &= m - 1) {
+            play(position, MoveMask.pitOf(Integer.numberOfTrailingZeros(m), player), player);
+            leaves += perft(position, depth - 1);
+            position.unmakeMove();
+        }
+        return leaves;
+    }
+
+    /**
+     * Counts the leaves below each move of a position.
+     * 
+     * @param position The position, back to its starting state when this returns.
+     * @param depth The number of plies to look ahead, including the root move.
+     * @return The leaves indexed by pit number (0-12), 0 for pits that cannot be played.
+     */
+    public static long[] divide(final GameRules position, final int depth) {
+        final long[] leaves = new long[13];
+        final int player = position.getSideToMove();
+        for (int m = position.legalMoves(player); m != 0; m &= m - 1) {
+            final int pit = MoveMask.pitOf(Integer.numberOfTrailingZeros(m), player);
+            play(position, pit, player);
+            leaves[pit] = perft(position, depth - 1);
+            position.unmakeMove();
+        }
+        return leaves;
+    }
+
+    /**
+     * Counts the leaves below each move of a position, with the moves split over a pool of threads.
+     * 
+     * @param position The position, it is not changed, each move is counted on a copy.
+     * @param depth The number of plies to look ahead, including the root move.
+     * @param threads The number of threads.
+     * @return The leaves indexed by pit number (0-12), 0 for pits that cannot be played.
+     */
+    public static long[] parallelDivide(final GameRules position, final int depth, final int threads) {
+        final ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            final Thread thread = new Thread(runnable, "perft");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            final int player = position.getSideToMove();
+            final List<Future<Long>> counts = new ArrayList<>();
+            final List<Integer> pits = new ArrayList<>();
+            for (int m = position.legalMoves(player); m != 0; m &= m - 1) {
+                final int pit = MoveMask.pitOf(Integer.numberOfTrailingZeros(m), player);
+                final GameRules copy = position.copyPosition(); // Boards are not thread safe
+                pits.add(pit);
+                counts.add(pool.submit(() -> {
+                    play(copy, pit, player);
+                    return perft(copy, depth - 1);
+                }));
+            }
+
+            final long[] leaves = new long[13];
+            for (int i = 0; i < pits.size(); i++) {
+                leaves[pits.get(i)] = counts.get(i).get();
+            }
+            return leaves;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while counting", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Perft worker failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /* Makes a move that is known to be legal */
+    private static void play(final GameRules position, final int pit, final int player) {
+        try {
+            position.makeMove(pit, player);
+        } catch (InvalidMoveException e) {
+            throw new IllegalStateException("Counted an illegal move", e);
+        }
+    }
+
+    private static long sum(final long[] leaves) {
+        long total = 0;
+        for (final long count : leaves) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Counts leaves from the command line.
+     * Arguments: [kalah|ayo] [depth] [threads] [divide] [14 comma separated counts, 6 & 13 are stores] [side to move]
+     * With more than one thread the root moves are counted in parallel, divide prints the count of each root move.
+     * 
+     * @param args The command line arguments.
+     */
+    public static void main(final String[] args) {
+        final boolean kalah = args.length == 0 || !"ayo".equals(args[0]);
+        final int depth = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        final int threads = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        final boolean showDivide = args.length > 3 && "divide".equals(args[3]);
+        final GameRules position = kalah ? new KalahRules(true) : new AyoRules(true);
+        if (args.length > 4) {
+            final String[] parts = args[4].split(",");
+            final int[] counts = new int[14];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = Integer.parseInt(parts[i].trim());
+            }
+            position.setPosition(counts, args.length > 5 ? Integer.parseInt(args[5]) : 1);
+        }
+
+        final long start = System.nanoTime();
+        final long nodes;
+        long[] leaves = null;
+        if (depth == 0) {
+            nodes = 1;
+        } else if (threads > 1) {
+            leaves = parallelDivide(position, depth, threads);
+            nodes = sum(leaves);
+        } else if (showDivide) {
+            leaves = divide(position, depth);
+            nodes = sum(leaves);
+        } else {
+            nodes = perft(position, depth);
+        }
+        final long elapsed = System.nanoTime() - start;
+
+        if (showDivide && leaves != null) {
+            for (int pit = 1; pit < leaves.length; pit++) {
+                if (leaves[pit] != 0) {
+                    System.out.println(pit + ": " + leaves[pit]);
+                }
+            }
+        }
+        System.out.printf("%s perft(%d) = %d in %.3f s, %.0f nodes/s%n", kalah ? "Kalah" : "Ayo", depth, nodes,
+            elapsed / 1e9, nodes * 1e9 / Math.max(1, elapsed));
+    }
+}
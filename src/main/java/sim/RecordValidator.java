@@ -0,0 +1,247 @@
+package sim;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import mancala.GameRecord;
+import mancala.GameRecordReader;
+import mancala.InvalidMoveException;
+import mancala.MalformedRecordException;
+
+/**
+ * Checks a file of text game records by replaying every game through KalahRules or AyoRules.
+ * One thread parses while a pool replays batches of games, with a fixed number of batches in flight,
+ * so a file of any size is checked in constant memory.
+ */
+public class RecordValidator {
+    private static final int BATCH = 256;
+    private final int threadCount;
+
+    /**
+     * The totals of a validation run.
+     */
+    public static final class Summary {
+        private final long games;
+        private final long malformed;
+        private final long illegal;
+        private final long wrongResults;
+        private final long moves;
+        private final long elapsedNanos;
+
+        Summary(final long newGames, final long newMalformed, final long newIllegal, final long newWrongResults,
+            final long newMoves, final long newElapsedNanos) {
+            this.games = newGames;
+            this.malformed = newMalformed;
+            this.illegal = newIllegal;
+            this.wrongResults = newWrongResults;
+            this.moves = newMoves;
+            this.elapsedNanos = newElapsedNanos;
+        }
+
+        /**
+         * Gets the number of records read, malformed ones included.
+         *
+         * @return The number of records.
+         */
+        public long getGames() {
+            return this.games;
+        }
+
+        /**
+         * Gets the number of records which could not be parsed.
+         *
+         * @return The number of malformed records.
+         */
+        public long getMalformed() {
+            return this.malformed;
+        }
+
+        /**
+         * Gets the number of games with a move which is not legal.
+         *
+         * @return The number of illegal games.
+         */
+        public long getIllegal() {
+            return this.illegal;
+        }
+
+        /**
+         * Gets the number of games whose recorded result is not the result of their moves.
+         *
+         * @return The number of wrong results.
+         */
+        public long getWrongResults() {
+            return this.wrongResults;
+        }
+
+        /**
+         * Gets the number of games with no problems.
+         *
+         * @return The number of valid games.
+         */
+        public long getValid() {
+            return this.games - this.malformed - this.illegal - this.wrongResults;
+        }
+
+        /**
+         * Gets the number of moves replayed.
+         *
+         * @return The number of moves.
+         */
+        public long getMoves() {
+            return this.moves;
+        }
+
+        /**
+         * Gets the time the run took.
+         *
+         * @return The elapsed time in nanoseconds.
+         */
+        public long getElapsedNanos() {
+            return this.elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            final double seconds = this.elapsedNanos / 1e9;
+            return String.format("%d games, %d valid, %d malformed, %d illegal, %d wrong results, %d moves in %.2fs"
+                + " (%.0f games/s)", this.games, getValid(), this.malformed, this.illegal, this.wrongResults,
+                this.moves, seconds, seconds == 0 ? 0 : this.games / seconds);
+        }
+    }
+
+    /**
+     * Constructor to initialize a validator.
+     *
+     * @param newThreadCount The number of threads replaying games.
+     */
+    public RecordValidator(final int newThreadCount) {
+        if (newThreadCount < 1) {
+            throw new IllegalArgumentException("At least one worker thread is needed");
+        }
+        this.threadCount = newThreadCount;
+    }
+
+    /**
+     * Reads and replays every record in a stream.
+     *
+     * @param in The stream of records, which is not closed.
+     * @param problems Receives a line for each bad record, called by one thread at a time.
+     * @return The totals.
+     * @throws IOException If the stream could not be read.
+     */
+    public Summary validate(final InputStream in, final Consumer<String> problems) throws IOException {
+        final long start = System.nanoTime();
+        final AtomicLong illegal = new AtomicLong();
+        final AtomicLong wrongResults = new AtomicLong();
+        final AtomicLong moves = new AtomicLong();
+        long games = 0;
+        long malformed = 0;
+        final Semaphore inFlight = new Semaphore(this.threadCount * 2);
+        final ExecutorService pool = Executors.newFixedThreadPool(this.threadCount, runnable -> {
+            final Thread thread = new Thread(runnable, "record-validator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            final GameRecordReader reader = new GameRecordReader(in);
+            List<GameRecord> batch = new ArrayList<>(BATCH);
+            long[] numbers = new long[BATCH]; // Game numbers of the batch, malformed records are not in it
+            while (true) {
+                GameRecord record;
+                try {
+                    record = reader.next();
+                } catch (MalformedRecordException e) {
+                    games++;
+                    malformed++;
+                    report(problems, "Game " + games + ": " + e.getMessage());
+                    continue;
+                }
+                if (record != null) {
+                    games++;
+                    numbers[batch.size()] = games;
+                    batch.add(record);
+                }
+                if (batch.size() == BATCH || (record == null && !batch.isEmpty())) {
+                    final List<GameRecord> full = batch;
+                    final long[] fullNumbers = numbers;
+                    batch = new ArrayList<>(BATCH);
+                    numbers = new long[BATCH];
+                    inFlight.acquireUninterruptibly();
+                    pool.execute(() -> {
+                        try {
+                            check(full, fullNumbers, illegal, wrongResults, moves, problems);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                }
+                if (record == null) {
+                    break;
+                }
+            }
+        } finally {
+            pool.shutdown();
+            try {
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return new Summary(games, malformed, illegal.get(), wrongResults.get(), moves.get(), System.nanoTime() - start);
+    }
+
+    private static void check(final List<GameRecord> batch, final long[] numbers, final AtomicLong illegal,
+        final AtomicLong wrongResults, final AtomicLong moves, final Consumer<String> problems) {
+        long replayed = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            final GameRecord record = batch.get(i);
+            replayed += record.getMoveCount();
+            try {
+                final String result = GameRecord.resultOf(record.replay());
+                if (record.getResult() != null && !record.getResult().equals(result)) {
+                    wrongResults.incrementAndGet();
+                    report(problems, "Game " + numbers[i] + ": recorded " + record.getResult() + " but the moves give "
+                        + result);
+                }
+            } catch (InvalidMoveException e) {
+                illegal.incrementAndGet();
+                report(problems, "Game " + numbers[i] + ": a move is not legal");
+            }
+        }
+        moves.addAndGet(replayed);
+    }
+
+    private static void report(final Consumer<String> problems, final String problem) {
+        synchronized (problems) {
+            problems.accept(problem);
+        }
+    }
+
+    /**
+     * Validates a record file from the command line.
+     * Arguments: [record file] [threads]
+     *
+     * @param args The command line arguments.
+     * @throws IOException If the file could not be read.
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: RecordValidator <record file> [threads]");
+            return;
+        }
+        final int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(Paths.get(args[0])))) {
+            System.out.println(new RecordValidator(threads).validate(in, System.out::println));
+        }
+    }
+}
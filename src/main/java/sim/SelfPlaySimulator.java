@@ -0,0 +1,206 @@
+package sim;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import mancala.InvalidMoveException;
+import mancala.MancalaGame;
+import mancala.Player;
+
+/**
+ * Plays many games between two strategies without a user interface.
+ * Games are shared out over a pool of workers, worker w playing games w, w + threads, w + 2 * threads and so on,
+ * each with its own strategies and its own random generator split in order from one seed, so a run with the same
+ * seed and thread count plays the same games. Only running totals are kept, finished games are thrown away.
+ */
+public class SelfPlaySimulator {
+    /* Games still going after this many moves are stopped and counted as draws */
+    public static final int MAX_MOVES = 1000;
+    private final boolean kalah;
+    private final Supplier<Strategy> playerOne;
+    private final Supplier<Strategy> playerTwo;
+    private final int threadCount;
+    private final long seed;
+
+    /* Running totals of the current run, guarded by this */
+    private long games;
+    private long oneWins;
+    private long twoWins;
+    private long draws;
+    private long moves;
+    private long start;
+
+    /**
+     * Constructor to initialize a simulator.
+     * 
+     * @param isKalah True to play Kalah, false to play Ayo.
+     * @param newPlayerOne A factory for the strategy of player one.
+     * @param newPlayerTwo A factory for the strategy of player two.
+     * @param newThreadCount The number of worker threads.
+     * @param newSeed The seed every random generator is split from.
+     */
+    public SelfPlaySimulator(final boolean isKalah, final Supplier<Strategy> newPlayerOne,
+    final Supplier<Strategy> newPlayerTwo, final int newThreadCount, final long newSeed) {
+        if (newThreadCount < 1) {
+            throw new IllegalArgumentException("At least one worker thread is needed");
+        }
+        this.kalah = isKalah;
+        this.playerOne = newPlayerOne;
+        this.playerTwo = newPlayerTwo;
+        this.threadCount = newThreadCount;
+        this.seed = newSeed;
+    }
+
+    /**
+     * Plays a number of games and reports the totals as they grow.
+     * 
+     * @param gameCount The number of games to play.
+     * @param reportEvery How many finished games between reports, 0 or less to only report at the end.
+     * @param reporter Receives the totals, called by one worker at a time in the order games finish.
+     * @return The totals over every game.
+     */
+    public SimulationStats run(final long gameCount, final long reportEvery, final Consumer<SimulationStats> reporter) {
+        synchronized (this) {
+            this.games = 0;
+            this.oneWins = 0;
+            this.twoWins = 0;
+            this.draws = 0;
+            this.moves = 0;
+            this.start = System.nanoTime();
+        }
+
+        final SplittableRandom root = new SplittableRandom(this.seed);
+        final ExecutorService pool = Executors.newFixedThreadPool(this.threadCount, runnable -> {
+            final Thread thread = new Thread(runnable, "self-play");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            final List<Future<?>> workers = new ArrayList<>();
+            for (int w = 0; w < this.threadCount; w++) {
+                final int first = w;
+                final SplittableRandom random = root.split();
+                workers.add(pool.submit(() -> {
+                    final Strategy one = this.playerOne.get();
+                    final Strategy two = this.playerTwo.get();
+                    for (long i = first; i < gameCount; i += this.threadCount) {
+                        playGame(one, two, random, reportEvery, reporter);
+                    }
+                }));
+            }
+            for (final Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while simulating", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Simulation worker failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        final SimulationStats totals = snapshot();
+        if (reportEvery <= 0 || totals.getGames() % reportEvery != 0) {
+            reporter.accept(totals);
+        }
+        return totals;
+    }
+
+    private void playGame(final Strategy one, final Strategy two, final SplittableRandom random,
+        final long reportEvery, final Consumer<SimulationStats> reporter) {
+        final MancalaGame game = new MancalaGame(this.kalah, true);
+        final Player onePlayer = new Player("One");
+        final Player twoPlayer = new Player("Two");
+        game.setPlayers(onePlayer, twoPlayer);
+
+        int played = 0;
+        while (!game.isGameOver() && played < MAX_MOVES) {
+            final boolean playerOneToMove = game.getCurrentPlayerNum() == 1;
+            final int pit = (playerOneToMove ? one : two).chooseMove(game, random);
+            try {
+                game.move(pit);
+            } catch (InvalidMoveException e) {
+                throw new IllegalStateException("Strategy chose an illegal move: " + pit, e);
+            }
+            if (!game.getBoard().isBonus()) {
+                game.setCurrentPlayer(playerOneToMove ? twoPlayer : onePlayer);
+            }
+            played++;
+        }
+
+        int winner = 0;
+        if (game.isGameOver()) {
+            // Stones left on a side go to its owner, as in the user interface
+            game.getBoard().captureSide(game.getBoard().isSideEmpty(1) ? 12 : 1);
+            final int oneStore = game.getStoreCount(1);
+            final int twoStore = game.getStoreCount(2);
+            winner = oneStore > twoStore ? 1 : twoStore > oneStore ? 2 : 0;
+        }
+        record(winner, played, reportEvery, reporter);
+    }
+
+    private synchronized void record(final int winner, final int played, final long reportEvery,
+        final Consumer<SimulationStats> reporter) {
+        this.games++;
+        this.moves += played;
+        if (winner == 1) {
+            this.oneWins++;
+        } else if (winner == 2) {
+            this.twoWins++;
+        } else {
+            this.draws++;
+        }
+        if (reportEvery > 0 && this.games % reportEvery == 0) {
+            reporter.accept(snapshot());
+        }
+    }
+
+    private synchronized SimulationStats snapshot() {
+        return new SimulationStats(this.games, this.oneWins, this.twoWins, this.draws, this.moves,
+            System.nanoTime() - this.start);
+    }
+
+    /**
+     * Runs a simulation from the command line.
+     * Arguments: [games] [threads] [seed] [kalah|ayo] [player one] [player two] [csv file, or - for stdout]
+     * Players are random, greedy, search or search:DEPTH. Without a csv file, readable lines are printed.
+     * 
+     * @param args The command line arguments.
+     * @throws IOException If the csv file cannot be written.
+     */
+    public static void main(final String[] args) throws IOException {
+        final long gameCount = args.length > 0 ? Long.parseLong(args[0]) : 10_000;
+        final int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        final long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        final boolean isKalah = args.length <= 3 || !"ayo".equals(args[3]);
+        final Supplier<Strategy> one = Strategies.byName(args.length > 4 ? args[4] : "random");
+        final Supplier<Strategy> two = Strategies.byName(args.length > 5 ? args[5] : "greedy");
+        final String csv = args.length > 6 ? args[6] : null;
+
+        final SelfPlaySimulator simulator = new SelfPlaySimulator(isKalah, one, two, threads, seed);
+        final long reportEvery = Math.max(1, gameCount / 20);
+        if (csv == null) {
+            simulator.run(gameCount, reportEvery, System.out::println);
+            return;
+        } else if ("-".equals(csv)) {
+            System.out.println(SimulationStats.CSV_HEADER);
+            simulator.run(gameCount, reportEvery, stats -> System.out.println(stats.toCsv()));
+            return;
+        }
+        try (PrintStream out = new PrintStream(new BufferedOutputStream(Files.newOutputStream(Paths.get(csv))), false, "UTF-8")) {
+            out.println(SimulationStats.CSV_HEADER);
+            simulator.run(gameCount, reportEvery, stats -> out.println(stats.toCsv()));
+        }
+    }
+}
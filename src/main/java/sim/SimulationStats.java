@@ -0,0 +1,120 @@
+package sim;
+import java.util.Locale;
+
+/**
+ * Totals over a number of finished games, a snapshot that never changes.
+ */
+public class SimulationStats {
+    /* Header of the rows written by toCsv */
+    public static final String CSV_HEADER = "games,one_wins,two_wins,draws,one_win_rate,two_win_rate,avg_moves,moves_per_sec";
+    private final long games;
+    private final long oneWins;
+    private final long twoWins;
+    private final long draws;
+    private final long moves;
+    private final long elapsedNanos;
+
+    /**
+     * Constructor to initialize simulation totals.
+     * 
+     * @param newGames The number of finished games.
+     * @param newOneWins The games won by player one.
+     * @param newTwoWins The games won by player two.
+     * @param newDraws The drawn games, including games stopped at the move limit.
+     * @param newMoves The moves played over all games, each bonus turn counts as a move.
+     * @param newElapsedNanos The wall clock time since the simulation started.
+     */
+    public SimulationStats(final long newGames, final long newOneWins, final long newTwoWins, final long newDraws,
+    final long newMoves, final long newElapsedNanos) {
+        this.games = newGames;
+        this.oneWins = newOneWins;
+        this.twoWins = newTwoWins;
+        this.draws = newDraws;
+        this.moves = newMoves;
+        this.elapsedNanos = newElapsedNanos;
+    }
+
+    /**
+     * Gets the number of finished games.
+     * 
+     * @return The number of games.
+     */
+    public long getGames() {
+        return this.games;
+    }
+
+    /**
+     * Gets the number of games won by player one.
+     * 
+     * @return The number of wins.
+     */
+    public long getOneWins() {
+        return this.oneWins;
+    }
+
+    /**
+     * Gets the number of games won by player two.
+     * 
+     * @return The number of wins.
+     */
+    public long getTwoWins() {
+        return this.twoWins;
+    }
+
+    /**
+     * Gets the number of drawn games.
+     * 
+     * @return The number of draws.
+     */
+    public long getDraws() {
+        return this.draws;
+    }
+
+    /**
+     * Gets the number of moves played over all games.
+     * 
+     * @return The number of moves.
+     */
+    public long getMoves() {
+        return this.moves;
+    }
+
+    /**
+     * Gets the average number of moves in a game.
+     * 
+     * @return The average game length, 0 if no game has finished.
+     */
+    public double getAverageMoves() {
+        return this.games == 0 ? 0 : (double) this.moves / this.games;
+    }
+
+    /**
+     * Gets the number of moves played per second of wall clock time.
+     * 
+     * @return The move rate.
+     */
+    public double getMovesPerSecond() {
+        return this.elapsedNanos == 0 ? 0 : this.moves * 1e9 / this.elapsedNanos;
+    }
+
+    private double rate(final long count) {
+        return this.games == 0 ? 0 : (double) count / this.games;
+    }
+
+    /**
+     * Formats the totals as one CSV row matching CSV_HEADER, with a decimal point whatever the default locale.
+     * 
+     * @return The row, without a line break.
+     */
+    public String toCsv() {
+        return String.format(Locale.ROOT, "%d,%d,%d,%d,%.4f,%.4f,%.2f,%.0f", this.games, this.oneWins, this.twoWins, this.draws,
+            rate(this.oneWins), rate(this.twoWins), getAverageMoves(), getMovesPerSecond());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d games: one %.1f%%, two %.1f%%, draws %.1f%%, %.1f moves per game, %.0f moves/s",
+            this.games, 100 * rate(this.oneWins), 100 * rate(this.twoWins), 100 * rate(this.draws),
+            getAverageMoves(), getMovesPerSecond());
+    }
+}
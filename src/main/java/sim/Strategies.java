@@ -0,0 +1,110 @@
+package sim;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+import ai.AlphaBetaSearch;
+import ai.TranspositionTable;
+import mancala.GameRules;
+import mancala.InvalidMoveException;
+import mancala.MancalaGame;
+import mancala.MoveMask;
+
+/**
+ * The built in strategies: random, greedy and search.
+ * Each is returned as a factory so every worker thread can build its own instance.
+ */
+public final class Strategies {
+
+    private Strategies() {
+    }
+
+    /**
+     * Gets a strategy which plays a uniformly random legal move.
+     * 
+     * @return A factory for the strategy.
+     */
+    public static Supplier<Strategy> random() {
+        return () -> (game, random) -> randomMove(game.legalMoves(), game.getCurrentPlayerNum(), random);
+    }
+
+    /**
+     * Gets a strategy which plays the move adding the most stones to its store.
+     * A bonus turn breaks a tie between equal gains, any tie left is broken at random.
+     * 
+     * @return A factory for the strategy.
+     */
+    public static Supplier<Strategy> greedy() {
+        return () -> (game, random) -> greedyMove(game, random);
+    }
+
+    /**
+     * Gets a strategy which plays the best move of an alpha-beta search to a fixed depth.
+     * 
+     * @param depth The depth to search to.
+     * @return A factory for the strategy.
+     */
+    public static Supplier<Strategy> search(final int depth) {
+        return () -> {
+            final AlphaBetaSearch search = new AlphaBetaSearch(new TranspositionTable(18));
+            return (game, random) -> {
+                final GameRules position = game.getBoard().copyPosition();
+                position.setSideToMove(game.getCurrentPlayerNum());
+                return search.search(position, depth, 0).getBestMove();
+            };
+        };
+    }
+
+    /**
+     * Gets a strategy by name: random, greedy, or search:DEPTH (search alone searches to depth 6).
+     * 
+     * @param name The name of the strategy.
+     * @return A factory for the strategy.
+     */
+    public static Supplier<Strategy> byName(final String name) {
+        if ("random".equals(name)) {
+            return random();
+        } else if ("greedy".equals(name)) {
+            return greedy();
+        } else if ("search".equals(name)) {
+            return search(6);
+        } else if (name.startsWith("search:")) {
+            return search(Integer.parseInt(name.substring("search:".length())));
+        }
+        throw new IllegalArgumentException("Unknown strategy: " + name);
+    }
+
+    private static int randomMove(final int mask, final int player, final SplittableRandom random) {
+        int m = mask;
+        for (int skip = random.nextInt(MoveMask.count(mask)); skip > 0; skip--) {
+            m &= m - 1; // Drop the lowest move
+        }
+        return MoveMask.pitOf(Integer.numberOfTrailingZeros(m), player);
+    }
+
+    private static int greedyMove(final MancalaGame game, final SplittableRandom random) {
+        final GameRules position = game.getBoard().copyPosition();
+        final int player = game.getCurrentPlayerNum();
+        int best = -1;
+        int bestMask = 0;
+        for (int m = position.legalMoves(player); m != 0; m &= m - 1) {
+            final int bit = Integer.numberOfTrailingZeros(m);
+            int gain;
+            try {
+                gain = 2 * position.makeMove(MoveMask.pitOf(bit, player), player);
+            } catch (InvalidMoveException e) {
+                throw new IllegalStateException("Tried an illegal move", e);
+            }
+            if (position.isBonus()) {
+                gain += 1; // A bonus turn breaks ties between equal gains
+            }
+            position.unmakeMove();
+
+            if (gain > best) {
+                best = gain;
+                bestMask = 1 << bit;
+            } else if (gain == best) {
+                bestMask |= 1 << bit;
+            }
+        }
+        return randomMove(bestMask, player, random);
+    }
+}
@@ -0,0 +1,18 @@
+package sim;
+import java.util.SplittableRandom;
+import mancala.MancalaGame;
+
+/**
+ * A way of choosing moves for the current player of a game.
+ * A strategy may keep state between moves, so each simulator worker gets its own instance.
+ */
+public interface Strategy {
+    /**
+     * Chooses a move for the current player. The game must not be changed.
+     * 
+     * @param game The game to move in, it is not over and the current player has a legal move.
+     * @param random The worker's random number generator, the only source of randomness allowed.
+     * @return The pit to play.
+     */
+    int chooseMove(MancalaGame game, SplittableRandom random);
+}
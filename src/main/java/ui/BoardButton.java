@@ -57,6 +57,7 @@ public class BoardButton extends JButton {
         try {
             this.game.move(position);
             handleBonus(this.game.getBoard());
+            display.recordMove(position);
         } catch (InvalidMoveException ex) {
             // Code should never reach here since we disable the possible invalid moves
             JOptionPane.showMessageDialog(null, "An unknown error has occured!", "Error", JOptionPane.ERROR_MESSAGE);
@@ -81,6 +82,8 @@ public class BoardButton extends JButton {
                 JOptionPane.showMessageDialog(null, "An unknown error has occured!", "Error", JOptionPane.ERROR_MESSAGE);
             } 
         }
+
+        display.playComputerTurn(); // Does nothing unless it is now the computer's turn
     }
 
     /* Helper method for handleMove */
@@ -137,7 +140,7 @@ public class BoardButton extends JButton {
         final int res = JOptionPane.showOptionDialog(null, winner + " has won!", "Game over", 
         JOptionPane.DEFAULT_OPTION, JOptionPane.PLAIN_MESSAGE, null, options, options[0]);
         if (res == 0) {
-            window.setCurrentBoard(new BoardUI(this.window, display.isKalah()));
+            window.setCurrentBoard(new BoardUI(this.window, display.isKalah(), display.isVsComputer()));
             this.window.add(window.getCurrentBoard(), this.window.BOARD_SIGNATURE);
             this.window.showWindow(this.window.BOARD_SIGNATURE);
         } else {
@@ -7,7 +7,23 @@ import javax.swing.JPanel;
 import javax.swing.JComponent;
 import javax.swing.Box;
 import mancala.MancalaGame;
+import mancala.GameRules;
+import mancala.MoveJournal;
+import mancala.GameRecord;
+import mancala.GameRecordWriter;
 import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.swing.JOptionPane;
+import javax.swing.SwingWorker;
+import javax.swing.SwingUtilities;
+import ai.AlphaBetaSearch;
+import ai.EndgameTablebase;
+import ai.OpeningBook;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
  * A window representative of all components during a game.
@@ -15,24 +31,243 @@ import java.util.ArrayList;
 public class BoardUI extends JPanel {
     private static final long serialVersionUID = 1L;
     private static final int STORE_ONE = 7;
+    private static final long COMPUTER_TIME_MS = 1000; // Time the computer thinks per move
+    private static final long HINT_TIME_MS = 500;
+    private static final Path TABLEBASE_FILE = Paths.get("assets", "kalah-endgame.tb");
+    private static final AtomicLong JOURNALS = new AtomicLong(); // Numbers the journals' save keys
+    private static EndgameTablebase tablebase; // Mapped once, each search gets its own copy
+    private static OpeningBook kalahBook;
+    private static OpeningBook ayoBook;
     private GameWindow window;
     private MancalaGame game; 
+    private final boolean computerOpponent; // True if player two is played by the computer
+    private transient AlphaBetaSearch computer;
+    private transient MoveJournal journal; // Every move since the board was shown, appended to a file once saved
+    private transient String journalKey; // Flushes are coalesced by this, so another journal's never replace them
     protected ArrayList<BoardButton> boardButtons;
     protected ProfileUI playerOneProfile;
     protected ProfileUI playerTwoProfile;
 
-    public BoardUI(final GameWindow newWindow, final MancalaGame newGame, final boolean isNew) {
+    public BoardUI(final GameWindow newWindow, final MancalaGame newGame, final boolean isNew, final boolean vsComputer) {
         super();
         this.window = newWindow;
         this.game = newGame;
+        this.computerOpponent = vsComputer;
         if (isNew) {
             game.setPlayers(this.window.getPlayerOne(), this.window.getPlayerTwo());
         }
+        this.journal = new MoveJournal(this.game);
+        this.journalKey = journalKey();
         createUI();
     }
 
+    public BoardUI(final GameWindow newWindow, final MancalaGame newGame, final boolean isNew) {
+        this(newWindow, newGame, isNew, false);
+    }
+
+    public BoardUI(final GameWindow newWindow, final boolean newIsKalah, final boolean vsComputer) {
+        this(newWindow, new MancalaGame(newIsKalah), true, vsComputer);
+    }
+
     public BoardUI(final GameWindow newWindow, final boolean newIsKalah) {
-        this(newWindow, new MancalaGame(newIsKalah), true);
+        this(newWindow, newIsKalah, false);
+    }
+
+    /**
+     * Checks if player two is played by the computer.
+     * 
+     * @return True if the game is against the computer, false otherwise.
+     */
+    public boolean isVsComputer() {
+        return this.computerOpponent;
+    }
+
+    /**
+     * Lets the computer choose and play a move if it is its turn.
+     * The search runs off the event dispatch thread on a copy of the board.
+     */
+    public void playComputerTurn() {
+        if (!this.computerOpponent || this.game.isGameOver() 
+            || !this.game.getCurrentPlayer().equals(this.window.getPlayerTwo())) {
+            return;
+        }
+        if (this.computer == null) {
+            this.computer = createSearch(isKalah());
+        }
+        for (int i = 1; i < 13; i++) {
+            this.boardButtons.get(i).setEnabled(false); // The human waits for the computer
+        }
+
+        final GameRules position = this.game.getBoard().copyPosition();
+        position.setSideToMove(GameWindow.PLAYER_TWO);
+        final long searched = this.game.getBoard().getPositionHash();
+        new SwingWorker<Integer, Void>() {
+            @Override
+            protected Integer doInBackground() {
+                return computer.search(position, AlphaBetaSearch.MAX_DEPTH, COMPUTER_TIME_MS).getBestMove();
+            }
+
+            @Override
+            protected void done() {
+                // A new or loaded game may have replaced this board while the computer was thinking
+                if (window.getCurrentBoard() != BoardUI.this || game.getBoard().getPositionHash() != searched) {
+                    return;
+                }
+                try {
+                    final int pit = get();
+                    for (final BoardButton button : boardButtons) {
+                        if (button.isPit() && button.getPosition() == pit) {
+                            button.handleMove();
+                        }
+                    }
+                } catch (InterruptedException | ExecutionException ex) {
+                    JOptionPane.showMessageDialog(null, "The computer was unable to move!", "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Suggests a move for the current player, from the endgame tablebase when it covers the position
+     * and from a short search otherwise.
+     */
+    public void showHint() {
+        if (this.game.isGameOver()) {
+            return;
+        }
+        final GameRules position = this.game.getBoard().copyPosition();
+        position.setSideToMove(this.game.getCurrentPlayerNum());
+        final AlphaBetaSearch search = createSearch(isKalah());
+        new SwingWorker<Integer, Void>() {
+            @Override
+            protected Integer doInBackground() {
+                return search.search(position, AlphaBetaSearch.MAX_DEPTH, HINT_TIME_MS).getBestMove();
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    final int pit = get();
+                    // Both rows are numbered from the left as the player sees them
+                    final int column = pit < STORE_ONE ? pit : 13 - pit;
+                    JOptionPane.showMessageDialog(null, "Try your pit " + column + " from the left.", "Hint",
+                        JOptionPane.INFORMATION_MESSAGE);
+                } catch (InterruptedException | ExecutionException ex) {
+                    JOptionPane.showMessageDialog(null, "Unable to find a hint!", "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    /* A search which uses the opening book and endgame tablebase in assets if they have been generated */
+    private static AlphaBetaSearch createSearch(final boolean kalah) {
+        final AlphaBetaSearch search = new AlphaBetaSearch();
+        synchronized (BoardUI.class) {
+            if (kalah && kalahBook == null) {
+                kalahBook = loadBook(true);
+            } else if (!kalah && ayoBook == null) {
+                ayoBook = loadBook(false);
+            }
+            search.setOpeningBook(kalah ? kalahBook : ayoBook);
+            if (tablebase == null && Files.exists(TABLEBASE_FILE)) {
+                try {
+                    tablebase = EndgameTablebase.open(TABLEBASE_FILE);
+                } catch (IOException ex) {
+                    return search; // Search every position instead
+                }
+            }
+            if (tablebase != null) {
+                search.setTablebase(tablebase.copy());
+            }
+        }
+        return search;
+    }
+
+    /* The book for a new game's starting stones, or null if none has been built */
+    private static OpeningBook loadBook(final boolean kalah) {
+        final Path file = OpeningBook.defaultPath(kalah, 4);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            return OpeningBook.load(file);
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Records a move in the journal, which appends it to the save file on the I/O thread if the game has been saved.
+     *
+     * @param pit The pit (1-12) that was just played.
+     */
+    public void recordMove(final int pit) {
+        final MoveJournal moveJournal = this.journal;
+        moveJournal.add(pit, this.game);
+        // Queued flushes of one journal are coalesced, each one writes every move added before it runs
+        this.window.getSaver().save(this.journalKey, moveJournal::flush).whenComplete((done, ex) -> {
+            if (ex != null) {
+                SwingUtilities.invokeLater(() -> {
+                    try {
+                        moveJournal.close(); // Later moves are still recorded and written by the next save
+                    } catch (IOException closeEx) {
+                        // Nothing more will be written to it
+                    }
+                    JOptionPane.showMessageDialog(null, "Unable to save the last move!", "Error",
+                        JOptionPane.ERROR_MESSAGE);
+                });
+            }
+        });
+    }
+
+    /**
+     * Saves the game as a journal holding every move, later moves are appended to the same file.
+     *
+     * @param file The file to save to.
+     * @throws IOException If the file could not be written.
+     */
+    public void saveJournal(final Path file) throws IOException {
+        this.journal.attach(file);
+    }
+
+    /**
+     * Exports every move of the game as a text game record, see GameRecord.
+     *
+     * @param file The file to write, replaced if it exists.
+     * @throws IOException If the moves cannot be replayed or the file could not be written.
+     */
+    public void exportRecord(final Path file) throws IOException {
+        final GameRecord record = GameRecord.of(this.journal);
+        try (GameRecordWriter writer = new GameRecordWriter(Files.newOutputStream(file))) {
+            writer.write(record);
+        }
+    }
+
+    /**
+     * Replaces the journal, used when a game is loaded from one so moves continue to be appended to it.
+     *
+     * @param newJournal The journal the game was replayed from.
+     */
+    public void setJournal(final MoveJournal newJournal) {
+        closeJournal();
+        newJournal.setPlayers(this.game); // Their profiles are saved from this game from now on
+        this.journal = newJournal;
+        this.journalKey = journalKey();
+    }
+
+    private static String journalKey() {
+        return "journal-" + JOURNALS.incrementAndGet();
+    }
+
+    /**
+     * Stops appending moves to the save file, if there is one.
+     */
+    public void closeJournal() {
+        try {
+            this.journal.close();
+        } catch (IOException ex) {
+            // Nothing more will be written to it
+        }
     }
 
     /**
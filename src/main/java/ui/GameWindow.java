@@ -4,10 +4,11 @@ import javax.swing.JFrame;
 import mancala.Player;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowAdapter;
-import mancala.Saver;
+import mancala.AsyncSaver;
 import javax.swing.JOptionPane;
-import java.io.IOException;
+import javax.swing.SwingUtilities;
 import java.io.File;
+import java.util.concurrent.CompletableFuture;
 import java.awt.Dimension;
 
 /**
@@ -26,6 +27,7 @@ public class GameWindow extends JFrame {
     private Player playerOne;
     private Player playerTwo;
     private BoardUI currentBoard;
+    private final transient AsyncSaver saver = new AsyncSaver(); // Every save and load runs on its I/O thread
 
     /**
      * A constructor which initializes the game window
@@ -98,9 +100,21 @@ public class GameWindow extends JFrame {
      * @param newBoard The new game UI.
      */
     public void setCurrentBoard(final BoardUI newBoard) {
+        if (this.currentBoard != null && this.currentBoard != newBoard) {
+            this.currentBoard.closeJournal(); // The old game is no longer saved as it is played
+        }
         this.currentBoard = newBoard;
     }
 
+    /**
+     * Gets the saver which runs saves and loads off the event dispatch thread.
+     * 
+     * @return The saver of this window.
+     */
+    public AsyncSaver getSaver() {
+        return this.saver;
+    }
+
     /**
      * Gets the current game UI.
      * 
@@ -129,18 +143,20 @@ public class GameWindow extends JFrame {
     protected void exitProgram() {
         final int performSave = JOptionPane.showConfirmDialog(null, "Save current players?");
         if (performSave == 0) {
-            try {
-                File dir = new File("assets");
-                if (!dir.exists()) {
-                    dir.mkdirs();
-                }
-                Saver.saveObject(this.playerOne, "1-" + this.playerOne.getName());
-                Saver.saveObject(this.playerTwo, "2-" + this.playerTwo.getName());
-            } catch (IOException ex) {
-                JOptionPane.showMessageDialog(null, "Unable to save players!", "Error", JOptionPane.ERROR_MESSAGE);
-            } catch (Exception ex) {
-                JOptionPane.showMessageDialog(null, "An unknown error has occured!", "Error", JOptionPane.ERROR_MESSAGE);
+            File dir = new File("assets");
+            if (!dir.exists()) {
+                dir.mkdirs();
             }
+            // The window stays responsive while the players are written, the program exits once both are
+            final CompletableFuture<Void> one = this.saver.save(this.playerOne, "1-" + this.playerOne.getName());
+            final CompletableFuture<Void> two = this.saver.save(this.playerTwo, "2-" + this.playerTwo.getName());
+            CompletableFuture.allOf(one, two).whenComplete((done, error) -> SwingUtilities.invokeLater(() -> {
+                if (error != null) {
+                    JOptionPane.showMessageDialog(null, "Unable to save players!", "Error", JOptionPane.ERROR_MESSAGE);
+                }
+                System.exit(0);
+            }));
+            return;
         } 
 
         if (performSave != this.STAY) {
@@ -5,7 +5,14 @@ import javax.swing.JMenu;
 import mancala.MancalaGame;
 import javax.swing.JFileChooser;
 import mancala.Saver;
+import mancala.MoveJournal;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import javax.swing.SwingUtilities;
 import java.io.File;
 import javax.swing.JOptionPane;
 
@@ -27,6 +34,7 @@ public class MenuBarUI extends JMenuBar {
         final JMenu menu = new JMenu("Game");
         createGameItems(menu);
         createStateItems(menu);
+        createHintItem(menu);
         createMainMenu(menu);
         final JMenu rules = new JMenu("Rules");
         createRulesMenu(rules);
@@ -59,6 +67,15 @@ public class MenuBarUI extends JMenuBar {
         final JMenuItem ayoItem = new JMenuItem("New Ayo");  
         ayoItem.addActionListener(e -> handleGameListener(false));
         menu.add(ayoItem);
+
+        // Against the computer, which plays player two
+        final JMenuItem kalahComputerItem = new JMenuItem("New Kalah vs Computer");
+        kalahComputerItem.addActionListener(e -> handleGameListener(true, true));
+        menu.add(kalahComputerItem);
+
+        final JMenuItem ayoComputerItem = new JMenuItem("New Ayo vs Computer");
+        ayoComputerItem.addActionListener(e -> handleGameListener(false, true));
+        menu.add(ayoComputerItem);
     }
 
     protected void createStateItems(final JMenu menu) { 
@@ -71,50 +88,133 @@ public class MenuBarUI extends JMenuBar {
         final JMenuItem saveItem = new JMenuItem("Save");
         saveItem.addActionListener(e -> handleSaveListener());
         menu.add(saveItem);
+
+        // Export
+        final JMenuItem exportItem = new JMenuItem("Export");
+        exportItem.addActionListener(e -> handleExportListener());
+        menu.add(exportItem);
+    }
+
+    protected void createHintItem(final JMenu menu) {
+        final JMenuItem hintItem = new JMenuItem("Hint");
+        hintItem.addActionListener(e -> handleHintListener());
+        menu.add(hintItem);
     }
 
     protected void handleLoadListener() {
         final JFileChooser chooser = new JFileChooser("assets");
         final int returnVal = chooser.showOpenDialog(window);
         if (returnVal == JFileChooser.APPROVE_OPTION) {
-            try {
-                final MancalaGame loadedGame = (MancalaGame) Saver.loadObject(chooser.getSelectedFile().getName());
-                window.setPlayerOne(loadedGame.getPlayers().get(0));
-                window.setPlayerTwo(loadedGame.getPlayers().get(1));
-                window.setCurrentBoard(new BoardUI(window, loadedGame, false));
-                window.add(window.getCurrentBoard(), window.BOARD_SIGNATURE);
-                window.showWindow(window.BOARD_SIGNATURE);
-            } catch (IOException ex) {
-                JOptionPane.showMessageDialog(null, "Unable to load game!", ERROR, JOptionPane.ERROR_MESSAGE);
-            } catch (ClassCastException ex) {
-                JOptionPane.showMessageDialog(null, "Save file is not a game!", ERROR, JOptionPane.ERROR_MESSAGE);
-            } catch (Exception ex) {
-                JOptionPane.showMessageDialog(null, "An unknown error has occured!", ERROR, JOptionPane.ERROR_MESSAGE);
+            final String name = chooser.getSelectedFile().getName();
+            final SaveProgress progress = new SaveProgress(window, "Loading " + name);
+            // The file is read on the I/O thread, the game is built back on this one
+            final CompletableFuture<ByteBuffer> reading = window.getSaver().read(name, progress);
+            progress.setTask(reading);
+            reading.whenComplete((buffer, error) -> SwingUtilities.invokeLater(() -> {
+                progress.close();
+                handleLoaded(name, buffer, error);
+            }));
+        }
+    }
+
+    protected void handleLoaded(final String name, final ByteBuffer buffer, final Throwable error) {
+        if (error instanceof CancellationException) {
+            return;
+        } else if (error != null) {
+            JOptionPane.showMessageDialog(null, "Unable to load game!", ERROR, JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        try {
+            // A journal is kept open so the loaded game goes on being saved as it is played
+            MoveJournal journal = null;
+            final MancalaGame loadedGame;
+            if (MoveJournal.isJournal(buffer)) {
+                journal = MoveJournal.read(buffer);
+                journal.resume(Paths.get("assets", name));
+                loadedGame = journal.replay();
+            } else {
+                loadedGame = (MancalaGame) Saver.decode(buffer);
             }
+            window.setPlayerOne(loadedGame.getPlayers().get(0));
+            window.setPlayerTwo(loadedGame.getPlayers().get(1));
+            final BoardUI board = new BoardUI(window, loadedGame, false);
+            if (journal != null) {
+                board.setJournal(journal);
+            }
+            window.setCurrentBoard(board);
+            window.add(window.getCurrentBoard(), window.BOARD_SIGNATURE);
+            window.showWindow(window.BOARD_SIGNATURE);
+        } catch (IOException ex) {
+            JOptionPane.showMessageDialog(null, "Unable to load game!", ERROR, JOptionPane.ERROR_MESSAGE);
+        } catch (ClassCastException ex) {
+            JOptionPane.showMessageDialog(null, "Save file is not a game!", ERROR, JOptionPane.ERROR_MESSAGE);
+        } catch (Exception ex) {
+            JOptionPane.showMessageDialog(null, "An unknown error has occured!", ERROR, JOptionPane.ERROR_MESSAGE);
         }
     }
 
     protected void handleSaveListener() {
         final String filename = JOptionPane.showInputDialog("Please enter a file name: ");
         if (filename != null && !filename.isEmpty()) {
-            try {
-                File dir = new File("assets");
-                if (!dir.exists()) {
-                    dir.mkdirs();
-                }
-                Saver.saveObject(window.getCurrentBoard().getGame(), filename);
-            } catch (IOException ex) {
-                JOptionPane.showMessageDialog(null, "Unable to save game!", ERROR, JOptionPane.ERROR_MESSAGE);
-            } catch (NullPointerException ex) {
+            final BoardUI board = window.getCurrentBoard();
+            if (board == null) {
                 JOptionPane.showMessageDialog(null, "No game to save!", ERROR, JOptionPane.ERROR_MESSAGE);
-            } catch (Exception ex) {
-                JOptionPane.showMessageDialog(null, "An unknown error has occured!", ERROR, JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            File dir = new File("assets");
+            if (!dir.exists()) {
+                dir.mkdirs();
             }
+            // Writes the moves so far on the I/O thread, every later move is appended to the same file
+            final Path file = Paths.get("assets", filename);
+            window.getSaver().save(file.toString(), () -> board.saveJournal(file))
+                .whenComplete((done, error) -> {
+                    if (error != null) {
+                        SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(null, "Unable to save game!",
+                            ERROR, JOptionPane.ERROR_MESSAGE));
+                    }
+                });
         }
     }
 
+    protected void handleExportListener() {
+        final String filename = JOptionPane.showInputDialog("Please enter a file name: ");
+        if (filename != null && !filename.isEmpty()) {
+            final BoardUI board = window.getCurrentBoard();
+            if (board == null) {
+                JOptionPane.showMessageDialog(null, "No game to export!", ERROR, JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            File dir = new File("assets");
+            if (!dir.exists()) {
+                dir.mkdirs();
+            }
+            final Path file = Paths.get("assets", filename);
+            window.getSaver().save(file.toString(), () -> board.exportRecord(file))
+                .whenComplete((done, error) -> {
+                    if (error != null) {
+                        SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(null, "Unable to export game!",
+                            ERROR, JOptionPane.ERROR_MESSAGE));
+                    }
+                });
+        }
+    }
+
+    protected void handleHintListener() {
+        final BoardUI board = window.getCurrentBoard();
+        if (board == null || board.getGame().isGameOver()) {
+            JOptionPane.showMessageDialog(null, "No game to give a hint for!", ERROR, JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        board.showHint();
+    }
+
     protected void handleGameListener(final boolean isKalah) {
-        window.setCurrentBoard(new BoardUI(window, isKalah));
+        handleGameListener(isKalah, false);
+    }
+
+    protected void handleGameListener(final boolean isKalah, final boolean vsComputer) {
+        window.setCurrentBoard(new BoardUI(window, isKalah, vsComputer));
         window.add(window.getCurrentBoard(), window.BOARD_SIGNATURE);
         window.showWindow(window.BOARD_SIGNATURE);
     }
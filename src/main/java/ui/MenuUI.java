@@ -8,8 +8,10 @@ import javax.swing.JButton;
 import mancala.Player;
 import javax.swing.JOptionPane;
 import javax.swing.JFileChooser;
-import mancala.Saver;
-import java.io.IOException;
+import java.io.Serializable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import javax.swing.SwingUtilities;
 
 /**
  * A window representative of all components in the main menu.
@@ -67,22 +69,38 @@ public class MenuUI extends JPanel {
         final JFileChooser chooser = new JFileChooser("assets");
         final int returnVal = chooser.showOpenDialog(window);
         if (returnVal == JFileChooser.APPROVE_OPTION) {
-            try {
-                final Player loadedPlayer = (Player) Saver.loadObject(chooser.getSelectedFile().getName());
-                if (playerOne) {
-                    window.setPlayerOne(loadedPlayer);
-                    container.updatePlayer(window.getPlayerOne());
-                } else {
-                    window.setPlayerTwo(loadedPlayer);
-                    container.updatePlayer(window.getPlayerTwo());
-                }
-            } catch (IOException ex) {
-                JOptionPane.showMessageDialog(null, "Unable to load player!", "Error", JOptionPane.ERROR_MESSAGE);
-            } catch (ClassCastException ex) {
-                JOptionPane.showMessageDialog(null, "Save file is not a player!", "Error", JOptionPane.ERROR_MESSAGE);
-            } catch (Exception ex) {
-                JOptionPane.showMessageDialog(null, "An unknown error has occured!", "Error", JOptionPane.ERROR_MESSAGE);
+            final String name = chooser.getSelectedFile().getName();
+            final SaveProgress progress = new SaveProgress(window, "Loading " + name);
+            final CompletableFuture<Serializable> loading = window.getSaver().load(name, progress);
+            progress.setTask(loading);
+            loading.whenComplete((loaded, error) -> SwingUtilities.invokeLater(() -> {
+                progress.close();
+                handleLoaded(playerOne, container, loaded, error);
+            }));
+        }
+    }
+
+    protected void handleLoaded(final boolean playerOne, final ProfileUI container, final Serializable loaded,
+        final Throwable error) {
+        if (error instanceof CancellationException) {
+            return;
+        } else if (error != null) {
+            JOptionPane.showMessageDialog(null, "Unable to load player!", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        try {
+            final Player loadedPlayer = (Player) loaded;
+            if (playerOne) {
+                window.setPlayerOne(loadedPlayer);
+                container.updatePlayer(window.getPlayerOne());
+            } else {
+                window.setPlayerTwo(loadedPlayer);
+                container.updatePlayer(window.getPlayerTwo());
             }
+        } catch (ClassCastException ex) {
+            JOptionPane.showMessageDialog(null, "Save file is not a player!", "Error", JOptionPane.ERROR_MESSAGE);
+        } catch (Exception ex) {
+            JOptionPane.showMessageDialog(null, "An unknown error has occured!", "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
 
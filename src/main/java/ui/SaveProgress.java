@@ -0,0 +1,56 @@
+package ui;
+import java.awt.Component;
+import java.util.concurrent.Future;
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingUtilities;
+import mancala.AsyncSaver;
+
+/**
+ * A progress dialog for a save or load running on the I/O thread, it only pops up if the file is slow.
+ * Cancelling the dialog cancels the task.
+ */
+public class SaveProgress implements AsyncSaver.Progress {
+    private static final int POPUP_MS = 300;
+    private final ProgressMonitor monitor;
+    private volatile Future<?> task;
+
+    /**
+     * Constructor to create the dialog, which must be called on the event dispatch thread.
+     *
+     * @param parent The component the dialog belongs to.
+     * @param message The message shown above the progress bar.
+     */
+    public SaveProgress(final Component parent, final String message) {
+        this.monitor = new ProgressMonitor(parent, message, null, 0, 100);
+        this.monitor.setMillisToDecideToPopup(POPUP_MS);
+        this.monitor.setMillisToPopup(POPUP_MS);
+    }
+
+    /**
+     * Sets the task cancelled by the dialog.
+     *
+     * @param newTask The save or load being shown.
+     */
+    public void setTask(final Future<?> newTask) {
+        this.task = newTask;
+    }
+
+    @Override
+    public void update(final long done, final long total) {
+        final int percent = total == 0 ? 100 : (int) (done * 100 / total);
+        SwingUtilities.invokeLater(() -> {
+            if (this.monitor.isCanceled() && this.task != null) {
+                this.task.cancel(false);
+            } else {
+                this.monitor.setProgress(percent);
+            }
+        });
+    }
+
+    /**
+     * Closes the dialog, which must be called on the event dispatch thread.
+     */
+    public void close() {
+        this.monitor.close();
+    }
+}
@@ -0,0 +1,60 @@
+package ai;
+
+import mancala.GameRules;
+import mancala.KalahRules;
+import mancala.MancalaGame;
+import mancala.Player;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class AlphaBetaSearchTest {
+    private AlphaBetaSearch search;
+
+    @BeforeEach
+    public void setUp() {
+        search = new AlphaBetaSearch(new TranspositionTable(16));
+    }
+
+    @Test
+    public void testSearchRestoresPosition() {
+        final GameRules rules = new KalahRules(true);
+        final long before = rules.getPositionHash();
+        final SearchResult result = search.search(rules, 6, 0);
+
+        // the position is searched in place but must be left untouched
+        assertEquals(before, rules.getPositionHash());
+        assertEquals(6, result.getDepth());
+        assertTrue(result.getBestMove() >= 1 && result.getBestMove() <= 6);
+        assertTrue(result.getNodes() > 0);
+    }
+
+    @Test
+    public void testBestMoveTakesBonusTurn() {
+        /* from the starting position pit 3 lands in the store,
+        a shallow search should see the extra turn is worth the most
+        (deeper searches disagree from one depth to the next, so a time limit would be flaky) */
+        final MancalaGame game = new MancalaGame(true);
+        game.setPlayers(new Player("P1"), new Player("P2"));
+        final SearchResult result = search.search(game.getBoard().copyPosition(), 2, 0);
+        assertEquals(3, result.getBestMove());
+    }
+
+    @Test
+    public void testBestMoveSurvivesTableCollisions() {
+        // Every entry is lost, as the root's can be when another position or thread takes its slot
+        final AlphaBetaSearch forgetful = new AlphaBetaSearch(new TranspositionTable(1) {
+            @Override
+            public long probe(final long key) {
+                return TranspositionTable.MISS;
+            }
+        });
+        final MancalaGame game = new MancalaGame(true);
+        game.setPlayers(new Player("P1"), new Player("P2"));
+        assertEquals(3, forgetful.search(game.getBoard().copyPosition(), 2, 0).getBestMove());
+        assertEquals(search.search(game.getBoard().copyPosition(), 6, 0).getScore(),
+            forgetful.search(game.getBoard().copyPosition(), 6, 0).getScore());
+    }
+}
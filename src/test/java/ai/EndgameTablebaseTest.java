@@ -0,0 +1,66 @@
+package ai;
+
+import mancala.AyoRules;
+import mancala.GameRules;
+import mancala.KalahRules;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class EndgameTablebaseTest {
+
+    @Test
+    public void testValuesMatchFullSearch() throws IOException {
+        final Path file = Files.createTempFile("endgame", ".tb");
+        try {
+            EndgameTablebase.generate(file, 5);
+            final EndgameTablebase table = EndgameTablebase.open(file);
+            assertEquals(5, table.getMaxStones());
+
+            // 2 stones in pit 5 and 3 in pit 9, with stores that only shift the score
+            final GameRules position = new KalahRules(true);
+            final int[] counts = new int[14];
+            counts[4] = 2;
+            counts[8] = 3;
+            counts[6] = 10;
+            counts[13] = 7;
+            for (int side = 1; side <= 2; side++) {
+                position.setPosition(counts, side);
+                final int value = table.probe(position);
+                assertTrue(value >= -5 && value <= 5);
+
+                // searching to the end must agree on the final store difference
+                final SearchResult result = new AlphaBetaSearch(new TranspositionTable(12)).search(position, 40, 0);
+                final int margin = position.getStoreCount(side) - position.getStoreCount(3 - side) + value;
+                final int expected = margin > 0 ? AlphaBetaSearch.WIN + margin
+                    : margin < 0 ? -AlphaBetaSearch.WIN + margin : 0;
+                assertEquals(expected, result.getScore());
+                assertTrue(table.bestMove(position) != 0);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testProbeOnlyCoversSmallKalahEndgames() throws IOException {
+        final Path file = Files.createTempFile("endgame", ".tb");
+        try {
+            final EndgameTablebase table = EndgameTablebase.generate(file, 2);
+            assertEquals(EndgameTablebase.UNKNOWN, table.probe(new KalahRules(true)));
+            final GameRules ayo = new AyoRules(true);
+            final int[] counts = new int[14];
+            counts[0] = 1;
+            counts[7] = 1;
+            ayo.setPosition(counts, 1);
+            assertEquals(EndgameTablebase.UNKNOWN, table.probe(ayo));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
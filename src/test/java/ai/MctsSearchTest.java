@@ -0,0 +1,67 @@
+package ai;
+
+import mancala.GameRules;
+import mancala.InvalidMoveException;
+import mancala.KalahRules;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class MctsSearchTest {
+
+    @Test
+    public void testFindsWinningCapture() {
+        /* pit 1 lands in the empty pit 2 and captures the 20 stones across from it,
+        pit 4 captures nothing, so only pit 1 wins */
+        final GameRules rules = new KalahRules(true);
+        rules.setPosition(new int[] {1, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 20, 1, 0}, 1);
+        final MctsSearch search = new MctsSearch(1 << 12, 1, 7);
+        try {
+            final MctsResult result = search.search(rules, 0, 2000);
+            assertEquals(1, result.getBestMove());
+            assertTrue(result.getWinRate() > 0.9);
+        } finally {
+            search.shutdown();
+        }
+    }
+
+    @Test
+    public void testTreeIsReusedAfterAMove() throws InvalidMoveException {
+        final GameRules rules = new KalahRules(true);
+        final MctsSearch search = new MctsSearch(1 << 16, 1, 11);
+        try {
+            final MctsResult first = search.search(rules, 0, 3000);
+            assertEquals(3000, search.getRootVisits());
+            final int best = first.getBestMove();
+            final int kept = search.getChildVisits(best);
+            assertTrue(kept > 0);
+
+            // The played move's subtree becomes the root, with its visits and nodes
+            rules.moveStones(best, rules.getSideToMove());
+            final MctsResult second = search.search(rules, 0, 500);
+            assertEquals(kept + 500, search.getRootVisits());
+            assertTrue(second.getTreeNodes() > first.getTreeNodes());
+
+            search.clearTree();
+            search.search(rules, 0, 500);
+            assertEquals(500, search.getRootVisits());
+        } finally {
+            search.shutdown();
+        }
+    }
+
+    @Test
+    public void testNodePoolStaysWithinCapacity() {
+        final GameRules rules = new KalahRules(true);
+        final MctsSearch search = new MctsSearch(64, 1, 3);
+        try {
+            final MctsResult result = search.search(rules, 0, 5000);
+            assertTrue(result.getTreeNodes() <= 64);
+            assertEquals(5000, result.getPlayouts());
+            assertTrue(result.getBestMove() >= 1 && result.getBestMove() <= 6);
+        } finally {
+            search.shutdown();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package ai;
+
+import mancala.AyoRules;
+import mancala.GameRules;
+import mancala.InvalidMoveException;
+import mancala.KalahRules;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class OpeningBookTest {
+
+    @Test
+    public void testBuildSaveAndLoad() throws IOException, InvalidMoveException {
+        final GameRules start = new KalahRules(true);
+        final OpeningBook book = OpeningBook.build(start, 2, 4, 2);
+        // the start, plus one position after each of the 6 opening moves
+        assertEquals(7, book.size());
+        assertTrue(book.bestMove(start) >= 1 && book.bestMove(start) <= 6);
+
+        final Path file = Files.createTempFile("book", ".bin");
+        try {
+            book.save(file);
+            final OpeningBook loaded = OpeningBook.load(file);
+            assertEquals(book.size(), loaded.size());
+            assertEquals(book.getScore(start), loaded.getScore(start));
+
+            final GameRules reply = new KalahRules(true);
+            reply.makeMove(1, 1);
+            assertEquals(book.bestMove(reply), loaded.bestMove(reply));
+            assertTrue(loaded.bestMove(reply) >= 7);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testBooksAreKeptApart() {
+        final OpeningBook book = OpeningBook.build(new KalahRules(true), 1, 2, 1);
+        assertTrue(book.appliesTo(new KalahRules(true)));
+        assertFalse(book.appliesTo(new KalahRules(5, true)));
+        assertFalse(book.appliesTo(new AyoRules(true)));
+        assertEquals(0, book.bestMove(new AyoRules(true)));
+        assertEquals(OpeningBook.NO_SCORE, book.getScore(new KalahRules(3, true)));
+    }
+
+    @Test
+    public void testEveryKeyIsACollectedPosition() {
+        final GameRules start = new KalahRules(true);
+        final List<GameRules> positions = OpeningBook.collect(start, 4);
+        final OpeningBook book = OpeningBook.build(start, 4, 6, 8);
+        // the collected positions are distinct, so finding each of them means no key is another position's
+        assertEquals(positions.size(), book.size());
+        for (final GameRules position : positions) {
+            final int move = book.bestMove(position);
+            assertTrue(move != 0, "Missing position " + position.getPositionHash());
+            assertEquals(GameRules.MOVE_OK, position.moveStatus(move, position.getSideToMove()));
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package ai;
+
+import org.junit.jupiter.api.Test;
+
+import mancala.GameRules;
+import mancala.KalahRules;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class ParallelSearchTest {
+
+    @Test
+    public void testStopDoesNotLeakIntoNextSearch() {
+        final TranspositionTable table = new TranspositionTable(16);
+        final ParallelSearch search = new ParallelSearch(2, table);
+        try {
+            final GameRules rules = new KalahRules(true);
+            search.search(rules, 12, 0);
+            final long first = search.getSearcher(1).getNodes();
+
+            // A helper which finished before the main thread is stopped afterwards, as if it were still running
+            search.getSearcher(1).stop();
+            table.clear();
+            search.search(rules, 12, 0);
+            final long second = search.getSearcher(1).getNodes();
+            assertTrue(first > 4096, "helper searched " + first + " nodes");
+            assertTrue(second > first / 4, "helper searched " + second + " nodes after " + first);
+        } finally {
+            search.shutdown();
+        }
+    }
+}
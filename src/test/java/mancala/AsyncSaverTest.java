@@ -0,0 +1,87 @@
+package mancala;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class AsyncSaverTest {
+
+    @Test
+    public void testRepeatedSavesAreCoalesced() throws Exception {
+        new File("assets").mkdirs();
+        final AsyncSaver saver = new AsyncSaver();
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            // holds the I/O thread so the saves queue up behind it
+            saver.submit(() -> {
+                release.await();
+                return null;
+            });
+            final Player player = new Player("Ada");
+            final CompletableFuture<Void> first = saver.save(player, "async-test");
+            player.getProfile().addGame(true, true);
+            saver.save(player, "async-test");
+            player.getProfile().addGame(true, true);
+            final CompletableFuture<Void> last = saver.save(player, "async-test");
+            assertSame(first, last);
+            assertEquals(2, saver.getCoalescedSaves());
+
+            release.countDown();
+            last.get();
+            final Player loaded = (Player) saver.load("async-test", null).get();
+            assertEquals(2, loaded.getProfile().getKalahWins());
+        } finally {
+            release.countDown();
+            saver.shutdown();
+            Files.deleteIfExists(Paths.get("assets", "async-test"));
+        }
+    }
+
+    @Test
+    public void testLoadReportsProgressAndCanBeCancelled() throws Exception {
+        new File("assets").mkdirs();
+        final AsyncSaver saver = new AsyncSaver();
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            final AtomicLong done = new AtomicLong();
+            final AtomicLong total = new AtomicLong();
+            saver.save(new int[200 * 1024], "async-test", (d, t) -> {
+                done.set(d);
+                total.set(t);
+            }).get();
+            assertTrue(total.get() > 800 * 1024);
+            assertEquals(total.get(), done.get());
+
+            saver.submit(() -> {
+                release.await();
+                return null;
+            });
+            final CompletableFuture<Serializable> loading = saver.load("async-test", null);
+            assertTrue(loading.cancel(false));
+            release.countDown();
+            assertThrows(CancellationException.class, loading::get);
+
+            final int[] loaded = (int[]) saver.load("async-test", null).get();
+            assertEquals(200 * 1024, loaded.length);
+            final CompletableFuture<Serializable> missing = saver.load("async-test-missing", null);
+            final ExecutionException error = assertThrows(ExecutionException.class, missing::get);
+            assertTrue(error.getCause() instanceof IOException);
+        } finally {
+            release.countDown();
+            saver.shutdown();
+            Files.deleteIfExists(Paths.get("assets", "async-test"));
+        }
+    }
+}
@@ -114,5 +114,22 @@ public class AyoRulesTest {
        in the store*/
 }
 
+    @Test
+    public void testUnmakeMoveMultiMove() throws InvalidMoveException {
+        // same relay sowing set up as testMoveStonesMultiMove
+        data.addStones(12,2);
+        rules.makeMove(4,1);
+        rules.unmakeMove();
+
+        for (int i = 1; i <= 12; i++) {
+            if (i == 12) {
+                assertEquals(6,data.getNumStones(i));
+            } else {
+                assertEquals(4,data.getNumStones(i));
+            }
+        }
+        assertEquals(0, player1.getStoreCount());
+}
+
 
 }
@@ -0,0 +1,116 @@
+package mancala;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class GameArchiveTest {
+
+    /* Plays a random game to the end */
+    private GameRecord randomGame(final boolean kalah, final long seed) throws IOException, InvalidMoveException {
+        final MancalaGame game = new MancalaGame(kalah);
+        game.setPlayers(new Player("One " + seed), new Player("Two"));
+        final SplittableRandom random = new SplittableRandom(seed);
+        final List<Integer> moves = new ArrayList<>();
+        while (!game.isGameOver()) {
+            final int mask = game.legalMoves();
+            int bit = random.nextInt(Integer.bitCount(mask));
+            int pit = 0;
+            for (int i = 0; i < 6; i++) {
+                if ((mask & (1 << i)) != 0 && bit-- == 0) {
+                    pit = MoveMask.pitOf(i, game.getCurrentPlayerNum());
+                }
+            }
+            game.move(pit);
+            if (!game.getBoard().isBonus()) {
+                game.setCurrentPlayer(game.getPlayers().get(game.getCurrentPlayerNum() % 2));
+            }
+            moves.add(pit);
+        }
+        final int[] played = moves.stream().mapToInt(Integer::intValue).toArray();
+        final String result = GameRecord.resultOf(new GameRecord(kalah, 4, "", "", null, played, null).replay());
+        return new GameRecord(kalah, 4, "One " + seed, "Two", null, played, result);
+    }
+
+    @Test
+    public void testBuildThenQuery() throws IOException, InvalidMoveException {
+        final GameRecord[] games = new GameRecord[600];
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GameRecordWriter writer = new GameRecordWriter(bytes)) {
+            for (int i = 0; i < games.length; i++) {
+                games[i] = randomGame(i % 3 != 0, i);
+                writer.write(games[i]);
+            }
+        }
+        bytes.write("[Stones \"four\"]\n3\n\n[Rules \"Kalah\"]\n3 9 3\n\n".getBytes(StandardCharsets.UTF_8));
+
+        final Path archiveFile = Files.createTempFile("games", ".arc");
+        final Path indexFile = Files.createTempFile("games", ".idx");
+        try {
+            // Small runs so the index is merged from many of them
+            final GameArchiveBuilder.Summary summary = new GameArchiveBuilder(2, 5000).build(
+                new ByteArrayInputStream(bytes.toByteArray()), archiveFile, indexFile);
+            assertEquals(601, summary.getGames());
+            assertEquals(1, summary.getMalformed());
+            assertEquals(1, summary.getIllegal());
+            assertTrue(summary.getRuns() > 1);
+
+            try (GameArchive archive = GameArchive.open(archiveFile, indexFile)) {
+                assertEquals(601, archive.getGameCount());
+                assertEquals(summary.getEntries(), archive.getEntryCount());
+
+                // Every game starts from the starting position
+                final MancalaGame start = new MancalaGame(true);
+                start.setPlayers(new Player("A"), new Player("B"));
+                final List<ArchiveHit> starts = archive.find(start, 1000);
+                assertEquals(401, starts.size()); // 400 Kalah games and the illegal one
+                assertEquals(601, archive.count(start.getPositionHash()));
+                for (int i = 0; i < starts.size(); i++) {
+                    assertTrue(i == 0 || starts.get(i - 1).getGameId() < starts.get(i).getGameId());
+                    assertEquals(0, starts.get(i).getPly());
+                }
+
+                // A position reached in a game leads back to it
+                final GameRecord game = games[421];
+                final GameRecord prefix = new GameRecord(game.isKalah(), 4, "", "", null,
+                    Arrays.copyOf(game.getMoves(), 7), null);
+                boolean found = false;
+                for (final ArchiveHit hit : archive.find(prefix.replay().getPositionHash(), Integer.MAX_VALUE)) {
+                    found |= hit.getGameId() == 421 && hit.getPly() == 7;
+                    assertEquals(archive.readGame(hit.getGameId()).getResult(), hit.getResult());
+                }
+                assertTrue(found);
+                assertTrue(archive.find(0x1234567890abcdefL, 10).isEmpty());
+
+                final GameRecord read = archive.readGame(421);
+                assertArrayEquals(game.getMoves(), read.getMoves());
+                assertEquals("One 421", read.getPlayerOne());
+                assertEquals(game.getResult(), read.getResult());
+
+                // The illegal game is indexed up to its illegal move
+                final GameRecord legal = new GameRecord(true, 4, "", "", null, new int[] {3}, null);
+                final List<ArchiveHit> hits = archive.find(legal.replay().getPositionHash(), 1000);
+                final ArchiveHit last = hits.get(hits.size() - 1);
+                assertEquals(600, last.getGameId());
+                assertEquals(1, last.getPly());
+                assertNull(last.getResult());
+                assertEquals(hits.size(), archive.count(legal.replay().getPositionHash()));
+            }
+        } finally {
+            Files.deleteIfExists(archiveFile);
+            Files.deleteIfExists(indexFile);
+        }
+    }
+}
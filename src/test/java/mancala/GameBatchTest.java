@@ -0,0 +1,61 @@
+package mancala;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class GameBatchTest {
+
+    /* plays random games on a batch and on the rules one by one, every position must match */
+    private void checkAgainstRules(final boolean kalah, final int startStones) throws InvalidMoveException {
+        final int boards = 64;
+        final GameBatch batch = new GameBatch(boards, kalah, startStones);
+        final GameRules[] rules = new GameRules[boards];
+        for (int i = 0; i < boards; i++) {
+            rules[i] = kalah ? new KalahRules(startStones, true) : new AyoRules(startStones, true);
+        }
+
+        final SplittableRandom random = new SplittableRandom(startStones);
+        final int[] moves = new int[boards];
+        final int[] counts = new int[14];
+        while (batch.randomMoves(random, moves) > 0) {
+            batch.applyMoves(moves);
+            for (int i = 0; i < boards; i++) {
+                if (moves[i] != 0) {
+                    rules[i].moveStones(moves[i], rules[i].getSideToMove());
+                }
+                rules[i].getPosition(counts);
+                for (int pos = 0; pos < 14; pos++) {
+                    assertEquals(counts[pos], batch.getCount(i, pos));
+                }
+                assertEquals(rules[i].getSideToMove(), batch.getSideToMove(i));
+                assertEquals(rules[i].isBonus(), batch.isBonus(i));
+            }
+        }
+    }
+
+    @Test
+    public void testKalahMatchesRules() throws InvalidMoveException {
+        checkAgainstRules(true, 4);
+        checkAgainstRules(true, 9); // sows that lap the board
+    }
+
+    @Test
+    public void testAyoMatchesRules() throws InvalidMoveException {
+        checkAgainstRules(false, 4);
+        checkAgainstRules(false, 6);
+    }
+
+    @Test
+    public void testInvalidMoves() throws InvalidMoveException {
+        final GameBatch batch = new GameBatch(2, true, 4);
+        assertThrows(InvalidMoveException.class, () -> batch.applyMoves(new int[] {8, 0}));
+        assertEquals(1, batch.applyMoves(new int[] {0, 3}));
+        // pit 3 landed in the store, player one moves again but pit 3 is now empty
+        assertTrue(batch.isBonus(1));
+        assertThrows(InvalidMoveException.class, () -> batch.applyMoves(new int[] {0, 3}));
+    }
+}
@@ -0,0 +1,95 @@
+package mancala;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class GameCodecTest {
+
+    private MancalaGame playedGame(final boolean kalah, final boolean packed) throws InvalidMoveException {
+        final MancalaGame game = new MancalaGame(kalah, packed);
+        final Player one = new Player("Ada");
+        final Player two = new Player("Grace");
+        one.getProfile().addGame(true, true);
+        two.getProfile().addGame(false, false);
+        game.setPlayers(one, two);
+        game.move(3);
+        if (!game.getBoard().isBonus()) {
+            game.setCurrentPlayer(two);
+        }
+        return game;
+    }
+
+    private void assertSameGame(final MancalaGame expected, final MancalaGame actual) {
+        assertEquals(expected.isKalah(), actual.isKalah());
+        for (int pit = 1; pit <= 12; pit++) {
+            assertEquals(expected.getNumStones(pit), actual.getNumStones(pit));
+        }
+        assertEquals(expected.getStoreCount(1), actual.getStoreCount(1));
+        assertEquals(expected.getStoreCount(2), actual.getStoreCount(2));
+        assertEquals(expected.getBoard().isBonus(), actual.getBoard().isBonus());
+        assertEquals(expected.getCurrentPlayerNum(), actual.getCurrentPlayerNum());
+        assertEquals(expected.getPositionHash(), actual.getPositionHash());
+        assertEquals("Grace", actual.getPlayers().get(1).getName());
+        assertEquals(1, actual.getPlayers().get(0).getProfile().getKalahWins());
+        assertEquals(1, actual.getPlayers().get(1).getProfile().getAyoGames());
+        // the stores are linked to the players again
+        assertEquals(expected.getStoreCount(1), actual.getPlayers().get(0).getStoreCount());
+    }
+
+    @Test
+    public void testGameRoundTrip() throws IOException, InvalidMoveException {
+        for (final boolean kalah : new boolean[] {true, false}) {
+            for (final boolean packed : new boolean[] {true, false}) {
+                final MancalaGame game = playedGame(kalah, packed);
+                final MancalaGame decoded = (MancalaGame) GameCodec.decode(GameCodec.encodeGame(game));
+                assertSameGame(game, decoded);
+                assertEquals(packed, decoded.getBoard().getDataStructure().isPacked());
+            }
+        }
+    }
+
+    @Test
+    public void testMuchSmallerThanSerialization() throws IOException, InvalidMoveException {
+        final MancalaGame game = playedGame(true, false);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(game);
+        }
+        assertTrue(GameCodec.encodeGame(game).remaining() * 10 <= bytes.size());
+    }
+
+    @Test
+    public void testRejectsBadInput() {
+        assertThrows(IOException.class, () -> GameCodec.decode(ByteBuffer.wrap(new byte[] {1, 2, 3, 4, 5})));
+        final ByteBuffer cut = GameCodec.encodePlayer(new Player("Ada"));
+        cut.limit(cut.limit() - 2);
+        assertThrows(IOException.class, () -> GameCodec.decode(cut));
+    }
+
+    @Test
+    public void testSaverReadsBothFormats() throws IOException, InvalidMoveException {
+        new File("assets").mkdirs();
+        final MancalaGame game = playedGame(false, false);
+        try {
+            Saver.saveObject(game, "codec-test-new");
+            Saver.saveSerialized(game, "codec-test-old");
+            assertSameGame(game, (MancalaGame) Saver.loadObject("codec-test-new"));
+            assertSameGame(game, (MancalaGame) Saver.loadObject("codec-test-old"));
+
+            Saver.saveObject(game.getPlayers().get(0), "codec-test-player");
+            assertEquals("Ada", ((Player) Saver.loadObject("codec-test-player")).getName());
+        } finally {
+            new File("assets/codec-test-new").delete();
+            new File("assets/codec-test-old").delete();
+            new File("assets/codec-test-player").delete();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package mancala;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class GameRecordTest {
+
+    /* Plays a random game to the end, recording it in a journal */
+    private MoveJournal randomGame(final boolean kalah, final long seed) throws IOException, InvalidMoveException {
+        final MancalaGame game = new MancalaGame(kalah);
+        game.setPlayers(new Player("Ada \"the\" first"), new Player("Grace\\Hopper"));
+        final MoveJournal journal = new MoveJournal(game);
+        final SplittableRandom random = new SplittableRandom(seed);
+        while (!game.isGameOver()) {
+            final int mask = game.legalMoves();
+            int bit = random.nextInt(Integer.bitCount(mask));
+            int pit = 0;
+            for (int i = 0; i < 6; i++) {
+                if ((mask & (1 << i)) != 0 && bit-- == 0) {
+                    pit = MoveMask.pitOf(i, game.getCurrentPlayerNum());
+                }
+            }
+            game.move(pit);
+            if (!game.getBoard().isBonus()) {
+                game.setCurrentPlayer(game.getPlayers().get(game.getCurrentPlayerNum() % 2));
+            }
+            journal.record(pit, game);
+        }
+        return journal;
+    }
+
+    @Test
+    public void testWriteThenRead() throws IOException, InvalidMoveException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final GameRecord[] written = new GameRecord[6];
+        try (GameRecordWriter writer = new GameRecordWriter(bytes)) {
+            for (int i = 0; i < written.length; i++) {
+                written[i] = GameRecord.of(randomGame(i % 2 == 0, i));
+                writer.write(written[i]);
+            }
+        }
+
+        try (GameRecordReader reader = new GameRecordReader(new ByteArrayInputStream(bytes.toByteArray()))) {
+            for (final GameRecord expected : written) {
+                final GameRecord read = reader.next();
+                assertEquals(expected.isKalah(), read.isKalah());
+                assertEquals("Ada \"the\" first", read.getPlayerOne());
+                assertEquals("Grace\\Hopper", read.getPlayerTwo());
+                assertArrayEquals(expected.getMoves(), read.getMoves());
+                assertNotEquals(GameRecord.UNFINISHED, read.getResult());
+                assertEquals(read.getResult(), GameRecord.resultOf(read.replay()));
+            }
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void testPositionAndMalformedRecords() throws IOException, InvalidMoveException {
+        final String text = "# comment\n"
+            + "[Rules \"Ayo\"]\n[Stones \"4\"]\n[Extra \"kept by other tools\"]\n1 7\n\n"
+            + "[Rules \"Kalah\"]\n1 x 3\n\n"
+            + "[Rules \"Kalah\"]\n[Position \"0 0 0 0 0 1 0 0 0 0 0 0 5 0 1\"]\n6\n";
+        try (GameRecordReader reader = new GameRecordReader(
+            new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)))) {
+            final GameRecord first = reader.next();
+            assertFalse(first.isKalah());
+            assertArrayEquals(new int[] {1, 7}, first.getMoves());
+            assertNull(first.getResult());
+
+            final MalformedRecordException error = assertThrows(MalformedRecordException.class, reader::next);
+            assertTrue(error.getMessage().startsWith("Line 8"));
+
+            // the last stone lands in the store and player two keeps what is left
+            final GameRecord third = reader.next();
+            final GameRules end = third.replay();
+            assertEquals(1, end.getStoreCount(1));
+            assertEquals(5, end.getStoreCount(2));
+            assertEquals(GameRecord.TWO_WINS, GameRecord.resultOf(end));
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void testRecordRightAfterMalformedOneIsKept() throws IOException {
+        // Neither malformed record has a blank line after it, the records after them must still be read
+        final String text = "[Rules \"Bad\"]\n[One \"A\"]\n3 4\n[Rules \"Ayo\"]\n1\n"
+            + "[Rules \"Kalah\"]\n1 x\n[Rules \"Kalah\"]\n3\n\n";
+        try (GameRecordReader reader = new GameRecordReader(
+            new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)))) {
+            assertThrows(MalformedRecordException.class, reader::next);
+            final GameRecord second = reader.next();
+            assertFalse(second.isKalah());
+            assertArrayEquals(new int[] {1}, second.getMoves());
+            assertThrows(MalformedRecordException.class, reader::next);
+            final GameRecord fourth = reader.next();
+            assertTrue(fourth.isKalah());
+            assertArrayEquals(new int[] {3}, fourth.getMoves());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void testIllegalMovesAreRejected() {
+        // pit 9 belongs to player two, who is not to move
+        final GameRecord wrongSide = new GameRecord(true, 4, "", "", null, new int[] {9}, null);
+        assertThrows(InvalidMoveException.class, wrongSide::replay);
+        // pit 3 ends in the store, so it is player one's move again and pit 3 is now empty
+        final GameRecord emptyPit = new GameRecord(true, 4, "", "", null, new int[] {3, 3}, null);
+        assertThrows(InvalidMoveException.class, emptyPit::replay);
+    }
+}
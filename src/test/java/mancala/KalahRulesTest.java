@@ -3,6 +3,9 @@ package mancala;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 
@@ -96,4 +99,81 @@ public class KalahRulesTest {
        the responsibility of capture stones to put stones
        in the store*/
 }
-}
\ No newline at end of file
+
+    @Test
+    public void testUnmakeMoveWithCapture() throws InvalidMoveException {
+        // same capture set up as testMoveStonesWithCapture
+        data.addStones(6,4);
+        data.removeStones(1);
+        int num = rules.makeMove(6,1);
+        assertEquals(7, num);
+        assertEquals(1, rules.getUndoDepth());
+
+        rules.unmakeMove();
+        // board, store and depth should be back to the start of the move
+        assertEquals(8,data.getNumStones(6));
+        assertEquals(0,data.getNumStones(1));
+        assertEquals(4,data.getNumStones(12));
+        assertEquals(0, player1.getStoreCount());
+        assertEquals(0, rules.getUndoDepth());
+}
+
+    @Test
+    public void testDistributeStonesFullLap() {
+        // 13 stones in pit 2 go once around the board and land back in pit 2
+        data.addStones(2,9);
+        rules.setPlayer(1);
+        int num = rules.distributeStones(2);
+        // the last stone lands in the empty start pit and captures pit 11
+        assertEquals(19,num);
+        assertEquals(0,data.getNumStones(2));
+        assertEquals(0,data.getNumStones(11));
+        assertEquals(5,data.getNumStones(1));
+        assertEquals(5,data.getNumStones(12));
+        assertEquals(7,data.getStoreCount(1));
+        assertEquals(0,data.getStoreCount(2));
+        assertFalse(rules.isBonus());
+}
+
+    @Test
+    public void testLegalMovesAndTryMove() {
+        // empty pits 2 and 9, so they are not playable
+        data.removeStones(2);
+        data.removeStones(9);
+        assertEquals(0b111101, rules.legalMoves(1));
+        assertEquals(0b111011, rules.legalMoves(2));
+        assertEquals(0, rules.legalMoves(3));
+
+        // invalid moves report a status instead of throwing
+        assertEquals(GameRules.MOVE_EMPTY_PIT, rules.tryMove(2,1));
+        assertEquals(GameRules.MOVE_WRONG_SIDE, rules.tryMove(8,1));
+        assertEquals(GameRules.MOVE_INVALID_PLAYER, rules.tryMove(1,3));
+        assertEquals(1, rules.tryMove(6,1));
+}
+
+    @Test
+    public void testListenerSeesMoveCaptureAndBonus() throws InvalidMoveException {
+        final List<GameEvent> events = new ArrayList<>();
+        rules.setGameListener(events::add);
+        data.addStones(6,4);
+        data.removeStones(1);
+        rules.moveStones(6,1);
+        assertEquals(2, events.size());
+        assertEquals(GameEvent.MOVE, events.get(0).getType());
+        assertEquals(8, events.get(0).getStones());
+        assertEquals(GameEvent.CAPTURE, events.get(1).getType());
+        assertEquals(12, events.get(1).getPit());
+        assertEquals(6, events.get(1).getStones());
+        assertEquals(7, events.get(1).countAt(6));
+        assertEquals(2, events.get(1).getSideToMove());
+
+        // Search moves are undone, so they are not sent
+        rules.makeMove(10,2);
+        rules.unmakeMove();
+        assertEquals(2, events.size());
+        rules.moveStones(8,2);
+        assertEquals(GameEvent.BONUS, events.get(3).getType());
+        assertEquals(2, events.get(3).getSideToMove());
+        assertNull(rules.copyPosition().getGameListener());
+}
+}
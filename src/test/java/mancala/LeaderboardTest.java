@@ -0,0 +1,116 @@
+package mancala;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class LeaderboardTest {
+
+    /* The Kalah win rate ranking by sorting every profile */
+    private List<String> byWinRate(final List<UserProfile> profiles, final int minGames) {
+        final List<UserProfile> ranked = new ArrayList<>();
+        for (final UserProfile profile : profiles) {
+            if (profile.getKalahGames() >= minGames) {
+                ranked.add(profile);
+            }
+        }
+        ranked.sort((a, b) -> {
+            final int byRate = Long.compare((long) b.getKalahWins() * a.getKalahGames(),
+                (long) a.getKalahWins() * b.getKalahGames());
+            return byRate != 0 ? byRate : a.getKalahGames() != b.getKalahGames()
+                ? Integer.compare(b.getKalahGames(), a.getKalahGames()) : a.getUserName().compareTo(b.getUserName());
+        });
+        final List<String> names = new ArrayList<>();
+        for (final UserProfile profile : ranked) {
+            names.add(profile.getUserName());
+        }
+        return names;
+    }
+
+    private List<String> names(final List<Leaderboard.Standing> standings) {
+        final List<String> names = new ArrayList<>();
+        for (final Leaderboard.Standing standing : standings) {
+            names.add(standing.getName());
+        }
+        return names;
+    }
+
+    @Test
+    public void testIncrementalMatchesSorting() {
+        final Leaderboard board = new Leaderboard(5);
+        final List<UserProfile> profiles = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            final UserProfile profile = new UserProfile("player" + i);
+            board.track(profile);
+            profiles.add(profile);
+        }
+        final SplittableRandom random = new SplittableRandom(7);
+        for (int game = 0; game < 5000; game++) {
+            profiles.get(random.nextInt(profiles.size())).addGame(random.nextBoolean(), random.nextInt(4) != 0);
+        }
+
+        final List<String> expected = byWinRate(profiles, 5);
+        assertEquals(expected.size(), board.size(true, Leaderboard.BY_WIN_RATE));
+        assertEquals(expected, names(board.range(true, Leaderboard.BY_WIN_RATE, 0, Integer.MAX_VALUE)));
+        assertEquals(expected.subList(40, 60), names(board.range(true, Leaderboard.BY_WIN_RATE, 40, 60)));
+        for (int i = 0; i < expected.size(); i += 17) {
+            assertEquals(i, board.rankOf(expected.get(i), true, Leaderboard.BY_WIN_RATE));
+        }
+
+        final List<Leaderboard.Standing> mostGames = board.top(false, Leaderboard.BY_GAMES, 10);
+        assertEquals(10, mostGames.size());
+        for (int i = 1; i < mostGames.size(); i++) {
+            assertTrue(mostGames.get(i - 1).getGames() >= mostGames.get(i).getGames());
+            assertEquals(i, mostGames.get(i).getRank());
+        }
+    }
+
+    @Test
+    public void testRebuildFromStore() throws IOException {
+        final Path file = Files.createTempFile("profiles", ".db");
+        Files.delete(file);
+        try (ProfileStore store = ProfileStore.open(file)) {
+            final Leaderboard incremental = new Leaderboard(3);
+            final SplittableRandom random = new SplittableRandom(11);
+            for (int i = 0; i < 2000; i++) {
+                final UserProfile profile = store.getOrCreate("p" + i);
+                incremental.track(profile);
+                for (int game = random.nextInt(12); game > 0; game--) {
+                    profile.addGame(random.nextBoolean(), random.nextBoolean());
+                }
+            }
+
+            final Leaderboard rebuilt = Leaderboard.rebuild(store, 3, 3);
+            for (final boolean kalah : new boolean[] {true, false}) {
+                for (int ranking = Leaderboard.BY_WINS; ranking <= Leaderboard.BY_GAMES; ranking++) {
+                    assertEquals(names(incremental.range(kalah, ranking, 0, 3000)),
+                        names(rebuilt.range(kalah, ranking, 0, 3000)));
+                }
+            }
+
+            // Rebuilt rankings take later changes like any other
+            final UserProfile first = store.get(rebuilt.top(true, Leaderboard.BY_WINS, 1).get(0).getName());
+            rebuilt.track(first);
+            final String last = rebuilt.range(true, Leaderboard.BY_WINS, rebuilt.size(true, Leaderboard.BY_WINS) - 1,
+                Integer.MAX_VALUE).get(0).getName();
+            final UserProfile loser = store.get(last);
+            rebuilt.track(loser);
+            for (int i = 0; i < 20; i++) {
+                loser.addGame(true, true);
+            }
+            assertEquals(0, rebuilt.rankOf(last, true, Leaderboard.BY_WINS));
+            assertEquals(1, rebuilt.rankOf(first.getUserName(), true, Leaderboard.BY_WINS));
+            assertEquals(-1, rebuilt.rankOf("nobody", true, Leaderboard.BY_WINS));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package mancala;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class MancalaDataStructureTest {
+    private MancalaDataStructure objects;
+    private MancalaDataStructure packed;
+
+    @BeforeEach
+    public void setUp() {
+        objects = new MancalaDataStructure(4, false);
+        packed = new MancalaDataStructure(4, true);
+        objects.setUpPits();
+        packed.setUpPits();
+    }
+
+    @Test
+    public void testPackedMatchesObjects() {
+        assertTrue(packed.isPacked());
+        assertFalse(objects.isPacked());
+        for (int i = 1; i <= 12; i++) {
+            assertEquals(objects.getNumStones(i), packed.getNumStones(i));
+        }
+        assertEquals(5, packed.addStones(3, 1));
+        assertEquals(5, packed.removeStones(3));
+        assertEquals(0, packed.getNumStones(3));
+        assertEquals(2, packed.addToStore(2, 2));
+        assertEquals(2, packed.getStoreCount(2));
+    }
+
+    @Test
+    public void testPackedIteratorSkipsOpponentStore() {
+        // player one starting from pit 12 must skip store two and wrap to pit 1
+        packed.setIterator(12, 1, false);
+        packed.next().addStone();
+        assertEquals(0, packed.getIterator());
+        assertEquals(5, packed.getNumStones(1));
+    }
+
+    @Test
+    public void testPackedStoreStaysConnected() {
+        /* the Store registered for a player must see the same count
+        as the packed board */
+        final Store store = new Store();
+        packed.setStore(store, 1);
+        packed.addToStore(1, 3);
+        assertEquals(3, store.getStoneCount());
+        assertEquals(3, packed.getStoreCount(1));
+    }
+
+    @Test
+    public void testSideTotalsFollowChanges() {
+        assertEquals(24, objects.getSideTotal(1));
+        assertEquals(24, packed.getSideTotal(2));
+        objects.removeStones(2);
+        objects.addStones(9, 3);
+        objects.addToStore(1, 5);
+        assertEquals(20, objects.getSideTotal(1));
+        assertEquals(27, objects.getSideTotal(2));
+
+        // stones added through the iterator count as well
+        packed.setIterator(6, 1, false);
+        packed.next().addStone();
+        assertEquals(24, packed.getSideTotal(1));
+        packed.next().addStone();
+        assertEquals(25, packed.getSideTotal(2));
+    }
+
+    @Test
+    public void testPositionHash() {
+        // both backends hash the same board the same way
+        assertEquals(objects.getPositionHash(), packed.getPositionHash());
+        final long start = packed.getPositionHash();
+
+        packed.addStones(4, 2);
+        assertNotEquals(start, packed.getPositionHash());
+        packed.removeStones(4);
+        packed.addStones(4, 4);
+        assertEquals(start, packed.getPositionHash());
+
+        // the side to move is part of the position
+        packed.setSideToMove(2);
+        assertNotEquals(start, packed.getPositionHash());
+        packed.setSideToMove(1);
+        assertEquals(start, packed.getPositionHash());
+    }
+}
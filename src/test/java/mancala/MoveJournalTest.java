@@ -0,0 +1,180 @@
+package mancala;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class MoveJournalTest {
+
+    private MancalaGame newGame(final boolean kalah) {
+        final MancalaGame game = new MancalaGame(kalah);
+        game.setPlayers(new Player("Ada"), new Player("Grace"));
+        return game;
+    }
+
+    /* Plays a random move the way the board buttons do, passing the turn unless it was a bonus */
+    private int playRandom(final MancalaGame game, final SplittableRandom random) throws InvalidMoveException {
+        final int mask = game.legalMoves();
+        int bit = random.nextInt(Integer.bitCount(mask));
+        int pit = 0;
+        for (int i = 0; i < 6; i++) {
+            if ((mask & (1 << i)) != 0 && bit-- == 0) {
+                pit = MoveMask.pitOf(i, game.getCurrentPlayerNum());
+            }
+        }
+        game.move(pit);
+        if (!game.getBoard().isBonus()) {
+            game.setCurrentPlayer(game.getPlayers().get(game.getCurrentPlayerNum() % 2));
+        }
+        return pit;
+    }
+
+    @Test
+    public void testReplayMatchesEveryMove() throws IOException, InvalidMoveException {
+        for (final boolean kalah : new boolean[] {true, false}) {
+            final MancalaGame game = newGame(kalah);
+            final MoveJournal journal = new MoveJournal(game, 5);
+            final List<Long> hashes = new ArrayList<>();
+            final SplittableRandom random = new SplittableRandom(7);
+            hashes.add(game.getPositionHash());
+            while (!game.isGameOver()) {
+                journal.record(playRandom(game, random), game);
+                hashes.add(game.getPositionHash());
+            }
+
+            assertEquals(hashes.size() - 1, journal.getMoveCount());
+            for (int move = 0; move < journal.getMoveCount(); move++) {
+                assertEquals((long) hashes.get(move), journal.replay(move).getPositionHash());
+            }
+            // the end of the game is replayed with its remaining stones captured
+            final MancalaGame replayed = journal.replay();
+            assertTrue(replayed.isGameOver());
+            assertEquals(48, replayed.getStoreCount(1) + replayed.getStoreCount(2));
+            assertEquals("Grace", replayed.getPlayers().get(1).getName());
+        }
+    }
+
+    @Test
+    public void testReadDropsCutRecord() throws IOException, InvalidMoveException {
+        final MancalaGame game = newGame(true);
+        final MoveJournal journal = new MoveJournal(game, 4);
+        final SplittableRandom random = new SplittableRandom(3);
+        for (int i = 0; i < 4; i++) {
+            journal.record(playRandom(game, random), game);
+        }
+
+        final ByteBuffer whole = journal.toBuffer();
+        final MoveJournal read = MoveJournal.read(whole);
+        assertArrayEquals(journal.getMoves(), read.getMoves());
+        assertEquals(game.getPositionHash(), read.replay().getPositionHash());
+
+        // the snapshot after the fourth move is cut in half, the moves before it are kept
+        final ByteBuffer cut = journal.toBuffer();
+        cut.limit(cut.limit() - 6);
+        final MoveJournal partial = MoveJournal.read(cut);
+        assertEquals(4, partial.getMoveCount());
+        assertEquals(game.getPositionHash(), partial.replay().getPositionHash());
+        assertThrows(IOException.class, () -> MoveJournal.read(GameCodec.encodeGame(game)));
+    }
+
+    @Test
+    public void testAttachedJournalAppendsEachMove() throws IOException, InvalidMoveException {
+        final Path file = Files.createTempFile("journal", ".bin");
+        try {
+            final MancalaGame game = newGame(false);
+            final SplittableRandom random = new SplittableRandom(11);
+            final MoveJournal journal = new MoveJournal(game);
+            journal.record(playRandom(game, random), game);
+            journal.attach(file);
+            final long saved = Files.size(file);
+            journal.record(playRandom(game, random), game);
+            assertEquals(saved + 1, Files.size(file));
+            journal.close();
+
+            // reopening picks up where the file left off
+            final MoveJournal reopened = MoveJournal.open(file);
+            final MancalaGame loaded = reopened.replay();
+            assertEquals(game.getPositionHash(), loaded.getPositionHash());
+            reopened.record(playRandom(loaded, random), loaded);
+            reopened.close();
+            assertEquals(saved + 2, Files.size(file));
+            assertEquals(3, MoveJournal.open(file).getMoveCount());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testAttachSavesProfilesAsTheyAreThen() throws IOException, InvalidMoveException {
+        final Path file = Files.createTempFile("journal", ".bin");
+        try {
+            final MancalaGame game = newGame(true);
+            final SplittableRandom random = new SplittableRandom(3);
+            final MoveJournal journal = new MoveJournal(game);
+            journal.record(playRandom(game, random), game);
+            // enough games that the counters take more bytes than when the journal started
+            for (int i = 0; i < 300; i++) {
+                game.getPlayers().get(0).getProfile().addGame(i % 3 == 0, true);
+            }
+            journal.attach(file);
+            journal.add(playRandom(game, random), game);
+            final long saved = Files.size(file);
+            journal.flush();
+            assertEquals(saved + 1, Files.size(file));
+            journal.close();
+
+            final MancalaGame loaded = MoveJournal.open(file).replay();
+            assertEquals(300, loaded.getPlayers().get(0).getProfile().getKalahGames());
+            assertEquals(100, loaded.getPlayers().get(0).getProfile().getKalahWins());
+            assertEquals(game.getPositionHash(), loaded.getPositionHash());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testCloseWritesMovesNotYetFlushed() throws IOException, InvalidMoveException {
+        final Path file = Files.createTempFile("journal", ".bin");
+        try {
+            final MancalaGame game = newGame(false);
+            final SplittableRandom random = new SplittableRandom(17);
+            final MoveJournal journal = new MoveJournal(game);
+            journal.attach(file);
+            journal.add(playRandom(game, random), game);
+            journal.add(playRandom(game, random), game);
+            journal.close();
+            assertEquals(journal.size(), Files.size(file));
+            assertEquals(2, MoveJournal.open(file).getMoveCount());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testSaverLoadsJournal() throws IOException, InvalidMoveException {
+        new File("assets").mkdirs();
+        final Path file = new File("assets", "journal-test.bin").toPath();
+        try {
+            final MancalaGame game = newGame(true);
+            final MoveJournal journal = new MoveJournal(game);
+            journal.record(playRandom(game, new SplittableRandom(5)), game);
+            journal.attach(file);
+            journal.close();
+            final MancalaGame loaded = (MancalaGame) Saver.loadObject("journal-test.bin");
+            assertEquals(game.getPositionHash(), loaded.getPositionHash());
+            assertEquals(game.getCurrentPlayerNum(), loaded.getCurrentPlayerNum());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
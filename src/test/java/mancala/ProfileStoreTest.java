@@ -0,0 +1,76 @@
+package mancala;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class ProfileStoreTest {
+
+    @Test
+    public void testAddGameUpdatesRecordInPlace() throws IOException {
+        final Path file = Files.createTempFile("profiles", ".db");
+        Files.delete(file);
+        try {
+            try (ProfileStore store = ProfileStore.open(file)) {
+                final UserProfile ada = store.getOrCreate("Ada");
+                ada.addGame(true, true);
+                ada.addGame(false, false);
+                final UserProfile grace = new UserProfile("Grace");
+                grace.addGame(true, false);
+                store.put(grace);
+                assertEquals(2, store.size());
+            }
+            final long size = Files.size(file);
+
+            try (ProfileStore store = ProfileStore.open(file)) {
+                final UserProfile ada = store.get("Ada");
+                assertEquals(1, ada.getKalahWins());
+                assertEquals(1, ada.getAyoGames());
+                assertEquals(0, ada.getAyoWins());
+                assertEquals(1, store.get("Grace").getAyoWins());
+                assertNull(store.get("Alan"));
+                ada.addGame(true, false);
+            }
+            // counters are written over, the file does not grow
+            assertEquals(size, Files.size(file));
+            try (ProfileStore store = ProfileStore.open(file)) {
+                assertEquals(1, store.get("Ada").getAyoWins());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testGrowsPastInitialCapacity() throws IOException {
+        final Path file = Files.createTempFile("profiles", ".db");
+        Files.delete(file);
+        try {
+            try (ProfileStore store = ProfileStore.open(file)) {
+                for (int i = 0; i < 3000; i++) {
+                    store.getOrCreate("player-" + i + "-with-a-longer-name").addGame(i % 2 == 0, true);
+                }
+                assertEquals(3000, store.size());
+                // a profile attached before the store grew still writes to its record
+                store.get("player-0-with-a-longer-name").addGame(true, false);
+            }
+            try (ProfileStore store = ProfileStore.open(file)) {
+                assertEquals(3000, store.size());
+                for (int i = 0; i < 3000; i += 7) {
+                    final UserProfile profile = store.get("player-" + i + "-with-a-longer-name");
+                    assertEquals(1, profile.getKalahGames());
+                    assertEquals(i % 2 == 0 ? 1 : 0, profile.getKalahWins());
+                }
+                assertEquals(1, store.get("player-0-with-a-longer-name").getAyoWins());
+                assertEquals("player-5-with-a-longer-name", store.read(5).getUserName());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import mancala.GameEvent;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class GameBroadcasterTest {
+    private final int[] board = {4, 4, 4, 4, 4, 4, 0, 4, 4, 4, 4, 4, 4, 0, 1};
+
+    private String next(final GameBroadcaster.Subscription subscription) throws InterruptedException {
+        final byte[] frame = subscription.poll(0, TimeUnit.SECONDS);
+        return frame == null ? null : new String(frame, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testFramesAreSharedAndSlowSpectatorsSkipAhead() throws InterruptedException {
+        final GameBroadcaster broadcaster = new GameBroadcaster(4);
+        final GameBroadcaster.Subscription fast = broadcaster.subscribe(this.board);
+        final GameBroadcaster.Subscription slow = broadcaster.subscribe(this.board);
+        assertTrue(next(fast).startsWith("id: 0\nevent: snapshot\ndata: {\"pits\":[4,4,4,4,4,4,4,4,4,4,4,4]"));
+        assertEquals(2, broadcaster.getSubscriberCount());
+
+        // Both spectators are queued the same bytes
+        broadcaster.onEvent(new GameEvent(GameEvent.MOVE, 1, 3, 4, this.board));
+        final byte[] shared = fast.poll(0, TimeUnit.SECONDS);
+        next(slow);
+        assertSame(shared, slow.poll(0, TimeUnit.SECONDS));
+        assertTrue(new String(shared, StandardCharsets.UTF_8).startsWith("id: 1\nevent: move\ndata: {\"player\":1"));
+
+        // The slow one's queue fills up, so it is given the latest board instead
+        final int[] later = this.board.clone();
+        for (int i = 0; i < 5; i++) {
+            later[6] = i;
+            broadcaster.onEvent(new GameEvent(GameEvent.BONUS, 1, 3, 0, later.clone()));
+            assertNotNull(next(fast));
+        }
+        assertEquals(1, broadcaster.getCoalescedCount());
+        assertEquals(6, broadcaster.getFrameCount());
+        assertTrue(next(slow).startsWith("id: 6\nevent: snapshot\ndata: {\"pits\":[4,4,4,4,4,4,4,4,4,4,4,4],"
+            + "\"stores\":[4,0]"));
+        assertNull(next(slow));
+
+        // The game ending finishes every stream once read, and a spectator who leaves stops being sent frames
+        slow.close();
+        assertEquals(1, broadcaster.getSubscriberCount());
+        broadcaster.onEvent(new GameEvent(GameEvent.GAME_OVER, 2, 0, 0, this.board));
+        assertFalse(fast.isFinished());
+        assertTrue(next(fast).contains("event: gameover\ndata: {\"player\":2"));
+        assertTrue(fast.isFinished());
+        assertTrue(slow.isFinished());
+        assertNull(fast.poll(1, TimeUnit.SECONDS));
+
+        final GameBroadcaster.Subscription late = broadcaster.subscribe(this.board);
+        assertTrue(next(late).contains("event: snapshot"));
+        assertTrue(late.isFinished());
+        assertEquals(0, broadcaster.getSubscriberCount());
+    }
+}
@@ -0,0 +1,108 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import mancala.InvalidMoveException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class GameRegistryTest {
+    private static final long IDLE = TimeUnit.MILLISECONDS.toNanos(1000);
+
+    private void deleteAll(final Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (final Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testIdleGamesSpillAndReload() throws IOException, InvalidMoveException, InterruptedException {
+        final Path directory = Files.createTempDirectory("sessions");
+        try (GameRegistry registry = new GameRegistry(directory, 1000, 16, false)) {
+            final GameSession busy = registry.create(true, "A", "B");
+            final GameSession idle = registry.create(false, "C", "D");
+            final String played = registry.call(idle.getId(), session -> session.move(3));
+            Thread.sleep(100);
+            registry.call(busy.getId(), GameSession::state);
+
+            // Nothing is evicted before the idle time, then only the game not used since
+            assertEquals(0, registry.evictIdle(idle.getLastAccess() + IDLE / 2));
+            assertEquals(1, registry.evictIdle(idle.getLastAccess() + IDLE + IDLE / 16));
+            assertEquals(1, registry.getResidentCount());
+            assertEquals(1, registry.getSpilledCount());
+            assertTrue(Files.exists(directory.resolve(idle.getId() + ".game")));
+
+            // The evicted game reads back as it was
+            assertEquals(played, registry.call(idle.getId(), GameSession::state));
+            assertEquals(2, registry.getResidentCount());
+            assertEquals(0, registry.getSpilledCount());
+            assertEquals(1, registry.getReloadedCount());
+            assertFalse(Files.exists(directory.resolve(idle.getId() + ".game")));
+            assertNotSame(idle, registry.call(idle.getId(), session -> session));
+            assertTrue(registry.call(idle.getId(), session -> session.move(9)).contains("\"moves\":2"));
+
+            // Both are evicted once idle, and removing one deletes its file
+            assertEquals(2, registry.evictIdle(System.nanoTime() + IDLE * 2));
+            assertEquals(2, registry.getSpilledCount());
+            assertTrue(registry.remove(busy.getId()));
+            assertFalse(registry.remove(busy.getId()));
+            assertNull(registry.call(busy.getId(), GameSession::state));
+            assertEquals(1, registry.getSpilledCount());
+            assertEquals(3, registry.getEvictedCount());
+        } finally {
+            deleteAll(directory);
+        }
+    }
+
+    @Test
+    public void testSpilledGamesOutliveTheRegistry() throws IOException, InvalidMoveException {
+        final Path directory = Files.createTempDirectory("sessions");
+        try {
+            final long id;
+            final String played;
+            try (GameRegistry registry = new GameRegistry(directory, 1000, 16, false)) {
+                registry.create(true, "A", "B");
+                id = registry.create(true, "C", "D").getId();
+                played = registry.call(id, session -> session.move(3));
+                assertEquals(2, registry.evictIdle(System.nanoTime() + IDLE * 2));
+            }
+
+            // A new registry on the directory reads the old games back and never reuses their ids
+            try (GameRegistry registry = new GameRegistry(directory, 1000, 16, false)) {
+                assertEquals(2, registry.getSpilledCount());
+                assertTrue(registry.create(false, "E", "F").getId() > id);
+                assertEquals(played, registry.call(id, GameSession::state));
+                assertEquals(1, registry.getSpilledCount());
+                assertTrue(registry.remove(id - 1));
+                assertEquals(0, registry.getSpilledCount());
+            }
+        } finally {
+            deleteAll(directory);
+        }
+    }
+
+    @Test
+    public void testTimerWheelFiresOnce() {
+        final long tick = 1000;
+        final TimerWheel wheel = new TimerWheel(tick, 8, 0);
+        wheel.schedule(1, 3500);
+        wheel.schedule(2, 20_500); // More than a turn away
+        wheel.schedule(3, -5); // Already due
+        assertArrayEquals(new long[] {3}, wheel.advance(1000));
+        assertArrayEquals(new long[0], wheel.advance(2999));
+        assertArrayEquals(new long[] {1}, wheel.advance(3000));
+        assertArrayEquals(new long[0], wheel.advance(19_000));
+        assertArrayEquals(new long[] {2}, wheel.advance(100_000));
+        assertEquals(0, wheel.size());
+    }
+}
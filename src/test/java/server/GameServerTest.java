@@ -0,0 +1,135 @@
+package server;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class GameServerTest {
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    private HttpResponse<String> send(final GameServer server, final String method, final String path)
+        throws IOException, InterruptedException {
+        final HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path))
+            .method(method, HttpRequest.BodyPublishers.noBody()).build();
+        return this.client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    public void testPlayResignAndDelete() throws IOException, InterruptedException {
+        final GameServer server = new GameServer(new InetSocketAddress("127.0.0.1", 0), 2, 2);
+        server.start();
+        try {
+            HttpResponse<String> response = send(server, "POST", "/games?one=Ada&two=%22G%22");
+            assertEquals(201, response.statusCode());
+            assertTrue(response.body().contains("\"one\":\"Ada\",\"two\":\"\\\"G\\\"\""));
+            assertTrue(response.body().contains("\"pits\":[4,4,4,4,4,4,4,4,4,4,4,4]"));
+            final long id = LoadGenerator.field(response.body(), "id");
+
+            // Pit 3 ends in the store, so player one moves again
+            response = send(server, "POST", "/games/" + id + "/move?pit=3");
+            assertEquals(200, response.statusCode());
+            assertEquals(1, LoadGenerator.field(response.body(), "turn"));
+            assertEquals(1, LoadGenerator.field(response.body(), "moves"));
+            assertEquals(409, send(server, "POST", "/games/" + id + "/move?pit=9").statusCode());
+            assertEquals(400, send(server, "POST", "/games/" + id + "/move?pit=13").statusCode());
+
+            response = send(server, "POST", "/games/" + id + "/resign?player=1");
+            assertTrue(response.body().contains("\"result\":\"0-1\""));
+            assertEquals(0, LoadGenerator.field(response.body(), "legal"));
+            assertEquals(409, send(server, "POST", "/games/" + id + "/move?pit=1").statusCode());
+            assertEquals(200, send(server, "GET", "/games/" + id).statusCode());
+
+            // The table holds two games
+            assertEquals(201, send(server, "POST", "/games?rules=ayo").statusCode());
+            assertEquals(503, send(server, "POST", "/games").statusCode());
+            assertEquals(204, send(server, "DELETE", "/games/" + id).statusCode());
+            assertEquals(404, send(server, "GET", "/games/" + id).statusCode());
+            assertEquals(1, server.getRegistry().getResidentCount());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testLoadGeneratorPlaysGames() throws IOException, InterruptedException {
+        final GameServer server = new GameServer(new InetSocketAddress("127.0.0.1", 0), 100, 4);
+        server.start();
+        try {
+            final LoadGenerator.Report report = new LoadGenerator("http://127.0.0.1:" + server.getPort())
+                .run(2, 1500, 3);
+            assertEquals(0, report.getErrors());
+            assertTrue(report.getGames() > 0);
+            assertTrue(report.getPercentile(99) >= report.getPercentile(50));
+            assertEquals(0, server.getRegistry().getResidentCount());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testSpectatorSeesEveryEvent() throws IOException, InterruptedException {
+        final GameServer server = new GameServer(new InetSocketAddress("127.0.0.1", 0), 10, 4);
+        server.start();
+        try {
+            final long id = LoadGenerator.field(send(server, "POST", "/games").body(), "id");
+            final HttpRequest watch = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort()
+                + "/games/" + id + "/events")).build();
+            final HttpResponse<InputStream> stream = this.client.send(watch, HttpResponse.BodyHandlers.ofInputStream());
+            assertEquals(200, stream.statusCode());
+            assertEquals(404, this.client.send(HttpRequest.newBuilder(URI.create("http://127.0.0.1:"
+                + server.getPort() + "/games/99/events")).build(), HttpResponse.BodyHandlers.ofString()).statusCode());
+
+            // The stream ends with the game, and the game is kept in memory while it is watched
+            send(server, "POST", "/games/" + id + "/move?pit=3");
+            assertEquals(0, server.getRegistry().evictIdle(System.nanoTime() + GameServer.DEFAULT_IDLE_MILLIS
+                * 2_000_000));
+            send(server, "POST", "/games/" + id + "/resign?player=2");
+            final String events;
+            try (InputStream in = stream.body()) {
+                events = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            assertTrue(events.startsWith("id: 0\nevent: snapshot\n"));
+            assertTrue(events.contains("id: 1\nevent: move\ndata: {\"player\":1,\"pit\":3,\"stones\":4,"
+                + "\"pits\":[4,4,0,5,5,5,4,4,4,4,4,4],\"stores\":[1,0],\"turn\":1}\n\n"));
+            assertTrue(events.contains("id: 2\nevent: bonus\n"));
+            assertTrue(events.endsWith("id: 3\nevent: gameover\ndata: {\"player\":1,\"pit\":0,\"stones\":0,"
+                + "\"pits\":[4,4,0,5,5,5,4,4,4,4,4,4],\"stores\":[1,0],\"turn\":1}\n\n"));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testSpectatorsBeyondTheStreamPoolAreTurnedAway() throws IOException, InterruptedException {
+        final GameServer server = new GameServer(new InetSocketAddress("127.0.0.1", 0), 10, 1);
+        server.start();
+        try {
+            final long id = LoadGenerator.field(send(server, "POST", "/games").body(), "id");
+            final HttpRequest watch = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort()
+                + "/games/" + id + "/events")).build();
+            final HttpResponse<InputStream> stream = this.client.send(watch, HttpResponse.BodyHandlers.ofInputStream());
+            assertEquals(200, stream.statusCode());
+            if (!server.usesVirtualThreads()) {
+                // The one stream thread is taken, while requests are still served
+                assertEquals(503, this.client.send(watch, HttpResponse.BodyHandlers.ofString()).statusCode());
+            }
+            assertEquals(200, send(server, "GET", "/games/" + id).statusCode());
+            send(server, "POST", "/games/" + id + "/resign?player=1");
+            try (InputStream in = stream.body()) {
+                assertTrue(new String(in.readAllBytes(), StandardCharsets.UTF_8).contains("event: gameover"));
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+}
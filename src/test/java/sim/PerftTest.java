@@ -0,0 +1,42 @@
+package sim;
+
+import mancala.AyoRules;
+import mancala.GameRules;
+import mancala.KalahRules;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class PerftTest {
+
+    @Test
+    public void testShallowCounts() {
+        final GameRules kalah = new KalahRules(true);
+        assertEquals(1, Perft.perft(kalah, 0));
+        assertEquals(6, Perft.perft(kalah, 1));
+        // pit 3 lands in the store, so player one picks again from the 5 pits left
+        assertEquals(5 * 6 + 5, Perft.perft(kalah, 2));
+    }
+
+    @Test
+    public void testBackendsAgree() {
+        // both board backends must grow exactly the same tree
+        assertEquals(Perft.perft(new KalahRules(false), 5), Perft.perft(new KalahRules(true), 5));
+        assertEquals(Perft.perft(new AyoRules(false), 4), Perft.perft(new AyoRules(true), 4));
+    }
+
+    @Test
+    public void testDivideAddsUp() {
+        final GameRules ayo = new AyoRules(true);
+        final long total = Perft.perft(ayo, 4);
+        final long[] divided = Perft.divide(ayo, 4);
+        final long[] parallel = Perft.parallelDivide(ayo, 4, 3);
+        long sum = 0;
+        for (int pit = 0; pit < divided.length; pit++) {
+            assertEquals(divided[pit], parallel[pit]);
+            sum += divided[pit];
+        }
+        assertEquals(total, sum);
+    }
+}
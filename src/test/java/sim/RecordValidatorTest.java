@@ -0,0 +1,38 @@
+package sim;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class RecordValidatorTest {
+
+    @Test
+    public void testCountsEveryKindOfProblem() throws IOException {
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 600; i++) {
+            text.append("[Rules \"Kalah\"]\n[Result \"*\"]\n3 1\n\n");
+        }
+        text.append("[Rules \"Kalah\"]\n9\n\n");                  // wrong side
+        text.append("[Rules \"Kalah\"]\n[Result \"1-0\"]\n3\n\n");  // not over
+        text.append("[Rules \"Kalah\"]\n[Stones \"four\"]\n3\n\n"); // malformed
+
+        final List<String> problems = new ArrayList<>();
+        final RecordValidator.Summary summary = new RecordValidator(2).validate(
+            new ByteArrayInputStream(text.toString().getBytes(StandardCharsets.UTF_8)), problems::add);
+        assertEquals(603, summary.getGames());
+        assertEquals(600, summary.getValid());
+        assertEquals(1, summary.getIllegal());
+        assertEquals(1, summary.getWrongResults());
+        assertEquals(1, summary.getMalformed());
+        assertEquals(1202, summary.getMoves());
+        assertEquals(3, problems.size());
+        assertTrue(problems.contains("Game 601: a move is not legal"));
+    }
+}
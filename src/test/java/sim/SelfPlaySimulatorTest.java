@@ -0,0 +1,56 @@
+package sim;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class SelfPlaySimulatorTest {
+
+    @Test
+    public void testTotalsAddUp() {
+        final List<SimulationStats> reports = new ArrayList<>();
+        final SelfPlaySimulator simulator = new SelfPlaySimulator(true, Strategies.random(), Strategies.greedy(), 2, 7);
+        final SimulationStats stats = simulator.run(50, 10, reports::add);
+
+        assertEquals(50, stats.getGames());
+        assertEquals(50, stats.getOneWins() + stats.getTwoWins() + stats.getDraws());
+        assertTrue(stats.getMoves() > 50);
+        // one report every 10 games, the last one covering every game
+        assertEquals(5, reports.size());
+        assertEquals(50, reports.get(4).getGames());
+    }
+
+    @Test
+    public void testSameSeedSameGames() {
+        final SimulationStats first = new SelfPlaySimulator(false, Strategies.random(), Strategies.random(), 3, 42)
+            .run(30, 0, stats -> { });
+        final SimulationStats second = new SelfPlaySimulator(false, Strategies.random(), Strategies.random(), 3, 42)
+            .run(30, 0, stats -> { });
+        assertEquals(first.getOneWins(), second.getOneWins());
+        assertEquals(first.getTwoWins(), second.getTwoWins());
+        assertEquals(first.getMoves(), second.getMoves());
+    }
+
+    @Test
+    public void testStrategiesByName() {
+        assertNotNull(Strategies.byName("search:2"));
+        assertThrows(IllegalArgumentException.class, () -> Strategies.byName("perfect"));
+    }
+
+    @Test
+    public void testCsvIgnoresDefaultLocale() {
+        final Locale old = Locale.getDefault();
+        Locale.setDefault(Locale.GERMANY);
+        try {
+            final SimulationStats stats = new SimulationStats(4, 1, 2, 1, 150, 1_000_000_000L);
+            assertEquals("4,1,2,1,0.2500,0.5000,37.50,150", stats.toCsv());
+        } finally {
+            Locale.setDefault(old);
+        }
+    }
+}